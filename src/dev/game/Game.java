@@ -124,6 +124,25 @@ public class Game implements Runnable {
 
 	}
 
+	/**
+	 * Initialize the data for running a world without the window, for the tools
+	 * that tick a world (the benchmarks). The display and the states are not
+	 * made.
+	 *
+	 * @return the handler of the game
+	 */
+	public Handler initHeadless() {
+
+		Assets.init();
+
+		handler = new Handler(this);
+
+		gameCamera = new GameCamera(handler, 0, 0);
+
+		return handler;
+
+	}
+
 	/**
 	 * Method used to update game stuff
 	 * <p>
@@ -4,6 +4,7 @@ package dev.game.ai;
 import java.util.ArrayList;
 
 import dev.game.Handler;
+import dev.game.ai.pathfinding.FlowField;
 import dev.game.ai.pathfinding.Node;
 import dev.game.entities.creatures.Creature;
 
@@ -19,6 +20,10 @@ public class AIChase extends EntityAIBase {
 	// index of the target path that's currently traveling to
 	int pathIndex;
 
+	// the tile traveling to when following a flow field
+	private int stepX, stepY;
+	private boolean hasStep;
+
 	public AIChase(int priority, Handler handler, Creature creature) {
 
 		super(priority, handler, creature);
@@ -30,13 +35,24 @@ public class AIChase extends EntityAIBase {
 	}
 
 	/**
-	 * Check if path and target is valid
+	 * Check if path (or flow field) and target is valid
 	 */
 	@Override
 	public boolean shouldExecute() {
 
 		return ((creature.getTarget() != null)
-				&& (creature.getPathToTarget() != null));
+				&& (creature.getPathToTarget() != null || hasFlowField()));
+
+	}
+
+	/**
+	 * @return true if the creature has the flow field of its target
+	 */
+	private boolean hasFlowField() {
+
+		FlowField field = creature.getFlowField();
+
+		return field != null && field.getTarget() == creature.getTarget();
 
 	}
 
@@ -52,6 +68,15 @@ public class AIChase extends EntityAIBase {
 
 		}
 
+		if (creature.getPathToTarget() == null) {
+
+			followFlowField(creature.getFlowField());
+
+			return;
+		}
+
+		hasStep = false;
+
 		ArrayList<Node> paths = creature.getPathToTarget();
 
 		if (paths.isEmpty()) {
@@ -98,4 +123,40 @@ public class AIChase extends EntityAIBase {
 
 	}
 
+	/**
+	 * Go down the flow field a tile at a time, each tile is reached before the
+	 * next one is found.
+	 *
+	 * @param field
+	 */
+	private void followFlowField(FlowField field) {
+
+		int x = creature.getCenterX();
+		int y = creature.getCenterY();
+
+		// still on the way, unless pushed away
+		if (hasStep && Math.max(Math.abs(stepX - x), Math.abs(stepY - y)) <= 1
+				&& !creature.moveTo(stepX, stepY)) {
+
+			return;
+		}
+
+		int dir = field.getDirection(x, y);
+
+		// at the target, or out of the field
+		if (dir == FlowField.NONE) {
+
+			hasStep = false;
+
+			return;
+		}
+
+		stepX = x + FlowField.DIR_X[dir];
+		stepY = y + FlowField.DIR_Y[dir];
+		hasStep = true;
+
+		creature.moveTo(stepX, stepY);
+
+	}
+
 }
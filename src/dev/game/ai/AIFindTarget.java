@@ -47,6 +47,7 @@ public class AIFindTarget extends EntityAIBase {
 				target = null;
 				attacker.setTarget(null);
 				attacker.setPathToTarget(null);
+				attacker.setFlowField(null);
 
 			} else {
 
@@ -59,44 +60,12 @@ public class AIFindTarget extends EntityAIBase {
 
 		if (attacker.getTarget() == null) {
 
-			for (int yy = 0; yy < World.map.length; yy++) {
+			// the nearest one in range
+			target = World.getEntityGrid().getNearest(attacker.getCenterX(),
+					attacker.getCenterY(), range, targetId, attacker);
 
-				for (int xx = 0; xx < World.map[0].length; xx++) {
+			return target != null;
 
-					if (World.map[yy][xx] == null)
-						continue;
-
-					for (Entity ent : World.map[yy][xx].entities) {
-
-						// skip the non-targeting entities
-						if (ent.getEntityID() != targetId) {
-							continue;
-						}
-
-						// just in case entity isn't alive
-						if (!ent.isAlive()) {
-							continue;
-						}
-
-						// skip itself
-						if (ent.equals(attacker)) {
-							continue;
-						}
-
-						int dis = Utils.getDistance(ent.getCenterX(),
-								ent.getCenterY(), attacker.getCenterX(),
-								attacker.getCenterY());
-
-						if (dis <= range) {
-
-							target = ent;
-
-							return true;
-
-						}
-					}
-				}
-			}
 		}
 
 		return false;
@@ -1,8 +1,6 @@
 
 package dev.game.ai.pathfinding;
 
-import java.util.ArrayList;
-
 import dev.game.Handler;
 import dev.game.ai.EntityAIBase;
 import dev.game.entities.Entity;
@@ -17,14 +15,46 @@ public class AIFindPathToTarget extends EntityAIBase {
 
 	private Creature creature;
 
+	/**
+	 * Follow the {@linkplain FlowField} of the target instead of a path, for the
+	 * targets many creatures chase. The creatures out of the field find a path
+	 * with {@linkplain PathFinding#A_STAR}.
+	 */
+	public static final int FLOW_FIELD = 2;
+
+	/**
+	 * Where the target was when the last search started
+	 */
 	private int targetOldX;
 	private int targetOldY;
 
+	/**
+	 * {@linkplain PathFinding#A_STAR}, {@linkplain PathFinding#JUMP_POINT} or
+	 * {@linkplain #FLOW_FIELD}
+	 */
+	private final int method;
+
 	public AIFindPathToTarget(int priority, Handler handler, Creature creature) {
 
+		this(priority, handler, creature, PathFinding.A_STAR);
+
+	}
+
+	/**
+	 * @param priority
+	 * @param handler
+	 * @param creature
+	 * @param method   {@linkplain PathFinding#A_STAR},
+	 *                 {@linkplain PathFinding#JUMP_POINT} or
+	 *                 {@linkplain #FLOW_FIELD}
+	 */
+	public AIFindPathToTarget(int priority, Handler handler, Creature creature,
+			int method) {
+
 		super(priority, handler, creature);
 
 		this.creature = creature;
+		this.method = method;
 
 		// default
 		this.targetOldX = -1;
@@ -38,55 +68,89 @@ public class AIFindPathToTarget extends EntityAIBase {
 	@Override
 	public boolean shouldExecute() {
 
-		if (creature.getTarget() != null) {
+		Entity target = creature.getTarget();
 
-			Entity target = creature.getTarget();
+		if (target == null)
+			return false;
 
-			int x = target.getCenterX();
-			int y = target.getCenterY();
+		if (method == FLOW_FIELD && followFlowField(target))
+			return false;
 
-			if (targetOldX == -1) {
+		// if the target changed its position, find new path, the old one is
+		// followed meanwhile
+		if (creature.getPathToTarget() != null && (targetOldX != target.getCenterX()
+				|| targetOldY != target.getCenterY()))
+			requestPath(target);
 
-				targetOldX = x;
-				targetOldY = y;
+		return (creature.getPathToTarget() == null);
 
-			}
+	}
 
-			boolean xDiff = (targetOldX == x);
-			boolean yDiff = (targetOldY == y);
+	/**
+	 * Ask for the path to target, see {@linkplain PathFindingManager}. The
+	 * creature waits until the path is given.
+	 * <p>
+	 */
+	@Override
+	public void continueExecute() {
+
+		if (!getManager().isPending(creature))
+			requestPath(creature.getTarget());
+
+	}
+
+	/**
+	 * Give the creature the flow field of the target, if it's in it.
+	 *
+	 * @param target
+	 * @return true if the flow field is followed, or will be when it's made
+	 */
+	private boolean followFlowField(Entity target) {
 
-			// if the target changed its position, find new path
-			if (!xDiff || !yDiff) {
+		FlowField field = getManager().getFlowField(target);
 
-				creature.setPathToTarget(null);
+		// out of the field, or the way is blocked in it
+		if (field.isReady()
+				&& !field.isReachable(creature.getCenterX(), creature.getCenterY())) {
 
-			}
+			creature.setFlowField(null);
+			return false;
 
 		}
 
-		return (creature.getTarget() != null && creature.getPathToTarget() == null);
+		// the path is followed until the new field is made
+		if (!field.isReady() && creature.getPathToTarget() != null)
+			return false;
 
-	}
+		creature.setFlowField(field);
+		creature.setPathToTarget(null);
 
-	/**
-	 * Get the path to target
-	 * <p>
-	 */
-	@Override
-	public void continueExecute() {
+		getManager().cancel(creature);
 
-		Entity target = creature.getTarget();
+		return true;
 
-		PathFinding path = new PathFinding(getHandler(), creature, target);
+	}
 
-		ArrayList<Node> paths = path.getPath();
+	/**
+	 * Ask for the path to the target. If a search to the target is still going,
+	 * it's kept and the new position is asked for again after it's done.
+	 *
+	 * @param target
+	 */
+	private void requestPath(Entity target) {
 
-		creature.setPathToTarget(paths);
+		if (!getManager().request(creature, target,
+				(method == FLOW_FIELD) ? PathFinding.A_STAR : method))
+			return;
 
 		targetOldX = target.getCenterX();
 		targetOldY = target.getCenterY();
 
-		creature.setPathUpdated(true);
+	}
+
+	private PathFindingManager getManager() {
+
+		return getHandler().getWorld().getPathFindingManager();
 
 	}
 
@@ -0,0 +1,271 @@
+package dev.game.ai.pathfinding;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.entities.creatures.Player;
+import dev.game.map.Chunk;
+import dev.game.map.ChunkCache;
+import dev.game.map.ChunkSaveQueue;
+import dev.game.map.MapGenerator;
+import dev.game.map.RegionFile;
+import dev.game.states.GameState;
+import dev.game.states.State;
+import dev.game.tiles.Tile;
+import dev.game.tiles.TileId;
+import dev.game.worlds.World;
+
+/**
+ * BenchmarkArea.java - A headless scratch world for the path finding checks and
+ * benchmarks, with the loaded Chunks painted as open ground, clutter or a
+ * maze.
+ * <p>
+ * The area is the square of loaded Chunks around the player. The scratch world
+ * is deleted by {@linkplain #close()}.
+ *
+ * @author Juhyung Kim
+ */
+final class BenchmarkArea {
+
+	final Handler handler;
+	final World world;
+	final Player player;
+
+	// the area, in block
+	final int minX, minY, side;
+
+	private final File scratchDir;
+
+	/**
+	 * Make the scratch world, with the JIT warmed up by a few ticks.
+	 *
+	 * @param worldName
+	 * @param radius    view distance, see {@linkplain World#setViewDistance(int)}
+	 */
+	BenchmarkArea(String worldName, int radius) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		scratchDir = new File(State.SAVEFILE_DIR + "/" + worldName);
+		deleteDir(scratchDir);
+
+		handler = new Game().initHeadless();
+
+		World.setViewDistance(radius);
+
+		world = new World(handler, new MapGenerator(handler, worldName, 1, 2));
+		handler.setWorld(world);
+		handler.getGame().gameState = new GameState(handler, world);
+
+		player = world.getEntityManager().getPlayer();
+
+		for (int i = 0; i < 100; i++)
+			world.tick();
+
+		int[] chunkPos = Chunk.posToChunckPos(player.getCenterX(),
+				player.getCenterY());
+
+		minX = (chunkPos[0] - radius) * Chunk.SIZE;
+		minY = (chunkPos[1] - radius) * Chunk.SIZE;
+		side = (radius * 2 + 1) * Chunk.SIZE;
+
+	}
+
+	/**
+	 * Take every entity but the player out of the loaded Chunks.
+	 */
+	void clearEntities() {
+
+		for (Chunk chunk : World.getChunks()) {
+
+			Iterator<Entity> it = chunk.entities.iterator();
+
+			while (it.hasNext()) {
+
+				Entity entity = it.next();
+
+				if (entity == player)
+					continue;
+
+				it.remove();
+				chunk.entityRemoved(entity);
+
+			}
+		}
+
+	}
+
+	/**
+	 * @param id TileId for the whole area
+	 */
+	void fill(int id) {
+
+		for (int y = 0; y < side; y++)
+			for (int x = 0; x < side; x++)
+				setTile(minX + x, minY + y, id);
+
+	}
+
+	/**
+	 * Grass with random stone tiles.
+	 *
+	 * @param random
+	 * @param percent of the tiles made stone
+	 */
+	void clutter(Random random, int percent) {
+
+		for (int y = 0; y < side; y++)
+			for (int x = 0; x < side; x++)
+				setTile(minX + x, minY + y,
+						(random.nextInt(100) < percent) ? TileId.STONE : TileId.GRASS);
+
+	}
+
+	/**
+	 * A maze of one tile wide stone walls and grass paths, made by a recursive
+	 * backtracker, with some of the walls opened so there is more than one way.
+	 *
+	 * @param random
+	 * @param openPercent of the tiles made grass after
+	 */
+	void maze(Random random, int openPercent) {
+
+		fill(TileId.STONE);
+
+		// the cells are on the odd tiles, the walls between them
+		int cells = (side - 1) / 2;
+		boolean[] visited = new boolean[cells * cells];
+		ArrayDeque<int[]> stack = new ArrayDeque<>();
+		List<int[]> next = new ArrayList<>();
+
+		int[][] directions = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+
+		visited[0] = true;
+		stack.push(new int[] { 0, 0 });
+		setTile(minX + 1, minY + 1, TileId.GRASS);
+
+		while (!stack.isEmpty()) {
+
+			int[] cell = stack.peek();
+
+			next.clear();
+
+			for (int[] d : directions) {
+
+				int nx = cell[0] + d[0];
+				int ny = cell[1] + d[1];
+
+				if (nx >= 0 && ny >= 0 && nx < cells && ny < cells
+						&& !visited[ny * cells + nx])
+					next.add(new int[] { nx, ny });
+
+			}
+
+			if (next.isEmpty()) {
+				stack.pop();
+				continue;
+			}
+
+			int[] chosen = next.get(random.nextInt(next.size()));
+
+			visited[chosen[1] * cells + chosen[0]] = true;
+
+			setTile(minX + 1 + chosen[0] * 2, minY + 1 + chosen[1] * 2,
+					TileId.GRASS);
+			setTile(minX + 1 + cell[0] + chosen[0], minY + 1 + cell[1] + chosen[1],
+					TileId.GRASS);
+
+			stack.push(chosen);
+
+		}
+
+		for (int i = side * side * openPercent / 100; i > 0; i--)
+			setTile(minX + 1 + random.nextInt(side - 2),
+					minY + 1 + random.nextInt(side - 2), TileId.GRASS);
+
+	}
+
+	/**
+	 * @param x  in block
+	 * @param y  in block
+	 * @param id TileId
+	 */
+	void setTile(int x, int y, int id) {
+
+		World.getChunk(Chunk.blockToChunk(x), Chunk.blockToChunk(y))
+				.setTileId(Chunk.blockToLocal(x), Chunk.blockToLocal(y), id);
+
+	}
+
+	/**
+	 * A random walkable tile of the area.
+	 *
+	 * @param random
+	 * @return {x, y} in block
+	 */
+	int[] randomWalkable(Random random) {
+
+		while (true) {
+
+			int x = minX + random.nextInt(side);
+			int y = minY + random.nextInt(side);
+
+			if (World.isWalkable(x, y))
+				return new int[] { x, y };
+
+		}
+
+	}
+
+	/**
+	 * Move the entity so its center is on the middle of the tile.
+	 *
+	 * @param entity
+	 * @param x      in block
+	 * @param y      in block
+	 */
+	static void place(Entity entity, int x, int y) {
+
+		Rectangle bounds = entity.getBounds(0, 0);
+
+		entity.setX(entity.getX() + x * Tile.TILE_SIZE + Tile.TILE_SIZE / 2f
+				- (bounds.x + bounds.width / 2f));
+		entity.setY(entity.getY() + y * Tile.TILE_SIZE + Tile.TILE_SIZE / 2f
+				- (bounds.y + bounds.height / 2f));
+
+	}
+
+	/**
+	 * Stop the loader and delete the scratch world.
+	 */
+	void close() {
+
+		world.getChunkLoader().shutdown();
+		ChunkCache.clear();
+		ChunkSaveQueue.flush();
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
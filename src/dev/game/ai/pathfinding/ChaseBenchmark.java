@@ -0,0 +1,282 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.Game;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.entities.creatures.Creature;
+import dev.game.worlds.World;
+
+/**
+ * ChaseBenchmark.java - Counts the nodes searched per second for creatures
+ * chasing a moving target, with the paths spliced (see
+ * {@linkplain PathSplice}) and with every path found again from scratch.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. The player walks a tile
+ * every 8 ticks, turning now and then, and chasers follow their paths a tile
+ * every 16 ticks, asking for a new path the way
+ * {@linkplain AIFindPathToTarget} does whenever the player is on another tile.
+ * The requests go to a {@linkplain PathFindingManager}. To find every path
+ * again, the path of the chaser is forgotten before asking, so it can't be
+ * spliced. Both runs see the player walk the same way. The delivered paths
+ * are compared with a fresh A* path from the same tile. The maps are the
+ * generated world, a maze with 25% of its tiles opened, and a maze with 5%
+ * opened. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ChaseBenchmark [chasers] [ticks]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class ChaseBenchmark {
+
+	private static final String WORLD_NAME = "_chase_benchmark";
+
+	// the player stays this close to where it started, in block
+	private static final int WALK_RANGE = 12;
+
+	/**
+	 * Ticks not counted, the chasers get their first paths meanwhile
+	 */
+	private static final int WARMUP_TICKS = 200;
+
+	/**
+	 * @param args [chasers] [ticks]
+	 */
+	public static void main(String[] args) {
+
+		int chasers = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 2400;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+		Random random = new Random(7);
+
+		run("world", area, chasers, ticks);
+
+		area.clearEntities();
+		area.maze(random, 25);
+
+		run("open maze", area, chasers, ticks);
+
+		area.maze(random, 5);
+
+		run("maze", area, chasers, ticks);
+
+		area.close();
+
+		System.exit(0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, int chasers,
+			int ticks) {
+
+		for (int splice = 1; splice >= 0; splice--)
+			chase(name, area, chasers, ticks, splice == 1);
+
+	}
+
+	private static void chase(String name, BenchmarkArea area, int count,
+			int ticks, boolean splice) {
+
+		// the same walk for both runs
+		Random random = new Random(5);
+
+		int[] home = area.randomWalkable(random);
+		int playerX = home[0], playerY = home[1];
+
+		BenchmarkArea.place(area.player, playerX, playerY);
+
+		List<Creature> chasers = new ArrayList<>();
+
+		// not in the world, only there to be the finders
+		while (chasers.size() < count) {
+
+			int[] tile = area.randomWalkable(random);
+
+			int distance = Math.max(Math.abs(tile[0] - playerX),
+					Math.abs(tile[1] - playerY));
+
+			if (distance < 6 || distance > 14)
+				continue;
+
+			Creature chaser = (Creature) EntityManager.getEntityById(EntityId.WOLF,
+					0, 0);
+			BenchmarkArea.place(chaser, tile[0], tile[1]);
+			chaser.setTarget(area.player);
+
+			chasers.add(chaser);
+
+		}
+
+		PathFindingManager manager = new PathFindingManager(area.handler);
+
+		List<ArrayList<Node>> paths = new ArrayList<>();
+		int[] next = new int[count], askedX = new int[count], askedY = new int[count];
+
+		for (int i = 0; i < count; i++)
+			paths.add(null);
+
+		int dx = 1, dy = 0;
+		long nodes = 0, nanos = 0, requests = 0, delivered = 0;
+		double costRatio = 0;
+		int compared = 0;
+
+		for (int tick = -WARMUP_TICKS; tick < ticks; tick++) {
+
+			// the player walks a tile every 8 ticks
+			if (tick % 8 == 0) {
+
+				for (int tries = 0; tries < 8; tries++) {
+
+					if (tries > 0 || random.nextInt(6) == 0) {
+
+						int direction = random.nextInt(4);
+
+						dx = (direction == 0) ? 1 : (direction == 1) ? -1 : 0;
+						dy = (direction == 2) ? 1 : (direction == 3) ? -1 : 0;
+
+					}
+
+					int x = playerX + dx, y = playerY + dy;
+
+					if (World.isWalkable(x, y) && Math.abs(x - home[0]) <= WALK_RANGE
+							&& Math.abs(y - home[1]) <= WALK_RANGE) {
+
+						playerX = x;
+						playerY = y;
+
+						BenchmarkArea.place(area.player, playerX, playerY);
+						break;
+
+					}
+				}
+			}
+
+			for (int k = 0; k < count; k++) {
+
+				Creature chaser = chasers.get(k);
+
+				if (chaser.getPathUpdated()) {
+
+					chaser.setPathUpdated(false);
+
+					ArrayList<Node> path = chaser.getPathToTarget();
+
+					paths.set(k, path);
+					next[k] = (path == null) ? -1 : path.size() - 1;
+
+					if (tick >= 0 && path != null && !path.isEmpty()) {
+
+						delivered++;
+
+						PathFinding fresh = new PathFinding(area.handler, chaser,
+								area.player);
+
+						if (!fresh.getNoPath() && !fresh.getPath().isEmpty()) {
+
+							costRatio += getCost(chaser, path)
+									/ (double) getCost(chaser, fresh.getPath());
+							compared++;
+
+						}
+					}
+				}
+
+				ArrayList<Node> path = paths.get(k);
+
+				// a tile every 16 ticks, up to 2 tiles from the player
+				if (path != null && tick % 16 == k % 16) {
+
+					if (next[k] >= 0 && Math.max(Math.abs(chaser.getCenterX() - playerX),
+							Math.abs(chaser.getCenterY() - playerY)) > 2) {
+
+						Node node = path.get(next[k]--);
+
+						BenchmarkArea.place(chaser, node.getX(), node.getY());
+
+					}
+
+					if (next[k] < 0) {
+
+						chaser.setPathToTarget(null);
+						paths.set(k, null);
+						path = null;
+
+					}
+				}
+
+				// see AIFindPathToTarget
+				boolean ask = (path != null)
+						? askedX[k] != playerX || askedY[k] != playerY
+						: !manager.isPending(chaser);
+
+				if (!ask)
+					continue;
+
+				if (!splice)
+					chaser.setPathToTarget(null);
+
+				if (manager.request(chaser, area.player, PathFinding.A_STAR)) {
+
+					askedX[k] = playerX;
+					askedY[k] = playerY;
+
+					if (tick >= 0)
+						requests++;
+
+				}
+			}
+
+			manager.tick();
+
+			if (tick >= 0) {
+				nodes += manager.getLastNodes();
+				nanos += manager.getLastNanos();
+			}
+
+		}
+
+		double seconds = ticks / (double) Game.FPS;
+
+		System.out.println(String.format(
+				"[ChaseBenchmark] %-9s %-6s %d chasers: %6.0f nodes/s, %5.1f requests/s, %5.1f paths/s, manager %4.0f us/tick, path cost %.3f of a fresh A*",
+				name, splice ? "splice" : "full", count, nodes / seconds,
+				requests / seconds, delivered / seconds, nanos / 1e3 / ticks,
+				costRatio / Math.max(compared, 1)));
+
+	}
+
+	/**
+	 * @param chaser
+	 * @param path   from the target back to the first step
+	 * @return the cost from the tile of the chaser, 10 each straight step and 14
+	 *         each diagonal step
+	 */
+	private static int getCost(Creature chaser, List<Node> path) {
+
+		int cost = 0;
+		int x = chaser.getCenterX(), y = chaser.getCenterY();
+
+		for (int i = path.size() - 1; i >= 0; i--) {
+
+			Node node = path.get(i);
+
+			cost += (node.getX() != x && node.getY() != y) ? 14 : 10;
+
+			x = node.getX();
+			y = node.getY();
+
+		}
+
+		return cost;
+
+	}
+
+}
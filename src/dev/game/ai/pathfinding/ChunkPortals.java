@@ -0,0 +1,486 @@
+package dev.game.ai.pathfinding;
+
+import java.util.Arrays;
+
+import dev.game.map.Chunk;
+import dev.game.worlds.World;
+
+/**
+ * ChunkPortals.java - The ways in and out of a Chunk, for
+ * {@linkplain HierarchicalPathFinding}.
+ * <p>
+ * Where the tiles on both sides of a Chunk edge are walkable, the run of open
+ * tiles gets a portal (one in the middle, or one at each end of a wide run).
+ * The distance between every two portals inside the Chunk is found once, so a
+ * long path is planned from portal to portal instead of tile by tile.
+ * <p>
+ * Only the walkable tiles of the Chunk (see
+ * {@linkplain Chunk#isWalkable(int, int)}) count, the creatures move around too
+ * much. The data is kept in the Chunk and made again when an obstacle is
+ * placed or removed, or a neighbor Chunk is loaded or changed.
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkPortals {
+
+	private static final int SIZE = Chunk.SIZE;
+
+	// 10 points each straight path, 14 points for each diagonal path
+	static final int STRAIGHT_COST = 10, DIAGONAL_COST = 14;
+
+	/**
+	 * Distance of the tiles that can't be reached
+	 */
+	static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Runs of open edge tiles this long get a portal at each end, the shorter
+	 * ones get one in the middle
+	 */
+	private static final int WIDE_RUN = 6;
+
+	/**
+	 * The sides of the Chunk
+	 */
+	static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+
+	static final int[] SIDE_X = { 0, 0, -1, 1 }, SIDE_Y = { -1, 1, 0, 0 };
+
+	/**
+	 * {@linkplain Chunk#getObstacleVersion()} when the walkable tiles were found
+	 */
+	private final int version;
+
+	/**
+	 * Number of {@linkplain #search(int, int[], int[])} done, by every Chunk
+	 */
+	private static int searchCount;
+
+	/**
+	 * True if the tile is walkable, [localY * SIZE + localX]
+	 */
+	private final boolean[] walkable;
+
+	/**
+	 * The walkable tiles of the neighbors when the portals were made, [side]
+	 */
+	private final boolean[][] neighborWalkable = new boolean[4][];
+
+	private boolean hasPortals;
+
+	// the portals
+	private int count;
+	private int[] local = new int[0]; // [localY * SIZE + localX]
+	private int[] side = new int[0]; // the side it leads out of
+
+	/**
+	 * Distance between the portals inside this Chunk, [from * count + to]
+	 */
+	private int[] costs = new int[0];
+
+	private ChunkPortals(Chunk chunk) {
+
+		this.version = chunk.getObstacleVersion();
+		this.walkable = findWalkable(chunk);
+
+	}
+
+	/**
+	 * Get the portals of the Chunk, made if they are out of date.
+	 *
+	 * @param chunk
+	 * @return
+	 */
+	static ChunkPortals get(Chunk chunk) {
+
+		ChunkPortals portals = getWalkableOnly(chunk);
+
+		portals.checkPortals(chunk);
+
+		return portals;
+
+	}
+
+	/**
+	 * Get the ChunkPortals of the Chunk with the walkable tiles up to date, the
+	 * portals might not be.
+	 *
+	 * @param chunk
+	 * @return
+	 */
+	private static ChunkPortals getWalkableOnly(Chunk chunk) {
+
+		ChunkPortals portals = chunk.getPortals();
+
+		if (portals == null || portals.version != chunk.getObstacleVersion()) {
+
+			portals = new ChunkPortals(chunk);
+			chunk.setPortals(portals);
+
+		}
+
+		return portals;
+
+	}
+
+	/**
+	 * Make the portals again if the neighbors changed since.
+	 *
+	 * @param chunk
+	 */
+	private void checkPortals(Chunk chunk) {
+
+		boolean[][] neighbors = new boolean[4][];
+
+		for (int s = 0; s < 4; s++) {
+
+			Chunk neighbor = World.getChunk(chunk.x + SIDE_X[s], chunk.y + SIDE_Y[s]);
+
+			if (neighbor != null)
+				neighbors[s] = getWalkableOnly(neighbor).walkable;
+
+		}
+
+		if (hasPortals && Arrays.equals(neighbors, neighborWalkable))
+			return;
+
+		for (int s = 0; s < 4; s++)
+			neighborWalkable[s] = neighbors[s];
+
+		makePortals();
+
+		hasPortals = true;
+
+	}
+
+	/**
+	 * Find the runs of open tiles on each edge, and the distances between the
+	 * portals.
+	 */
+	private void makePortals() {
+
+		count = 0;
+		local = new int[16];
+		side = new int[16];
+
+		for (int s = 0; s < 4; s++) {
+
+			boolean[] other = neighborWalkable[s];
+
+			if (other == null)
+				continue;
+
+			int runStart = -1;
+
+			// one past the end, to close the last run
+			for (int i = 0; i <= SIZE; i++) {
+
+				boolean open = i < SIZE && walkable[getEdgeTile(s, i, false)]
+						&& other[getEdgeTile(s, i, true)];
+
+				if (open && runStart == -1)
+					runStart = i;
+
+				if (open || runStart == -1)
+					continue;
+
+				int length = i - runStart;
+
+				if (length >= WIDE_RUN) {
+
+					addPortal(getEdgeTile(s, runStart, false), s);
+					addPortal(getEdgeTile(s, i - 1, false), s);
+
+				} else {
+
+					addPortal(getEdgeTile(s, runStart + length / 2, false), s);
+
+				}
+
+				runStart = -1;
+
+			}
+		}
+
+		costs = new int[count * count];
+
+		int[] dist = new int[SIZE * SIZE];
+
+		for (int from = 0; from < count; from++) {
+
+			int same = from - 1;
+
+			// the portals on a corner share the tile
+			while (same >= 0 && local[same] != local[from])
+				same--;
+
+			if (same >= 0) {
+
+				System.arraycopy(costs, same * count, costs, from * count, count);
+				continue;
+
+			}
+
+			search(local[from], dist, null);
+
+			for (int to = 0; to < count; to++)
+				costs[from * count + to] = dist[local[to]];
+
+		}
+
+	}
+
+	private void addPortal(int tile, int s) {
+
+		if (count == local.length) {
+
+			local = Arrays.copyOf(local, count * 2);
+			side = Arrays.copyOf(side, count * 2);
+
+		}
+
+		local[count] = tile;
+		side[count] = s;
+		count++;
+
+	}
+
+	/**
+	 * @param s     the side
+	 * @param i     0 ~ SIZE - 1 along the side
+	 * @param other true for the tile of the neighbor, across the edge
+	 * @return [localY * SIZE + localX]
+	 */
+	private static int getEdgeTile(int s, int i, boolean other) {
+
+		switch (s) {
+
+		case UP:
+			return (other ? SIZE - 1 : 0) * SIZE + i;
+
+		case DOWN:
+			return (other ? 0 : SIZE - 1) * SIZE + i;
+
+		case LEFT:
+			return i * SIZE + (other ? SIZE - 1 : 0);
+
+		default:
+			return i * SIZE + (other ? 0 : SIZE - 1);
+
+		}
+
+	}
+
+	/**
+	 * Find the distance from the tile to every tile of this Chunk, without
+	 * leaving it (Dijkstra). Diagonal paths do not cut corners, the same as
+	 * {@linkplain PathFinding}.
+	 *
+	 * @param start  [localY * SIZE + localX], doesn't have to be walkable
+	 * @param dist   filled in, {@linkplain #UNREACHABLE} if not reachable
+	 * @param parent filled in with the tile it's reached from, or null
+	 */
+	void search(int start, int[] dist, int[] parent) {
+
+		searchCount++;
+
+		Arrays.fill(dist, UNREACHABLE);
+
+		// distance * (SIZE * SIZE) + tile, the old entries are skipped
+		int[] heap = new int[SIZE * SIZE * 2];
+		int heapSize = 0;
+
+		dist[start] = 0;
+		heap[heapSize++] = start;
+
+		while (heapSize > 0) {
+
+			int top = heap[0];
+
+			heap[0] = heap[--heapSize];
+			siftDown(heap, heapSize);
+
+			int tile = top % (SIZE * SIZE);
+			int d = top / (SIZE * SIZE);
+
+			if (d > dist[tile])
+				continue;
+
+			int x = tile % SIZE;
+			int y = tile / SIZE;
+
+			boolean up = y > 0 && walkable[tile - SIZE];
+			boolean down = y < SIZE - 1 && walkable[tile + SIZE];
+			boolean left = x > 0 && walkable[tile - 1];
+			boolean right = x < SIZE - 1 && walkable[tile + 1];
+
+			for (int dy = -1; dy < 2; dy++) {
+
+				for (int dx = -1; dx < 2; dx++) {
+
+					if (dx == 0 && dy == 0)
+						continue;
+
+					int nx = x + dx;
+					int ny = y + dy;
+
+					if (nx < 0 || ny < 0 || nx >= SIZE || ny >= SIZE)
+						continue;
+
+					int next = ny * SIZE + nx;
+
+					if (!walkable[next])
+						continue;
+
+					boolean isStraight = (dx == 0 || dy == 0);
+
+					// no cutting corners
+					if (!isStraight && (!(dy == -1 ? up : down) || !(dx == -1 ? left : right)))
+						continue;
+
+					int nd = d + (isStraight ? STRAIGHT_COST : DIAGONAL_COST);
+
+					if (nd >= dist[next])
+						continue;
+
+					dist[next] = nd;
+
+					if (parent != null)
+						parent[next] = tile;
+
+					if (heapSize == heap.length)
+						heap = Arrays.copyOf(heap, heapSize * 2);
+
+					heap[heapSize] = nd * (SIZE * SIZE) + next;
+					siftUp(heap, heapSize++);
+
+				}
+			}
+		}
+
+	}
+
+	private static void siftUp(int[] heap, int index) {
+
+		int value = heap[index];
+
+		while (index > 0) {
+
+			int parent = (index - 1) >>> 1;
+
+			if (heap[parent] <= value)
+				break;
+
+			heap[index] = heap[parent];
+			index = parent;
+
+		}
+
+		heap[index] = value;
+
+	}
+
+	private static void siftDown(int[] heap, int size) {
+
+		if (size == 0)
+			return;
+
+		int value = heap[0];
+		int index = 0;
+
+		while (true) {
+
+			int child = index * 2 + 1;
+
+			if (child >= size)
+				break;
+
+			if (child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+
+			if (heap[child] >= value)
+				break;
+
+			heap[index] = heap[child];
+			index = child;
+
+		}
+
+		heap[index] = value;
+
+	}
+
+	/**
+	 * @param chunk
+	 * @return true for each tile that is not solid and has no obstacle on it
+	 */
+	private static boolean[] findWalkable(Chunk chunk) {
+
+		boolean[] walkable = new boolean[SIZE * SIZE];
+
+		for (int y = 0; y < SIZE; y++)
+			for (int x = 0; x < SIZE; x++)
+				walkable[y * SIZE + x] = chunk.isWalkable(x, y);
+
+		return walkable;
+
+	}
+
+	// getter
+
+	/**
+	 * @return number of searches done in the Chunks so far (including the ones
+	 *         for making the portals), to tell how much work a path took
+	 */
+	static int getSearchCount() {
+
+		return searchCount;
+	}
+
+	/**
+	 * @return number of portals
+	 */
+	int getCount() {
+
+		return count;
+	}
+
+	/**
+	 * @param portal
+	 * @return [localY * SIZE + localX] of the portal
+	 */
+	int getTile(int portal) {
+
+		return local[portal];
+	}
+
+	/**
+	 * @param portal
+	 * @return the side the portal leads out of, {@linkplain #UP} ~
+	 *         {@linkplain #RIGHT}
+	 */
+	int getSide(int portal) {
+
+		return side[portal];
+	}
+
+	/**
+	 * @param from portal
+	 * @param to   portal
+	 * @return the distance inside the Chunk, or {@linkplain #UNREACHABLE}
+	 */
+	int getCost(int from, int to) {
+
+		return costs[from * count + to];
+	}
+
+	/**
+	 * @param tile [localY * SIZE + localX]
+	 * @return true if the tile is not solid, and has no obstacle on it
+	 */
+	boolean isWalkable(int tile) {
+
+		return walkable[tile];
+	}
+
+}
@@ -0,0 +1,435 @@
+package dev.game.ai.pathfinding;
+
+import java.util.Arrays;
+
+import dev.game.entities.Entity;
+import dev.game.map.Chunk;
+import dev.game.worlds.World;
+
+/**
+ * FlowField.java - The distance to a target from every tile around it, shared
+ * by all the creatures chasing the target (see
+ * {@linkplain PathFindingManager#getFlowField(Entity)}).
+ * <p>
+ * The distances are found once with Dijkstra from the target, over the
+ * walkable tiles (see {@linkplain Chunk#isWalkable(int, int)}) in
+ * {@linkplain #RADIUS} of it. Each tile keeps the direction to its neighbor
+ * closer to the target, so a creature finds its next step in constant time.
+ * <p>
+ * When the target moves to another tile or the walkable tiles change, the new
+ * field is made a part at a time while the old one is followed, and they are
+ * swapped when it's done.
+ *
+ * @author Juhyung Kim
+ */
+public class FlowField {
+
+	/**
+	 * The tiles this far from the target (in block, either way) are in the field
+	 */
+	public static final int RADIUS = HierarchicalPathFinding.MIN_DISTANCE;
+
+	private static final int SIZE = RADIUS * 2 + 1;
+
+	// 10 points each straight path, 14 points for each diagonal path
+	private static final int STRAIGHT_COST = 10, DIAGONAL_COST = 14;
+
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * No direction, the tile is the target or can't reach it
+	 */
+	public static final int NONE = -1;
+
+	/**
+	 * The directions, clockwise from up. The opposite one is 4 apart
+	 */
+	public static final int[] DIR_X = { 0, 1, 1, 1, 0, -1, -1, -1 },
+			DIR_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+	private final Entity target;
+
+	// the field being followed, [y * SIZE + x] from the top left tile
+	private boolean ready;
+	private int left, top;
+	private int targetX, targetY;
+	private int[] dist = new int[SIZE * SIZE];
+	private byte[] direction = new byte[SIZE * SIZE];
+
+	// the Chunks under the field and their obstacle versions
+	private Chunk[] chunks = new Chunk[0];
+	private int[] versions = new int[0];
+
+	// the field being made
+	private boolean making;
+	private int newLeft, newTop;
+	private int newTargetX, newTargetY;
+	private int[] newDist = new int[SIZE * SIZE];
+	private byte[] newDirection = new byte[SIZE * SIZE];
+	private boolean[] walkable = new boolean[SIZE * SIZE];
+	private Chunk[] newChunks;
+	private int[] newVersions;
+
+	// distance * (SIZE * SIZE) + tile, the old entries are skipped
+	private int[] heap = new int[SIZE * SIZE];
+	private int heapSize;
+
+	private int lastUsed; // the tick it's asked for last
+
+	FlowField(Entity target) {
+
+		this.target = target;
+
+	}
+
+	/**
+	 * @return true if the new field is being made, or this one is out of date
+	 */
+	boolean needsUpdate() {
+
+		return making || isOutOfDate();
+
+	}
+
+	/**
+	 * @return true if the target moved to another tile, or the walkable tiles
+	 *         under the field changed since it was made
+	 */
+	private boolean isOutOfDate() {
+
+		if (!ready && !making)
+			return true;
+
+		int x = making ? newTargetX : targetX;
+		int y = making ? newTargetY : targetY;
+
+		if (x != target.getCenterX() || y != target.getCenterY())
+			return true;
+
+		Chunk[] chunks = making ? newChunks : this.chunks;
+		int[] versions = making ? newVersions : this.versions;
+
+		for (int i = 0; i < chunks.length; i++) {
+
+			Chunk chunk = World.getChunk(chunks[i].x, chunks[i].y);
+
+			if (chunk != chunks[i] || chunk.getObstacleVersion() != versions[i])
+				return true;
+
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Carry on making the new field, it's started over if it's out of date.
+	 *
+	 * @param budget the most tiles to check in this call
+	 * @return the number of tiles checked
+	 */
+	int update(int budget) {
+
+		if (!making || isOutOfDate())
+			start();
+
+		int checked = 0;
+
+		while (heapSize > 0 && checked < budget) {
+
+			int top = heap[0];
+
+			heap[0] = heap[--heapSize];
+			siftDown(heap, heapSize);
+
+			int tile = top % (SIZE * SIZE);
+			int d = top / (SIZE * SIZE);
+
+			if (d > newDist[tile])
+				continue;
+
+			checked++;
+
+			expand(tile, d);
+
+		}
+
+		if (heapSize == 0)
+			swap();
+
+		return checked;
+
+	}
+
+	/**
+	 * Start making the field around where the target is.
+	 */
+	private void start() {
+
+		newTargetX = target.getCenterX();
+		newTargetY = target.getCenterY();
+		newLeft = newTargetX - RADIUS;
+		newTop = newTargetY - RADIUS;
+
+		// the Chunks under the field
+		int chunkLeft = Chunk.blockToChunk(newLeft);
+		int chunkTop = Chunk.blockToChunk(newTop);
+		int chunkRight = Chunk.blockToChunk(newLeft + SIZE - 1);
+		int chunkBottom = Chunk.blockToChunk(newTop + SIZE - 1);
+
+		int count = 0;
+
+		newChunks = new Chunk[(chunkRight - chunkLeft + 1)
+				* (chunkBottom - chunkTop + 1)];
+		newVersions = new int[newChunks.length];
+
+		for (int cy = chunkTop; cy <= chunkBottom; cy++) {
+
+			for (int cx = chunkLeft; cx <= chunkRight; cx++) {
+
+				Chunk chunk = World.getChunk(cx, cy);
+
+				if (chunk == null)
+					continue;
+
+				newChunks[count] = chunk;
+				newVersions[count] = chunk.getObstacleVersion();
+				count++;
+
+			}
+		}
+
+		newChunks = Arrays.copyOf(newChunks, count);
+		newVersions = Arrays.copyOf(newVersions, count);
+
+		for (int y = 0; y < SIZE; y++)
+			for (int x = 0; x < SIZE; x++)
+				walkable[y * SIZE + x] = World.isWalkable(newLeft + x, newTop + y);
+
+		// the target itself may be on an obstacle
+		int targetTile = RADIUS * SIZE + RADIUS;
+
+		walkable[targetTile] = !World.getTile(newTargetX, newTargetY).isSolid();
+
+		Arrays.fill(newDist, UNREACHABLE);
+		Arrays.fill(newDirection, (byte) NONE);
+
+		heapSize = 0;
+
+		newDist[targetTile] = 0;
+		heap[heapSize++] = targetTile;
+
+		making = true;
+
+	}
+
+	/**
+	 * Give the neighbors of the tile the shorter distance through it.
+	 *
+	 * @param tile [y * SIZE + x]
+	 * @param d    distance of the tile
+	 */
+	private void expand(int tile, int d) {
+
+		int x = tile % SIZE;
+		int y = tile / SIZE;
+
+		for (int dir = 0; dir < 8; dir++) {
+
+			int nx = x + DIR_X[dir];
+			int ny = y + DIR_Y[dir];
+
+			if (nx < 0 || ny < 0 || nx >= SIZE || ny >= SIZE)
+				continue;
+
+			int next = ny * SIZE + nx;
+
+			if (!walkable[next])
+				continue;
+
+			boolean isStraight = (dir % 2 == 0);
+
+			// no cutting corners
+			if (!isStraight && (!walkable[y * SIZE + nx] || !walkable[ny * SIZE + x]))
+				continue;
+
+			int nd = d + (isStraight ? STRAIGHT_COST : DIAGONAL_COST);
+
+			if (nd >= newDist[next])
+				continue;
+
+			newDist[next] = nd;
+
+			// back the way it came
+			newDirection[next] = (byte) ((dir + 4) % 8);
+
+			if (heapSize == heap.length)
+				heap = Arrays.copyOf(heap, heapSize * 2);
+
+			heap[heapSize] = nd * (SIZE * SIZE) + next;
+			siftUp(heap, heapSize++);
+
+		}
+
+	}
+
+	/**
+	 * The new field is done, follow it.
+	 */
+	private void swap() {
+
+		int[] oldDist = dist;
+		byte[] oldDirection = direction;
+
+		dist = newDist;
+		direction = newDirection;
+		newDist = oldDist;
+		newDirection = oldDirection;
+
+		left = newLeft;
+		top = newTop;
+		targetX = newTargetX;
+		targetY = newTargetY;
+		chunks = newChunks;
+		versions = newVersions;
+
+		making = false;
+		ready = true;
+
+	}
+
+	private static void siftUp(int[] heap, int index) {
+
+		int value = heap[index];
+
+		while (index > 0) {
+
+			int parent = (index - 1) >>> 1;
+
+			if (heap[parent] <= value)
+				break;
+
+			heap[index] = heap[parent];
+			index = parent;
+
+		}
+
+		heap[index] = value;
+
+	}
+
+	private static void siftDown(int[] heap, int size) {
+
+		if (size == 0)
+			return;
+
+		int value = heap[0];
+		int index = 0;
+
+		while (true) {
+
+			int child = index * 2 + 1;
+
+			if (child >= size)
+				break;
+
+			if (child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+
+			if (heap[child] >= value)
+				break;
+
+			heap[index] = heap[child];
+			index = child;
+
+		}
+
+		heap[index] = value;
+
+	}
+
+	/**
+	 * @param x in block
+	 * @param y in block
+	 * @return [y * SIZE + x] of the field, or -1 if it's out of the field
+	 */
+	private int getTile(int x, int y) {
+
+		x -= left;
+		y -= top;
+
+		if (x < 0 || y < 0 || x >= SIZE || y >= SIZE)
+			return -1;
+
+		return y * SIZE + x;
+
+	}
+
+	// getter setter
+
+	public Entity getTarget() {
+
+		return target;
+
+	}
+
+	/**
+	 * @param x in block
+	 * @param y in block
+	 * @return true if the tile can reach the target in the field
+	 */
+	public boolean isReachable(int x, int y) {
+
+		if (!ready)
+			return false;
+
+		int tile = getTile(x, y);
+
+		return tile != -1 && dist[tile] != UNREACHABLE;
+
+	}
+
+	/**
+	 * The way to the next tile towards the target, see {@linkplain #DIR_X} and
+	 * {@linkplain #DIR_Y}.
+	 *
+	 * @param x in block
+	 * @param y in block
+	 * @return 0 ~ 7, or {@linkplain #NONE}
+	 */
+	public int getDirection(int x, int y) {
+
+		if (!ready)
+			return NONE;
+
+		int tile = getTile(x, y);
+
+		if (tile == -1)
+			return NONE;
+
+		return direction[tile];
+
+	}
+
+	/**
+	 * @return true if the field was made at least once
+	 */
+	public boolean isReady() {
+
+		return ready;
+
+	}
+
+	int getLastUsed() {
+
+		return lastUsed;
+
+	}
+
+	void setLastUsed(int lastUsed) {
+
+		this.lastUsed = lastUsed;
+
+	}
+
+}
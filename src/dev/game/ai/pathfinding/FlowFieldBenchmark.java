@@ -0,0 +1,275 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.Game;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.entities.creatures.Creature;
+import dev.game.worlds.World;
+
+/**
+ * FlowFieldBenchmark.java - Compares many creatures converging on the player
+ * with the shared {@linkplain FlowField} of the player, and with a path each
+ * (A*, spliced when the player moves).
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. The chasers start 6 to 14
+ * tiles from the player and step a tile every 12 ticks, the way
+ * {@linkplain AIFindPathToTarget} with {@linkplain AIFindPathToTarget#FLOW_FIELD}
+ * and {@linkplain PathFinding#A_STAR} would lead them. The searches and the
+ * field go through a {@linkplain PathFindingManager}. The chasers are not in
+ * the world, so they don't block each other. The player stands still, then
+ * walks a tile every 8 ticks near where it started, on the generated world and
+ * in a maze with 25% of its tiles opened. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * FlowFieldBenchmark [chasers] [ticks]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class FlowFieldBenchmark {
+
+	private static final String WORLD_NAME = "_flow_field_benchmark";
+
+	// the player stays this close to where it started, in block
+	private static final int WALK_RANGE = 6;
+
+	// the chasers count as there this close to the player, in block
+	private static final int NEAR = 6;
+
+	/**
+	 * @param args [chasers] [ticks]
+	 */
+	public static void main(String[] args) {
+
+		int chasers = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+		int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 800;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+
+		// the JIT warms up
+		chase(null, area, chasers, ticks, true, false);
+		chase(null, area, chasers, ticks, false, false);
+
+		run("world", area, chasers, ticks);
+
+		area.clearEntities();
+		area.maze(new Random(7), 25);
+
+		run("open maze", area, chasers, ticks);
+
+		area.close();
+
+		System.exit(0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, int chasers,
+			int ticks) {
+
+		for (int moving = 0; moving <= 1; moving++) {
+
+			chase(name, area, chasers, ticks, true, moving == 1);
+			chase(name, area, chasers, ticks, false, moving == 1);
+
+		}
+
+	}
+
+	/**
+	 * @param name   for the messages, nothing is printed if null
+	 * @param area
+	 * @param count  of the chasers
+	 * @param ticks
+	 * @param field  true to follow the flow field, false for the paths
+	 * @param moving true if the player walks
+	 */
+	private static void chase(String name, BenchmarkArea area, int count,
+			int ticks, boolean field, boolean moving) {
+
+		// the same start and walk for both ways
+		Random random = new Random(5);
+
+		int[] home = area.randomWalkable(random);
+		int playerX = home[0], playerY = home[1];
+
+		BenchmarkArea.place(area.player, playerX, playerY);
+
+		List<Creature> chasers = new ArrayList<>();
+
+		// not in the world, only there to be the finders
+		while (chasers.size() < count) {
+
+			int[] tile = area.randomWalkable(random);
+
+			int distance = Math.max(Math.abs(tile[0] - playerX),
+					Math.abs(tile[1] - playerY));
+
+			if (distance < 6 || distance > 14)
+				continue;
+
+			Creature chaser = (Creature) EntityManager.getEntityById(EntityId.TREANT,
+					0, 0);
+			BenchmarkArea.place(chaser, tile[0], tile[1]);
+			chaser.setTarget(area.player);
+
+			chasers.add(chaser);
+
+		}
+
+		PathFindingManager manager = new PathFindingManager(area.handler);
+
+		List<ArrayList<Node>> paths = new ArrayList<>();
+		int[] next = new int[count], askedX = new int[count], askedY = new int[count];
+
+		for (int i = 0; i < count; i++)
+			paths.add(null);
+
+		int dx = 1, dy = 0;
+		long nodes = 0, nanos = 0, distances = 0;
+		int halfNear = -1;
+
+		for (int tick = 0; tick < ticks; tick++) {
+
+			// the player walks a tile every 8 ticks
+			if (moving && tick % 8 == 0) {
+
+				for (int tries = 0; tries < 8; tries++) {
+
+					if (tries > 0 || random.nextInt(6) == 0) {
+
+						int direction = random.nextInt(4);
+
+						dx = (direction == 0) ? 1 : (direction == 1) ? -1 : 0;
+						dy = (direction == 2) ? 1 : (direction == 3) ? -1 : 0;
+
+					}
+
+					int x = playerX + dx, y = playerY + dy;
+
+					if (World.isWalkable(x, y) && Math.abs(x - home[0]) <= WALK_RANGE
+							&& Math.abs(y - home[1]) <= WALK_RANGE) {
+
+						playerX = x;
+						playerY = y;
+
+						BenchmarkArea.place(area.player, playerX, playerY);
+						break;
+
+					}
+				}
+			}
+
+			int near = 0;
+
+			for (int k = 0; k < count; k++) {
+
+				Creature chaser = chasers.get(k);
+
+				int x = chaser.getCenterX(), y = chaser.getCenterY();
+
+				int distance = Math.max(Math.abs(x - playerX), Math.abs(y - playerY));
+
+				distances += distance;
+
+				if (distance <= NEAR)
+					near++;
+
+				boolean step = tick % 12 == k % 12 && distance > 1;
+
+				if (chaser.getPathUpdated()) {
+
+					chaser.setPathUpdated(false);
+
+					ArrayList<Node> path = chaser.getPathToTarget();
+
+					paths.set(k, path);
+					next[k] = (path == null) ? -1 : path.size() - 1;
+
+				}
+
+				// see AIFindPathToTarget
+				if (field) {
+
+					FlowField flowField = manager.getFlowField(area.player);
+
+					boolean follow = !(flowField.isReady() && !flowField.isReachable(x, y))
+							&& !(!flowField.isReady() && paths.get(k) != null);
+
+					if (follow) {
+
+						paths.set(k, null);
+						chaser.setPathToTarget(null);
+						manager.cancel(chaser);
+
+						int dir = flowField.getDirection(x, y);
+
+						if (step && dir != FlowField.NONE)
+							BenchmarkArea.place(chaser, x + FlowField.DIR_X[dir],
+									y + FlowField.DIR_Y[dir]);
+
+						continue;
+
+					}
+				}
+
+				ArrayList<Node> path = paths.get(k);
+
+				if (path != null && step) {
+
+					if (next[k] >= 0) {
+
+						Node node = path.get(next[k]--);
+
+						BenchmarkArea.place(chaser, node.getX(), node.getY());
+
+					}
+
+					if (next[k] < 0) {
+
+						chaser.setPathToTarget(null);
+						paths.set(k, null);
+						path = null;
+
+					}
+				}
+
+				boolean ask = (path != null)
+						? askedX[k] != playerX || askedY[k] != playerY
+						: !manager.isPending(chaser);
+
+				if (ask && manager.request(chaser, area.player, PathFinding.A_STAR)) {
+
+					askedX[k] = playerX;
+					askedY[k] = playerY;
+
+				}
+			}
+
+			if (halfNear < 0 && near * 2 >= count)
+				halfNear = tick;
+
+			manager.tick();
+
+			nodes += manager.getLastNodes();
+			nanos += manager.getLastNanos();
+
+		}
+
+		if (name == null)
+			return;
+
+		System.out.println(String.format(
+				"[FlowFieldBenchmark] %-9s %-6s %-4s %d chasers: %6.0f nodes/s, manager %4.0f us/tick, half within %d tiles after %4d ticks, mean distance %.1f",
+				name, moving ? "moving" : "still", field ? "flow" : "A*", count,
+				nodes / (ticks / (double) Game.FPS), nanos / 1e3 / ticks, NEAR,
+				halfNear, distances / (double) ticks / count));
+
+	}
+
+}
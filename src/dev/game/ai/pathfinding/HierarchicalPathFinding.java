@@ -0,0 +1,471 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.map.Chunk;
+import dev.game.worlds.World;
+
+/**
+ * HierarchicalPathFinding.java - Path finding for the far targets, over the
+ * portals of the Chunks (see {@linkplain ChunkPortals}).
+ * <p>
+ * The route is planned from portal to portal with A*, then only the way into
+ * the next Chunk on the route is found tile by tile with
+ * {@linkplain PathFinding}. The rest is found when the finder gets there, so
+ * the path is made a piece at a time.
+ *
+ * @author Juhyung Kim
+ */
+public class HierarchicalPathFinding implements PathSearch {
+
+	/**
+	 * The targets farther than this (in block, either way) are found with this,
+	 * the closer ones with {@linkplain PathFinding} only
+	 */
+	public static final int MIN_DISTANCE = Chunk.SIZE / 2;
+
+	// to prevent infinite search for path, the most portals checked
+	private static final int MAX_SEARCH = 2000;
+
+	private static final int SIZE = Chunk.SIZE;
+
+	/**
+	 * A search inside a Chunk counts as this many nodes, for the budget of
+	 * {@linkplain #search(int)}
+	 */
+	private static final int SEARCH_COST = SIZE * SIZE / 8;
+
+	private int searchAmount; // amount of portal searching done
+
+	/**
+	 * Nodes checked so far, with the searches inside the Chunks
+	 */
+	private int work;
+
+	private Handler handler;
+	private Entity finder, targetEntity;
+
+	/**
+	 * {@linkplain PathFinding#A_STAR} or {@linkplain PathFinding#JUMP_POINT}
+	 */
+	private final int method;
+
+	private int startX, startY, targetX, targetY;
+
+	private Chunk startChunk, targetChunk;
+
+	/**
+	 * Distance from the start in its Chunk, and from the target in its Chunk,
+	 * [localY * SIZE + localX]
+	 */
+	private int[] startDist, targetDist;
+
+	private boolean noPath; // true if no path is found
+
+	private ArrayList<Node> path; // the path to the next Chunk on the route
+
+	private SearchNodes nodes; // while the route is being found
+
+	/**
+	 * The first tile of the route in another Chunk, or the target if it's in
+	 * the same Chunk. null if there is no route
+	 */
+	private int[] waypoint;
+
+	private PathFinding local; // the path to the next Chunk on the route
+	private boolean done; // true if the search is over
+
+	/**
+	 * Find the path from the entity towards the given target.
+	 *
+	 * @param handler
+	 * @param finder
+	 * @param targetEntity
+	 * @param method       how the path to the next Chunk is found,
+	 *                     {@linkplain PathFinding#A_STAR} or
+	 *                     {@linkplain PathFinding#JUMP_POINT}
+	 */
+	public HierarchicalPathFinding(Handler handler, Entity finder,
+			Entity targetEntity, int method) {
+
+		this(handler, finder, targetEntity, method, true);
+
+	}
+
+	/**
+	 * Find the path from the entity towards the given target.
+	 *
+	 * @param handler
+	 * @param finder
+	 * @param targetEntity
+	 * @param method       how the path to the next Chunk is found
+	 * @param now          true to find the path right away, false to find it a
+	 *                     part at a time with {@linkplain #search(int)}
+	 */
+	HierarchicalPathFinding(Handler handler, Entity finder, Entity targetEntity,
+			int method, boolean now) {
+
+		this.handler = handler;
+		this.finder = finder;
+		this.targetEntity = targetEntity;
+		this.method = method;
+
+		if (now)
+			search(Integer.MAX_VALUE);
+
+	}
+
+	/**
+	 * Carry on with the search. The route over the portals is found first, then
+	 * the path to the next Chunk.
+	 *
+	 * @param budget the most nodes to check in this call
+	 * @return true if the search is done, see {@linkplain #getNoPath()}
+	 */
+	@Override
+	public boolean search(int budget) {
+
+		if (done)
+			return true;
+
+		if (budget <= 0)
+			return false;
+
+		if (local == null) {
+
+			int before = work;
+
+			if (!findRoute(budget))
+				return false;
+
+			if (waypoint == null) {
+
+				noPath = true;
+				done = true;
+				return true;
+
+			}
+
+			local = new PathFinding(handler, finder, waypoint[0], waypoint[1],
+					targetEntity, method, false);
+
+			// the route counts too
+			budget -= work - before;
+
+			if (budget <= 0)
+				return false;
+
+		}
+
+		if (!local.search(budget))
+			return false;
+
+		noPath = local.getNoPath();
+		path = local.getPath();
+		done = true;
+
+		return true;
+
+	}
+
+	@Override
+	public void cancel() {
+
+		if (local != null)
+			local.cancel();
+
+		freeNodes();
+
+		noPath = true;
+		path = null;
+		done = true;
+
+	}
+
+	/**
+	 * Carry on with the route from the finder to the target, over the portals
+	 * (A* with the portals as the nodes).
+	 *
+	 * @param budget the most nodes to check in this call
+	 * @return true if the route is done, {@linkplain #waypoint} is null if there
+	 *         is no route
+	 */
+	private boolean findRoute(int budget) {
+
+		int searches = ChunkPortals.getSearchCount();
+
+		long limit = (long) work + budget;
+
+		if (nodes == null) {
+
+			startX = finder.getCenterX();
+			startY = finder.getCenterY();
+			targetX = targetEntity.getCenterX();
+			targetY = targetEntity.getCenterY();
+
+			startChunk = World.getChunk(Chunk.blockToChunk(startX),
+					Chunk.blockToChunk(startY));
+			targetChunk = World.getChunk(Chunk.blockToChunk(targetX),
+					Chunk.blockToChunk(targetY));
+
+			if (startChunk == null || targetChunk == null)
+				return true;
+
+			startDist = new int[SIZE * SIZE];
+			targetDist = new int[SIZE * SIZE];
+
+			ChunkPortals.get(startChunk).search(getLocal(startX, startY), startDist,
+					null);
+			ChunkPortals.get(targetChunk).search(getLocal(targetX, targetY),
+					targetDist, null);
+
+			nodes = SearchNodes.obtain();
+
+			nodes.add(startX, startY, 0, getDistance(startX, startY), -1);
+
+		}
+
+		while (true) {
+
+			// the searches inside the Chunks (making the portals, too) count
+			work += (ChunkPortals.getSearchCount() - searches) * SEARCH_COST;
+			searches = ChunkPortals.getSearchCount();
+
+			// out of budget, carry on next time
+			if (work >= limit)
+				return false;
+
+			int current = nodes.poll();
+
+			if (current == -1)
+				break;
+
+			if (nodes.getX(current) == targetX && nodes.getY(current) == targetY) {
+
+				waypoint = getFirstWaypoint(nodes, current);
+
+				freeNodes();
+
+				return true;
+
+			}
+
+			searchAmount++;
+			work++;
+
+			if (searchAmount > MAX_SEARCH)
+				break;
+
+			checkPortals(nodes, current);
+
+		}
+
+		// no route
+		freeNodes();
+
+		return true;
+
+	}
+
+	private void freeNodes() {
+
+		if (nodes != null) {
+
+			nodes.free();
+			nodes = null;
+
+		}
+
+	}
+
+	/**
+	 * Open the tiles reachable from the node: the portals of the same Chunk,
+	 * the tiles across the portal, and the target if it's in the same Chunk.
+	 *
+	 * @param nodes
+	 * @param current node slot
+	 */
+	private void checkPortals(SearchNodes nodes, int current) {
+
+		int x = nodes.getX(current);
+		int y = nodes.getY(current);
+		int g = nodes.getG(current);
+
+		Chunk chunk = World.getChunk(Chunk.blockToChunk(x), Chunk.blockToChunk(y));
+
+		// unloaded since it was opened
+		if (chunk == null)
+			return;
+
+		ChunkPortals portals = ChunkPortals.get(chunk);
+
+		int tile = getLocal(x, y);
+
+		int left = chunk.x * SIZE;
+		int top = chunk.y * SIZE;
+
+		// the first portal on this tile
+		int from = -1;
+
+		for (int p = 0; p < portals.getCount(); p++) {
+
+			if (portals.getTile(p) != tile)
+				continue;
+
+			if (from == -1)
+				from = p;
+
+			// across the edge
+			int side = portals.getSide(p);
+
+			open(nodes, current, x + ChunkPortals.SIDE_X[side],
+					y + ChunkPortals.SIDE_Y[side], g + ChunkPortals.STRAIGHT_COST);
+
+		}
+
+		// the other portals of the Chunk
+		for (int p = 0; p < portals.getCount(); p++) {
+
+			int cost;
+
+			if (current == 0)
+				cost = startDist[portals.getTile(p)];
+			else if (from != -1)
+				cost = portals.getCost(from, p);
+			else
+				continue;
+
+			if (cost == ChunkPortals.UNREACHABLE)
+				continue;
+
+			open(nodes, current, left + portals.getTile(p) % SIZE,
+					top + portals.getTile(p) / SIZE, g + cost);
+
+		}
+
+		if (chunk == targetChunk && targetDist[tile] != ChunkPortals.UNREACHABLE)
+			open(nodes, current, targetX, targetY, g + targetDist[tile]);
+
+	}
+
+	/**
+	 * Add the tile to the open list, or give it the shorter path.
+	 *
+	 * @param nodes
+	 * @param current node slot
+	 * @param x       in block
+	 * @param y       in block
+	 * @param g       distance from start
+	 */
+	private void open(SearchNodes nodes, int current, int x, int y, int g) {
+
+		int node = nodes.find(x, y);
+
+		if (node == -1) {
+
+			// only the loaded Chunks
+			if (World.getChunk(Chunk.blockToChunk(x), Chunk.blockToChunk(y)) == null)
+				return;
+
+			nodes.add(x, y, g, getDistance(x, y), current);
+			return;
+
+		}
+
+		if (!nodes.isClosed(node) && g < nodes.getG(node))
+			nodes.decrease(node, g, current);
+
+	}
+
+	/**
+	 * @param nodes
+	 * @param target node slot of the target
+	 * @return the first tile of the route out of the start Chunk, or the target
+	 */
+	private int[] getFirstWaypoint(SearchNodes nodes, int target) {
+
+		int waypoint = target;
+
+		for (int node = target; nodes.getParent(node) != -1; node = nodes
+				.getParent(node)) {
+
+			int x = nodes.getX(node);
+			int y = nodes.getY(node);
+
+			if (Chunk.blockToChunk(x) != startChunk.x
+					|| Chunk.blockToChunk(y) != startChunk.y)
+				waypoint = node;
+
+		}
+
+		return new int[] { nodes.getX(waypoint), nodes.getY(waypoint) };
+
+	}
+
+	/**
+	 * H cost, the "Diagonal Distance" to the target
+	 *
+	 * @param x in block
+	 * @param y in block
+	 * @return
+	 */
+	private int getDistance(int x, int y) {
+
+		int xDis = Math.abs(targetX - x);
+		int yDis = Math.abs(targetY - y);
+
+		int diagonal = Math.min(xDis, yDis); // amount of diagonal paths
+
+		int straight = Math.max(xDis, yDis) - diagonal; // amount of straight paths
+
+		return (diagonal * ChunkPortals.DIAGONAL_COST
+				+ straight * ChunkPortals.STRAIGHT_COST);
+
+	}
+
+	/**
+	 * @param x in block
+	 * @param y in block
+	 * @return [localY * SIZE + localX]
+	 */
+	private static int getLocal(int x, int y) {
+
+		return Chunk.blockToLocal(y) * SIZE + Chunk.blockToLocal(x);
+
+	}
+
+	// getter
+	/**
+	 * True if there's no path found
+	 *
+	 * @return
+	 */
+	public boolean getNoPath() {
+
+		return this.noPath;
+
+	}
+
+	/**
+	 * Get the found path, to the next Chunk on the way to the target (or to the
+	 * target when it's in this Chunk)
+	 *
+	 * @return
+	 */
+	@Override
+	public ArrayList<Node> getPath() {
+
+		return path;
+
+	}
+
+	@Override
+	public int getSearchAmount() {
+
+		return work + ((local == null) ? 0 : local.getSearchAmount());
+
+	}
+
+}
@@ -0,0 +1,201 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.entities.Entity;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.tiles.TileId;
+import dev.game.worlds.CaveWorld;
+
+/**
+ * HierarchicalPathFindingBenchmark.java - Compares
+ * {@linkplain HierarchicalPathFinding} with plain {@linkplain PathFinding} for
+ * the targets 20 to 90 tiles away: how many get there, and the time.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. The maps are the generated
+ * world, the cave, grass with random lakes, and a maze with 5% of its tiles
+ * opened. For each query, A* is run once from the start. The hierarchical
+ * search is run the way a creature uses it: from the end of each path piece
+ * again, until the target is close enough for A* alone. The first query of
+ * each map finds the portals of all the Chunks, it is timed apart. The scratch
+ * world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * HierarchicalPathFindingBenchmark [queries]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class HierarchicalPathFindingBenchmark {
+
+	private static final String WORLD_NAME = "_hierarchical_path_finding_benchmark";
+
+	private static final int MIN_DISTANCE = 20, MAX_DISTANCE = 90;
+
+	// a route is given up after this many pieces
+	private static final int MAX_PIECES = 40;
+
+	/**
+	 * @param args [queries]
+	 */
+	public static void main(String[] args) {
+
+		int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+		Random random = new Random(11);
+
+		run("world", area, random, queries);
+
+		CaveWorld.loadCaveWorld(area.world);
+
+		run("cave", area, random, queries);
+
+		area.clearEntities();
+		area.fill(TileId.GRASS);
+
+		for (int i = 0; i < 25; i++) {
+
+			int centerX = random.nextInt(area.side);
+			int centerY = random.nextInt(area.side);
+			int radius = 4 + random.nextInt(10);
+
+			for (int y = Math.max(centerY - radius, 0); y <= Math
+					.min(centerY + radius, area.side - 1); y++)
+				for (int x = Math.max(centerX - radius, 0); x <= Math
+						.min(centerX + radius, area.side - 1); x++)
+					if ((x - centerX) * (x - centerX)
+							+ (y - centerY) * (y - centerY) <= radius * radius)
+						area.setTile(area.minX + x, area.minY + y, TileId.WATER);
+
+		}
+
+		run("lakes", area, random, queries);
+
+		area.maze(random, 5);
+
+		run("maze", area, random, queries);
+
+		area.close();
+
+		System.exit(0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, Random random,
+			int queries) {
+
+		List<int[]> pairs = new ArrayList<>();
+
+		while (pairs.size() < queries) {
+
+			int[] start = area.randomWalkable(random);
+			int[] target = area.randomWalkable(random);
+
+			int distance = Math.max(Math.abs(target[0] - start[0]),
+					Math.abs(target[1] - start[1]));
+
+			if (distance >= MIN_DISTANCE && distance <= MAX_DISTANCE)
+				pairs.add(new int[] { start[0], start[1], target[0], target[1] });
+
+		}
+
+		// not in the world, only there to be the finder and the target
+		Entity finder = EntityManager.getEntityById(EntityId.WOLF, 0, 0);
+		Entity target = EntityManager.getEntityById(EntityId.WOLF, 0, 0);
+
+		int[] first = pairs.get(0);
+
+		BenchmarkArea.place(finder, first[0], first[1]);
+		BenchmarkArea.place(target, first[2], first[3]);
+
+		long start = System.nanoTime();
+
+		new HierarchicalPathFinding(area.handler, finder, target,
+				PathFinding.A_STAR);
+
+		long coldNanos = System.nanoTime() - start;
+
+		int foundA = 0, reached = 0;
+		long nanosA = 0, firstNanos = 0, routeNanos = 0, calls = 0;
+
+		// the second round counts, the JIT is warm then
+		for (int round = 0; round < 2; round++) {
+
+			foundA = reached = 0;
+			nanosA = firstNanos = routeNanos = calls = 0;
+
+			for (int[] pair : pairs) {
+
+				BenchmarkArea.place(finder, pair[0], pair[1]);
+				BenchmarkArea.place(target, pair[2], pair[3]);
+
+				start = System.nanoTime();
+
+				if (!new PathFinding(area.handler, finder, target).getNoPath())
+					foundA++;
+
+				nanosA += System.nanoTime() - start;
+
+				for (int piece = 0; piece < MAX_PIECES; piece++) {
+
+					calls++;
+
+					if (Math.max(Math.abs(finder.getCenterX() - pair[2]), Math
+							.abs(finder.getCenterY() - pair[3])) <= HierarchicalPathFinding.MIN_DISTANCE) {
+
+						start = System.nanoTime();
+
+						boolean found = !new PathFinding(area.handler, finder, target)
+								.getNoPath();
+
+						routeNanos += System.nanoTime() - start;
+
+						if (found)
+							reached++;
+
+						break;
+
+					}
+
+					start = System.nanoTime();
+
+					HierarchicalPathFinding search = new HierarchicalPathFinding(
+							area.handler, finder, target, PathFinding.A_STAR);
+
+					long time = System.nanoTime() - start;
+
+					routeNanos += time;
+
+					if (piece == 0)
+						firstNanos += time;
+
+					if (search.getNoPath() || search.getPath().isEmpty())
+						break;
+
+					// the first node is the end of the piece
+					Node end = search.getPath().get(0);
+
+					BenchmarkArea.place(finder, end.getX(), end.getY());
+
+				}
+			}
+		}
+
+		System.out.println(String.format(
+				"[HierarchicalPathFindingBenchmark] %-5s first query with the portals cold %.1f ms",
+				name, coldNanos / 1e6));
+		System.out.println(String.format(
+				"[HierarchicalPathFindingBenchmark] %-5s %d queries: A* found %3d, %6.1f us | hierarchical reached %3d, first call %6.1f us, whole route %6.1f us (%.1f calls)",
+				name, queries, foundA, nanosA / 1e3 / queries, reached,
+				firstNanos / 1e3 / queries, routeNanos / 1e3 / queries,
+				calls / (double) queries));
+
+	}
+
+}
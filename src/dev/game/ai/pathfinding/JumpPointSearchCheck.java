@@ -0,0 +1,227 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.entities.Entity;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.tiles.TileId;
+import dev.game.worlds.CaveWorld;
+import dev.game.worlds.World;
+
+/**
+ * JumpPointSearchCheck.java - Checks that {@linkplain PathFinding#JUMP_POINT}
+ * finds paths of the same cost as {@linkplain PathFinding#A_STAR}, and times
+ * both.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. The same random queries
+ * between walkable tiles are searched with both methods on the generated world,
+ * the cave, open grass, grass with 25% stone tiles, and a maze. Every path has
+ * to go tile by tile over walkable tiles without cutting corners and end on the
+ * target, and when both methods find a path, the costs have to be the same.
+ * The exit code is 1 if not. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * JumpPointSearchCheck [queries]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class JumpPointSearchCheck {
+
+	private static final String WORLD_NAME = "_jump_point_search_check";
+
+	private static final String[] METHOD_NAMES = { "A*", "JPS" };
+
+	private static int mismatches = 0;
+
+	/**
+	 * @param args [queries]
+	 */
+	public static void main(String[] args) {
+
+		int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+		Random random = new Random(7);
+
+		run("world", area, random, queries);
+
+		CaveWorld.loadCaveWorld(area.world);
+
+		run("cave", area, random, queries);
+
+		area.clearEntities();
+		area.fill(TileId.GRASS);
+
+		run("open", area, random, queries);
+
+		area.clutter(random, 25);
+
+		run("clutter", area, random, queries);
+
+		area.maze(random, 5);
+
+		run("maze", area, random, queries);
+
+		System.out.println("[JumpPointSearchCheck] " + mismatches + " mismatches");
+
+		area.close();
+
+		System.exit((mismatches > 0) ? 1 : 0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, Random random,
+			int queries) {
+
+		List<int[]> pairs = new ArrayList<>();
+
+		for (int i = 0; i < queries; i++) {
+
+			int[] start = area.randomWalkable(random);
+			int[] target = area.randomWalkable(random);
+
+			pairs.add(new int[] { start[0], start[1], target[0], target[1] });
+
+		}
+
+		// not in the world, only there to be the finder
+		Entity finder = EntityManager.getEntityById(EntityId.WOLF, 0, 0);
+
+		int[][] costs = new int[2][queries];
+
+		for (int method = PathFinding.A_STAR; method <= PathFinding.JUMP_POINT; method++) {
+
+			int found = 0;
+			long nodes = 0;
+			long[] times = new long[queries];
+
+			// the second round counts, the JIT is warm then
+			for (int round = 0; round < 2; round++) {
+
+				found = 0;
+				nodes = 0;
+
+				for (int i = 0; i < queries; i++) {
+
+					int[] pair = pairs.get(i);
+
+					long start = System.nanoTime();
+
+					PathFinding search = new PathFinding(area.handler, finder, pair[0],
+							pair[1], pair[2], pair[3], null, method, PathFinding.MAX_SEARCH);
+					search.search(Integer.MAX_VALUE);
+
+					times[i] = System.nanoTime() - start;
+					nodes += search.getSearchAmount();
+
+					costs[method][i] = search.getNoPath() ? -1
+							: getCost(name, pair, search.getPath());
+
+					if (!search.getNoPath())
+						found++;
+
+				}
+			}
+
+			Arrays.sort(times);
+
+			System.out.println(String.format(
+					"[JumpPointSearchCheck] %-7s %-3s found %3d, median %7.1f us, mean nodes %6.0f",
+					name, METHOD_NAMES[method], found, times[queries / 2] / 1e3,
+					nodes / (double) queries));
+
+		}
+
+		int both = 0;
+
+		for (int i = 0; i < queries; i++) {
+
+			if (costs[0][i] < 0 || costs[1][i] < 0)
+				continue;
+
+			both++;
+
+			if (costs[0][i] != costs[1][i])
+				fail(name + ": " + Arrays.toString(pairs.get(i)) + " costs "
+						+ costs[0][i] + " with A*, " + costs[1][i] + " with JPS");
+
+		}
+
+		System.out.println("[JumpPointSearchCheck] " + name + ": " + both
+				+ " found by both compared");
+
+	}
+
+	/**
+	 * Walk the path from the start, and check each step.
+	 *
+	 * @param name for the messages
+	 * @param pair {start x, start y, target x, target y}
+	 * @param path from the target back to the first step
+	 * @return the cost, 10 each straight step and 14 each diagonal step
+	 */
+	private static int getCost(String name, int[] pair, List<Node> path) {
+
+		int cost = 0;
+		int x = pair[0], y = pair[1];
+
+		for (int i = path.size() - 1; i >= 0; i--) {
+
+			Node node = path.get(i);
+
+			int dx = node.getX() - x;
+			int dy = node.getY() - y;
+
+			if (Math.abs(dx) > 1 || Math.abs(dy) > 1 || (dx == 0 && dy == 0)
+					|| !World.isWalkable(node.getX(), node.getY())) {
+				fail(name + ": " + Arrays.toString(pair) + " has a bad step to "
+						+ node.getX() + "," + node.getY());
+				return -1;
+			}
+
+			if (dx != 0 && dy != 0) {
+
+				if (!World.isWalkable(x + dx, y) || !World.isWalkable(x, y + dy)) {
+					fail(name + ": " + Arrays.toString(pair) + " cuts the corner at "
+							+ x + "," + y);
+					return -1;
+				}
+
+				cost += 14;
+
+			} else {
+
+				cost += 10;
+
+			}
+
+			x = node.getX();
+			y = node.getY();
+
+		}
+
+		if (x != pair[2] || y != pair[3]) {
+			fail(name + ": " + Arrays.toString(pair) + " ends at " + x + "," + y);
+			return -1;
+		}
+
+		return cost;
+
+	}
+
+	private static void fail(String message) {
+
+		System.out.println("[JumpPointSearchCheck] " + message);
+
+		mismatches++;
+
+	}
+
+}
@@ -1,51 +1,82 @@
-
 package dev.game.ai.pathfinding;
 
 import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 
 import dev.game.Handler;
 import dev.game.entities.Entity;
+import dev.game.map.Chunk;
 import dev.game.tiles.Tile;
 import dev.game.worlds.World;
 
 /**
  * PathFinding.java - A* algorithm
+ * <p>
+ * The open list is a binary heap (see {@linkplain SearchNodes}). The tiles and
+ * the obstacles are checked with the walkable tiles of the Chunks (see
+ * {@linkplain Chunk#isWalkable(int, int)}), and the tiles blocked by the other
+ * entities are found once before the search, so each node is checked in
+ * constant time.
+ * <p>
+ * With {@linkplain #JUMP_POINT}, the neighbors are found by Jump Point Search:
+ * the search runs straight and diagonally over the open tiles until something
+ * makes a turn worth it, and only those tiles (jump points) are added to the
+ * open list. The path costs the same as with {@linkplain #A_STAR}, but open
+ * areas take far fewer nodes.
  *
  * @author Juhyung Kim
  */
-public class PathFinding {
+public class PathFinding implements PathSearch {
+
+	/**
+	 * To prevent infinite search for path, the most nodes checked in one search
+	 */
+	public static final int MAX_SEARCH = 4000;
+
+	// 10 points each straight path, 14 points for each diagonal path
+	private static final int STRAIGHT_COST = 10, DIAGONAL_COST = 14;
+
+	/**
+	 * Search methods, see {@linkplain PathFinding}
+	 */
+	public static final int A_STAR = 0, JUMP_POINT = 1;
+
+	private final int method;
+
+	private final int maxSearch; // the most nodes checked in this search
 
 	private Handler handler;
 	private Entity finder;
 	private Entity targetEntity = null;
 
-	// to prevent infinite search for path
-	private final int MAX_SEARCH = 50;
 	private int searchAmount; // amount of node searching done
 
 	private Node start, target;
 
-	private ArrayList<Node> openList; // nodes that have not checked
-	private ArrayList<Node> closeList; // nodes that have checked
-
 	private boolean noPath; // true if no path is found
 
 	private ArrayList<Node> path; // the final path
 
-	private Comparator<Node> sorter = new Comparator<Node>() {
+	private SearchNodes nodes; // while the search is going on
+	private boolean done; // true if the search is over
 
-		public int compare(Node a, Node b) {
+	// the Chunk of the last tile checked, may be null
+	private Chunk lastChunk;
+	private int lastChunkX, lastChunkY;
+	private boolean hasLastChunk;
 
-			// if statement is true, -1, else return 1
-			// -1 sort in ascending order
-			return (a.getMoveCost() < b.getMoveCost()) ? -1 : 1;
+	/**
+	 * Find the path from the entity to the given target.
+	 *
+	 * @param handler
+	 * @param finder
+	 * @param targetEntity
+	 */
+	public PathFinding(Handler handler, Entity finder, Entity targetEntity) {
 
-		}
+		this(handler, finder, targetEntity, A_STAR);
 
-	};
+	}
 
 	/**
 	 * Find the path from the entity to the given target.
@@ -53,22 +84,84 @@ public class PathFinding {
 	 * @param handler
 	 * @param finder
 	 * @param targetEntity
+	 * @param method       {@linkplain #A_STAR} or {@linkplain #JUMP_POINT}
 	 */
-	public PathFinding(Handler handler, Entity finder, Entity targetEntity) {
+	public PathFinding(Handler handler, Entity finder, Entity targetEntity,
+			int method) {
+
+		this(handler, finder, targetEntity.getCenterX(),
+				targetEntity.getCenterY(), targetEntity, method);
+
+	}
+
+	/**
+	 * Find the path from the entity to the tile, on the way to the target.
+	 *
+	 * @param handler
+	 * @param finder
+	 * @param targetX      in block
+	 * @param targetY      in block
+	 * @param targetEntity not in the way, may be null
+	 * @param method       {@linkplain #A_STAR} or {@linkplain #JUMP_POINT}
+	 */
+	PathFinding(Handler handler, Entity finder, int targetX, int targetY,
+			Entity targetEntity, int method) {
+
+		this(handler, finder, targetX, targetY, targetEntity, method, true);
 
+	}
+
+	/**
+	 * Find the path from the entity to the tile, on the way to the target.
+	 *
+	 * @param handler
+	 * @param finder
+	 * @param targetX      in block
+	 * @param targetY      in block
+	 * @param targetEntity not in the way, may be null
+	 * @param method       {@linkplain #A_STAR} or {@linkplain #JUMP_POINT}
+	 * @param now          true to find the path right away, false to find it a
+	 *                     part at a time with {@linkplain #search(int)}
+	 */
+	PathFinding(Handler handler, Entity finder, int targetX, int targetY,
+			Entity targetEntity, int method, boolean now) {
+
+		this(handler, finder, finder.getCenterX(), finder.getCenterY(), targetX,
+				targetY, targetEntity, method, MAX_SEARCH);
+
+		if (now)
+			search(Integer.MAX_VALUE);
+
+	}
+
+	/**
+	 * Find the path between the tiles, found a part at a time with
+	 * {@linkplain #search(int)}.
+	 *
+	 * @param handler
+	 * @param finder       not in the way
+	 * @param startX       in block
+	 * @param startY       in block
+	 * @param targetX      in block
+	 * @param targetY      in block
+	 * @param targetEntity not in the way, may be null
+	 * @param method       {@linkplain #A_STAR} or {@linkplain #JUMP_POINT}
+	 * @param maxSearch    the most nodes checked before giving up
+	 */
+	PathFinding(Handler handler, Entity finder, int startX, int startY,
+			int targetX, int targetY, Entity targetEntity, int method,
+			int maxSearch) {
+
+		this.method = method;
 		this.finder = finder;
 		this.handler = handler;
 		this.targetEntity = targetEntity;
+		this.maxSearch = maxSearch;
 
 		searchAmount = 0;
 
 		noPath = false;
 
-		int startX = finder.getCenterX();
-		int startY = finder.getCenterY();
-		int targetX = targetEntity.getCenterX();
-		int targetY = targetEntity.getCenterY();
-
 		start = new Node(startX, startY, 0);
 
 		target = new Node(targetX, targetY, 0);
@@ -79,32 +172,47 @@ public class PathFinding {
 		target.setMoveCost(cost);
 		start.setMoveCost(cost);
 
-		openList = new ArrayList<>();
-		closeList = new ArrayList<>();
-
-		openList.add(start); // add the starting node to open list to start searching
-
-		findPath();
-
 	}
 
 	/**
-	 * Connect the nodes to make the path
+	 * Connect the nodes to make the path, from the target to the node next to
+	 * the start. The tiles between the jump points are filled in, so each node
+	 * is next to the one before.
 	 *
-	 * @param target
+	 * @param nodes
+	 * @param target node slot
 	 * @return
 	 */
-	private ArrayList<Node> makePath(Node target) {
+	private ArrayList<Node> makePath(SearchNodes nodes, int target) {
 
 		ArrayList<Node> thePath = new ArrayList<>();
 
-		Node current = target;
+		Node child = null;
+
+		for (int current = target; nodes.getParent(current) != -1; current = nodes
+				.getParent(current)) {
+
+			int parent = nodes.getParent(current);
+
+			int x = nodes.getX(current);
+			int y = nodes.getY(current);
 
-		while (current.getParentPath() != null) {
+			// straight or diagonal line towards the parent
+			int dx = Integer.signum(nodes.getX(parent) - x);
+			int dy = Integer.signum(nodes.getY(parent) - y);
 
-			thePath.add(current);
+			for (; x != nodes.getX(parent) || y != nodes.getY(parent); x += dx, y += dy) {
 
-			current = current.getParentPath();
+				Node node = new Node(x, y, nodes.getF(current));
+
+				if (child != null)
+					child.setParentPath(node);
+
+				thePath.add(node);
+
+				child = node;
+
+			}
 
 		}
 
@@ -113,197 +221,465 @@ public class PathFinding {
 	}
 
 	/**
-	 * Find / update the path
-	 * <p>
+	 * Carry on with the search, up to the given number of nodes. The tiles
+	 * blocked by entities are the ones from the first call.
+	 *
+	 * @param budget the most nodes to check in this call
+	 * @return true if the search is done, see {@linkplain #getNoPath()}
 	 */
-	private void findPath() {
+	@Override
+	public boolean search(int budget) {
+
+		if (done)
+			return true;
 
-		while (!openList.isEmpty()) {
+		if (budget <= 0)
+			return false;
 
-			Node current = openList.get(0); // lowest move cost
+		if (nodes == null) {
+
+			nodes = SearchNodes.obtain();
+
+			findBlockedTiles(nodes);
+
+			// add the starting node to open list to start searching
+			nodes.add(start.getX(), start.getY(), 0, getDistanceFromTarget(start),
+					-1);
+
+		}
+
+		// the Chunks might be unloaded since the last call
+		hasLastChunk = false;
+
+		int checked = 0;
+
+		while (true) {
+
+			// lowest move cost
+			int current = nodes.poll();
+
+			// no path
+			if (current == -1)
+				break;
 
 			// path is found
-			if (target.getX() == current.getX() && target.getY() == current.getY()) {
+			if (target.getX() == nodes.getX(current)
+					&& target.getY() == nodes.getY(current)) {
 
-				path = makePath(current);
+				path = makePath(nodes, current);
 
-				noPath = false;
+				finish(false);
 
-				return;
+				return true;
 			}
 
-			closeList.add(current); // now this node is checked
+			searchAmount++;
+			checked++;
+
+			// if the entity try to search for the path too much, stop it. (lag issue)
+			if (searchAmount > maxSearch)
+				break;
 
-			openList.remove(current); // off from unchecked-list
+			// fill in the open list with neighbors
+			if (method == JUMP_POINT)
+				checkJumpPoints(nodes, current);
+			else
+				checkNeighbors(nodes, current);
 
-			checkNeighbors(current); // fill in the openList with neighbors
+			// out of budget, carry on next time
+			if (checked == budget)
+				return false;
 
 		}
 
-		noPath = true;
 		path = null; // no path
 
+		finish(true);
+
+		return true;
+
 	}
 
 	/**
-	 * Check the neighboring tiles (8 adjacent tiles) of a tile
-	 * <p>
-	 * Unaccessible diagonal path will get omitted
-	 *
-	 * @param current Current node
+	 * Stop the search, there will be no path.
 	 */
-	private void checkNeighbors(Node current) {
+	@Override
+	public void cancel() {
 
-		if (noPath)
+		if (done)
 			return;
 
-		searchAmount++;
+		path = null;
 
-		// if the entity try to search for the path too much, stop it. (lag issue)
-		if (searchAmount > MAX_SEARCH) {
+		finish(true);
 
-			searchAmount = 0;
-			noPath = true;
-			return;
+	}
+
+	private void finish(boolean noPath) {
+
+		this.noPath = noPath;
+		done = true;
+
+		if (nodes != null) {
+
+			nodes.free();
+			nodes = null;
 
 		}
 
-		int currentX = current.getX();
-		int currentY = current.getY();
+		lastChunk = null;
+
+	}
+
+	/**
+	 * Mark the tiles the entities are on, except the finder and the target, so
+	 * the path goes around them. The obstacles are in the walkable tiles of the
+	 * Chunks already.
+	 *
+	 * @param nodes
+	 */
+	private void findBlockedTiles(SearchNodes nodes) {
+
+		for (Chunk chunk : World.getChunks()) {
+
+			for (Entity ent : chunk.entities) {
+
+				if (ent.getNoCollision() || Chunk.isObstacle(ent))
+					continue;
+
+				if (ent == finder || ent == targetEntity)
+					continue;
+
+				Rectangle bounds = ent.getBounds(0, 0);
+
+				if (bounds.width <= 0 || bounds.height <= 0)
+					continue;
+
+				int x0 = Math.floorDiv(bounds.x, Tile.TILE_SIZE);
+				int y0 = Math.floorDiv(bounds.y, Tile.TILE_SIZE);
+				int x1 = Math.floorDiv(bounds.x + bounds.width - 1, Tile.TILE_SIZE);
+				int y1 = Math.floorDiv(bounds.y + bounds.height - 1, Tile.TILE_SIZE);
+
+				for (int y = y0; y <= y1; y++)
+					for (int x = x0; x <= x1; x++)
+						nodes.block(x, y);
+
+			}
+		}
+
+	}
+
+	/**
+	 * Check the neighboring tiles (8 adjacent tiles) of a tile
+	 * <p>
+	 * Unaccessible diagonal path will get omitted
+	 *
+	 * @param nodes
+	 * @param current Current node slot
+	 */
+	private void checkNeighbors(SearchNodes nodes, int current) {
+
+		int currentX = nodes.getX(current);
+		int currentY = nodes.getY(current);
+
+		// booleans of obstacles, for the diagonal paths
+		boolean up = !isWalkable(nodes, currentX, currentY - 1);
+		boolean down = !isWalkable(nodes, currentX, currentY + 1);
+		boolean left = !isWalkable(nodes, currentX - 1, currentY);
+		boolean right = !isWalkable(nodes, currentX + 1, currentY);
 
 		// Check the neighboring tiles (8 adjacent tiles) of a tile
 		for (int y = -1; y < 2; y++) {
 
 			for (int x = -1; x < 2; x++) {
 
+				if (x == 0 && y == 0)
+					continue;
+
+				boolean isStraight = (x == 0 || y == 0);
+
+				// Straight path doesn't need to check its adjacent obstacle,
+				// checking in case where the diagonal path is unavailable
+				if (!isStraight) {
+
+					if ((y == -1 && up) || (y == 1 && down))
+						continue;
+
+					if ((x == -1 && left) || (x == 1 && right))
+						continue;
+
+				}
+
 				int newX = currentX + x;
 				int newY = currentY + y;
 
-				// setting moveCost and parent is done after checking if
-				// this is considerable spot to check
-				Node node = new Node(newX, newY, 0);
+				// the new neighbor should not be solid tile,
+				// or have an entity on the way of path
+				if (!isWalkable(nodes, newX, newY))
+					continue;
 
-				Tile tile = World.getTile(newX, newY);
+				open(nodes, current, newX, newY);
 
-				boolean isInOpenList = false;
-				boolean isInCloseList = false;
+			}
+		}
 
-				for (Node open : openList) {
+	}
 
-					if (open.equals(node))
-						isInOpenList = true;
+	/**
+	 * Check the jump points from the node, in the directions that are left after
+	 * pruning the ones a path without this node covers. The start node checks
+	 * all 8 directions.
+	 *
+	 * @param nodes
+	 * @param current Current node slot
+	 */
+	private void checkJumpPoints(SearchNodes nodes, int current) {
 
-				}
+		int parent = nodes.getParent(current);
 
-				for (Node close : closeList) {
+		if (parent == -1) {
 
-					if (close.equals(node))
-						isInCloseList = true;
+			checkNeighbors(nodes, current);
+			return;
 
-				}
+		}
 
-				// the new neighbor should be something was not checked yet,
-				/// and is not solid tile
-				if (tile.isSolid())
-					continue;
+		int x = nodes.getX(current);
+		int y = nodes.getY(current);
 
-				if (isInCloseList)
-					continue;
+		// the direction it came from the parent
+		int dx = Integer.signum(x - nodes.getX(parent));
+		int dy = Integer.signum(y - nodes.getY(parent));
 
-				if (isInOpenList)
-					continue;
+		if (dx != 0 && dy != 0) {
 
-				int moveCost = getMoveCost(node);
+			boolean walkX = isWalkable(nodes, x + dx, y);
+			boolean walkY = isWalkable(nodes, x, y + dy);
 
-				node.setMoveCost(moveCost);
-				node.setParentPath(current);
+			if (walkY)
+				jump(nodes, current, x, y + dy, 0, dy);
 
-				boolean isStraight = (x == 0 || y == 0);
+			if (walkX)
+				jump(nodes, current, x + dx, y, dx, 0);
 
-				// true if the path is still considerable
-				// after checking path depending on the tile
-				boolean consider;
+			if (walkX && walkY)
+				jump(nodes, current, x + dx, y + dy, dx, dy);
 
-				// Straight path doesn't need to check its adjacent obstacle
-				if (isStraight) {
+		} else if (dx != 0) {
 
-					consider = true;
+			boolean next = isWalkable(nodes, x + dx, y);
+			boolean up = isWalkable(nodes, x, y - 1);
+			boolean down = isWalkable(nodes, x, y + 1);
 
-				} // else checking in case where the diagonal path is unavailable
-				else {
+			if (next) {
 
-					// booleans of obstacles
-					boolean up = World.getTile(currentX, currentY - 1).isSolid();
-					boolean down = World.getTile(currentX, currentY + 1).isSolid();
-					boolean left = World.getTile(currentX - 1, currentY).isSolid();
-					boolean right = World.getTile(currentX + 1, currentY).isSolid();
+				jump(nodes, current, x + dx, y, dx, 0);
 
-					// checking if target diagonal tile has adjacent obstacle tile to
-					// avoid
-					if ((x == -1 && y == -1) && (up || left)) {
-						continue;
-					}
-					if ((x == 1 && y == -1) && (up || right)) {
-						continue;
-					}
-					if ((x == -1 && y == 1) && (down || left)) {
-						continue;
-					}
-					if ((x == 1 && y == 1) && (down || right)) {
-						continue;
-					}
+				if (up)
+					jump(nodes, current, x + dx, y - 1, dx, -1);
 
-					consider = true;
+				if (down)
+					jump(nodes, current, x + dx, y + 1, dx, 1);
 
-				}
+			}
 
-				// now check for the entity on the path
-				if (consider) {
+			if (up)
+				jump(nodes, current, x, y - 1, 0, -1);
 
-					// true an entity is on the way of path
-					boolean collided = false;
+			if (down)
+				jump(nodes, current, x, y + 1, 0, 1);
 
-					Rectangle pathRect = new Rectangle(newX * Tile.TILE_SIZE,
-							newY * Tile.TILE_SIZE, Tile.TILE_SIZE, Tile.TILE_SIZE);
+		} else {
 
-					// check all entities
-					for (int yy = 0; yy < World.map.length; yy++) {
-						for (int xx = 0; xx < World.map[0].length; xx++) {
+			boolean next = isWalkable(nodes, x, y + dy);
+			boolean left = isWalkable(nodes, x - 1, y);
+			boolean right = isWalkable(nodes, x + 1, y);
 
-							if (World.map[yy][xx] == null)
-								continue;
+			if (next) {
 
-							for (Entity ent : World.map[yy][xx].entities) {
+				jump(nodes, current, x, y + dy, 0, dy);
 
-								if (ent.getNoCollision())
-									continue;
+				if (left)
+					jump(nodes, current, x - 1, y + dy, -1, dy);
 
-								if (ent.equals(finder))
-									continue;
+				if (right)
+					jump(nodes, current, x + 1, y + dy, 1, dy);
 
-								// checking, not to skip the tile that collided with
-								// possible target entity
-								if (pathRect.intersects(ent.getBounds(0, 0))) {
+			}
 
-									if (targetEntity != null && ent == targetEntity)
-										break;
+			if (left)
+				jump(nodes, current, x - 1, y, -1, 0);
 
-									collided = true;
-									break;
+			if (right)
+				jump(nodes, current, x + 1, y, 1, 0);
 
-								}
-							}
-						}
-					}
+		}
 
-					if (!collided)
-						openList.add(node);
+	}
+
+	/**
+	 * Go from the tile in the direction until a jump point is found, and open
+	 * it.
+	 *
+	 * @param nodes
+	 * @param current node slot the jump starts from
+	 * @param x       the first tile, in block
+	 * @param y       the first tile, in block
+	 * @param dx      -1 ~ 1
+	 * @param dy      -1 ~ 1
+	 */
+	private void jump(SearchNodes nodes, int current, int x, int y, int dx,
+			int dy) {
+
+		while (true) {
+
+			if (!isWalkable(nodes, x, y))
+				return;
+
+			if (isJumpPoint(nodes, x, y, dx, dy)) {
+
+				open(nodes, current, x, y);
+				return;
 
-				}
 			}
+
+			// no cutting corners
+			if (dx != 0 && dy != 0 && (!isWalkable(nodes, x + dx, y)
+					|| !isWalkable(nodes, x, y + dy)))
+				return;
+
+			x += dx;
+			y += dy;
+
+		}
+
+	}
+
+	/**
+	 * @param nodes
+	 * @param x     walkable tile, in block
+	 * @param y     walkable tile, in block
+	 * @param dx    the direction it's reached in, -1 ~ 1
+	 * @param dy    the direction it's reached in, -1 ~ 1
+	 * @return true if the tile is the target, or a path has to turn here
+	 */
+	private boolean isJumpPoint(SearchNodes nodes, int x, int y, int dx, int dy) {
+
+		if (x == target.getX() && y == target.getY())
+			return true;
+
+		// the straight jumps from here find something
+		if (dx != 0 && dy != 0)
+			return hasStraightJumpPoint(nodes, x + dx, y, dx, 0)
+					|| hasStraightJumpPoint(nodes, x, y + dy, 0, dy);
+
+		// a tile beside is only reachable through this one (forced neighbor)
+		if (dx != 0)
+			return (isWalkable(nodes, x, y - 1) && !isWalkable(nodes, x - dx, y - 1))
+					|| (isWalkable(nodes, x, y + 1) && !isWalkable(nodes, x - dx, y + 1));
+
+		return (isWalkable(nodes, x - 1, y) && !isWalkable(nodes, x - 1, y - dy))
+				|| (isWalkable(nodes, x + 1, y) && !isWalkable(nodes, x + 1, y - dy));
+
+	}
+
+	/**
+	 * @param nodes
+	 * @param x     the first tile, in block
+	 * @param y     the first tile, in block
+	 * @param dx    -1 ~ 1, straight
+	 * @param dy    -1 ~ 1, straight
+	 * @return true if a straight jump from the tile finds a jump point
+	 */
+	private boolean hasStraightJumpPoint(SearchNodes nodes, int x, int y, int dx,
+			int dy) {
+
+		while (isWalkable(nodes, x, y)) {
+
+			if (isJumpPoint(nodes, x, y, dx, dy))
+				return true;
+
+			x += dx;
+			y += dy;
+
 		}
 
-		Collections.sort(openList, sorter);
+		return false;
+
+	}
+
+	/**
+	 * Add the tile to the open list from the node, or give it the shorter path.
+	 * The tile is in a straight or diagonal line from the node.
+	 *
+	 * @param nodes
+	 * @param current node slot
+	 * @param newX    in block
+	 * @param newY    in block
+	 */
+	private void open(SearchNodes nodes, int current, int newX, int newY) {
+
+		int node = nodes.find(newX, newY);
+
+		// checked already
+		if (node != -1 && nodes.isClosed(node))
+			return;
+
+		int g = nodes.getG(current) + getDistance(nodes.getX(current),
+				nodes.getY(current), newX, newY);
+
+		// in the open list, but this way is shorter
+		if (node != -1) {
+
+			if (g < nodes.getG(node))
+				nodes.decrease(node, g, current);
+
+			return;
+
+		}
+
+		nodes.add(newX, newY, g, getDistanceFromTarget(newX, newY), current);
+
+	}
+
+	/**
+	 * @param nodes
+	 * @param x     in block
+	 * @param y     in block
+	 * @return true if the tile is not solid, and no entity is on it
+	 */
+	private boolean isWalkable(SearchNodes nodes, int x, int y) {
+
+		int chunkX = Chunk.blockToChunk(x);
+		int chunkY = Chunk.blockToChunk(y);
+
+		// the jumps stay in one Chunk for a while
+		if (chunkX != lastChunkX || chunkY != lastChunkY || !hasLastChunk) {
+
+			lastChunk = World.getChunk(chunkX, chunkY);
+			lastChunkX = chunkX;
+			lastChunkY = chunkY;
+			hasLastChunk = true;
+
+		}
+
+		// out of the loaded Chunks is air, which is solid
+		if (lastChunk == null)
+			return false;
+
+		int localX = Chunk.blockToLocal(x);
+		int localY = Chunk.blockToLocal(y);
+
+		if (!lastChunk.isWalkable(localX, localY)) {
+
+			// the target itself may be an obstacle
+			if (x != target.getX() || y != target.getY()
+					|| lastChunk.getTile(localX, localY).isSolid())
+				return false;
+
+		}
+
+		return !nodes.isBlocked(x, y);
 
 	}
 
@@ -321,60 +697,63 @@ public class PathFinding {
 	 */
 	private int getDistanceFromTarget(Node current) {
 
-		int cost = 10;
-		int diagonalCost = 14;
-
-		int xDis = Math.abs(target.getX() - current.getX());
-		int yDis = Math.abs(target.getY() - current.getY());
+		return getDistanceFromTarget(current.getX(), current.getY());
 
-		int diagonal = Math.min(xDis, yDis); // amount of diagonal paths
+	}
 
-		int straight = Math.max(xDis, yDis) - diagonal; // amount of straight paths
+	/**
+	 * H cost, see {@linkplain #getDistanceFromTarget(Node)}
+	 *
+	 * @param x in block
+	 * @param y in block
+	 * @return The distance from the target tile
+	 */
+	private int getDistanceFromTarget(int x, int y) {
 
-		return (diagonal * diagonalCost + straight * cost);
+		return getDistance(x, y, target.getX(), target.getY());
 
 	}
 
 	/**
-	 * G cost
-	 * <p>
-	 * Get the distance from starting tile Including both straight and diagonal path
-	 * <p>
-	 * To make math easy, straight path is 10, and diagonal path is 14 Because
-	 * sqrt(10^2 + 10^2) is about 14
-	 * <p>
-	 * Target node should be valid already
+	 * The "Diagonal Distance" between the tiles, see
+	 * {@linkplain #getDistanceFromTarget(Node)}
 	 *
-	 * @param current
-	 * @return
+	 * @param x1 in block
+	 * @param y1 in block
+	 * @param x2 in block
+	 * @param y2 in block
+	 * @return the distance
 	 */
-	private int getDistanceFromStart(Node current) {
+	private static int getDistance(int x1, int y1, int x2, int y2) {
 
-		int cost = 10;
-		int diagonalCost = 14;
-
-		int xDis = Math.abs(start.getX() - current.getX());
-		int yDis = Math.abs(start.getY() - current.getY());
+		int xDis = Math.abs(x2 - x1);
+		int yDis = Math.abs(y2 - y1);
 
 		int diagonal = Math.min(xDis, yDis); // amount of diagonal paths
 
 		int straight = Math.max(xDis, yDis) - diagonal; // amount of straight paths
 
-		return (diagonal * diagonalCost + straight * cost);
+		return (diagonal * DIAGONAL_COST + straight * STRAIGHT_COST);
 
 	}
 
 	/**
-	 * F value H value + G value (distance from target + distance from start)
+	 * G cost
 	 * <p>
-	 * Lower the closer to the target
+	 * Get the distance from starting tile Including both straight and diagonal path
+	 * <p>
+	 * To make math easy, straight path is 10, and diagonal path is 14 Because
+	 * sqrt(10^2 + 10^2) is about 14
+	 * <p>
+	 * Target node should be valid already
 	 *
 	 * @param current
 	 * @return
 	 */
-	private int getMoveCost(Node current) {
+	private int getDistanceFromStart(Node current) {
 
-		return getDistanceFromTarget(current) + getDistanceFromStart(current);
+		return getDistance(start.getX(), start.getY(), current.getX(),
+				current.getY());
 
 	}
 
@@ -395,10 +774,18 @@ public class PathFinding {
 	 *
 	 * @return
 	 */
+	@Override
 	public ArrayList<Node> getPath() {
 
 		return path;
 
 	}
 
+	@Override
+	public int getSearchAmount() {
+
+		return searchAmount;
+
+	}
+
 }
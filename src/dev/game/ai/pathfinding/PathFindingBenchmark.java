@@ -0,0 +1,117 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.entities.Entity;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.tiles.TileId;
+
+/**
+ * PathFindingBenchmark.java - Times {@linkplain PathFinding} (A*) on the
+ * generated world, on open ground and in a maze.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. The same random queries
+ * between walkable tiles are searched on each map, once to warm up and once
+ * timed. The maze is a recursive backtracker maze with 5% of its tiles opened,
+ * the open and maze maps have no entities. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * PathFindingBenchmark [queries] [max nodes]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class PathFindingBenchmark {
+
+	private static final String WORLD_NAME = "_path_finding_benchmark";
+
+	/**
+	 * @param args [queries] [max nodes]
+	 */
+	public static void main(String[] args) {
+
+		int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+		int maxSearch = (args.length > 1) ? Integer.parseInt(args[1])
+				: PathFinding.MAX_SEARCH;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+		Random random = new Random(7);
+
+		run("world", area, random, queries, maxSearch);
+
+		area.clearEntities();
+		area.fill(TileId.GRASS);
+
+		run("open", area, random, queries, maxSearch);
+
+		area.maze(random, 5);
+
+		run("maze", area, random, queries, maxSearch);
+
+		area.close();
+
+		System.exit(0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, Random random,
+			int queries, int maxSearch) {
+
+		List<int[]> pairs = new ArrayList<>();
+
+		for (int i = 0; i < queries; i++) {
+
+			int[] start = area.randomWalkable(random);
+			int[] target = area.randomWalkable(random);
+
+			pairs.add(new int[] { start[0], start[1], target[0], target[1] });
+
+		}
+
+		// not in the world, only there to be the finder
+		Entity finder = EntityManager.getEntityById(EntityId.WOLF, 0, 0);
+
+		int found = 0;
+		long nanos = 0, worst = 0, length = 0, nodes = 0;
+
+		// the second round counts, the JIT is warm then
+		for (int round = 0; round < 2; round++) {
+
+			found = 0;
+			nanos = worst = length = nodes = 0;
+
+			for (int[] pair : pairs) {
+
+				long start = System.nanoTime();
+
+				PathFinding search = new PathFinding(area.handler, finder, pair[0],
+						pair[1], pair[2], pair[3], null, PathFinding.A_STAR, maxSearch);
+				search.search(Integer.MAX_VALUE);
+
+				long time = System.nanoTime() - start;
+
+				nanos += time;
+				worst = Math.max(worst, time);
+				nodes += search.getSearchAmount();
+
+				if (!search.getNoPath()) {
+					found++;
+					length += search.getPath().size();
+				}
+
+			}
+		}
+
+		System.out.println(String.format(
+				"[PathFindingBenchmark] %-5s %d queries: found %3d, mean %7.1f us, worst %8.1f us, mean path %5.1f, mean nodes %6.0f",
+				name, queries, found, nanos / 1e3 / queries, worst / 1e3,
+				length / (double) Math.max(found, 1), nodes / (double) queries));
+
+	}
+
+}
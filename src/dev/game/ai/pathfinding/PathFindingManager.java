@@ -0,0 +1,540 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.entities.creatures.Creature;
+import dev.game.gfx.GameCamera;
+
+/**
+ * PathFindingManager.java - Finds the paths the creatures asked for, a part at
+ * a time, so many creatures finding a path at once do not make one tick long.
+ * <p>
+ * Every tick, the searches are carried on until the node budget or the time
+ * budget is used up, the creatures closest to the camera first. A search gets
+ * a share of the budget at a time, so one long search (or one that finds no
+ * path) does not hold up the others, and a creature that waited too long goes
+ * first. The found path is given to the creature with
+ * {@linkplain Creature#setPathToTarget(ArrayList)}.
+ * <p>
+ * When the target moved only a little from the end of the path the creature is
+ * following, only the end of the path is found again (see
+ * {@linkplain PathSplice}).
+ * <p>
+ * The {@linkplain FlowField}s of the targets many creatures chase are kept up
+ * to date here too, before the paths.
+ *
+ * @author Juhyung Kim
+ */
+public class PathFindingManager {
+
+	/**
+	 * Default most nodes checked in one tick, half of the longest search
+	 */
+	public static final int DEFAULT_NODE_BUDGET = PathFinding.MAX_SEARCH / 2;
+
+	/**
+	 * Most nodes one search gets in one tick, the rest goes to the next ones
+	 */
+	private static final int REQUEST_SHARE = PathFinding.MAX_SEARCH / 4;
+
+	/**
+	 * Ticks a creature waits before it goes ahead of the closer ones
+	 */
+	private static final int MAX_WAIT = Game.FPS / 4;
+
+	/**
+	 * Default most time spent in one tick, in microseconds
+	 */
+	public static final int DEFAULT_TIME_BUDGET = 2000;
+
+	/**
+	 * Nodes checked before looking at the clock again
+	 */
+	private static final int SLICE = 200;
+
+	/**
+	 * The flow fields nobody asked for in this many ticks are dropped
+	 */
+	private static final int FLOW_FIELD_TIMEOUT = Game.FPS;
+
+	private Handler handler;
+
+	private int nodeBudget = DEFAULT_NODE_BUDGET;
+	private long timeBudget = DEFAULT_TIME_BUDGET * 1000L; // in nano seconds
+
+	private final ArrayList<Request> requests = new ArrayList<>();
+
+	private final HashMap<Entity, FlowField> flowFields = new HashMap<>();
+
+	// metrics
+	private int lastNodes, lastCompleted;
+	private long lastNanos, maxNanos;
+	private long totalNodes, totalNanos, totalCompleted, totalSpliced;
+	private int ticks;
+
+	/**
+	 * A path asked by a creature.
+	 */
+	private static class Request {
+
+		private final Creature creature;
+		private final Entity target;
+		private final int method;
+
+		private PathSearch search;
+		private boolean splice; // true if the search is a PathSplice
+
+		private int searched; // nodes checked so far
+		private int waited; // ticks since asked
+		private double distance; // to the camera, for the order
+
+		Request(Creature creature, Entity target, int method) {
+
+			this.creature = creature;
+			this.target = target;
+			this.method = method;
+
+		}
+
+	}
+
+	public PathFindingManager(Handler handler) {
+
+		this.handler = handler;
+
+	}
+
+	/**
+	 * Ask for a path from the creature to the target, see
+	 * {@linkplain AIFindPathToTarget}. The far targets are found with
+	 * {@linkplain HierarchicalPathFinding}. If the creature is waiting for a path
+	 * to the same target already, that one is kept. If the target is close to
+	 * the end of the path the creature has, the path is spliced.
+	 *
+	 * @param creature
+	 * @param target
+	 * @param method   {@linkplain PathFinding#A_STAR} or
+	 *                 {@linkplain PathFinding#JUMP_POINT}
+	 * @return true if a new search is started, false if the one waiting is kept
+	 */
+	public boolean request(Creature creature, Entity target, int method) {
+
+		Request old = find(creature);
+
+		if (old != null) {
+
+			if (old.target == target)
+				return false;
+
+			old.search.cancel();
+			requests.remove(old);
+
+		}
+
+		Request request = new Request(creature, target, method);
+
+		request.search = PathSplice.create(handler, creature, target, method);
+		request.splice = (request.search != null);
+
+		if (!request.splice)
+			request.search = newSearch(creature, target, method);
+
+		requests.add(request);
+
+		return true;
+
+	}
+
+	/**
+	 * @param creature
+	 * @param target
+	 * @param method
+	 * @return the search for the whole path
+	 */
+	private PathSearch newSearch(Creature creature, Entity target, int method) {
+
+		int xDis = Math.abs(target.getCenterX() - creature.getCenterX());
+		int yDis = Math.abs(target.getCenterY() - creature.getCenterY());
+
+		// far ones are found a Chunk at a time
+		if (Math.max(xDis, yDis) > HierarchicalPathFinding.MIN_DISTANCE)
+			return new HierarchicalPathFinding(handler, creature, target, method,
+					false);
+
+		return new PathFinding(handler, creature, target.getCenterX(),
+				target.getCenterY(), target, method, false);
+
+	}
+
+	/**
+	 * Get the flow field to the target, shared by everyone chasing it. It's
+	 * made in the next tick if it's new (see {@linkplain FlowField#isReady()}),
+	 * and dropped when nobody asks for it for a while.
+	 *
+	 * @param target
+	 * @return
+	 */
+	public FlowField getFlowField(Entity target) {
+
+		FlowField field = flowFields.get(target);
+
+		if (field == null) {
+
+			field = new FlowField(target);
+			flowFields.put(target, field);
+
+		}
+
+		field.setLastUsed(ticks);
+
+		return field;
+
+	}
+
+	/**
+	 * @param creature
+	 * @return true if the creature is waiting for a path
+	 */
+	public boolean isPending(Creature creature) {
+
+		return find(creature) != null;
+
+	}
+
+	/**
+	 * Forget the path the creature asked for.
+	 *
+	 * @param creature
+	 */
+	public void cancel(Creature creature) {
+
+		Request request = find(creature);
+
+		if (request != null) {
+
+			request.search.cancel();
+			requests.remove(request);
+
+		}
+
+	}
+
+	/**
+	 * Forget every path asked for, the creatures are left behind (travelling to
+	 * the other dimension).
+	 */
+	public void clear() {
+
+		for (Request request : requests)
+			request.search.cancel();
+
+		requests.clear();
+
+		flowFields.clear();
+
+	}
+
+	/**
+	 * Carry on with the searches, within the budget.
+	 */
+	public void tick() {
+
+		long start = System.nanoTime();
+
+		int nodes = 0;
+		int completed = 0;
+
+		dropLostRequests();
+
+		nodes += updateFlowFields(start);
+
+		sortByDistance();
+
+		Iterator<Request> iter = requests.iterator();
+
+		while (iter.hasNext() && nodes < nodeBudget
+				&& System.nanoTime() - start < timeBudget) {
+
+			Request request = iter.next();
+
+			boolean done = false;
+			int share = 0;
+
+			// a slice at a time, the clock is checked in between
+			while (!done && share < REQUEST_SHARE && nodes < nodeBudget
+					&& System.nanoTime() - start < timeBudget) {
+
+				done = request.search.search(Math.min(SLICE,
+						Math.min(REQUEST_SHARE - share, nodeBudget - nodes)));
+
+				int searched = request.search.getSearchAmount();
+
+				nodes += searched - request.searched;
+				share += searched - request.searched;
+				request.searched = searched;
+
+				if (!done || !request.splice)
+					continue;
+
+				// the end of the path couldn't be found nearby, find the whole path
+				if (request.search.getPath() == null) {
+
+					request.search = newSearch(request.creature, request.target,
+							request.method);
+					request.searched = 0;
+					done = false;
+
+				} else {
+
+					totalSpliced++;
+
+				}
+
+				request.splice = false;
+
+			}
+
+			// the next ones get their share
+			if (!done)
+				continue;
+
+			request.creature.setPathToTarget(request.search.getPath());
+			request.creature.setPathUpdated(true);
+
+			iter.remove();
+			completed++;
+
+		}
+
+		long nanos = System.nanoTime() - start;
+
+		lastNodes = nodes;
+		lastCompleted = completed;
+		lastNanos = nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+
+		totalNodes += nodes;
+		totalNanos += nanos;
+		totalCompleted += completed;
+		ticks++;
+
+	}
+
+	/**
+	 * Drop the flow fields not used anymore, and carry on making the ones out of
+	 * date.
+	 *
+	 * @param start System.nanoTime() when the tick started
+	 * @return the number of tiles checked
+	 */
+	private int updateFlowFields(long start) {
+
+		int nodes = 0;
+
+		Iterator<FlowField> iter = flowFields.values().iterator();
+
+		while (iter.hasNext()) {
+
+			FlowField field = iter.next();
+
+			if (!field.getTarget().isAlive()
+					|| ticks - field.getLastUsed() > FLOW_FIELD_TIMEOUT) {
+
+				iter.remove();
+				continue;
+
+			}
+
+			if (nodes >= nodeBudget || System.nanoTime() - start >= timeBudget)
+				continue;
+
+			if (field.needsUpdate())
+				nodes += field.update(nodeBudget - nodes);
+
+		}
+
+		return nodes;
+
+	}
+
+	/**
+	 * Drop the requests of the creatures that died or changed the target.
+	 */
+	private void dropLostRequests() {
+
+		Iterator<Request> iter = requests.iterator();
+
+		while (iter.hasNext()) {
+
+			Request request = iter.next();
+
+			if (!request.creature.isAlive()
+					|| request.creature.getTarget() != request.target) {
+
+				request.search.cancel();
+				iter.remove();
+
+			}
+		}
+
+	}
+
+	/**
+	 * The creatures closest to the camera first, they are the ones seen. The
+	 * ones that waited more than {@linkplain #MAX_WAIT} go before them, the
+	 * longest waiting first, so the far ones get their turn too.
+	 */
+	private void sortByDistance() {
+
+		GameCamera camera = handler.getGameCamera();
+
+		float cameraX = camera.getXOffset() + Game.SCREEN_WIDTH / 2;
+		float cameraY = camera.getYOffset() + Game.SCREEN_HEIGHT / 2;
+
+		for (Request request : requests) {
+
+			Creature creature = request.creature;
+
+			float dx = creature.getX() + creature.getWidth() / 2 - cameraX;
+			float dy = creature.getY() + creature.getHeight() / 2 - cameraY;
+
+			request.distance = dx * dx + dy * dy;
+			request.waited++;
+
+		}
+
+		Collections.sort(requests, new Comparator<Request>() {
+
+			@Override
+			public int compare(Request a, Request b) {
+
+				boolean aLate = a.waited > MAX_WAIT;
+				boolean bLate = b.waited > MAX_WAIT;
+
+				if (aLate && bLate)
+					return Integer.compare(b.waited, a.waited);
+
+				if (aLate != bLate)
+					return aLate ? -1 : 1;
+
+				return Double.compare(a.distance, b.distance);
+
+			}
+
+		});
+
+	}
+
+	private Request find(Creature creature) {
+
+		for (Request request : requests)
+			if (request.creature == creature)
+				return request;
+
+		return null;
+
+	}
+
+	// getter setter
+
+	/**
+	 * @param nodeBudget the most nodes checked in one tick
+	 */
+	public void setNodeBudget(int nodeBudget) {
+
+		this.nodeBudget = Math.max(1, nodeBudget);
+
+	}
+
+	public int getNodeBudget() {
+
+		return nodeBudget;
+
+	}
+
+	/**
+	 * @param micros the most time spent in one tick, in microseconds
+	 */
+	public void setTimeBudget(int micros) {
+
+		this.timeBudget = Math.max(1, micros) * 1000L;
+
+	}
+
+	/**
+	 * @return in microseconds
+	 */
+	public int getTimeBudget() {
+
+		return (int) (timeBudget / 1000);
+
+	}
+
+	/**
+	 * @return number of creatures waiting for a path
+	 */
+	public int getPendingCount() {
+
+		return requests.size();
+
+	}
+
+	/**
+	 * @return nodes checked in the last tick
+	 */
+	public int getLastNodes() {
+
+		return lastNodes;
+
+	}
+
+	/**
+	 * @return time spent in the last tick, in nano seconds
+	 */
+	public long getLastNanos() {
+
+		return lastNanos;
+
+	}
+
+	/**
+	 * @return the longest time spent in one tick, in nano seconds
+	 */
+	public long getMaxNanos() {
+
+		return maxNanos;
+
+	}
+
+	/**
+	 * @return paths given out in the last tick
+	 */
+	public int getLastCompleted() {
+
+		return lastCompleted;
+
+	}
+
+	@Override
+	public String toString() {
+
+		double ticks = Math.max(this.ticks, 1);
+
+		return "[PathFindingManager] " + requests.size() + " pending, "
+				+ flowFields.size() + " flow fields, last tick "
+				+ lastNodes + " nodes " + String.format("%.0f", lastNanos / 1e3)
+				+ " us, average " + String.format("%.0f", totalNodes / ticks)
+				+ " nodes " + String.format("%.0f", totalNanos / 1e3 / ticks)
+				+ " us, max " + String.format("%.0f", maxNanos / 1e3) + " us, "
+				+ totalCompleted + " paths (" + totalSpliced + " spliced)";
+
+	}
+
+}
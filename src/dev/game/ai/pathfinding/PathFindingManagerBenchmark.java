@@ -0,0 +1,206 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.entities.creatures.Creature;
+
+/**
+ * PathFindingManagerBenchmark.java - Times a wave of path requests made in the
+ * same tick, searched all at once versus spread over the ticks by
+ * {@linkplain PathFindingManager}.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded. In each wave, wolves are put
+ * on random walkable tiles 6 to 30 tiles from the player, and all of them ask
+ * for a path to the player at once. First the searches are run one after the
+ * other in one go, the way the creatures used to search, then they are
+ * requested from a manager that is ticked until every wolf has a path. The
+ * worst tick of each wave and the ticks each wolf waited are reported, on the
+ * generated world and in a maze with 5% of its tiles opened. The scratch world
+ * is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * PathFindingManagerBenchmark [wolves per wave] [waves] [time budget in us]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class PathFindingManagerBenchmark {
+
+	private static final String WORLD_NAME = "_path_finding_manager_benchmark";
+
+	private static final int MIN_DISTANCE = 6, MAX_DISTANCE = 30;
+
+	// a wave is given up after this many ticks
+	private static final int MAX_TICKS = 400;
+
+	/**
+	 * Waves not counted, the JIT warms up meanwhile
+	 */
+	private static final int WARMUP_WAVES = 5;
+
+	/**
+	 * @param args [wolves per wave] [waves] [time budget in us]
+	 */
+	public static void main(String[] args) {
+
+		int wolves = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int waves = (args.length > 1) ? Integer.parseInt(args[1]) : 80;
+		int timeBudget = (args.length > 2) ? Integer.parseInt(args[2])
+				: PathFindingManager.DEFAULT_TIME_BUDGET;
+
+		BenchmarkArea area = new BenchmarkArea(WORLD_NAME, 2);
+		Random random = new Random(3);
+
+		run("world", area, random, wolves, waves, timeBudget);
+
+		area.clearEntities();
+		area.maze(random, 5);
+
+		run("maze", area, random, wolves, waves, timeBudget);
+
+		area.close();
+
+		System.exit(0);
+
+	}
+
+	private static void run(String name, BenchmarkArea area, Random random,
+			int count, int waves, int timeBudget) {
+
+		int[] playerTile = area.randomWalkable(random);
+		BenchmarkArea.place(area.player, playerTile[0], playerTile[1]);
+
+		List<Creature> wolves = new ArrayList<>();
+
+		// not in the world, only there to be the finders
+		for (int i = 0; i < count; i++) {
+
+			Creature wolf = (Creature) EntityManager.getEntityById(EntityId.WOLF, 0,
+					0);
+			wolf.setTarget(area.player);
+			wolves.add(wolf);
+
+		}
+
+		PathFindingManager manager = new PathFindingManager(area.handler);
+		manager.setTimeBudget(timeBudget);
+
+		long[] inlineNanos = new long[waves], managerWorst = new long[waves];
+		long waitSum = 0;
+		int waitMax = 0, found = 0, never = 0;
+
+		for (int wave = -WARMUP_WAVES; wave < waves; wave++) {
+
+			for (Creature wolf : wolves) {
+
+				while (true) {
+
+					int[] tile = area.randomWalkable(random);
+
+					int distance = Math.max(Math.abs(tile[0] - playerTile[0]),
+							Math.abs(tile[1] - playerTile[1]));
+
+					if (distance >= MIN_DISTANCE && distance <= MAX_DISTANCE) {
+						BenchmarkArea.place(wolf, tile[0], tile[1]);
+						break;
+					}
+
+				}
+			}
+
+			long start = System.nanoTime();
+
+			for (Creature wolf : wolves) {
+
+				if (Math.max(Math.abs(wolf.getCenterX() - playerTile[0]), Math.abs(
+						wolf.getCenterY() - playerTile[1])) > HierarchicalPathFinding.MIN_DISTANCE)
+					new HierarchicalPathFinding(area.handler, wolf, area.player,
+							PathFinding.A_STAR);
+				else
+					new PathFinding(area.handler, wolf, area.player);
+
+			}
+
+			long inline = System.nanoTime() - start;
+
+			for (Creature wolf : wolves) {
+
+				wolf.setPathToTarget(null);
+				wolf.setPathUpdated(false);
+
+				manager.request(wolf, area.player, PathFinding.A_STAR);
+
+			}
+
+			int[] waited = new int[count];
+			Arrays.fill(waited, -1);
+
+			long worst = 0;
+
+			for (int tick = 1; tick <= MAX_TICKS && manager.getPendingCount() > 0; tick++) {
+
+				manager.tick();
+
+				worst = Math.max(worst, manager.getLastNanos());
+
+				for (int i = 0; i < count; i++)
+					if (waited[i] < 0 && wolves.get(i).getPathUpdated())
+						waited[i] = tick;
+
+			}
+
+			if (wave < 0)
+				continue;
+
+			inlineNanos[wave] = inline;
+			managerWorst[wave] = worst;
+
+			for (int i = 0; i < count; i++) {
+
+				if (waited[i] < 0) {
+					never++;
+					continue;
+				}
+
+				waitSum += waited[i];
+				waitMax = Math.max(waitMax, waited[i]);
+
+				if (wolves.get(i).getPathToTarget() != null)
+					found++;
+
+			}
+
+			manager.clear();
+
+		}
+
+		Arrays.sort(inlineNanos);
+		Arrays.sort(managerWorst);
+
+		int got = count * waves - never;
+
+		System.out.println(String.format(
+				"[PathFindingManagerBenchmark] %-5s %d waves of %d wolves, budget %d nodes %d us",
+				name, waves, count, manager.getNodeBudget(),
+				manager.getTimeBudget()));
+		System.out.println(String.format(
+				"[PathFindingManagerBenchmark] %-5s all at once:   wave median %6.2f ms, worst %6.2f ms",
+				name, inlineNanos[waves / 2] / 1e6, inlineNanos[waves - 1] / 1e6));
+		System.out.println(String.format(
+				"[PathFindingManagerBenchmark] %-5s with manager:  worst tick median %6.2f ms, worst %6.2f ms",
+				name, managerWorst[waves / 2] / 1e6, managerWorst[waves - 1] / 1e6));
+		System.out.println(String.format(
+				"[PathFindingManagerBenchmark] %-5s path after %.2f ticks on average, %d at most, %d of %d found, %d never answered",
+				name, waitSum / (double) Math.max(got, 1), waitMax, found, got,
+				never));
+
+	}
+
+}
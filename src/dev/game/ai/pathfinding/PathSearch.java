@@ -0,0 +1,36 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+
+/**
+ * PathSearch.java - A path search that can be done a part at a time, so
+ * {@linkplain PathFindingManager} can spread the searches over the ticks.
+ *
+ * @author Juhyung Kim
+ */
+interface PathSearch {
+
+	/**
+	 * Carry on with the search.
+	 *
+	 * @param budget the most nodes to check in this call
+	 * @return true if the search is done
+	 */
+	public boolean search(int budget);
+
+	/**
+	 * Stop the search, there will be no path.
+	 */
+	public void cancel();
+
+	/**
+	 * @return the path found, null if there is none (or not yet)
+	 */
+	public ArrayList<Node> getPath();
+
+	/**
+	 * @return the nodes checked so far
+	 */
+	public int getSearchAmount();
+
+}
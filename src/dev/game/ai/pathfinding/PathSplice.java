@@ -0,0 +1,215 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayList;
+
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.entities.creatures.Creature;
+import dev.game.worlds.World;
+
+/**
+ * PathSplice.java - Moves the end of the path of a creature to where its
+ * target went, instead of finding the whole path again.
+ * <p>
+ * The part of the path the creature has not walked yet is cut a few tiles
+ * before the tile closest to the target, and only the way from there to the
+ * target is found, so the new end doesn't follow where the target has been.
+ * If the tiles kept are not walkable anymore, or the target went too far, the
+ * path is not spliced (see {@linkplain #create(Handler, Creature, Entity, int)}).
+ *
+ * @author Juhyung Kim
+ */
+class PathSplice implements PathSearch {
+
+	/**
+	 * The end of the path can be this far from the target (in block, either
+	 * way) to be spliced
+	 */
+	static final int MAX_DISTANCE = 4;
+
+	/**
+	 * The path is cut this many tiles before the tile closest to the target
+	 */
+	private static final int CUT_BACK = MAX_DISTANCE * 2;
+
+	/**
+	 * The most nodes checked for the new end, the whole path is found if it
+	 * takes more
+	 */
+	private static final int MAX_SEARCH = 400;
+
+	private final ArrayList<Node> kept; // from the cut to the creature
+	private final PathFinding local; // from the cut to the target
+
+	private ArrayList<Node> path;
+
+	private PathSplice(ArrayList<Node> kept, PathFinding local) {
+
+		this.kept = kept;
+		this.local = local;
+
+	}
+
+	/**
+	 * Get the splice for the path the creature is following.
+	 *
+	 * @param handler
+	 * @param creature
+	 * @param target
+	 * @param method   {@linkplain PathFinding#A_STAR} or
+	 *                 {@linkplain PathFinding#JUMP_POINT}
+	 * @return null if the whole path has to be found again
+	 */
+	static PathSplice create(Handler handler, Creature creature, Entity target,
+			int method) {
+
+		ArrayList<Node> old = creature.getPathToTarget();
+
+		if (old == null || old.isEmpty())
+			return null;
+
+		int targetX = target.getCenterX();
+		int targetY = target.getCenterY();
+
+		if (getDistance(old.get(0), targetX, targetY) > MAX_DISTANCE)
+			return null;
+
+		int x = creature.getCenterX();
+		int y = creature.getCenterY();
+
+		// the path goes from the target (0) to the creature, the tiles from
+		// here on are walked already
+		int walked = find(old, x, y);
+
+		if (walked == -1)
+			return null;
+
+		// the tile closest to the target, the creature's own tile if none
+		int closest = walked;
+		int best = Math.max(Math.abs(targetX - x), Math.abs(targetY - y));
+
+		for (int i = walked - 1; i >= 0; i--) {
+
+			Node node = old.get(i);
+
+			// an obstacle is in the way now
+			if (!World.isWalkable(node.getX(), node.getY()))
+				return null;
+
+			int distance = getDistance(node, targetX, targetY);
+
+			if (distance < best) {
+
+				best = distance;
+				closest = i;
+
+			}
+		}
+
+		int cut = Math.min(closest + CUT_BACK, walked);
+
+		int cutX = (cut == walked) ? x : old.get(cut).getX();
+		int cutY = (cut == walked) ? y : old.get(cut).getY();
+
+		ArrayList<Node> kept = new ArrayList<>(old.subList(cut, walked));
+
+		PathFinding local = new PathFinding(handler, creature, cutX, cutY, targetX,
+				targetY, target, method, MAX_SEARCH);
+
+		return new PathSplice(kept, local);
+
+	}
+
+	/**
+	 * @param path
+	 * @param x    in block
+	 * @param y    in block
+	 * @return the index of the tile on the path, or one past the farthest tile
+	 *         next to it (pushed off the path, or still on the tile the path was
+	 *         found from), or -1
+	 */
+	private static int find(ArrayList<Node> path, int x, int y) {
+
+		int next = -1;
+
+		for (int i = path.size() - 1; i >= 0; i--) {
+
+			Node node = path.get(i);
+
+			if (node.getX() == x && node.getY() == y)
+				return i;
+
+			if (getDistance(node, x, y) <= 1)
+				next = i + 1;
+
+		}
+
+		return next;
+
+	}
+
+	/**
+	 * @param node
+	 * @param x    in block
+	 * @param y    in block
+	 * @return the distance in block, the longer way
+	 */
+	private static int getDistance(Node node, int x, int y) {
+
+		return Math.max(Math.abs(node.getX() - x), Math.abs(node.getY() - y));
+
+	}
+
+	/**
+	 * Carry on with the search for the new end.
+	 *
+	 * @param budget the most nodes to check in this call
+	 * @return true if the search is done, the path is null if it could not be
+	 *         spliced
+	 */
+	@Override
+	public boolean search(int budget) {
+
+		if (!local.search(budget))
+			return false;
+
+		ArrayList<Node> end = local.getPath();
+
+		if (end != null && path == null) {
+
+			path = new ArrayList<>(end.size() + kept.size());
+			path.addAll(end);
+			path.addAll(kept);
+
+			// connect the new end to the rest
+			if (!end.isEmpty() && !kept.isEmpty())
+				end.get(end.size() - 1).setParentPath(kept.get(0));
+
+		}
+
+		return true;
+
+	}
+
+	@Override
+	public void cancel() {
+
+		local.cancel();
+
+	}
+
+	@Override
+	public ArrayList<Node> getPath() {
+
+		return path;
+
+	}
+
+	@Override
+	public int getSearchAmount() {
+
+		return local.getSearchAmount();
+
+	}
+
+}
@@ -0,0 +1,506 @@
+package dev.game.ai.pathfinding;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * SearchNodes.java - The nodes of one A* search, kept in int arrays and reused
+ * for the next search (see {@linkplain #obtain()}).
+ * <p>
+ * The open list is a binary heap of the node slots that knows where each node
+ * is in it, so a node found by a shorter path is moved up instead of added
+ * again. The nodes are found by their position with an open-addressing hash
+ * table, and the tiles blocked by entities are kept in another one.
+ *
+ * @author Juhyung Kim
+ */
+class SearchNodes {
+
+	/**
+	 * The heap index of a node that is checked already (closed)
+	 */
+	static final int CLOSED = -1;
+
+	private static final ArrayDeque<SearchNodes> pool = new ArrayDeque<>();
+
+	// the nodes, by slot
+	private int count;
+	private int[] x, y;
+	private int[] g, h; // distance from start, distance to target
+	private int[] parent;
+	private int[] heapIndex;
+
+	// the open list, node slots ordered by F (G + H)
+	private int[] heap;
+	private int heapSize;
+
+	// position -> node slot, linear probing
+	private long[] nodeKeys;
+	private int[] nodeSlots;
+	private int[] nodeStamps;
+
+	// the tiles blocked by entities, linear probing
+	private long[] blockedKeys;
+	private int[] blockedStamps;
+	private int blockedCount;
+
+	/**
+	 * The entries from the searches before have older stamps, so the tables
+	 * are cleared by changing the stamp
+	 */
+	private int stamp;
+
+	private SearchNodes() {
+
+		allocateNodes(256);
+
+		heap = new int[256];
+
+		nodeKeys = new long[512];
+		nodeSlots = new int[512];
+		nodeStamps = new int[512];
+
+		blockedKeys = new long[64];
+		blockedStamps = new int[64];
+
+	}
+
+	/**
+	 * @return cleared SearchNodes, give it back with {@linkplain #free()}
+	 */
+	static SearchNodes obtain() {
+
+		SearchNodes nodes;
+
+		synchronized (pool) {
+			nodes = pool.poll();
+		}
+
+		if (nodes == null)
+			nodes = new SearchNodes();
+
+		nodes.clear();
+
+		return nodes;
+
+	}
+
+	/**
+	 * Give these back to be reused.
+	 */
+	void free() {
+
+		synchronized (pool) {
+			pool.push(this);
+		}
+
+	}
+
+	private void clear() {
+
+		count = 0;
+		heapSize = 0;
+		blockedCount = 0;
+
+		stamp++;
+
+		// start over before the stamp repeats
+		if (stamp == 0) {
+
+			Arrays.fill(nodeStamps, 0);
+			Arrays.fill(blockedStamps, 0);
+			stamp = 1;
+
+		}
+
+	}
+
+	////////////// nodes
+
+	/**
+	 * Add an open node.
+	 *
+	 * @param nodeX  in block
+	 * @param nodeY  in block
+	 * @param g      distance from start
+	 * @param h      distance to target
+	 * @param parent node slot, or -1
+	 * @return the node slot
+	 */
+	int add(int nodeX, int nodeY, int g, int h, int parent) {
+
+		if (count == x.length)
+			allocateNodes(count * 2);
+
+		int node = count++;
+
+		x[node] = nodeX;
+		y[node] = nodeY;
+		this.g[node] = g;
+		this.h[node] = h;
+		this.parent[node] = parent;
+
+		putNode(nodeX, nodeY, node);
+
+		if (heapSize == heap.length)
+			heap = Arrays.copyOf(heap, heapSize * 2);
+
+		heap[heapSize] = node;
+		heapIndex[node] = heapSize;
+		heapSize++;
+
+		siftUp(heapIndex[node]);
+
+		return node;
+
+	}
+
+	/**
+	 * The node is reached by a shorter path.
+	 *
+	 * @param node   open node slot
+	 * @param g      the new distance from start, lower than before
+	 * @param parent node slot
+	 */
+	void decrease(int node, int g, int parent) {
+
+		this.g[node] = g;
+		this.parent[node] = parent;
+
+		siftUp(heapIndex[node]);
+
+	}
+
+	/**
+	 * Take the open node with the lowest F, it's closed now.
+	 *
+	 * @return the node slot, or -1 if there is no open node
+	 */
+	int poll() {
+
+		if (heapSize == 0)
+			return -1;
+
+		int node = heap[0];
+
+		heapSize--;
+
+		if (heapSize > 0) {
+
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			siftDown(0);
+
+		}
+
+		heapIndex[node] = CLOSED;
+
+		return node;
+
+	}
+
+	/**
+	 * @param nodeX in block
+	 * @param nodeY in block
+	 * @return the node slot at the position, or -1
+	 */
+	int find(int nodeX, int nodeY) {
+
+		long key = pack(nodeX, nodeY);
+		int mask = nodeKeys.length - 1;
+
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+
+			if (nodeStamps[i] != stamp)
+				return -1;
+
+			if (nodeKeys[i] == key)
+				return nodeSlots[i];
+
+		}
+
+	}
+
+	boolean isClosed(int node) {
+
+		return heapIndex[node] == CLOSED;
+	}
+
+	int getX(int node) {
+
+		return x[node];
+	}
+
+	int getY(int node) {
+
+		return y[node];
+	}
+
+	int getG(int node) {
+
+		return g[node];
+	}
+
+	int getF(int node) {
+
+		return g[node] + h[node];
+	}
+
+	int getParent(int node) {
+
+		return parent[node];
+	}
+
+	/**
+	 * @return the number of nodes of this search
+	 */
+	int size() {
+
+		return count;
+	}
+
+	////////////// blocked tiles
+
+	/**
+	 * Mark the tile blocked (by an entity).
+	 *
+	 * @param tileX in block
+	 * @param tileY in block
+	 */
+	void block(int tileX, int tileY) {
+
+		// half full at most
+		if ((blockedCount + 1) * 2 > blockedKeys.length)
+			growBlocked();
+
+		long key = pack(tileX, tileY);
+		int mask = blockedKeys.length - 1;
+
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+
+			if (blockedStamps[i] != stamp) {
+
+				blockedKeys[i] = key;
+				blockedStamps[i] = stamp;
+				blockedCount++;
+				return;
+
+			}
+
+			if (blockedKeys[i] == key)
+				return;
+
+		}
+
+	}
+
+	/**
+	 * @param tileX in block
+	 * @param tileY in block
+	 * @return true if {@linkplain #block(int, int)} marked the tile
+	 */
+	boolean isBlocked(int tileX, int tileY) {
+
+		if (blockedCount == 0)
+			return false;
+
+		long key = pack(tileX, tileY);
+		int mask = blockedKeys.length - 1;
+
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+
+			if (blockedStamps[i] != stamp)
+				return false;
+
+			if (blockedKeys[i] == key)
+				return true;
+
+		}
+
+	}
+
+	////////////// inside
+
+	private void siftUp(int index) {
+
+		int node = heap[index];
+
+		while (index > 0) {
+
+			int parentIndex = (index - 1) >>> 1;
+			int other = heap[parentIndex];
+
+			if (!isBefore(node, other))
+				break;
+
+			heap[index] = other;
+			heapIndex[other] = index;
+			index = parentIndex;
+
+		}
+
+		heap[index] = node;
+		heapIndex[node] = index;
+
+	}
+
+	private void siftDown(int index) {
+
+		int node = heap[index];
+
+		while (true) {
+
+			int child = index * 2 + 1;
+
+			if (child >= heapSize)
+				break;
+
+			if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child]))
+				child++;
+
+			int other = heap[child];
+
+			if (!isBefore(other, node))
+				break;
+
+			heap[index] = other;
+			heapIndex[other] = index;
+			index = child;
+
+		}
+
+		heap[index] = node;
+		heapIndex[node] = index;
+
+	}
+
+	/**
+	 * Lower F first, the closer to the target first when the same
+	 */
+	private boolean isBefore(int a, int b) {
+
+		int fa = g[a] + h[a];
+		int fb = g[b] + h[b];
+
+		if (fa != fb)
+			return fa < fb;
+
+		return h[a] < h[b];
+
+	}
+
+	private void putNode(int nodeX, int nodeY, int node) {
+
+		// half full at most
+		if (count * 2 > nodeKeys.length)
+			growNodeTable();
+
+		long key = pack(nodeX, nodeY);
+		int mask = nodeKeys.length - 1;
+
+		int i = hash(key) & mask;
+
+		while (nodeStamps[i] == stamp && nodeKeys[i] != key)
+			i = (i + 1) & mask;
+
+		nodeKeys[i] = key;
+		nodeSlots[i] = node;
+		nodeStamps[i] = stamp;
+
+	}
+
+	private void allocateNodes(int capacity) {
+
+		if (x == null) {
+
+			x = new int[capacity];
+			y = new int[capacity];
+			g = new int[capacity];
+			h = new int[capacity];
+			parent = new int[capacity];
+			heapIndex = new int[capacity];
+			return;
+
+		}
+
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		g = Arrays.copyOf(g, capacity);
+		h = Arrays.copyOf(h, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		heapIndex = Arrays.copyOf(heapIndex, capacity);
+
+	}
+
+	private void growNodeTable() {
+
+		long[] oldKeys = nodeKeys;
+		int[] oldSlots = nodeSlots;
+		int[] oldStamps = nodeStamps;
+
+		nodeKeys = new long[oldKeys.length * 2];
+		nodeSlots = new int[oldKeys.length * 2];
+		nodeStamps = new int[oldKeys.length * 2];
+
+		int mask = nodeKeys.length - 1;
+
+		for (int j = 0; j < oldKeys.length; j++) {
+
+			if (oldStamps[j] != stamp)
+				continue;
+
+			int i = hash(oldKeys[j]) & mask;
+
+			while (nodeStamps[i] == stamp)
+				i = (i + 1) & mask;
+
+			nodeKeys[i] = oldKeys[j];
+			nodeSlots[i] = oldSlots[j];
+			nodeStamps[i] = stamp;
+
+		}
+
+	}
+
+	private void growBlocked() {
+
+		long[] oldKeys = blockedKeys;
+		int[] oldStamps = blockedStamps;
+
+		blockedKeys = new long[oldKeys.length * 2];
+		blockedStamps = new int[oldKeys.length * 2];
+
+		int mask = blockedKeys.length - 1;
+
+		for (int j = 0; j < oldKeys.length; j++) {
+
+			if (oldStamps[j] != stamp)
+				continue;
+
+			int i = hash(oldKeys[j]) & mask;
+
+			while (blockedStamps[i] == stamp)
+				i = (i + 1) & mask;
+
+			blockedKeys[i] = oldKeys[j];
+			blockedStamps[i] = stamp;
+
+		}
+
+	}
+
+	private static long pack(int x, int y) {
+
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+
+	}
+
+	private static int hash(long key) {
+
+		key *= 0x9E3779B97F4A7C15L;
+
+		return (int) (key ^ (key >>> 32));
+
+	}
+
+}
@@ -8,6 +8,8 @@ import java.awt.Rectangle;
 import dev.game.Handler;
 import dev.game.entities.creatures.Player;
 import dev.game.gfx.GameCamera;
+import dev.game.map.Chunk;
+import dev.game.map.EntityGrid;
 import dev.game.tiles.Tile;
 import dev.game.utils.Utils;
 import dev.game.worlds.World;
@@ -65,6 +67,24 @@ public abstract class Entity {
 	 */
 	protected String chunkIndex;
 
+	/**
+	 * The Chunk that has this entity in its list, null if none. The value is
+	 * assigned by the Chunk.
+	 */
+	private Chunk chunk;
+
+	/**
+	 * Where this entity is in the list of its Chunk, see
+	 * {@linkplain #getChunkOrder()}. The value is assigned by the Chunk.
+	 */
+	private int chunkOrder;
+
+	/**
+	 * The cell of {@linkplain EntityGrid} this entity is in, -1 if none. The value
+	 * is assigned by the EntityGrid.
+	 */
+	private int gridCell = -1;
+
 	/**
 	 * Name of this entity.
 	 */
@@ -153,41 +173,36 @@ public abstract class Entity {
 	 */
 	public Entity isCollidedWithEntity(float xOffset, float yOffset) {
 
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
+		final Rectangle newBounds = getBounds(xOffset, yOffset);
 
-				if (World.map[yy][xx] == null)
-					continue;
+		// the first one of the loaded Chunks counts
+		final Entity[] collided = new Entity[1];
 
-				for (Entity ent : World.map[yy][xx].entities) {
+		// for the sake of performance
+		// ignore checking collision if entities are practically too far
+		World.getEntityGrid().visitNear(getCenterX(), getCenterY(), 3,
+				CHECK_ALL_ENTITIES, new EntityGrid.Visitor() {
 
-					// entity shouldn't collide with itself, or with noCollision
-					// entities
-					if (ent.equals(this) || ent.noCollision) {
-						continue;
-					}
+					@Override
+					public boolean visit(Entity ent) {
 
-					int dis = Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
-							getCenterX(), getCenterY());
+						// entity shouldn't collide with itself, or with noCollision
+						// entities
+						if (ent.equals(Entity.this) || ent.noCollision)
+							return true;
 
-					// for the sake of performance
-					// ignore checking collision if entities are practically too far
-					if (dis > 3) {
-						continue;
-					}
+						// check if they're going to collide at the bound where the
+						// entity is going to go
+						if (ent.intersects(newBounds) && (collided[0] == null
+								|| EntityGrid.isBefore(ent, collided[0])))
+							collided[0] = ent;
 
-					// create a bound where the entity is going to go,
-					// and check if they're going to collide
-					if (ent.getBounds(0f, 0f)
-							.intersects(getBounds(xOffset, yOffset))) {
-						return ent;
-					}
+						return true;
 
-				}
-			}
-		}
+					}
+				});
 
-		return null;
+		return collided[0];
 
 	}
 
@@ -199,40 +214,25 @@ public abstract class Entity {
 	 * @param entityId The target entity ID to check
 	 * @return
 	 */
-	public boolean isOverlappedWithEntity(int entityId) {
-
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
-
-				if (World.map[yy][xx] == null)
-					continue;
-
-				for (Entity ent : World.map[yy][xx].entities) {
+	public boolean isOverlappedWithEntity(final int entityId) {
 
-					// entity shouldn't collide with itself
-					if (ent.equals(this))
-						continue;
+		final Rectangle theBounds = getBounds(0, 0);
 
-					if (entityId != CHECK_ALL_ENTITIES
-							&& ent.getEntityID() != entityId)
-						continue;
+		// for the sake of performance
+		// ignore checking collision if entities are too far
+		return World.getEntityGrid().visitNear(getCenterX(), getCenterY(), 5,
+				entityId, new EntityGrid.Visitor() {
 
-					int dis = Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
-							getCenterX(), getCenterY());
+					@Override
+					public boolean visit(Entity ent) {
 
-					// for the sake of performance
-					// ignore checking collision if entities are too far
-					if (dis > 5)
-						continue;
+						// entity shouldn't collide with itself,
+						// stop at the first one overlapping
+						return ent.equals(Entity.this) || !ent.intersects(theBounds);
 
-					// and check if they're going to collide
-					if (ent.getBounds(0f, 0f).intersects(getBounds(0, 0)))
-						return true;
+					}
+				});
 
-				}
-			}
-		}
-		return false;
 	}
 
 	/**
@@ -319,6 +319,9 @@ public abstract class Entity {
 	 */
 	public void setX(float x) {
 
+		if (this.x != x)
+			markChunkDirty();
+
 		this.x = x;
 		updateCenterX();
 
@@ -326,8 +329,7 @@ public abstract class Entity {
 
 	public void setXInBlock(int x) {
 
-		this.x = (x * Tile.TILE_SIZE);
-		updateCenterX();
+		setX(x * Tile.TILE_SIZE);
 	}
 
 	/**
@@ -348,14 +350,16 @@ public abstract class Entity {
 	 */
 	public void setY(float y) {
 
+		if (this.y != y)
+			markChunkDirty();
+
 		this.y = y;
 		updateCenterY();
 	}
 
 	public void setYInBlock(int y) {
 
-		this.y = (y * Tile.TILE_SIZE);
-		updateCenterY();
+		setY(y * Tile.TILE_SIZE);
 
 	}
 
@@ -423,6 +427,9 @@ public abstract class Entity {
 	 */
 	public void setHealth(int health) {
 
+		if (this.health != health)
+			markChunkDirty();
+
 		if (health <= 0) {
 
 			this.health = 0;
@@ -455,6 +462,18 @@ public abstract class Entity {
 				(int) (y + bounds.y + yOffset), bounds.width, bounds.height);
 	}
 
+	/**
+	 * Same as getBounds(0, 0).intersects(area), without making the bounds.
+	 *
+	 * @param area in pixel
+	 * @return true if the bound of the entity intersects the area
+	 */
+	public boolean intersects(Rectangle area) {
+
+		return area.intersects((int) (x + bounds.x), (int) (y + bounds.y),
+				bounds.width, bounds.height);
+	}
+
 	/**
 	 * Set the collision bounds.
 	 *
@@ -471,6 +490,8 @@ public abstract class Entity {
 				(this.x + this.bounds.x + this.bounds.width / 2) / Tile.TILE_SIZE);
 		centerY = (int) Math.floor(
 				(this.y + this.bounds.y + this.bounds.height / 2) / Tile.TILE_SIZE);
+
+		centerMoved();
 	}
 
 	/**
@@ -487,6 +508,8 @@ public abstract class Entity {
 		centerY = Utils.quickFloor(
 				(this.y + this.bounds.y + this.bounds.height / 2) / Tile.TILE_SIZE);
 
+		centerMoved();
+
 	}
 
 	public int getEntityID() {
@@ -527,16 +550,104 @@ public abstract class Entity {
 		this.chunkIndex = chunkIndex;
 	}
 
+	/**
+	 * The Chunk that has this entity in its list, null if none.
+	 *
+	 * @return the chunk
+	 */
+	public Chunk getChunk() {
+
+		return chunk;
+	}
+
+	/**
+	 * Only for Chunk to use.
+	 *
+	 * @param chunk the chunk to set
+	 */
+	public void setChunk(Chunk chunk) {
+
+		this.chunk = chunk;
+	}
+
+	/**
+	 * The entities of a Chunk are in this order in its list. The numbers may
+	 * skip, after an entity is removed.
+	 *
+	 * @return the order in the Chunk
+	 */
+	public int getChunkOrder() {
+
+		return chunkOrder;
+	}
+
+	/**
+	 * Only for Chunk to use.
+	 *
+	 * @param chunkOrder the order in the Chunk
+	 */
+	public void setChunkOrder(int chunkOrder) {
+
+		this.chunkOrder = chunkOrder;
+	}
+
+	/**
+	 * The cell of {@linkplain EntityGrid} this entity is in, -1 if none.
+	 *
+	 * @return the cell
+	 */
+	public int getGridCell() {
+
+		return gridCell;
+	}
+
+	/**
+	 * Only for EntityGrid to use.
+	 *
+	 * @param gridCell the cell to set
+	 */
+	public void setGridCell(int gridCell) {
+
+		this.gridCell = gridCell;
+	}
+
 	// util methods
+	/**
+	 * Let the Chunk know this entity changed, so the Chunk gets saved again. The
+	 * player is saved separately, so it does not count.
+	 */
+	protected void markChunkDirty() {
+
+		if (chunk != null && entityID != EntityId.PLAYER)
+			chunk.markDirty();
+
+	}
+
+	/**
+	 * Let the Chunk know this entity started blocking the way. See
+	 * {@linkplain Chunk#isObstacle(Entity)}.
+	 */
+	protected void markChunkObstaclePlaced() {
+
+		if (chunk != null)
+			chunk.obstaclePlaced(this);
+
+	}
+
 	/**
 	 * Update the centerX;
 	 */
 	private void updateCenterX() {
 
+		int old = centerX;
+
 		centerX = Utils
 				.quickFloor((float) (this.x + this.bounds.x + this.bounds.width / 2)
 						/ (float) Tile.TILE_SIZE);
 
+		if (centerX != old)
+			centerMoved();
+
 	}
 
 	/**
@@ -544,10 +655,26 @@ public abstract class Entity {
 	 */
 	private void updateCenterY() {
 
+		int old = centerY;
+
 		centerY = Utils
 				.quickFloor((float) (this.y + this.bounds.y + this.bounds.height / 2)
 						/ (float) Tile.TILE_SIZE);
 
+		if (centerY != old)
+			centerMoved();
+
+	}
+
+	/**
+	 * Let the Chunk know the center tile changed, see
+	 * {@linkplain Chunk#entityMoved(Entity)}.
+	 */
+	private void centerMoved() {
+
+		if (chunk != null)
+			chunk.entityMoved(this);
+
 	}
 
 }
@@ -28,7 +28,6 @@ import dev.game.entities.statics.placeables.EntityWoodenFence;
 import dev.game.gfx.GameCamera;
 import dev.game.map.Chunk;
 import dev.game.tiles.Tile;
-import dev.game.utils.Utils;
 import dev.game.worlds.World;
 
 /**
@@ -86,62 +85,58 @@ public class EntityManager {
 		spawnerTick();
 		addEntitiesToChunk();
 
-		for (int y = 0; y < World.map.length; y++) {
-			for (int x = 0; x < World.map[0].length; x++) {
+		for (Chunk currentChunk : World.getChunks()) {
 
-				Chunk currentChunk = World.map[y][x];
+			List<Entity> ent = currentChunk.entities;
 
-				// very unlikely to happen, but in case
-				if (currentChunk == null)
-					continue;
+			Iterator<Entity> iter = ent.iterator();
 
-				List<Entity> ent = currentChunk.entities;
+			while (iter.hasNext()) {
 
-				Iterator<Entity> iter = ent.iterator();
+				Entity entity = iter.next();
 
-				while (iter.hasNext()) {
+				// 16 seems good enough range
+				if (!isEntityOutOfSight(entity, 16)) {
 
-					Entity entity = iter.next();
+					if (currentChunk.isEntityOutOfChunk(entity)) {
 
-					// 16 seems good enough range
-					if (!isEntityOutOfSight(entity, 16)) {
+						// to prevent player to "blink"
+						// (player disappears for 1 tick and reappears)
+						if (entity.getEntityID() == EntityId.PLAYER) {
 
-						if (currentChunk.isEntityOutOfChunk(entity)) {
+							Chunk centerChunk = World.map.getCenter();
 
-							// to prevent player to "blink"
-							// (player disappears for 1 tick and reappears)
-							if (entity.getEntityID() == EntityId.PLAYER) {
-
-								Chunk centerChunk = World.map[1][1];
-
-								centerChunk.addEntityDirectly(entity);
-								iter.remove();
-								continue;
+							centerChunk.addEntityDirectly(entity);
+							iter.remove();
+							currentChunk.entityRemoved(entity);
+							continue;
 
-							} else {
-								addEntity(entity);
-								iter.remove();
-								continue;
-							}
+						} else {
+							addEntity(entity);
+							iter.remove();
+							currentChunk.entityRemoved(entity);
+							continue;
 						}
+					}
 
-						entity.tick();
-
-						if (entity instanceof Creature) {
+					entity.tick();
 
-							Creature cre = (Creature) entity;
+					if (entity instanceof Creature) {
 
-							if (cre.shouldDie())
-								iter.remove();
+						Creature cre = (Creature) entity;
 
-						} else if (!entity.isAlive()) {
+						if (cre.shouldDie()) {
 							iter.remove();
+							currentChunk.entityRemoved(entity);
 						}
+
+					} else if (!entity.isAlive()) {
+						iter.remove();
+						currentChunk.entityRemoved(entity);
 					}
 				}
-				Utils.quickSort(currentChunk.entities, 0,
-						currentChunk.entities.size() - 1);
 			}
+			currentChunk.sortEntities();
 		}
 	}
 
@@ -158,26 +153,19 @@ public class EntityManager {
 
 	public void render(Graphics gfx) {
 
-		for (int y = 0; y < World.map.length; y++) {
-			for (int x = 0; x < World.map[0].length; x++) {
-
-				Chunk currentChunk = World.map[y][x];
+		for (Chunk currentChunk : World.getChunks()) {
 
-				if (currentChunk == null)
-					continue;
+			List<Entity> ent = currentChunk.entities;
 
-				List<Entity> ent = currentChunk.entities;
+			Iterator<Entity> iter = ent.iterator();
 
-				Iterator<Entity> iter = ent.iterator();
+			while (iter.hasNext()) {
 
-				while (iter.hasNext()) {
+				Entity entity = iter.next();
 
-					Entity entity = iter.next();
+				if (!isEntityOutOfSight(entity))
+					entity.render(gfx);
 
-					if (!isEntityOutOfSight(entity))
-						entity.render(gfx);
-
-				}
 			}
 		}
 	}
@@ -200,7 +188,7 @@ public class EntityManager {
 	/**
 	 * Find the right chunk for the entity to spawn. Else, get rid of it.
 	 */
-	private void addEntitiesToChunk() {
+	public void addEntitiesToChunk() {
 
 		Iterator<Entity> iter = addEntityList.iterator();
 
@@ -210,21 +198,14 @@ public class EntityManager {
 			String index = entity.getChunkIndex();
 
 			// check for the index in world chunks
-			for (int y = 0; y < World.map.length; y++) {
-				for (int x = 0; x < World.map[0].length; x++) {
-
-					Chunk chunk = World.map[y][x];
+			for (Chunk chunk : World.getChunks()) {
 
-					if (chunk == null)
-						continue;
+				if (chunk.getIndex().equals(index)) {
 
-					if (chunk.getIndex().equals(index)) {
+					chunk.addEntityDirectly(entity);
+					iter.remove();
 
-						chunk.entities.add(entity);
-						iter.remove();
-
-						continue label;
-					}
+					continue label;
 				}
 			}
 
@@ -404,6 +385,20 @@ public class EntityManager {
 	}
 
 	//////////////// getter setter
+	/**
+	 * Set the handler given to the entities made by
+	 * {@linkplain #getEntityById(int, int, int)}, without making an
+	 * EntityManager. For the tools that make Chunks without the game, like
+	 * {@linkplain dev.game.map.WorldPregenerator WorldPregenerator}.
+	 *
+	 * @param theHandler
+	 */
+	public static void setHandler(Handler theHandler) {
+
+		handler = theHandler;
+
+	}
+
 	public Handler getHandler() {
 
 		return handler;
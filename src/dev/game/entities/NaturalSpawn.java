@@ -112,7 +112,8 @@ public class NaturalSpawn {
 			int x = player.getCenterX() - spawnRadius + RNG.nextInt(spawnRadius * 2);
 			int y = player.getCenterY() - spawnRadius + RNG.nextInt(spawnRadius * 2);
 
-			if (World.getTile(x, y).isSolid())
+			// not on the solid tiles or the obstacles
+			if (!World.isWalkable(x, y))
 				continue;
 
 			// block coordinate into pixel coordinate
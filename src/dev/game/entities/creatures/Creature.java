@@ -10,6 +10,7 @@ import java.util.Random;
 import dev.game.Game;
 import dev.game.Handler;
 import dev.game.ai.EntityAIBase;
+import dev.game.ai.pathfinding.FlowField;
 import dev.game.ai.pathfinding.Node;
 import dev.game.entities.Entity;
 import dev.game.gfx.Animation;
@@ -84,6 +85,7 @@ public abstract class Creature extends Entity {
 
 	private Entity target;
 	private ArrayList<Node> pathToTarget;
+	private FlowField flowField; // followed instead of the path if not null
 
 	private boolean pathUpdated;
 
@@ -814,6 +816,10 @@ public abstract class Creature extends Entity {
 	 */
 	public boolean isCollidedWithBlock(int x, int y) {
 
+		// most tiles are walkable, which are never solid
+		if (World.isWalkable(x, y))
+			return false;
+
 		return World.getTile(x, y).isSolid();
 
 	}
@@ -923,6 +929,23 @@ public abstract class Creature extends Entity {
 
 	}
 
+	/**
+	 * Get the flow field to the target, null if the path is followed instead
+	 *
+	 * @return
+	 */
+	public FlowField getFlowField() {
+
+		return this.flowField;
+
+	}
+
+	public void setFlowField(FlowField flowField) {
+
+		this.flowField = flowField;
+
+	}
+
 	/**
 	 * Set the duration of burning
 	 */
@@ -17,6 +17,7 @@ import dev.game.gfx.Animation;
 import dev.game.gfx.Assets;
 import dev.game.input.KeyManager;
 import dev.game.inventory.Inventory;
+import dev.game.map.EntityGrid;
 import dev.game.particle.ParticleManager;
 import dev.game.particle.PlayerAttackParticle;
 import dev.game.sounds.Sound;
@@ -393,28 +394,26 @@ public class Player extends Creature {
 
 		attacking = true;
 
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
+		World.getEntityGrid().visitInArea(attackRange, Entity.CHECK_ALL_ENTITIES,
+				new EntityGrid.Visitor() {
 
-				if (World.map[yy][xx] == null)
-					continue;
+					@Override
+					public boolean visit(Entity ent) {
 
-				for (Entity ent : World.map[yy][xx].entities) {
+						if (ent.equals(Player.this))
+							return true;
 
-					if (ent.equals(this))
-						continue;
-
-					if (attackRange.intersects(ent.getBounds(0, 0))) {
 						// TODO DamageSource class?
 						if (ent.getEntityID() == EntityId.STONE) {
 							ent.hurt(attackDamage * 2);
 						} else {
 							ent.hurt(attackDamage);
 						}
+
+						return true;
+
 					}
-				}
-			}
-		}
+				});
 	}
 
 	/**
@@ -10,6 +10,7 @@ import dev.game.ai.AIChase;
 import dev.game.ai.AIFindTarget;
 import dev.game.ai.AIWander;
 import dev.game.ai.pathfinding.AIFindPathToTarget;
+import dev.game.ai.pathfinding.PathFinding;
 import dev.game.entities.EntityId;
 import dev.game.entities.EntityName;
 import dev.game.entities.creatures.Creature;
@@ -61,7 +62,9 @@ public class EntityGolem extends HostileCreature {
 
 		addActiveTask(attackAI);
 		addActiveTask(new AIFindTarget(2, handler, this, EntityId.WOLF, 6));
-		addActiveTask(new AIFindPathToTarget(3, handler, this));
+		// golems only live in the cave, where the walls make jump points pay off
+		addActiveTask(
+				new AIFindPathToTarget(3, handler, this, PathFinding.JUMP_POINT));
 		addActiveTask(new AIChase(4, handler, this));
 
 	}
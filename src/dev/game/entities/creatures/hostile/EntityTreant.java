@@ -59,7 +59,8 @@ public class EntityTreant extends HostileCreature {
 		addActiveTask(new AIAttack(1, handler, this, attackCoolTime,
 				Tile.TILE_SIZE * 2, attackDelay, Sound.ENTITY_TREANT_ATTACK));
 		addActiveTask(new AIFindTarget(2, handler, this, EntityId.PLAYER, 6));
-		addActiveTask(new AIFindPathToTarget(3, handler, this));
+		addActiveTask(new AIFindPathToTarget(3, handler, this,
+				AIFindPathToTarget.FLOW_FIELD));
 		addActiveTask(new AIChase(4, handler, this));
 
 	}
@@ -9,7 +9,6 @@ import dev.game.entities.EntityName;
 import dev.game.entities.creatures.Player;
 import dev.game.gfx.Assets;
 import dev.game.tiles.Tile;
-import dev.game.worlds.CaveWorld;
 import dev.game.worlds.World;
 
 /**
@@ -97,7 +96,7 @@ public class EntityCave extends StaticEntity {
 	}
 
 	/**
-	 * Send player to cave or world
+	 * Send player to cave or world, after this tick
 	 */
 	private void sendPlayer() {
 
@@ -105,11 +104,11 @@ public class EntityCave extends StaticEntity {
 
 		if (dimension == World.DIMENSION_WORLD) {
 
-			CaveWorld.loadCaveWorld(world);
+			world.travelTo(World.DIMENSION_CAVE);
 
 		} else {
 
-			World.loadWorld(world);
+			world.travelTo(World.DIMENSION_WORLD);
 
 		}
 
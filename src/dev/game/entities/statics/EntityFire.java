@@ -13,6 +13,7 @@ import dev.game.gfx.Animation;
 import dev.game.gfx.Assets;
 import dev.game.lights.Light;
 import dev.game.lights.LightManager;
+import dev.game.map.EntityGrid;
 import dev.game.tiles.Tile;
 import dev.game.worlds.World;
 
@@ -32,6 +33,34 @@ public class EntityFire extends StaticEntity {
 	private Animation anim_fire;
 	private final int BURN_TIME = Game.FPS * 2; // burn creature for 2 seconds
 
+	/**
+	 * Sets the creatures the fire touches on fire, kept to be reused every tick
+	 */
+	private final EntityGrid.Visitor burn = new EntityGrid.Visitor() {
+
+		@Override
+		public boolean visit(Entity ent) {
+
+			// only creature can burn
+			if (!(ent instanceof Creature))
+				return true;
+
+			Creature cre = (Creature) ent;
+
+			// update fire effect pos
+			if (cre.getFireTick() == 0) {
+
+				cre.updateFireEffect();
+
+			}
+
+			cre.setFireTick(BURN_TIME); // 2 sec
+
+			return true;
+
+		}
+	};
+
 	public EntityFire(Handler handler, float x, float y) {
 
 		this(handler, x, y, DEFAULT_LIFESPAN);
@@ -63,38 +92,8 @@ public class EntityFire extends StaticEntity {
 		// creating the collision box to the range of the attack
 		// and check if any entities are colliding (within the attack range)
 		// BURN!!!!
-		for (int yy = 0; yy < World.map.length; yy++) {
-
-			for (int xx = 0; xx < World.map[0].length; xx++) {
-
-				if (World.map[yy][xx] == null)
-					continue;
-
-				for (Entity ent : World.map[yy][xx].entities) {
-
-					// only creature can burn
-					if (!(ent instanceof Creature)) {
-						continue;
-					}
-
-					Creature cre = (Creature) ent;
-
-					if (getBounds(0, 0).intersects(ent.getBounds(0, 0))) {
-
-						// update fire effect pos
-						if (cre.getFireTick() == 0) {
-
-							cre.updateFireEffect();
-
-						}
-
-						cre.setFireTick(BURN_TIME); // 2 sec
-
-					}
-
-				}
-			}
-		}
+		World.getEntityGrid().visitInArea(getBounds(0, 0),
+				Entity.CHECK_ALL_ENTITIES, burn);
 
 	}
 
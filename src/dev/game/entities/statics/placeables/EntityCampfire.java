@@ -35,6 +35,7 @@ public class EntityCampfire extends PlaceableEntity {
 	public void place() {
 
 		isCarried = false;
+		markChunkDirty();
 		texture = Utils.setAlpha(texture, 255);
 
 		// lit for 5 minutes
@@ -153,10 +153,12 @@ public class EntityCraftingTable extends PlaceableEntity {
 	public void place() {
 
 		isCarried = false;
+		markChunkDirty();
 
 		texture = Utils.setAlpha(texture, 255);
 
 		noCollision = false;
+		markChunkObstaclePlaced();
 
 	}
 
@@ -145,10 +145,12 @@ public abstract class EntityFence extends PlaceableEntity {
 		updateSize();
 
 		isCarried = false;
+		markChunkDirty();
 
 		updateBounds();
 
 		noCollision = false;
+		markChunkObstaclePlaced();
 
 		texture = Utils.setAlpha(texture, 255);
 
@@ -201,6 +203,9 @@ public abstract class EntityFence extends PlaceableEntity {
 
 	public void setAlignment(int alignment) {
 
+		if (this.alignment != alignment)
+			markChunkDirty();
+
 		this.alignment = alignment;
 	}
 
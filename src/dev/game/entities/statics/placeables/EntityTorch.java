@@ -49,6 +49,7 @@ public class EntityTorch extends PlaceableEntity {
 	public void place() {
 
 		isCarried = false;
+		markChunkDirty();
 
 		texture = Utils.setAlpha(texture, 255);
 
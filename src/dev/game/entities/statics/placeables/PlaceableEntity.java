@@ -9,6 +9,7 @@ import dev.game.entities.Entity;
 import dev.game.entities.EntityId;
 import dev.game.entities.creatures.Player;
 import dev.game.entities.statics.StaticEntity;
+import dev.game.map.Chunk;
 import dev.game.worlds.World;
 
 /**
@@ -91,21 +92,16 @@ public abstract class PlaceableEntity extends StaticEntity {
 	 */
 	public boolean canPlace() {
 
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
+		for (Chunk chunk : World.getChunks()) {
 
-				if (World.map[yy][xx] == null)
-					continue;
-
-				for (Entity ent : World.map[yy][xx].entities) {
+			for (Entity ent : chunk.entities) {
 
-					if (ent == this || ent.getEntityID() == EntityId.PLAYER)
-						continue;
+				if (ent == this || ent.getEntityID() == EntityId.PLAYER)
+					continue;
 
-					if (getBounds(0, 0).intersects(ent.getBounds(0, 0)))
-						return false;
+				if (getBounds(0, 0).intersects(ent.getBounds(0, 0)))
+					return false;
 
-				}
 			}
 		}
 
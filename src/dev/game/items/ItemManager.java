@@ -43,35 +43,28 @@ public class ItemManager {
 
 		addItemList.clear();
 
-		for (int y = 0; y < World.map.length; y++) {
+		for (Chunk currentChunk : World.getChunks()) {
 
-			for (int x = 0; x < World.map[0].length; x++) {
+			List<Item> items = currentChunk.items;
 
-				Chunk currentChunk = World.map[y][x];
+			Iterator<Item> iter = items.iterator();
 
-				if (currentChunk == null)
-					continue;
+			while (iter.hasNext()) {
 
-				List<Item> items = currentChunk.items;
+				Item item = iter.next();
 
-				Iterator<Item> iter = items.iterator();
+				if (!isItemOutOfSight(item)) {
 
-				while (iter.hasNext()) {
+					item.tick();
 
-					Item item = iter.next();
+					if (item.isPickedUp()) {
 
-					if (!isItemOutOfSight(item)) {
+						handler.getWorld().getEntityManager().getPlayer()
+								.getInventory().addItem(item);
 
-						item.tick();
-
-						if (item.isPickedUp()) {
-
-							handler.getWorld().getEntityManager().getPlayer()
-									.getInventory().addItem(item);
-
-							iter.remove();
+						iter.remove();
+						currentChunk.markDirty();
 
-						}
 					}
 				}
 			}
@@ -86,27 +79,20 @@ public class ItemManager {
 	 */
 	public void render(Graphics gfx) {
 
-		for (int y = 0; y < World.map.length; y++) {
-			for (int x = 0; x < World.map[0].length; x++) {
-
-				Chunk currentChunk = World.map[y][x];
-
-				if (currentChunk == null)
-					continue;
+		for (Chunk currentChunk : World.getChunks()) {
 
-				List<Item> items = currentChunk.items;
+			List<Item> items = currentChunk.items;
 
-				Iterator<Item> iter = items.iterator();
+			Iterator<Item> iter = items.iterator();
 
-				while (iter.hasNext()) {
+			while (iter.hasNext()) {
 
-					Item item = iter.next();
+				Item item = iter.next();
 
-					if (!isItemOutOfSight(item)) {
+				if (!isItemOutOfSight(item)) {
 
-						item.render(gfx);
+					item.render(gfx);
 
-					}
 				}
 			}
 		}
@@ -142,25 +128,18 @@ public class ItemManager {
 			String index = item.getSpawnChunkIndex();
 
 			// check for the index in world chunks
-			for (int y = 0; y < World.map.length; y++) {
-				for (int x = 0; x < World.map[0].length; x++) {
-
-					Chunk chunk = World.map[y][x];
+			for (Chunk chunk : World.getChunks()) {
 
-					if (chunk == null)
-						continue;
+				if (chunk.getIndex().equals(index)) {
 
-					if (chunk.getIndex().equals(index)) {
+					item.setHandler(handler);
 
-						item.setHandler(handler);
+					chunk.addItemDirectly(item);
 
-						chunk.items.add(item);
+					iter.remove();
 
-						iter.remove();
+					continue label;
 
-						continue label;
-
-					}
 				}
 			}
 		}
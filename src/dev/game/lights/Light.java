@@ -97,6 +97,13 @@ public class Light {
 		this.range = range;
 	}
 
+	/**
+	 * @return the entity that emits this light
+	 */
+	public Entity getSource() {
+		return source;
+	}
+
 	public boolean isAlive() {
 		return isAlive;
 	}
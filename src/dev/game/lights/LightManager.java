@@ -4,18 +4,25 @@ package dev.game.lights;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import dev.game.Game;
 import dev.game.Handler;
-import dev.game.entities.creatures.Player;
 import dev.game.gfx.GameCamera;
+import dev.game.map.Chunk;
 import dev.game.tiles.Tile;
 import dev.game.tiles.TileManager;
-import dev.game.utils.Utils;
 import dev.game.worlds.World;
 
 /**
  * LightManager.java - manages lights
+ * <p>
+ * The light of each Light is spread by the rays from its center (see
+ * {@linkplain #lightEffect(int, int, int, int)}), and the result is kept in the
+ * light map of the Chunks. The light map is only updated when something
+ * changes (a light is added or removed, a Chunk is loaded, or a tile changed),
+ * and it is combined with the world brightness when rendered.
  *
  * @author j.kim3
  */
@@ -24,7 +31,29 @@ public class LightManager {
 	private Handler handler;
 
 	private ArrayList<Light> lights; // all the lights
-	private static ArrayList<Light> addLightList; // lights in queue to spawn
+	// lights in queue to spawn, added to the LightManager of the current dimension
+	private static final ArrayList<Light> addLightList = new ArrayList<>();
+
+	/**
+	 * Areas of the light map to update, {x, y, width, height} in block
+	 */
+	private ArrayList<int[]> dirtyAreas;
+
+	/**
+	 * The tiles of the dirty areas, only they are lit again. [y * width + x]
+	 * from the left top of all the dirty areas, reused
+	 */
+	private boolean[] dirtyTiles = new boolean[0];
+	private int dirtyLeft, dirtyTop, dirtyWidth, dirtyHeight;
+
+	/**
+	 * The tiles each ray of a light passes, for each range. [range][ray] = {dx0,
+	 * dy0, dx1, dy1...} from the center out, see {@linkplain #getRays(int)}
+	 */
+	private static final HashMap<Integer, int[][]> RAYS = new HashMap<>();
+
+	// dark layers for each alpha value, to avoid creating Color every frame
+	private final Color[] darkness = new Color[256];
 
 	private TileManager tileManager;
 
@@ -35,38 +64,63 @@ public class LightManager {
 
 		lights = new ArrayList<>();
 
-		addLightList = new ArrayList<>();
+		dirtyAreas = new ArrayList<>();
+
 	}
 
-	public void tick() {
+	/**
+	 * Add the lights in queue to this LightManager.
+	 */
+	public void addQueuedLights() {
 
 		for (Light l : addLightList) {
 			lights.add(l);
+			markDirty(l);
 		}
 
 		addLightList.clear();
 
+	}
+
+	public void tick() {
+
+		addQueuedLights();
+
 		for (int i = 0; i < lights.size(); i++) {
 
 			Light light = lights.get(i);
 
+			light.tick();
+
 			if (!light.isAlive()) {
 
-				lights.remove(light);
+				lights.remove(i);
+				markDirty(light);
+				i--;
+
 				continue;
 
 			}
 
-			if (isOutOfSight(light))
-				continue;
+			Chunk chunk = light.getSource().getChunk();
 
-			light.tick();
+			// the Chunk left the map, it gets the light back when it's loaded again
+			if (chunk != null && !chunk.isLoaded()) {
+
+				lights.remove(i);
+				markDirty(light);
+				i--;
 
-			lightEffect(light.getX(), light.getY(), light.getRange(),
-					light.getBrightness());
+				chunk.keepLight(light);
+
+			}
 
 		}
 
+		checkNewChunks();
+
+		updateLightMap();
+
 	}
 
 	public void render(Graphics gfx) {
@@ -88,18 +142,17 @@ public class LightManager {
 
 			for (int xx = xStart; xx < xEnd; xx++) {
 
-				Tile tile = World.getTile(xx, yy);
-
-				int bri = tile.getBrightness();
+				int bri = tileManager.getBrightness(xx, yy);
 				int ren = Tile.DEFAULT_BRIGHTNESS - bri;
 
 				if (ren < Tile.LOWEST_BRIGHTNESS)
 					ren = Tile.LOWEST_BRIGHTNESS;
 
 				// dark layer
-				Color color = new Color(0, 0, 0, ren);
+				if (darkness[ren] == null)
+					darkness[ren] = new Color(0, 0, 0, ren);
 
-				gfx.setColor(color);
+				gfx.setColor(darkness[ren]);
 
 				gfx.fillRect((int) (xx * Tile.TILE_SIZE - cam.getXOffset()),
 						(int) (yy * Tile.TILE_SIZE - cam.getYOffset()),
@@ -111,294 +164,355 @@ public class LightManager {
 	}
 
 	/**
-	 * Let there be light!
-	 *
-	 * @param centerX
-	 * @param centerY
-	 * @param range
-	 * @param brightness
+	 * Mark the newly loaded Chunks to be lit, lights around it might reach in.
+	 * The lights the Chunk kept while it was away are added back.
 	 */
-	private void lightEffect(int centerX, int centerY, int range, int brightness) {
+	private void checkNewChunks() {
 
-		// no light for non-emitting light
-		if (brightness < Tile.LOWEST_BRIGHTNESS)
-			return;
-
-		int topY = centerY - range;
-		int btmY = centerY + range;
+		for (Chunk chunk : World.getChunks()) {
 
-		// width for the diamond shaped for loop
-		int dis = 0;
+			if (chunk == null || !chunk.isLightDirty())
+				continue;
 
-		// diamond shaped for loop (shape of light)
-		for (int y = topY; y <= btmY; y++) {
-			for (int x = centerX - dis; x <= centerX + dis; x++) {
-				ray(centerX, centerY, x, y, range, brightness);
-			}
+			chunk.setLightDirty(false);
 
-			if (y < centerY)
-				dis++;
-			else
-				dis--;
+			markDirty(chunk.x * Chunk.SIZE, chunk.y * Chunk.SIZE, Chunk.SIZE,
+					Chunk.SIZE);
 
+			for (Light light : chunk.takeLights()) {
+				lights.add(light);
+				markDirty(light);
+			}
 		}
 
 	}
 
 	/**
-	 * Shine a ray of light from the starting point to the ending point. If it hits
-	 * a solid block, stop.
-	 *
-	 * @param xStart     in block
-	 * @param yStart     in bloc
-	 * @param xEnd       in block
-	 * @param yEnd       in block
-	 * @param range      light might not reach the end if range is too far
-	 * @param brightness Tile.LOWEST_BRIGHTNESS ~ Tile.DEFAULT_BRIGHTNESS
+	 * Clear the dirty areas of the light map, and light them up again with every
+	 * light that can reach them.
 	 */
-	private void ray(int xStart, int yStart, int xEnd, int yEnd, int range,
-			int brightness) {
-
-		// delta of exact value and rounded value of the dependent variable
-		int d = 0;
+	private void updateLightMap() {
 
-		int dx = Math.abs(xEnd - xStart);
-		int dy = Math.abs(yEnd - yStart);
+		if (dirtyAreas.isEmpty())
+			return;
 
-		int dx2 = 2 * dx; // slope scaling factors to
-		int dy2 = 2 * dy; // avoid floating point (integer is more efficient too)
+		markDirtyTiles();
 
-		int ix = xStart < xEnd ? 1 : -1; // increment direction (in Cartesian plane)
-		int iy = yStart < yEnd ? 1 : -1;
+		for (int[] area : dirtyAreas) {
+			for (int y = area[1]; y < area[1] + area[3]; y++) {
+				for (int x = area[0]; x < area[0] + area[2]; x++) {
 
-		int x = xStart;
-		int y = yStart;
+					Chunk chunk = World.getChunk(Chunk.blockToChunk(x),
+							Chunk.blockToChunk(y));
 
-		int newBrightness = brightness / (range);
+					if (chunk != null)
+						chunk.setLight(Chunk.blockToLocal(x), Chunk.blockToLocal(y), 0);
 
-		int rangeCounter = 0;
-		boolean breakNext = false;
+				}
+			}
+		}
 
-		// way(order) of computing is different for each case
-		if (dx >= dy) {
+		for (Light light : lights) {
 
-			while (rangeCounter <= range) {
+			int range = light.getRange();
 
-				Tile tile = tileManager.getTile(x, y);
-				boolean isSolid = tile.isSolid();
+			for (int[] area : dirtyAreas) {
 
-				if (breakNext)
-					break;
+				// the light cannot reach this area
+				if (light.getX() + range < area[0]
+						|| light.getX() - range >= area[0] + area[2]
+						|| light.getY() + range < area[1]
+						|| light.getY() - range >= area[1] + area[3])
+					continue;
 
-				if (isSolid)
-					breakNext = true;
+				lightEffect(light.getX(), light.getY(), range,
+						light.getBrightness());
+				break;
 
-				rangeCounter++;
+			}
+		}
 
-				int tileBrightness = tile.getBrightness();
+		dirtyAreas.clear();
 
-				// averaging brightness
-				int temp = newBrightness + tileBrightness;
+	}
 
-				if (temp > Tile.DEFAULT_BRIGHTNESS)
-					temp = Tile.DEFAULT_BRIGHTNESS;
+	/**
+	 * Mark the tiles of the dirty areas in {@linkplain #dirtyTiles}, the areas
+	 * may overlap.
+	 */
+	private void markDirtyTiles() {
 
-				tile.setBrightness((int) temp);
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
 
-				if (x == xEnd)
-					break;
-				x += ix;
-				d += dy2;
-				if (d > dx) {
-					y += iy;
-					d -= dx2;
-				}
-			}
-		} else {
+		for (int[] area : dirtyAreas) {
 
-			while (rangeCounter <= range) {
+			left = Math.min(left, area[0]);
+			top = Math.min(top, area[1]);
+			right = Math.max(right, area[0] + area[2]);
+			bottom = Math.max(bottom, area[1] + area[3]);
 
-				Tile tile = tileManager.getTile(x, y);
-				boolean isSolid = tile.isSolid();
+		}
 
-				if (breakNext)
-					break;
+		dirtyLeft = left;
+		dirtyTop = top;
+		dirtyWidth = right - left;
+		dirtyHeight = bottom - top;
 
-				if (isSolid)
-					breakNext = true;
+		if (dirtyTiles.length < dirtyWidth * dirtyHeight)
+			dirtyTiles = new boolean[dirtyWidth * dirtyHeight];
+		else
+			Arrays.fill(dirtyTiles, 0, dirtyWidth * dirtyHeight, false);
 
-				rangeCounter++;
+		for (int[] area : dirtyAreas)
+			for (int y = area[1] - top; y < area[1] - top + area[3]; y++)
+				Arrays.fill(dirtyTiles, y * dirtyWidth + area[0] - left,
+						y * dirtyWidth + area[0] - left + area[2], true);
 
-				int tileBrightness = tile.getBrightness();
+	}
 
-				// averaging brightness
-				int temp = newBrightness + tileBrightness;
+	/**
+	 * @param x in block
+	 * @param y in block
+	 * @return true if the tile is in the dirty areas being lit again
+	 */
+	private boolean isDirtyTile(int x, int y) {
 
-				if (temp > Tile.DEFAULT_BRIGHTNESS)
-					temp = Tile.DEFAULT_BRIGHTNESS;
+		x -= dirtyLeft;
+		y -= dirtyTop;
 
-				tile.setBrightness((int) temp);
+		return x >= 0 && y >= 0 && x < dirtyWidth && y < dirtyHeight
+				&& dirtyTiles[y * dirtyWidth + x];
 
-				if (y == yEnd)
-					break;
-				y += iy;
-				d += dx2;
-				if (d > dy) {
-					x += ix;
-					d -= dy2;
-				}
-			}
-		}
 	}
 
 	/**
-	 * Light up the surrounding blocks within the range
-	 *
-	 * @deprecated
+	 * Let there be light!
+	 * <p>
+	 * Shine a ray from the center to every tile of the diamond within the range.
+	 * Each ray adds brightness / range to every tile it passes, so the tiles near
+	 * the center (passed by more rays) are brighter, and the overlapping lights
+	 * add up. A ray lights the first solid tile it hits, but not the tiles behind
+	 * it. Only the tiles of the dirty areas are lit, the others have the light
+	 * already.
 	 *
-	 * @param centerX    light's x pos
-	 * @param centerY    light's y pos
-	 * @param range      range of light in block
-	 * @param brightness 0 ~ 254 (bigger the brighter, 0 is technically not a light)
+	 * @param centerX    in block
+	 * @param centerY    in block
+	 * @param range      in block
+	 * @param brightness Tile.LOWEST_BRIGHTNESS ~ Tile.DEFAULT_BRIGHTNESS
 	 */
-	private void lightEffect_NoShadow(int centerX, int centerY, int range,
-			int brightness) {
+	private void lightEffect(int centerX, int centerY, int range, int brightness) {
 
 		// no light for non-emitting light
-		if (brightness == 0) {
+		if (brightness < Tile.LOWEST_BRIGHTNESS || range <= 0)
 			return;
-		}
-
-		// check the surrounding blocks by using double loops
-		// and deduce the intensity of light by distance from the center position
-		for (int y = centerY - range; y <= centerY + range; y++) {
 
-			for (int x = centerX - range; x <= centerX + range; x++) {
+		int newBrightness = brightness / range;
 
-				int distance = Utils.getDistanceManhattan(centerX, centerY, x, y);
+		for (int[] ray : getRays(range)) {
 
-				// the part of the square that's out of range
-				if (distance > range)
-					continue;
+			for (int i = 0; i < ray.length; i += 2) {
 
-				double newBrightness;
+				int x = centerX + ray[i];
+				int y = centerY + ray[i + 1];
 
-				if (distance == 0) {
-					newBrightness = brightness; // max brightness at center
-				} else {
-					newBrightness = (brightness / distance);
-				}
+				Chunk chunk = World.getChunk(Chunk.blockToChunk(x),
+						Chunk.blockToChunk(y));
 
-				Tile tile = tileManager.getTile(x, y);
-				int tileBrightness = tile.getBrightness();
+				// out of the loaded Chunks, nothing to light (and nothing solid)
+				if (chunk == null)
+					continue;
 
-				// averaging brightness
-				newBrightness = newBrightness + tileBrightness;
+				int localX = Chunk.blockToLocal(x);
+				int localY = Chunk.blockToLocal(y);
 
-				if (newBrightness > Tile.DEFAULT_BRIGHTNESS)
-					newBrightness = Tile.DEFAULT_BRIGHTNESS;
+				if (isDirtyTile(x, y))
+					chunk.setLight(localX, localY,
+							Math.min(chunk.getLight(localX, localY) + newBrightness,
+									Tile.DEFAULT_BRIGHTNESS));
 
-				tile.setBrightness((int) newBrightness);
+				// light cannot pass through solid tiles
+				if (chunk.getTile(localX, localY).isSolid())
+					break;
 
 			}
 		}
+
 	}
 
 	/**
-	 * Flood-fill the surrounding tiles to get brighter area.
+	 * Get the rays of a light, made the first time the range is asked for.
 	 * <p>
-	 * A recursive method
-	 *
-	 * @deprecated
+	 * There is a ray to each tile of the diamond within the range (Bresenham
+	 * line), and each ray passes the range + 1 tiles at most.
 	 *
-	 * @param x
-	 * @param y
-	 * @param range
-	 * @param rangeCounter
-	 * @param lastBrightness
+	 * @param range in block
+	 * @return [ray] = {dx0, dy0, dx1, dy1...} from the center out
 	 */
-	private void lightNeighbors(int x, int y, double range, double rangeCounter,
-			int lastBrightness) {
+	private static int[][] getRays(int range) {
 
-		double newBrightness = lastBrightness * (rangeCounter / range);
+		int[][] rays = RAYS.get(range);
 
-		Tile tile = tileManager.getTile(x, y);
+		if (rays != null)
+			return rays;
+
+		ArrayList<int[]> list = new ArrayList<>();
+
+		// diamond shape (shape of light)
+		for (int yEnd = -range; yEnd <= range; yEnd++) {
+
+			int dis = range - Math.abs(yEnd);
+
+			for (int xEnd = -dis; xEnd <= dis; xEnd++)
+				list.add(getRay(xEnd, yEnd, range));
 
-		if (newBrightness <= tile.getBrightness()) {
-			return;
 		}
 
-		tile.setBrightness((int) newBrightness);
+		rays = list.toArray(new int[list.size()][]);
 
-		// give reduced ranged to neigbors (so it doesn't continue forever)
-		rangeCounter--;
+		RAYS.put(range, rays);
 
-		if (rangeCounter <= 0)
-			return;
+		return rays;
+
+	}
+
+	/**
+	 * @param xEnd  from the center, in block
+	 * @param yEnd  from the center, in block
+	 * @param range the ray passes range + 1 tiles at most
+	 * @return {dx0, dy0, dx1, dy1...} the tiles from the center to the end
+	 */
+	private static int[] getRay(int xEnd, int yEnd, int range) {
+
+		int[] ray = new int[(range + 1) * 2];
+		int length = 0;
+
+		// delta of exact value and rounded value of the dependent variable
+		int d = 0;
+
+		int dx = Math.abs(xEnd);
+		int dy = Math.abs(yEnd);
+
+		int dx2 = 2 * dx; // slope scaling factors to
+		int dy2 = 2 * dy; // avoid floating point (integer is more efficient too)
+
+		int ix = 0 < xEnd ? 1 : -1; // increment direction (in Cartesian plane)
+		int iy = 0 < yEnd ? 1 : -1;
+
+		int x = 0;
+		int y = 0;
+
+		// way(order) of computing is different for each case
+		for (int i = 0; i <= range; i++) {
+
+			ray[length++] = x;
+			ray[length++] = y;
+
+			if (dx >= dy) {
+
+				if (x == xEnd)
+					break;
+				x += ix;
+				d += dy2;
+				if (d > dx) {
+					y += iy;
+					d -= dx2;
+				}
 
-		lightNeighbors(x + 1, y, range, rangeCounter, lastBrightness);
-		lightNeighbors(x - 1, y, range, rangeCounter, lastBrightness);
-		lightNeighbors(x, y + 1, range, rangeCounter, lastBrightness);
-		lightNeighbors(x, y - 1, range, rangeCounter, lastBrightness);
+			} else {
+
+				if (y == yEnd)
+					break;
+				y += iy;
+				d += dx2;
+				if (d > dy) {
+					x += ix;
+					d -= dy2;
+				}
+
+			}
+		}
+
+		return Arrays.copyOf(ray, length);
 
 	}
 
 	/**
-	 * Add a light
+	 * Mark the area that the light reaches to be updated.
 	 *
 	 * @param light
 	 */
-	public static void add(Light light) {
+	private void markDirty(Light light) {
 
-		addLightList.add(light);
+		int range = light.getRange();
+
+		markDirty(light.getX() - range, light.getY() - range, range * 2 + 1,
+				range * 2 + 1);
 
 	}
 
 	/**
-	 * Remove the light
+	 * Mark the area to be updated in the next tick.
 	 *
-	 * @param light
+	 * @param x      left top x in block
+	 * @param y      left top y in block
+	 * @param width  in block
+	 * @param height in block
 	 */
-	public void remove(Light light) {
+	public void markDirty(int x, int y, int width, int height) {
 
-		lights.remove(light);
+		dirtyAreas.add(new int[] { x, y, width, height });
 
 	}
 
 	/**
-	 * Clear all the lights
+	 * Let the light map know the tile's solidness changed, so the lights around
+	 * get updated.
+	 *
+	 * @param x in block
+	 * @param y in block
 	 */
-	public void clear() {
+	public void tileChanged(int x, int y) {
 
-		lights.clear();
+		int range = 0;
+
+		for (Light light : lights)
+			range = Math.max(range, light.getRange());
+
+		markDirty(x - range, y - range, range * 2 + 1, range * 2 + 1);
 
 	}
 
 	/**
-	 * No need to render when its out of sight
+	 * Add a light
 	 *
 	 * @param light
-	 * @return
 	 */
-	private boolean isOutOfSight(Light light) {
+	public static void add(Light light) {
 
-		World world = handler.getWorld();
+		addLightList.add(light);
 
-		Player player = world.getEntityManager().getPlayer();
+	}
 
-		int px = player.getCenterX();
-		int py = player.getCenterY();
-		int lx = light.getX();
-		int ly = light.getY();
-		int ran = light.getRange();
+	/**
+	 * Remove the light
+	 *
+	 * @param light
+	 */
+	public void remove(Light light) {
 
-		int distance = Utils.getDistance(px, py, lx, ly);
+		if (lights.remove(light))
+			markDirty(light);
+
+	}
 
-		// 6 is the amount of blocks showing in the screen
-		// (from player to the screen frame of the game)
-		int theRange = ran + 6;
+	/**
+	 * Clear all the lights
+	 */
+	public void clear() {
 
-		return (distance > theRange);
+		lights.clear();
+		dirtyAreas.clear();
 
 	}
 
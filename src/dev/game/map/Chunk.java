@@ -1,28 +1,22 @@
 
 package dev.game.map;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
+import java.awt.Rectangle;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
+import dev.game.ai.pathfinding.ChunkPortals;
 import dev.game.entities.Entity;
 import dev.game.entities.EntityId;
 import dev.game.entities.EntityManager;
-import dev.game.entities.statics.placeables.EntityCampfire;
-import dev.game.entities.statics.placeables.EntityCraftingTable;
+import dev.game.entities.statics.StaticEntity;
 import dev.game.entities.statics.placeables.EntityFence;
-import dev.game.entities.statics.placeables.EntityTorch;
 import dev.game.entities.statics.placeables.PlaceableEntity;
 import dev.game.items.Item;
-import dev.game.items.ItemManager;
+import dev.game.lights.Light;
 import dev.game.states.State;
 import dev.game.tiles.Tile;
 import dev.game.utils.Utils;
@@ -61,7 +55,90 @@ public class Chunk {
 	// TODO make private maybe
 	public List<Entity> entities;
 	public List<Item> items;
-	public Tile[][] tiles;
+
+	/**
+	 * Given to the next entity added, see {@linkplain Entity#getChunkOrder()}
+	 */
+	private int nextEntityOrder;
+
+	/**
+	 * TileId of each tile, [y * SIZE + x]. See {@linkplain #getTile(int, int)}.
+	 */
+	private final byte[] tileIds;
+
+	/**
+	 * State of each tile, [y * SIZE + x]. Tile.STATE_UNKNOWN until the
+	 * {@linkplain dev.game.tiles.TileManager TileManager} works it out.
+	 */
+	private final byte[] tileStates;
+
+	/**
+	 * Light from the lights on each tile, [y * SIZE + x], unsigned. Managed by
+	 * {@linkplain dev.game.lights.LightManager LightManager}.
+	 */
+	private final byte[] lightMap;
+
+	/**
+	 * True if the light map have not been filled in yet.
+	 */
+	private boolean lightDirty;
+
+	/**
+	 * The lights of the entities in this Chunk, kept while it's not loaded. The
+	 * {@linkplain dev.game.lights.LightManager LightManager} takes them back when
+	 * the Chunk is loaded again.
+	 */
+	private final ArrayList<Light> keptLights = new ArrayList<>();
+
+	/**
+	 * Bumped every time the saved part of the Chunk (entities, items) changes.
+	 * The Chunk needs saving when it differs from {@linkplain #submittedModCount},
+	 * the count of the data given to {@linkplain ChunkSaveQueue}.
+	 * {@linkplain #savedModCount} is the count of the data that is actually on
+	 * the disk, set by the writing thread.
+	 */
+	private int modCount;
+	private volatile int submittedModCount;
+	private volatile int savedModCount;
+
+	/**
+	 * Bumped every time the walkable tiles change, see
+	 * {@linkplain #isWalkable(int, int)}.
+	 */
+	private int obstacleVersion;
+
+	/**
+	 * One bit for each tile, [y * SIZE + x], set if the tile is not solid and has
+	 * no obstacle (see {@linkplain #isObstacle(Entity)}) on it. Made when the
+	 * Chunk is put in a {@linkplain ChunkWindow}, then kept up to date as the
+	 * obstacles come and go.
+	 */
+	private final long[] walkable;
+
+	/**
+	 * Number of obstacles on each tile, [y * SIZE + x]. The obstacles of the
+	 * neighbor Chunks that reach over the edge count too.
+	 */
+	private final byte[] obstacles;
+
+	/**
+	 * The window this Chunk is loaded in, null if it's not loaded
+	 */
+	private ChunkWindow window;
+
+	/**
+	 * Made by the path finding when a path needs this Chunk, see
+	 * {@linkplain ChunkPortals}.
+	 */
+	private ChunkPortals portals;
+
+	/**
+	 * Entities and items that are read (or generated) but not spawned yet. Same
+	 * format as the lines in the Chunk file. See
+	 * {@linkplain #spawnEntities()}.
+	 */
+	private List<int[]> entityRecords, itemRecords;
+
 	private static MapGenerator mapGenerator; // assigned in World constructor
 	private final String WORLD_NAME;
 
@@ -80,6 +157,21 @@ public class Chunk {
 	private Chunk(int x, int y, String worldName, boolean isNewChunk,
 			int dimension) {
 
+		this(x, y, worldName, isNewChunk, dimension, null);
+
+	}
+
+	/**
+	 * A portion of the map in a 32 * 32 grid.
+	 *
+	 * @param x          left-top X coordinate of this Chunk in chunkpos
+	 * @param y          left-top Y coordinate of this Chunk in chunkpos
+	 * @param isNewChunk to check if initializing should be done
+	 * @param savedTiles the saved tile layer, null to generate the tiles
+	 */
+	private Chunk(int x, int y, String worldName, boolean isNewChunk,
+			int dimension, byte[] savedTiles) {
+
 		this.x = x;
 		this.y = y;
 
@@ -89,32 +181,44 @@ public class Chunk {
 		this.index = x + CHUNK_NAME_DIVIDER + y;
 		this.entities = new ArrayList<>();
 		this.items = new ArrayList<>();
-		this.tiles = new Tile[SIZE][SIZE];
-
-		init(isNewChunk);
+		this.tileIds = new byte[SIZE * SIZE];
+		this.tileStates = new byte[SIZE * SIZE];
+		this.lightMap = new byte[SIZE * SIZE];
+		this.lightDirty = true;
+		this.walkable = new long[SIZE * SIZE / 64];
+		this.obstacles = new byte[SIZE * SIZE];
+		this.entityRecords = new ArrayList<>();
+		this.itemRecords = new ArrayList<>();
+
+		// a new Chunk is not in the files yet
+		this.modCount = isNewChunk ? 1 : 0;
+		this.submittedModCount = 0;
+		this.savedModCount = 0;
+
+		init(isNewChunk, savedTiles);
 
 	}
 
 	/**
-	 * Place the entities according to the spawn map (from
+	 * Queue the entities according to the spawn ids (from
 	 * {@link dev.game.map.MapGenerator MapGenerator}).
 	 */
-	private void placeEntities(boolean[][] spawnMap, int[][] idMap) {
+	private void placeEntities(ChunkGenResult gen) {
 
-		for (int yy = 0; yy < spawnMap.length; yy++) {
+		for (int yy = 0; yy < SIZE; yy++) {
 
-			for (int xx = 0; xx < spawnMap[0].length; xx++) {
+			for (int xx = 0; xx < SIZE; xx++) {
 
-				if (!spawnMap[yy][xx]) {
+				int id = gen.getSpawnId(xx, yy);
+
+				if (id == ChunkGenResult.NO_SPAWN) {
 					continue;
 				}
 
 				int xPos = (x * Chunk.SIZE * Tile.TILE_SIZE) + (xx * Tile.TILE_SIZE);
 				int yPos = (y * Chunk.SIZE * Tile.TILE_SIZE) + (yy * Tile.TILE_SIZE);
 
-				Entity ent = EntityManager.getEntityById(idMap[yy][xx], xPos, yPos);
-
-				entities.add(ent);
+				entityRecords.add(new int[] { id, xPos, yPos });
 
 			}
 
@@ -126,139 +230,208 @@ public class Chunk {
 	 * Fill in the Chunk with data.
 	 *
 	 * @param isNewChunk to check if trees should be newly placed
+	 * @param savedTiles the saved tile layer, null to generate the tiles
 	 */
-	private void init(boolean isNewChunk) {
+	private void init(boolean isNewChunk, byte[] savedTiles) {
 
-		if (dimension == World.DIMENSION_WORLD) {
+		Arrays.fill(tileStates, (byte) Tile.STATE_UNKNOWN);
 
-			this.tiles = mapGenerator.generateMap(x, y);
+		// no need to generate
+		if (savedTiles != null) {
 
-			if (isNewChunk) {
-				mapGenerator.generateWorldEntitiesMap(x, y);
-				placeEntities(mapGenerator.getWorldEntityMap(),
-						mapGenerator.getWorldEntityIdMap());
-			}
+			System.arraycopy(savedTiles, 0, tileIds, 0, tileIds.length);
+
+			return;
 
-		} else if (dimension == World.DIMENSION_CAVE) {
+		}
 
-			this.tiles = mapGenerator.generateCaveMap(x, y);
+		ChunkGenResult gen = mapGenerator.generate(x, y, dimension, isNewChunk);
+
+		for (int yy = 0; yy < SIZE; yy++) {
+
+			for (int xx = 0; xx < SIZE; xx++) {
+
+				tileIds[yy * SIZE + xx] = (byte) gen.getTileId(xx, yy);
 
-			if (isNewChunk) {
-				mapGenerator.generateCaveEntitiesMap(x, y);
-				placeEntities(mapGenerator.getCaveEntityMap(),
-						mapGenerator.getCaveEntityIdMap());
 			}
 
 		}
 
+		if (isNewChunk)
+			placeEntities(gen);
+
 	}
 
 	/**
-	 * Save the chunk as a file. Save entities and items (not map, it can be
-	 * created).
+	 * Save the chunk in its {@linkplain RegionFile}. Save entities and items, and
+	 * the tiles if the world saves the tile layers (see
+	 * {@linkplain MapGenerator#NEW_WORLD_SAVE_TILE_LAYERS}).
+	 * <p>
+	 * Nothing is done if nothing changed since the last save. The file is written
+	 * by {@linkplain ChunkSaveQueue} in background, the Chunk stays dirty until
+	 * the data is on the disk.
 	 */
 	public void saveInFile() {
 
-		String path = State.SAVEFILE_DIR + "/" + WORLD_NAME + "/" + State.CHUNKS_DIR
-				+ "/" + World.dimensionToName(dimension) + "/" + index
-				+ State.EXTENSION;
+		int saving = modCount;
 
-		BufferedWriter bw = null;
+		if (saving == submittedModCount)
+			return;
 
-		try {
+		List<int[]> entityData = new ArrayList<>(entities.size());
+		List<int[]> itemData = new ArrayList<>(items.size());
 
-			File file = new File(path);
+		getRecords(entityData, itemData);
 
-			if (!file.exists()) {
+		// before submitting, the write could fail before this line otherwise
+		submittedModCount = saving;
 
-				file.getParentFile().mkdirs();
+		ChunkSaveQueue.submitChunk(WORLD_NAME, dimension, x, y,
+				encode(entityData, itemData), this, saving);
 
-				file.createNewFile();
+	}
 
-			}
+	/**
+	 * Called by {@linkplain ChunkSaveQueue} in the writing thread, when the data
+	 * of the mod count is written.
+	 *
+	 * @param savedModCount
+	 */
+	void saved(int savedModCount) {
 
-			FileOutputStream fos = new FileOutputStream(file);
+		this.savedModCount = savedModCount;
 
-			bw = new BufferedWriter(new OutputStreamWriter(fos));
+	}
 
-			// save Entities
-			for (int i = 0; i < entities.size(); i++) {
+	/**
+	 * Called by {@linkplain ChunkSaveQueue} in the writing thread, when the write
+	 * of the mod count is given up. The next {@linkplain #saveInFile()} tries
+	 * again, unless newer data is submitted already.
+	 *
+	 * @param failedModCount
+	 */
+	void saveFailed(int failedModCount) {
 
-				Entity ent = entities.get(i);
+		if (submittedModCount == failedModCount)
+			submittedModCount = savedModCount;
 
-				int entId = ent.getEntityID();
+	}
 
-				// player data is saved separately by World
-				if (entId == EntityId.PLAYER)
-					continue;
+	/**
+	 * Same as {@linkplain #saveInFile()}, but written right away, in this thread.
+	 * For {@linkplain WorldPregenerator}, the game must not be running.
+	 *
+	 * @throws IOException
+	 */
+	void writeInFile() throws IOException {
 
-				if (ent instanceof PlaceableEntity) {
+		List<int[]> entityData = new ArrayList<>(entities.size());
+		List<int[]> itemData = new ArrayList<>(items.size());
 
-					PlaceableEntity place = (PlaceableEntity) ent;
+		getRecords(entityData, itemData);
 
-					// temporary entity shouldn't be saved
-					if (place.isCarried())
-						continue;
+		RegionFile.writeChunk(WORLD_NAME, dimension, x, y,
+				encode(entityData, itemData));
 
-				}
+		submittedModCount = modCount;
+		savedModCount = modCount;
 
-				int entX = (int) ent.getX();
-				int entY = (int) ent.getY();
-				int entHealth = ent.getHealth();
+	}
 
-				// exception for fence who needs more info
-				if (entId == EntityId.WOODEN_FENCE
-						|| entId == EntityId.STONE_FENCE) {
+	/**
+	 * @param entityData
+	 * @param itemData
+	 * @return the data to save, with the codec of the world and the tile layer if
+	 *         the world saves them
+	 */
+	private byte[] encode(List<int[]> entityData, List<int[]> itemData) {
 
-					EntityFence fence = (EntityFence) ent;
-					int fenceAlign = fence.getAlignment();
+		boolean saveTiles = mapGenerator.isSaveTileLayers();
 
-					bw.write(entId + " " + entX + " " + entY + " " + entHealth + " "
-							+ fenceAlign);
+		return ChunkFormat.encode(mapGenerator.getChunkCodec(), entityData,
+				itemData, x, y, saveTiles ? tileIds : null,
+				saveTiles ? mapGenerator.getTileLayerKey() : null);
 
-				} else {
+	}
 
-					bw.write(entId + " " + entX + " " + entY + " " + entHealth);
+	/**
+	 * Write the entities and items as records, see {@linkplain ChunkFormat}.
+	 *
+	 * @param entityData entity records are added here
+	 * @param itemData   item records are added here
+	 */
+	void getRecords(List<int[]> entityData, List<int[]> itemData) {
 
-				}
+		// save Entities
+		for (int i = 0; i < entities.size(); i++) {
 
-				bw.newLine();
+			Entity ent = entities.get(i);
+
+			int entId = ent.getEntityID();
+
+			// player data is saved separately by World
+			if (entId == EntityId.PLAYER)
+				continue;
+
+			if (ent instanceof PlaceableEntity) {
+
+				PlaceableEntity place = (PlaceableEntity) ent;
+
+				// temporary entity shouldn't be saved
+				if (place.isCarried())
+					continue;
 
 			}
 
-			// data separated by DATA_DIVIDER
-			bw.write(DATA_DIVIDER);
-			bw.newLine();
+			int entX = (int) ent.getX();
+			int entY = (int) ent.getY();
+			int entHealth = ent.getHealth();
 
-			// save Item entities
-			for (int i = 0; i < items.size(); i++) {
+			// exception for fence who needs more info
+			if (entId == EntityId.WOODEN_FENCE || entId == EntityId.STONE_FENCE) {
 
-				Item item = items.get(i);
+				EntityFence fence = (EntityFence) ent;
 
-				int itemId = item.getID();
-				int itemX = item.getX();
-				int itemY = item.getY();
+				entityData.add(new int[] { entId, entX, entY, entHealth,
+						fence.getAlignment() });
 
-				bw.write(itemId + " " + itemX + " " + itemY);
+			} else {
 
-				bw.newLine();
+				entityData.add(new int[] { entId, entX, entY, entHealth });
 
 			}
 
-		} catch (IOException ex) {
-			Logger.getLogger(Chunk.class.getName()).log(Level.SEVERE, null, ex);
-		} finally {
+		}
+
+		// save Item entities
+		for (int i = 0; i < items.size(); i++) {
 
-			if (bw != null) {
-				try {
-					bw.close();
-				} catch (IOException ex) {
-					Logger.getLogger(Chunk.class.getName()).log(Level.SEVERE, null,
-							ex);
-				}
-			}
+			Item item = items.get(i);
+
+			itemData.add(new int[] { item.getID(), item.getX(), item.getY() });
 
 		}
+
+	}
+
+	/**
+	 * Get the path of the old text Chunk file. It is also the name of the Chunk
+	 * in {@linkplain ChunkSaveQueue} and {@linkplain ChunkCache}, the data itself
+	 * is in {@linkplain RegionFile#getPath(String, int, int, int)}.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @return
+	 */
+	public static String getPath(String worldName, int dimension, int xPos,
+			int yPos) {
+
+		return State.SAVEFILE_DIR + "/" + worldName + "/" + State.CHUNKS_DIR + "/"
+				+ World.dimensionToName(dimension) + "/" + xPos + CHUNK_NAME_DIVIDER
+				+ yPos + State.EXTENSION;
+
 	}
 
 	/**
@@ -296,18 +469,47 @@ public class Chunk {
 		int xx = Integer.parseInt(xy[0]);
 		int yy = Integer.parseInt(xy[1]);
 
-		Chunk chunk = getChunkFromFiles(xx, yy, worldName, dimension);
+		// recently unloaded, still in memory
+		Chunk cached = ChunkCache.take(worldName, dimension, xx, yy);
+
+		if (cached != null)
+			return cached;
+
+		Chunk chunk = prepareChunk(xx, yy, worldName, dimension);
+
+		chunk.spawnEntities();
+
+		return chunk;
+
+	}
+
+	/**
+	 * Same as {@linkplain #getNewChunk(int, int, String, int)}, but the entities
+	 * and items are not spawned until {@linkplain #spawnEntities()} is called.
+	 * This is safe to call outside of the game thread.
+	 *
+	 * @param xPos      in chunk pos
+	 * @param yPos
+	 * @param worldName
+	 * @param dimension
+	 * @return
+	 */
+	public static Chunk prepareChunk(int xPos, int yPos, String worldName,
+			int dimension) {
+
+		Chunk chunk = getChunkFromFiles(xPos, yPos, worldName, dimension);
 
 		if (chunk != null)
 			return chunk;
 		else
-			return new Chunk(xx, yy, worldName, true, dimension);
+			return new Chunk(xPos, yPos, worldName, true, dimension);
 
 	}
 
 	/**
-	 * Find the Chunk file among files and if it doesn't exist, return null. Chunk
-	 * contains Entity and Item data.
+	 * Find the Chunk in the region files and if it doesn't exist, return null.
+	 * Chunk contains Entity and Item data, which are spawned by
+	 * {@linkplain #spawnEntities()}.
 	 *
 	 * @param xPos      of chunk finding, in chunkpos
 	 * @param yPos      of chunk finding, in chunkpos
@@ -318,143 +520,91 @@ public class Chunk {
 	public static Chunk getChunkFromFiles(int xPos, int yPos, String worldName,
 			int dimension) {
 
-		String path = State.SAVEFILE_DIR + "/" + worldName + "/" + State.CHUNKS_DIR
-				+ "/" + World.dimensionToName(dimension) + "/" + xPos
-				+ CHUNK_NAME_DIVIDER + yPos + State.EXTENSION;
+		// the Chunk might be still waiting to be written
+		ChunkSaveQueue.waitFor(getPath(worldName, dimension, xPos, yPos));
 
-		File file = new File(path);
+		ByteBuffer data = RegionFile.readChunk(worldName, dimension, xPos, yPos);
 
-		if (!file.exists())
+		if (data == null)
 			return null;
 
-		Chunk newChunk = null;
-		BufferedReader br = null;
-
-		try {
-
-			br = new BufferedReader(new FileReader(path));
-
-			// removing the extension from the whole name, and separate "x,y" into x
-			// and y
-			String name = file.getName();
-			String[] a = name.split("\\.");
-			String b = a[0];
-			String[] nameXY = b.split(CHUNK_NAME_DIVIDER);
-
-			int xx = Integer.parseInt(nameXY[0]);
-			int yy = Integer.parseInt(nameXY[1]);
-
-			newChunk = new Chunk(xx, yy, worldName, false, dimension);
-
-			String line;
-			int index = 0;
-
-			while ((line = br.readLine()) != null) {
-
-				// find the data divider
-				if (line.equals(DATA_DIVIDER)) {
-					index++;
-					continue;
-				}
-
-				// entities
-				if (index == 0) {
-
-					String[] entityData = line.split(" ");
-
-					int entId = Integer.parseInt(entityData[0]);
-					int entX = Integer.parseInt(entityData[1]);
-					int entY = Integer.parseInt(entityData[2]);
-					int entHealth = Integer.parseInt(entityData[3]);
-
-					Entity newEntity = EntityManager.getEntityById(entId, entX, entY,
-							entHealth);
-
-					// PlacableEntities
-					switch (entId) {
-
-					case EntityId.WOODEN_FENCE:
-					case EntityId.STONE_FENCE:
-
-						int fenceAlign = Utils.parseInt(entityData[4]);
-						EntityFence fence = (EntityFence) newEntity;
-						fence.setAlignment(fenceAlign);
-						fence.place();
-						EntityManager.addEntity(fence);
-
-						break;
+		byte[] savedTiles = ChunkFormat.readTileLayer(data,
+				mapGenerator.getTileLayerKey());
 
-					case EntityId.TORCH:
+		Chunk newChunk = new Chunk(xPos, yPos, worldName, false, dimension,
+				savedTiles);
 
-						EntityTorch torch = (EntityTorch) newEntity;
-						torch.place();
-						EntityManager.addEntity(torch);
-						break;
+		ChunkFormat.decode(data, newChunk.entityRecords, newChunk.itemRecords,
+				xPos, yPos);
 
-					case EntityId.CRAFTING_TABLE:
-					case EntityId.ADVANCED_CRAFTING_TABLE:
+		// no tile layer, or an old one: save the new tiles next time
+		if (savedTiles == null && mapGenerator.isSaveTileLayers())
+			newChunk.markDirty();
 
-						EntityCraftingTable table = (EntityCraftingTable) newEntity;
-						table.place();
-						EntityManager.addEntity(table);
-						break;
+		return newChunk;
 
-					case EntityId.CAMPFIRE:
+	}
 
-						EntityCampfire camp = (EntityCampfire) newEntity;
-						camp.place();
-						EntityManager.addEntity(camp);
-						break;
+	/**
+	 * Create the entities and items that are read from the file or generated.
+	 * <p>
+	 * This has to be done in the game thread, since placing entities touches the
+	 * managers (lights, spawn queue). The Chunk stays clean.
+	 */
+	public void spawnEntities() {
 
-					default:
+		for (int i = 0; i < entityRecords.size(); i++) {
 
-						EntityManager.addEntity(newEntity);
+			int[] record = entityRecords.get(i);
 
-					}
+			int entId = record[0];
+			int entX = record[1];
+			int entY = record[2];
 
-				} else if (index == 1) { // items
+			// generated entities have the default health
+			Entity newEntity = (record.length > 3)
+					? EntityManager.getEntityById(entId, entX, entY, record[3])
+					: EntityManager.getEntityById(entId, entX, entY);
 
-					String[] itemData = line.split(" ");
+			// PlacableEntities
+			switch (entId) {
 
-					int itemId = Utils.parseInt(itemData[0]);
-					int itemY = Utils.parseInt(itemData[1]);
-					int itemX = Utils.parseInt(itemData[2]);
+			case EntityId.WOODEN_FENCE:
+			case EntityId.STONE_FENCE:
 
-					// Somehow only 2 parameter is svaed
-					switch (itemId) {
+				EntityFence fence = (EntityFence) newEntity;
+				fence.setAlignment(record[4]);
+				fence.place();
+				break;
 
-					// in case of error...
-					case 0:
-						break;
+			case EntityId.TORCH:
+			case EntityId.CRAFTING_TABLE:
+			case EntityId.ADVANCED_CRAFTING_TABLE:
+			case EntityId.CAMPFIRE:
 
-					default:
+				((PlaceableEntity) newEntity).place();
+				break;
 
-						Item item = Item.getItemEntity(itemId, itemY, itemX);
+			}
 
-						ItemManager.addItem(item);
-					}
+			addLoadedEntity(newEntity);
 
-				}
+		}
 
-			}
+		for (int i = 0; i < itemRecords.size(); i++) {
 
-		} catch (IOException e) {
+			int[] record = itemRecords.get(i);
 
-			Logger.getLogger(Chunk.class.getName()).log(Level.SEVERE, null, e);
+			// Somehow only 2 parameter is svaed
+			Item item = Item.getItemEntity(record[0], record[1], record[2]);
 
-		} finally {
+			item.setHandler(mapGenerator.getHandler());
+			items.add(item);
 
-			if (br != null) {
-				try {
-					br.close();
-				} catch (IOException ex) {
-					Logger.getLogger(Chunk.class.getName()).log(Level.SEVERE, null,
-							ex);
-				}
-			}
 		}
 
-		return newChunk;
+		entityRecords.clear();
+		itemRecords.clear();
 
 	}
 
@@ -475,6 +625,31 @@ public class Chunk {
 
 	}
 
+	/**
+	 * Get the chunk position that contains the block coordinate.
+	 *
+	 * @param pos in block
+	 * @return in chunkpos
+	 */
+	public static int blockToChunk(int pos) {
+
+		return Math.floorDiv(pos, Chunk.SIZE);
+
+	}
+
+	/**
+	 * Get the index of the block coordinate in the tile array of the Chunk that
+	 * contains it.
+	 *
+	 * @param pos in block
+	 * @return 0 ~ Chunk.SIZE - 1
+	 */
+	public static int blockToLocal(int pos) {
+
+		return Math.floorMod(pos, Chunk.SIZE);
+
+	}
+
 	/**
 	 * Convert the chunk position to its index. Format
 	 * "x+Chunk.CHUNK_NAME_DIVIDER+y"
@@ -528,8 +703,16 @@ public class Chunk {
 		}
 
 		entities.remove(entityIndex);
+		markDirty();
+
+		if (window != null)
+			window.getEntityGrid().remove(entity);
+
+		// the other Chunk counts it again
+		if (isObstacle(entity))
+			addObstacle(entity, -1);
 
-		chunkToMove.entities.add(entity);
+		chunkToMove.addEntityDirectly(entity);
 
 		return true;
 
@@ -543,10 +726,106 @@ public class Chunk {
 	 */
 	public boolean addEntityDirectly(Entity entity) {
 
+		entity.setChunk(this);
+		entity.setChunkOrder(nextEntityOrder++);
+		markDirty();
+
+		if (isObstacle(entity))
+			addObstacle(entity, 1);
+
+		if (window != null)
+			window.getEntityGrid().add(entity);
+
 		return entities.add(entity);
 
 	}
 
+	/**
+	 * Add the entity read from the Chunk file. Unlike
+	 * {@linkplain #addEntityDirectly(Entity)}, the Chunk stays clean.
+	 *
+	 * @param entity
+	 */
+	private void addLoadedEntity(Entity entity) {
+
+		entity.setChunk(this);
+		entity.setChunkOrder(nextEntityOrder++);
+		entities.add(entity);
+
+		if (isObstacle(entity))
+			addObstacle(entity, 1);
+
+		if (window != null)
+			window.getEntityGrid().add(entity);
+
+	}
+
+	/**
+	 * Sort the entities by the bottom, so the ones in front are rendered last.
+	 * The entities are numbered in the new order, see
+	 * {@linkplain Entity#getChunkOrder()}.
+	 */
+	public void sortEntities() {
+
+		Utils.quickSort(entities, 0, entities.size() - 1);
+
+		for (int i = 0; i < entities.size(); i++)
+			entities.get(i).setChunkOrder(i);
+
+		nextEntityOrder = entities.size();
+
+	}
+
+	/**
+	 * Let the Chunk know the entity is removed from {@linkplain #entities} (by an
+	 * iterator, typically).
+	 *
+	 * @param entity
+	 */
+	public void entityRemoved(Entity entity) {
+
+		// still in the grid, unless another Chunk took it already
+		if (entity.getChunk() == this) {
+
+			entity.setChunk(null);
+
+			if (window != null)
+				window.getEntityGrid().remove(entity);
+
+		}
+
+		markDirty();
+
+		if (isObstacle(entity))
+			addObstacle(entity, -1);
+
+	}
+
+	/**
+	 * Let the Chunk know the center tile of the entity changed, see
+	 * {@linkplain EntityGrid}.
+	 *
+	 * @param entity
+	 */
+	public void entityMoved(Entity entity) {
+
+		if (window != null)
+			window.getEntityGrid().move(entity);
+
+	}
+
+	/**
+	 * Add the item directly to this chunk.
+	 *
+	 * @param item
+	 */
+	public void addItemDirectly(Item item) {
+
+		items.add(item);
+		markDirty();
+
+	}
+
 	/**
 	 * This method does not physically teleport the entity to other Chunk. This only
 	 * move the entity data to the other Chunk, so the this Chunk do not have to
@@ -574,40 +853,427 @@ public class Chunk {
 		EntityManager.addEntity(entity);
 
 		entities.remove(entityIndex);
+		entityRemoved(entity);
 
 		return true;
 
 	}
 
+	//////// getter
 	/**
-	 * Check if the Chunk with given index exists in file.
+	 * Index of the Chunk, aka the name of it.
+	 * <p>
+	 * Format: "x,y"
+	 *
+	 * @return the index
+	 */
+	public String getIndex() {
+
+		return this.index;
+	}
+
+	/**
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @return TileId of the tile
+	 */
+	public int getTileId(int localX, int localY) {
+
+		return tileIds[localY * SIZE + localX];
+
+	}
+
+	/**
+	 * Change the tile. The walkable tiles are updated, and the state of the tile
+	 * is found again when it is rendered.
+	 *
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @param id     TileId of the new tile
+	 */
+	public void setTileId(int localX, int localY, int id) {
+
+		int i = localY * SIZE + localX;
+
+		tileIds[i] = (byte) id;
+		tileStates[i] = (byte) Tile.STATE_UNKNOWN;
+
+		updateWalkable(i);
+		obstacleVersion++;
+
+		markDirty();
+
+	}
+
+	/**
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @return the Tile, shared by all the tiles with the same id
+	 */
+	public Tile getTile(int localX, int localY) {
+
+		return Tile.get(tileIds[localY * SIZE + localX]);
+
+	}
+
+	/**
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @return state of the tile, or Tile.STATE_UNKNOWN
+	 */
+	public int getTileState(int localX, int localY) {
+
+		return tileStates[localY * SIZE + localX];
+
+	}
+
+	/**
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @param state  0 ~ 127, or Tile.STATE_UNKNOWN
+	 */
+	public void setTileState(int localX, int localY, int state) {
+
+		tileStates[localY * SIZE + localX] = (byte) state;
+
+	}
+
+	/**
+	 * Get the light from the lights on the tile.
+	 *
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @return 0 ~ Tile.DEFAULT_BRIGHTNESS
+	 */
+	public int getLight(int localX, int localY) {
+
+		return lightMap[localY * SIZE + localX] & 0xFF;
+
+	}
+
+	/**
+	 * Set the light from the lights on the tile.
+	 *
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @param light  0 ~ Tile.DEFAULT_BRIGHTNESS
+	 */
+	public void setLight(int localX, int localY, int light) {
+
+		lightMap[localY * SIZE + localX] = (byte) light;
+
+	}
+
+	/**
+	 * True if the light map have not been filled in since the Chunk was loaded.
 	 *
-	 * @param index
-	 * @param worldName
 	 * @return
 	 */
-	public static boolean chunkExistsInFile(String index, String worldName) {
+	public boolean isLightDirty() {
+
+		return lightDirty;
+
+	}
+
+	/**
+	 * @param dirty true to let the light map get filled in again
+	 */
+	public void setLightDirty(boolean dirty) {
 
-		String path = State.SAVEFILE_DIR + "/" + worldName + "/" + State.CHUNKS_DIR
-				+ "/" + index + State.EXTENSION;
+		this.lightDirty = dirty;
 
-		File file = new File(path);
+	}
 
-		return file.exists();
+	/**
+	 * Keep the light of an entity in this Chunk until it's loaded again.
+	 *
+	 * @param light
+	 */
+	public void keepLight(Light light) {
+
+		keptLights.add(light);
 
 	}
 
-	//////// getter
 	/**
-	 * Index of the Chunk, aka the name of it.
-	 * <p>
-	 * Format: "x,y"
+	 * Take the lights kept while this Chunk was not loaded.
 	 *
-	 * @return the index
+	 * @return the lights, removed from this Chunk
 	 */
-	public String getIndex() {
+	public List<Light> takeLights() {
+
+		List<Light> lights = new ArrayList<>(keptLights);
+		keptLights.clear();
+
+		return lights;
+
+	}
+
+	/**
+	 * @return true if this Chunk is in a {@linkplain ChunkWindow}
+	 */
+	public boolean isLoaded() {
+
+		return window != null;
+
+	}
+
+	/**
+	 * Let the Chunk know its entities or items changed, so it gets saved again.
+	 */
+	public void markDirty() {
+
+		modCount++;
+
+	}
+
+	/**
+	 * Let the Chunk know the entity in it started blocking the way (placed).
+	 *
+	 * @param entity
+	 */
+	public void obstaclePlaced(Entity entity) {
+
+		if (isObstacle(entity))
+			addObstacle(entity, 1);
+
+	}
+
+	/**
+	 * Add or take away the obstacle from the walkable tiles it is on, in this
+	 * Chunk and the neighbors it reaches over. Nothing is done while the Chunk is
+	 * not loaded, the tiles are made when it is.
+	 *
+	 * @param entity
+	 * @param amount 1 if added, -1 if removed
+	 */
+	private void addObstacle(Entity entity, int amount) {
+
+		if (window == null)
+			return;
+
+		int[] area = getTileArea(entity);
+
+		if (area == null)
+			return;
+
+		for (int cy = blockToChunk(area[1]); cy <= blockToChunk(area[3]); cy++) {
+
+			for (int cx = blockToChunk(area[0]); cx <= blockToChunk(area[2]); cx++) {
+
+				Chunk chunk = (cx == x && cy == y) ? this : window.get(cx, cy);
+
+				if (chunk != null)
+					chunk.addObstacleArea(area, amount);
+
+			}
+		}
+
+	}
+
+	/**
+	 * @param area   {x0, y0, x1, y1} in block, both corners included
+	 * @param amount obstacles added
+	 */
+	private void addObstacleArea(int[] area, int amount) {
+
+		int left = x * SIZE;
+		int top = y * SIZE;
+
+		int x0 = Math.max(area[0] - left, 0);
+		int y0 = Math.max(area[1] - top, 0);
+		int x1 = Math.min(area[2] - left, SIZE - 1);
+		int y1 = Math.min(area[3] - top, SIZE - 1);
+
+		for (int yy = y0; yy <= y1; yy++) {
+
+			for (int xx = x0; xx <= x1; xx++) {
+
+				int i = yy * SIZE + xx;
+
+				obstacles[i] += amount;
+
+				updateWalkable(i);
+
+			}
+		}
+
+		obstacleVersion++;
+
+	}
+
+	/**
+	 * Make the walkable tiles from scratch, with the obstacles of this Chunk and
+	 * the loaded neighbors.
+	 */
+	private void makeWalkable() {
+
+		Arrays.fill(obstacles, (byte) 0);
+
+		for (int cy = y - 1; cy <= y + 1; cy++) {
+
+			for (int cx = x - 1; cx <= x + 1; cx++) {
+
+				Chunk chunk = (cx == x && cy == y) ? this : window.get(cx, cy);
+
+				if (chunk == null)
+					continue;
+
+				for (Entity entity : chunk.entities) {
+
+					if (!isObstacle(entity))
+						continue;
+
+					int[] area = getTileArea(entity);
+
+					// only the part in this Chunk is counted
+					if (area != null)
+						addObstacleArea(area, 1);
+
+				}
+			}
+		}
+
+		for (int i = 0; i < SIZE * SIZE; i++)
+			updateWalkable(i);
+
+		obstacleVersion++;
+
+	}
+
+	private void updateWalkable(int i) {
+
+		if (obstacles[i] == 0 && !Tile.get(tileIds[i]).isSolid())
+			walkable[i >> 6] |= (1L << i);
+		else
+			walkable[i >> 6] &= ~(1L << i);
+
+	}
+
+	/**
+	 * @param entity
+	 * @return the tiles the bounds are on, {x0, y0, x1, y1} in block with both
+	 *         corners included, or null if it has no bounds
+	 */
+	private static int[] getTileArea(Entity entity) {
+
+		Rectangle bounds = entity.getBounds(0, 0);
+
+		if (bounds.width <= 0 || bounds.height <= 0)
+			return null;
+
+		return new int[] { Math.floorDiv(bounds.x, Tile.TILE_SIZE),
+				Math.floorDiv(bounds.y, Tile.TILE_SIZE),
+				Math.floorDiv(bounds.x + bounds.width - 1, Tile.TILE_SIZE),
+				Math.floorDiv(bounds.y + bounds.height - 1, Tile.TILE_SIZE) };
+
+	}
+
+	/**
+	 * Called by the {@linkplain ChunkWindow} when this Chunk is put in. The
+	 * walkable tiles of this Chunk and the loaded neighbors are made again, so
+	 * the obstacles reaching over the edges are counted once.
+	 *
+	 * @param window
+	 */
+	void loaded(ChunkWindow window) {
+
+		this.window = window;
+
+		for (Entity entity : entities)
+			window.getEntityGrid().add(entity);
+
+		for (int cy = y - 1; cy <= y + 1; cy++) {
+
+			for (int cx = x - 1; cx <= x + 1; cx++) {
+
+				Chunk chunk = (cx == x && cy == y) ? this : window.get(cx, cy);
+
+				if (chunk != null)
+					chunk.makeWalkable();
+
+			}
+		}
+
+	}
+
+	/**
+	 * Called by the {@linkplain ChunkWindow} when this Chunk is taken out. The
+	 * neighbors keep its obstacles, they are still there after all.
+	 */
+	void unloaded() {
+
+		if (window != null)
+			for (Entity entity : entities)
+				window.getEntityGrid().remove(entity);
+
+		this.window = null;
+
+	}
+
+	/**
+	 * A single bit test, see {@linkplain World#isWalkable(int, int)} for the
+	 * tiles in block.
+	 *
+	 * @param localX 0 ~ SIZE - 1
+	 * @param localY 0 ~ SIZE - 1
+	 * @return true if the tile is not solid, and has no obstacle (see
+	 *         {@linkplain #isObstacle(Entity)}) on it
+	 */
+	public boolean isWalkable(int localX, int localY) {
+
+		int i = localY * SIZE + localX;
+
+		return (walkable[i >> 6] & (1L << i)) != 0;
+
+	}
+
+	/**
+	 * @return changes every time the walkable tiles change
+	 */
+	public int getObstacleVersion() {
+
+		return obstacleVersion;
+
+	}
+
+	/**
+	 * True if the entity blocks the way, and stays where it is: trees, stones,
+	 * placed fences and crafting tables...
+	 *
+	 * @param entity
+	 * @return
+	 */
+	public static boolean isObstacle(Entity entity) {
+
+		return (entity instanceof StaticEntity) && !entity.getNoCollision();
+
+	}
+
+	/**
+	 * @return the path finding data of this Chunk, may be out of date or null
+	 */
+	public ChunkPortals getPortals() {
+
+		return portals;
+
+	}
+
+	public void setPortals(ChunkPortals portals) {
+
+		this.portals = portals;
+
+	}
+
+	/**
+	 * True if the Chunk changed since the last save that is written on the disk.
+	 *
+	 * @return
+	 */
+	public boolean isDirty() {
+
+		return modCount != savedModCount;
 
-		return this.index;
 	}
 
 	/**
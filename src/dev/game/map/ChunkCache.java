@@ -0,0 +1,229 @@
+package dev.game.map;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ChunkCache.java - Keeps the Chunks that left the {@linkplain ChunkWindow}
+ * for a while, so walking back and forth over a Chunk border does not read or
+ * generate the same Chunks again and again.
+ * <p>
+ * The Chunks are kept as they are, with the entities spawned. The least
+ * recently used Chunk is saved and dropped when the cache is full, or when the
+ * memory is running low.
+ * <p>
+ * The Chunks are found by the file path (see
+ * {@linkplain Chunk#getPath(String, int, int, int)}), so the Chunks of other
+ * worlds and dimensions never mix up.
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkCache {
+
+	/**
+	 * Rough heap size of a Chunk with its entities, in bytes
+	 */
+	private static final long CHUNK_SIZE_ESTIMATE = 32 * 1024;
+
+	/**
+	 * Part of the max heap the cache may use
+	 */
+	private static final int MEMORY_DIVISOR = 16;
+
+	private static final int MIN_CAPACITY = 16, MAX_CAPACITY = 256;
+
+	/**
+	 * The cache shrinks when less than this part of the max heap is free
+	 */
+	private static final double LOW_MEMORY_RATIO = 0.1;
+
+	/**
+	 * Max number of Chunks kept
+	 */
+	private static final int capacity = (int) Math.max(MIN_CAPACITY,
+			Math.min(MAX_CAPACITY, Runtime.getRuntime().maxMemory()
+					/ MEMORY_DIVISOR / CHUNK_SIZE_ESTIMATE));
+
+	/**
+	 * Chunks by the file path, the least recently used first
+	 */
+	private static final LinkedHashMap<String, Chunk> chunks = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	// stats
+	private static long hitCount, missCount, evictionCount;
+
+	/**
+	 * Keep the Chunk that left the map. The oldest Chunks are saved and dropped
+	 * if the cache is full.
+	 *
+	 * @param worldName
+	 * @param chunk
+	 */
+	public static synchronized void put(String worldName, Chunk chunk) {
+
+		chunks.put(Chunk.getPath(worldName, chunk.dimension, chunk.x, chunk.y),
+				chunk);
+
+		int limit = isMemoryLow() ? chunks.size() / 2 : capacity;
+
+		Iterator<Chunk> iter = chunks.values().iterator();
+
+		while (chunks.size() > limit && iter.hasNext()) {
+
+			Chunk eldest = iter.next();
+			iter.remove();
+
+			eldest.saveInFile();
+			evictionCount++;
+
+		}
+
+	}
+
+	/**
+	 * Take the Chunk out of the cache, to put it back in the map.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @return the Chunk, or null if it's not in the cache
+	 */
+	public static synchronized Chunk take(String worldName, int dimension,
+			int xPos, int yPos) {
+
+		Chunk chunk = chunks.remove(Chunk.getPath(worldName, dimension, xPos, yPos));
+
+		if (chunk == null) {
+
+			missCount++;
+			return null;
+
+		}
+
+		hitCount++;
+
+		// the lights around might have changed while it was away
+		chunk.setLightDirty(true);
+
+		return chunk;
+
+	}
+
+	/**
+	 * @param worldName
+	 * @param dimension
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @return true if the Chunk is in the cache
+	 */
+	public static synchronized boolean contains(String worldName, int dimension,
+			int xPos, int yPos) {
+
+		return chunks
+				.containsKey(Chunk.getPath(worldName, dimension, xPos, yPos));
+
+	}
+
+	/**
+	 * Save every Chunk in the cache that changed. They stay in the cache.
+	 */
+	public static void saveAll() {
+
+		ArrayList<Chunk> list;
+
+		synchronized (ChunkCache.class) {
+			list = new ArrayList<>(chunks.values());
+		}
+
+		for (Chunk chunk : list)
+			chunk.saveInFile();
+
+	}
+
+	/**
+	 * Save and drop every Chunk.
+	 */
+	public static void clear() {
+
+		saveAll();
+
+		synchronized (ChunkCache.class) {
+			chunks.clear();
+		}
+
+	}
+
+	/**
+	 * @return true if less than {@linkplain #LOW_MEMORY_RATIO} of the max heap is
+	 *         free
+	 */
+	private static boolean isMemoryLow() {
+
+		Runtime runtime = Runtime.getRuntime();
+
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		long free = runtime.maxMemory() - used;
+
+		return free < runtime.maxMemory() * LOW_MEMORY_RATIO;
+
+	}
+
+	//////// stats
+	/**
+	 * @return number of Chunks found in the cache
+	 */
+	public static synchronized long getHitCount() {
+
+		return hitCount;
+	}
+
+	/**
+	 * @return number of Chunks not found in the cache (read or generated instead)
+	 */
+	public static synchronized long getMissCount() {
+
+		return missCount;
+	}
+
+	/**
+	 * @return number of Chunks dropped from the cache
+	 */
+	public static synchronized long getEvictionCount() {
+
+		return evictionCount;
+	}
+
+	/**
+	 * @return number of Chunks in the cache
+	 */
+	public static synchronized int size() {
+
+		return chunks.size();
+	}
+
+	/**
+	 * @return max number of Chunks kept
+	 */
+	public static int getCapacity() {
+
+		return capacity;
+	}
+
+	/**
+	 * One line summary of the stats, for the console.
+	 *
+	 * @return
+	 */
+	public static synchronized String getStats() {
+
+		return "[ChunkCache] size: " + chunks.size() + "/" + capacity + ", hits: "
+				+ hitCount + ", misses: " + missCount + ", evictions: "
+				+ evictionCount;
+
+	}
+
+}
@@ -0,0 +1,48 @@
+package dev.game.map;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * ChunkCodec.java - One way of turning the entity and item records of a Chunk
+ * into bytes, and back. See {@linkplain ChunkFormat} for the codecs and how
+ * the saved data tells which one wrote it.
+ *
+ * @author Juhyung Kim
+ */
+public interface ChunkCodec {
+
+	/**
+	 * @return number saved before the data, 0 ~ 255 and different for every
+	 *         codec
+	 */
+	public int getId();
+
+	/**
+	 * @return name saved in the seeds file of the world
+	 */
+	public String getName();
+
+	/**
+	 * @param entities {id, x, y, health, [alignment]} for each entity
+	 * @param items    {id, x, y} for each item
+	 * @param chunkX   in chunkpos
+	 * @param chunkY   in chunkpos
+	 * @return the bytes to store
+	 */
+	public byte[] encode(List<int[]> entities, List<int[]> items, int chunkX,
+			int chunkY);
+
+	/**
+	 * Read the records stored by {@linkplain #encode(List, List, int, int)}.
+	 *
+	 * @param buffer   positioned at the start of the data
+	 * @param entities entity records are added here
+	 * @param items    item records are added here
+	 * @param chunkX   in chunkpos
+	 * @param chunkY   in chunkpos
+	 */
+	public void decode(ByteBuffer buffer, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY);
+
+}
@@ -0,0 +1,245 @@
+package dev.game.map;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.EntityManager;
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * ChunkCodecCheck.java - Checks that every {@linkplain ChunkCodec} reads back
+ * the records it writes, and reports the bytes per Chunk and the speed of
+ * each.
+ * <p>
+ * The records come from the Chunks of a scratch world, with their entities
+ * spawned, plus a few made up records with extreme values and an empty Chunk.
+ * Each codec encodes and decodes them, with and without the tile layer. The
+ * records and the tiles read back have to be the same, the exit code is 1 if
+ * they are not. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ChunkCodecCheck [chunks per side]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkCodecCheck {
+
+	private static final String WORLD_NAME = "_chunk_codec_check";
+
+	private static final ChunkCodec[] CODECS = { ChunkFormat.RAW,
+			ChunkFormat.VARINT, ChunkFormat.VARINT_DEFLATE };
+
+	private static final int ROUNDS = 20;
+
+	/**
+	 * A Chunk to encode.
+	 */
+	private static class Sample {
+
+		final int x, y;
+		final List<int[]> entities = new ArrayList<>(), items = new ArrayList<>();
+		byte[] tileIds;
+
+		Sample(int x, int y) {
+
+			this.x = x;
+			this.y = y;
+
+		}
+
+	}
+
+	/**
+	 * @param args [chunks per side]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+		deleteDir(scratchDir);
+
+		Handler handler = new Game().initHeadless();
+		EntityManager.setHandler(handler);
+
+		MapGenerator generator = new MapGenerator(handler, WORLD_NAME, 1, 2);
+		Chunk.setGenerator(generator);
+
+		List<Sample> samples = new ArrayList<>();
+
+		for (int y = 0; y < side; y++) {
+			for (int x = 0; x < side; x++) {
+
+				Chunk chunk = Chunk.prepareChunk(x - side / 2, y - side / 2,
+						WORLD_NAME, World.DIMENSION_WORLD);
+				chunk.spawnEntities();
+
+				Sample sample = new Sample(chunk.x, chunk.y);
+				chunk.getRecords(sample.entities, sample.items);
+
+				sample.tileIds = new byte[Chunk.SIZE * Chunk.SIZE];
+
+				for (int yy = 0; yy < Chunk.SIZE; yy++)
+					for (int xx = 0; xx < Chunk.SIZE; xx++)
+						sample.tileIds[yy * Chunk.SIZE + xx] = (byte) chunk.getTileId(xx,
+								yy);
+
+				samples.add(sample);
+
+			}
+		}
+
+		// extreme values, far from the origin
+		Sample extreme = new Sample(-70000, 70000);
+		extreme.entities
+				.add(new int[] { 5, Integer.MAX_VALUE, Integer.MIN_VALUE, -3 });
+		extreme.entities.add(new int[] { 7, 13, -77, 0, 9 });
+		extreme.entities.add(new int[] { 1 });
+		extreme.entities.add(new int[] {});
+		extreme.items.add(new int[] { 3, -1000001, 17 });
+		extreme.tileIds = new byte[Chunk.SIZE * Chunk.SIZE];
+		samples.add(extreme);
+
+		Sample empty = new Sample(0, 0);
+		empty.tileIds = new byte[Chunk.SIZE * Chunk.SIZE];
+		samples.add(empty);
+
+		int records = 0;
+
+		for (Sample sample : samples)
+			records += sample.entities.size() + sample.items.size();
+
+		System.out.println("[ChunkCodecCheck] " + samples.size() + " Chunks, "
+				+ records + " records");
+
+		int[] tileKey = generator.getTileLayerKey();
+		int different = 0;
+
+		for (ChunkCodec codec : CODECS) {
+
+			byte[][] encoded = new byte[samples.size()][];
+			long bytes = 0, encodeNanos = Long.MAX_VALUE,
+					decodeNanos = Long.MAX_VALUE;
+
+			// the best round of each
+			for (int round = 0; round < ROUNDS; round++) {
+
+				long start = System.nanoTime();
+
+				bytes = 0;
+
+				for (int i = 0; i < samples.size(); i++) {
+
+					Sample sample = samples.get(i);
+
+					encoded[i] = ChunkFormat.encode(codec, sample.entities, sample.items,
+							sample.x, sample.y);
+					bytes += encoded[i].length;
+
+				}
+
+				encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+				start = System.nanoTime();
+
+				for (int i = 0; i < samples.size(); i++) {
+
+					Sample sample = samples.get(i);
+
+					List<int[]> entities = new ArrayList<>(), items = new ArrayList<>();
+
+					ChunkFormat.decode(ByteBuffer.wrap(encoded[i]), entities, items,
+							sample.x, sample.y);
+
+					if (round == 0 && !(same(entities, sample.entities)
+							&& same(items, sample.items))) {
+						System.out.println("[ChunkCodecCheck] " + codec.getName()
+								+ ": the records of " + sample.x + "," + sample.y
+								+ " did not read back");
+						different++;
+					}
+
+				}
+
+				decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+
+			}
+
+			// with the tile layer in front
+			for (Sample sample : samples) {
+
+				ByteBuffer buffer = ByteBuffer.wrap(ChunkFormat.encode(codec,
+						sample.entities, sample.items, sample.x, sample.y,
+						sample.tileIds, tileKey));
+
+				byte[] tileIds = ChunkFormat.readTileLayer(buffer, tileKey);
+
+				List<int[]> entities = new ArrayList<>(), items = new ArrayList<>();
+
+				ChunkFormat.decode(buffer, entities, items, sample.x, sample.y);
+
+				if (!Arrays.equals(tileIds, sample.tileIds)
+						|| !same(entities, sample.entities) || !same(items, sample.items)) {
+					System.out.println("[ChunkCodecCheck] " + codec.getName()
+							+ ": the tile layer of " + sample.x + "," + sample.y
+							+ " did not read back");
+					different++;
+				}
+
+			}
+
+			int count = samples.size();
+
+			System.out.println(String.format(
+					"[ChunkCodecCheck] %-14s %7.1f bytes/Chunk, encode %6.1f us/Chunk, decode %6.1f us/Chunk",
+					codec.getName(), bytes / (double) count, encodeNanos / 1e3 / count,
+					decodeNanos / 1e3 / count));
+
+		}
+
+		System.out.println("[ChunkCodecCheck] " + different + " different");
+
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		System.exit((different > 0) ? 1 : 0);
+
+	}
+
+	private static boolean same(List<int[]> a, List<int[]> b) {
+
+		if (a.size() != b.size())
+			return false;
+
+		for (int i = 0; i < a.size(); i++)
+			if (!Arrays.equals(a.get(i), b.get(i)))
+				return false;
+
+		return true;
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
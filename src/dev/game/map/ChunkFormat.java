@@ -0,0 +1,415 @@
+package dev.game.map;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import dev.game.utils.Utils;
+
+/**
+ * ChunkFormat.java - Turns the entity and item records of a Chunk into the
+ * bytes stored in a {@linkplain RegionFile}, and back, with one of the
+ * {@linkplain ChunkCodec}s. Each world picks its codec (see
+ * {@linkplain MapGenerator#getChunkCodec()}).
+ * <p>
+ * The records are the same int arrays as the lines of the old text Chunk
+ * files: {id, x, y, health, [alignment]} for the entities and {id, x, y} for
+ * the items.
+ * <p>
+ * The data starts with the id of the codec (1 byte), so the Chunks written
+ * with different codecs can be read all the same. {@linkplain #RAW} has no id
+ * byte, its data starts with the number of entities (4 bytes), whose first
+ * byte is always 0. That is how the Chunks saved before the codecs are read.
+ * <p>
+ * The data may start with the tile layer (see
+ * {@linkplain #readTileLayer(ByteBuffer, int[])}) before the codec id, so a
+ * saved Chunk does not have to be generated again.
+ *
+ * @author Juhyung Kim
+ */
+public final class ChunkFormat {
+
+	/**
+	 * The number of entities, then each entity as the number of values (1 byte)
+	 * followed by the values (4 bytes each). The items follow in the same way.
+	 */
+	public static final ChunkCodec RAW = new ChunkCodec() {
+
+		@Override
+		public int getId() {
+
+			return 0;
+		}
+
+		@Override
+		public String getName() {
+
+			return "raw";
+		}
+
+		@Override
+		public byte[] encode(List<int[]> entities, List<int[]> items, int chunkX,
+				int chunkY) {
+
+			ByteBuffer buffer = ByteBuffer
+					.allocate(getSize(entities) + getSize(items));
+
+			putRecords(buffer, entities);
+			putRecords(buffer, items);
+
+			return buffer.array();
+
+		}
+
+		@Override
+		public void decode(ByteBuffer buffer, List<int[]> entities,
+				List<int[]> items, int chunkX, int chunkY) {
+
+			getRecords(buffer, entities);
+			getRecords(buffer, items);
+
+		}
+
+	};
+
+	/**
+	 * See {@linkplain VarintCodec}
+	 */
+	public static final ChunkCodec VARINT = new VarintCodec();
+
+	/**
+	 * {@linkplain #VARINT}, compressed
+	 */
+	public static final ChunkCodec VARINT_DEFLATE = new DeflateCodec(VARINT, 2,
+			"varint-deflate", Deflater.BEST_SPEED);
+
+	/**
+	 * Marks the tile layer, never used as a codec id
+	 */
+	private static final int TILE_LAYER_ID = 0xFF;
+
+	/**
+	 * Matches no tile layer, to skip it
+	 */
+	private static final int[] NO_KEY = {};
+
+	/**
+	 * Every codec
+	 */
+	private static final ChunkCodec[] codecs = { RAW, VARINT, VARINT_DEFLATE };
+
+	private ChunkFormat() {
+
+	}
+
+	/**
+	 * @param name see {@linkplain ChunkCodec#getName()}
+	 * @return the codec, or null if there is none with the name
+	 */
+	public static ChunkCodec getCodec(String name) {
+
+		for (ChunkCodec codec : codecs)
+			if (codec.getName().equals(name))
+				return codec;
+
+		return null;
+
+	}
+
+	/**
+	 * @param codec    the codec to use
+	 * @param entities entity records
+	 * @param items    item records
+	 * @param chunkX   in chunkpos
+	 * @param chunkY   in chunkpos
+	 * @return the bytes to store, starting with the id of the codec
+	 */
+	public static byte[] encode(ChunkCodec codec, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY) {
+
+		return encode(codec, entities, items, chunkX, chunkY, null, null);
+
+	}
+
+	/**
+	 * @param codec    the codec to use
+	 * @param entities entity records
+	 * @param items    item records
+	 * @param chunkX   in chunkpos
+	 * @param chunkY   in chunkpos
+	 * @param tileIds  [localY * Chunk.SIZE + localX], null to leave out the tile
+	 *                 layer
+	 * @param tileKey  what the tiles are generated with, see
+	 *                 {@linkplain MapGenerator#getTileLayerKey()}
+	 * @return the bytes to store
+	 */
+	public static byte[] encode(ChunkCodec codec, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY, byte[] tileIds,
+			int[] tileKey) {
+
+		byte[] data = codec.encode(entities, items, chunkX, chunkY);
+
+		int idSize = (codec == RAW) ? 0 : 1;
+		int tileSize = (tileIds == null) ? 0 : getTileLayerSize(tileIds, tileKey);
+
+		ByteBuffer out = ByteBuffer.allocate(tileSize + idSize + data.length);
+
+		if (tileIds != null)
+			putTileLayer(out, tileIds, tileKey);
+
+		if (idSize > 0)
+			out.put((byte) codec.getId());
+
+		out.put(data);
+
+		return out.array();
+
+	}
+
+	/**
+	 * Read the tile layer at the start of the data, if there is one. The buffer
+	 * is left after the tile layer, ready for
+	 * {@linkplain #decode(ByteBuffer, List, List, int, int)}.
+	 * <p>
+	 * Format: {@linkplain #TILE_LAYER_ID} (1 byte), the number of key values (1
+	 * byte), the key values, the bits per tile (1 byte, 4 or 8), then the tile
+	 * ids packed from the top-left, the first tile in the high bits.
+	 *
+	 * @param buffer  positioned at the start of the data
+	 * @param tileKey see {@linkplain MapGenerator#getTileLayerKey()}
+	 * @return [localY * Chunk.SIZE + localX], or null if there is no tile layer,
+	 *         or the tiles are generated with a different key
+	 */
+	public static byte[] readTileLayer(ByteBuffer buffer, int[] tileKey) {
+
+		if ((buffer.get(buffer.position()) & 0xFF) != TILE_LAYER_ID)
+			return null;
+
+		buffer.get();
+
+		int keyLength = buffer.get() & 0xFF;
+
+		boolean sameKey = keyLength == tileKey.length;
+
+		for (int i = 0; i < keyLength; i++) {
+
+			int value = buffer.getInt();
+
+			if (sameKey && value != tileKey[i])
+				sameKey = false;
+
+		}
+
+		int bits = buffer.get();
+
+		// generated differently, of no use
+		if (!sameKey) {
+
+			buffer.position(buffer.position() + Chunk.SIZE * Chunk.SIZE * bits / 8);
+
+			return null;
+
+		}
+
+		byte[] tileIds = new byte[Chunk.SIZE * Chunk.SIZE];
+
+		if (bits == 8) {
+
+			buffer.get(tileIds);
+
+		} else {
+
+			for (int i = 0; i < tileIds.length; i += 2) {
+
+				int b = buffer.get();
+
+				tileIds[i] = (byte) ((b >> 4) & 0x0F);
+				tileIds[i + 1] = (byte) (b & 0x0F);
+
+			}
+
+		}
+
+		return tileIds;
+
+	}
+
+	private static int getTileLayerSize(byte[] tileIds, int[] tileKey) {
+
+		return 3 + tileKey.length * 4 + tileIds.length * getTileBits(tileIds) / 8;
+
+	}
+
+	/**
+	 * @param tileIds
+	 * @return 4 if every tile id fits in 4 bits, 8 otherwise
+	 */
+	private static int getTileBits(byte[] tileIds) {
+
+		for (byte id : tileIds)
+			if ((id & 0xF0) != 0)
+				return 8;
+
+		return 4;
+
+	}
+
+	private static void putTileLayer(ByteBuffer out, byte[] tileIds,
+			int[] tileKey) {
+
+		out.put((byte) TILE_LAYER_ID);
+		out.put((byte) tileKey.length);
+
+		for (int value : tileKey)
+			out.putInt(value);
+
+		int bits = getTileBits(tileIds);
+
+		out.put((byte) bits);
+
+		if (bits == 8) {
+
+			out.put(tileIds);
+
+		} else {
+
+			for (int i = 0; i < tileIds.length; i += 2)
+				out.put((byte) (tileIds[i] << 4 | tileIds[i + 1]));
+
+		}
+
+	}
+
+	/**
+	 * Read the records stored by
+	 * {@linkplain #encode(ChunkCodec, List, List, int, int)}, with any codec.
+	 *
+	 * @param buffer   positioned at the start of the data
+	 * @param entities entity records are added here
+	 * @param items    item records are added here
+	 * @param chunkX   in chunkpos
+	 * @param chunkY   in chunkpos
+	 */
+	public static void decode(ByteBuffer buffer, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY) {
+
+		int id = buffer.get(buffer.position()) & 0xFF;
+
+		// not needed here, skip it
+		if (id == TILE_LAYER_ID) {
+
+			readTileLayer(buffer, NO_KEY);
+
+			id = buffer.get(buffer.position()) & 0xFF;
+
+		}
+
+		for (ChunkCodec codec : codecs) {
+
+			if (codec.getId() != id)
+				continue;
+
+			// no id byte
+			if (codec != RAW)
+				buffer.get();
+
+			codec.decode(buffer, entities, items, chunkX, chunkY);
+
+			return;
+
+		}
+
+		throw new IllegalStateException("Unknown chunk codec: " + id);
+
+	}
+
+	/**
+	 * Read the records from an old text Chunk file.
+	 *
+	 * @param br       reader of the file
+	 * @param entities entity records are added here
+	 * @param items    item records are added here
+	 * @throws IOException
+	 */
+	public static void parseText(BufferedReader br, List<int[]> entities,
+			List<int[]> items) throws IOException {
+
+		String line;
+		int index = 0;
+
+		while ((line = br.readLine()) != null) {
+
+			// find the data divider
+			if (line.equals(Chunk.DATA_DIVIDER)) {
+				index++;
+				continue;
+			}
+
+			String[] data = line.split(" ");
+
+			int[] record = new int[data.length];
+
+			for (int i = 0; i < record.length; i++)
+				record[i] = Utils.parseInt(data[i]);
+
+			if (index == 0) { // entities
+
+				entities.add(record);
+
+			} else if (index == 1 && record.length >= 3 && record[0] != 0) { // items
+
+				// in case of error...
+				items.add(new int[] { record[0], record[1], record[2] });
+
+			}
+
+		}
+
+	}
+
+	private static int getSize(List<int[]> records) {
+
+		int size = 4;
+
+		for (int[] record : records)
+			size += 1 + record.length * 4;
+
+		return size;
+
+	}
+
+	private static void putRecords(ByteBuffer buffer, List<int[]> records) {
+
+		buffer.putInt(records.size());
+
+		for (int[] record : records) {
+
+			buffer.put((byte) record.length);
+
+			for (int value : record)
+				buffer.putInt(value);
+
+		}
+
+	}
+
+	private static void getRecords(ByteBuffer buffer, List<int[]> records) {
+
+		int count = buffer.getInt();
+
+		for (int i = 0; i < count; i++) {
+
+			int[] record = new int[buffer.get() & 0xFF];
+
+			for (int j = 0; j < record.length; j++)
+				record[j] = buffer.getInt();
+
+			records.add(record);
+
+		}
+
+	}
+
+}
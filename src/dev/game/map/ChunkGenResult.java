@@ -0,0 +1,120 @@
+package dev.game.map;
+
+import java.util.Arrays;
+
+/**
+ * ChunkGenResult.java - What {@linkplain MapGenerator} made for one Chunk: the
+ * tile ids and the ids of the entities to spawn on each tile.
+ * <p>
+ * It cannot be changed after it's made, so it can be passed between threads
+ * freely.
+ *
+ * @author Juhyung Kim
+ */
+public final class ChunkGenResult {
+
+	/**
+	 * Entity id for the tiles with nothing to spawn
+	 */
+	public static final int NO_SPAWN = 0;
+
+	/**
+	 * In chunkpos
+	 */
+	public final int x, y;
+
+	public final int dimension;
+
+	/**
+	 * [localY * Chunk.SIZE + localX]
+	 */
+	private final int[] tileIds;
+
+	/**
+	 * [localY * Chunk.SIZE + localX], null if the entities are not generated
+	 */
+	private final int[] spawnIds;
+
+	/**
+	 * The arrays are not copied, the generator must not touch them afterwards.
+	 *
+	 * @param x         in chunkpos
+	 * @param y         in chunkpos
+	 * @param dimension
+	 * @param tileIds
+	 * @param spawnIds  null if the entities are not generated
+	 */
+	ChunkGenResult(int x, int y, int dimension, int[] tileIds, int[] spawnIds) {
+
+		this.x = x;
+		this.y = y;
+		this.dimension = dimension;
+		this.tileIds = tileIds;
+		this.spawnIds = spawnIds;
+
+	}
+
+	/**
+	 * @param localX 0 ~ Chunk.SIZE - 1
+	 * @param localY 0 ~ Chunk.SIZE - 1
+	 * @return TileId
+	 */
+	public int getTileId(int localX, int localY) {
+
+		return tileIds[localY * Chunk.SIZE + localX];
+
+	}
+
+	/**
+	 * @param localX 0 ~ Chunk.SIZE - 1
+	 * @param localY 0 ~ Chunk.SIZE - 1
+	 * @return EntityId, or {@linkplain #NO_SPAWN}
+	 */
+	public int getSpawnId(int localX, int localY) {
+
+		if (spawnIds == null)
+			return NO_SPAWN;
+
+		return spawnIds[localY * Chunk.SIZE + localX];
+
+	}
+
+	/**
+	 * @return true if the entities are generated as well
+	 */
+	public boolean hasSpawns() {
+
+		return spawnIds != null;
+
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+
+		if (this == obj)
+			return true;
+
+		if (!(obj instanceof ChunkGenResult))
+			return false;
+
+		ChunkGenResult other = (ChunkGenResult) obj;
+
+		return x == other.x && y == other.y && dimension == other.dimension
+				&& Arrays.equals(tileIds, other.tileIds)
+				&& Arrays.equals(spawnIds, other.spawnIds);
+
+	}
+
+	@Override
+	public int hashCode() {
+
+		int result = 31 * (31 * x + y) + dimension;
+
+		result = 31 * result + Arrays.hashCode(tileIds);
+		result = 31 * result + Arrays.hashCode(spawnIds);
+
+		return result;
+
+	}
+
+}
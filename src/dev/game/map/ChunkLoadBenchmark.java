@@ -0,0 +1,162 @@
+package dev.game.map;
+
+import java.io.File;
+import java.util.Arrays;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.creatures.Creature;
+import dev.game.entities.creatures.Player;
+import dev.game.states.GameState;
+import dev.game.states.State;
+import dev.game.tiles.Tile;
+import dev.game.worlds.World;
+
+/**
+ * ChunkLoadBenchmark.java - Times the game ticks while the player runs in a
+ * straight line, to see the frame time spikes at the Chunk borders.
+ * <p>
+ * A scratch world is made and the player is moved east at the running speed
+ * every tick. The time of every {@linkplain World#tick()} is recorded, the
+ * ticks where the player crossed a Chunk border are reported apart. For
+ * comparison, a column of Chunks is also loaded right away in this thread, the
+ * way the game did before {@linkplain ChunkLoader}. The scratch world is
+ * deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ChunkLoadBenchmark [chunks] [radius]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkLoadBenchmark {
+
+	private static final String WORLD_NAME = "_chunk_load_benchmark";
+
+	/**
+	 * Ticks before the walk, the first Chunks are loaded and the JIT warms up
+	 */
+	private static final int WARMUP_TICKS = 200;
+
+	/**
+	 * @param args [chunks] [radius]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int chunks = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int radius = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+		deleteDir(scratchDir);
+
+		Handler handler = new Game().initHeadless();
+
+		World.setViewDistance(radius);
+
+		World world = new World(handler,
+				new MapGenerator(handler, WORLD_NAME, 1, 2));
+		handler.setWorld(world);
+		handler.getGame().gameState = new GameState(handler, world);
+
+		Player player = world.getEntityManager().getPlayer();
+
+		for (int i = 0; i < WARMUP_TICKS; i++)
+			world.tick();
+
+		float speed = Creature.DEFAULT_RUN_SPEED;
+		int ticks = (int) (chunks * Chunk.SIZE * Tile.TILE_SIZE / speed);
+
+		long[] times = new long[ticks];
+		long crossingTotal = 0, crossingWorst = 0;
+		int crossings = 0, emptyTicks = 0;
+
+		for (int i = 0; i < ticks; i++) {
+
+			int centerX = World.map.getCenterX();
+
+			player.setX(player.getX() + speed);
+
+			long start = System.nanoTime();
+
+			world.tick();
+
+			times[i] = System.nanoTime() - start;
+
+			// the window moved with the player
+			if (World.map.getCenterX() != centerX) {
+
+				crossings++;
+				crossingTotal += times[i];
+				crossingWorst = Math.max(crossingWorst, times[i]);
+
+			}
+
+			if (World.getChunks().size() < World.map.size * World.map.size)
+				emptyTicks++;
+
+		}
+
+		// the old way, a new column loaded in this thread at the border
+		int columnX = Chunk.blockToChunk(player.getCenterX()) + radius + 10;
+
+		long start = System.nanoTime();
+
+		for (int y = -radius; y <= radius; y++)
+			Chunk.prepareChunk(columnX, y, WORLD_NAME, world.getDimension())
+					.spawnEntities();
+
+		long columnNanos = System.nanoTime() - start;
+
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+
+		long budget = 1000000000L / Game.FPS;
+		int overBudget = 0;
+
+		for (long time : times)
+			if (time > budget)
+				overBudget++;
+
+		System.out.println("[ChunkLoadBenchmark] " + ticks + " ticks, " + chunks
+				+ " Chunks walked, radius " + radius + ", " + crossings
+				+ " border crossings");
+		System.out.println(String.format(
+				"[ChunkLoadBenchmark] tick median %.3f ms, 99th %.3f ms, worst %.3f ms, over %d ms: %d",
+				sorted[ticks / 2] / 1e6, sorted[ticks * 99 / 100] / 1e6,
+				sorted[ticks - 1] / 1e6, budget / 1000000, overBudget));
+		System.out.println(String.format(
+				"[ChunkLoadBenchmark] crossing ticks average %.3f ms, worst %.3f ms, ticks with a Chunk missing: %d",
+				crossingTotal / 1e6 / Math.max(crossings, 1), crossingWorst / 1e6,
+				emptyTicks));
+		System.out.println(String.format(
+				"[ChunkLoadBenchmark] a column of %d Chunks loaded in this thread: %.3f ms",
+				radius * 2 + 1, columnNanos / 1e6));
+		System.out.println(world.getMapGenManager().getCrossingStats());
+
+		world.getChunkLoader().shutdown();
+		ChunkCache.clear();
+		ChunkSaveQueue.flush();
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		System.exit(0);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
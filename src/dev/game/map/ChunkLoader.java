@@ -0,0 +1,272 @@
+package dev.game.map;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChunkLoader.java - Generates and reads the Chunks in worker threads, so the
+ * game thread only has to spawn the entities when the Chunk gets attached to
+ * the map.
+ * <p>
+ * Only the game thread should call the methods of this class. The workers
+ * never touch {@linkplain dev.game.worlds.World#map World.map}.
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkLoader {
+
+	private static final int THREAD_COUNT = Math.max(1,
+			Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	private static final int SHUTDOWN_SECONDS = 10;
+
+	private final ExecutorService pool;
+
+	/**
+	 * Chunks requested, by "dimension:x,y"
+	 */
+	private final HashMap<String, Future<Chunk>> requests;
+
+	private final String WORLD_NAME;
+
+	/**
+	 * @param worldName name of the world to load the Chunks from
+	 */
+	public ChunkLoader(String worldName) {
+
+		this.WORLD_NAME = worldName;
+		this.requests = new HashMap<>();
+
+		this.pool = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+
+			private int count = 0;
+
+			@Override
+			public Thread newThread(Runnable r) {
+
+				Thread thread = new Thread(r, "ChunkLoader-" + (count++));
+				thread.setDaemon(true);
+
+				return thread;
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Start loading the Chunk in background, if it's not requested yet and it's
+	 * not in {@linkplain ChunkCache}.
+	 *
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @param dimension
+	 */
+	public void request(final int xPos, final int yPos, final int dimension) {
+
+		String key = getKey(xPos, yPos, dimension);
+
+		if (requests.containsKey(key)
+				|| ChunkCache.contains(WORLD_NAME, dimension, xPos, yPos))
+			return;
+
+		Future<Chunk> future = pool.submit(new Callable<Chunk>() {
+
+			@Override
+			public Chunk call() {
+
+				return Chunk.prepareChunk(xPos, yPos, WORLD_NAME, dimension);
+
+			}
+
+		});
+
+		requests.put(key, future);
+
+	}
+
+	/**
+	 * Get the Chunk if it's done loading, or if it's in {@linkplain ChunkCache}.
+	 * The entities of the Chunk are spawned.
+	 *
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @param dimension
+	 * @return the Chunk, or null if it's not done yet (it is requested then)
+	 */
+	public Chunk poll(int xPos, int yPos, int dimension) {
+
+		if (ChunkCache.contains(WORLD_NAME, dimension, xPos, yPos))
+			return take(xPos, yPos, dimension);
+
+		String key = getKey(xPos, yPos, dimension);
+
+		Future<Chunk> future = requests.get(key);
+
+		if (future == null) {
+			request(xPos, yPos, dimension);
+			return null;
+		}
+
+		if (!future.isDone())
+			return null;
+
+		return take(xPos, yPos, dimension);
+
+	}
+
+	/**
+	 * Get the Chunk, waiting for it if it's not done yet. The Chunk in
+	 * {@linkplain ChunkCache} is used first. The entities of the Chunk are
+	 * spawned.
+	 *
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @param dimension
+	 * @return the Chunk
+	 */
+	public Chunk take(int xPos, int yPos, int dimension) {
+
+		Chunk cached = ChunkCache.take(WORLD_NAME, dimension, xPos, yPos);
+
+		if (cached != null) {
+
+			// the cached one is newer than what the worker might have read
+			Future<Chunk> stale = requests.remove(getKey(xPos, yPos, dimension));
+
+			if (stale != null)
+				stale.cancel(false);
+
+			return cached;
+
+		}
+
+		request(xPos, yPos, dimension);
+
+		Future<Chunk> future = requests.remove(getKey(xPos, yPos, dimension));
+
+		Chunk chunk = null;
+
+		try {
+
+			chunk = future.get();
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+		} catch (ExecutionException e) {
+
+			Logger.getLogger(ChunkLoader.class.getName()).log(Level.SEVERE, null,
+					e.getCause());
+
+		}
+
+		// something went wrong in the worker, do it here then
+		if (chunk == null)
+			chunk = Chunk.prepareChunk(xPos, yPos, WORLD_NAME, dimension);
+
+		chunk.spawnEntities();
+
+		return chunk;
+
+	}
+
+	/**
+	 * Drop the requests outside of the area, so the loader do not hold on to the
+	 * Chunks player have left behind.
+	 *
+	 * @param minX      in chunkpos, inclusive
+	 * @param minY      in chunkpos, inclusive
+	 * @param maxX      in chunkpos, inclusive
+	 * @param maxY      in chunkpos, inclusive
+	 * @param dimension requests of other dimensions are dropped as well
+	 */
+	public void retain(int minX, int minY, int maxX, int maxY, int dimension) {
+
+		Iterator<Map.Entry<String, Future<Chunk>>> iter = requests.entrySet()
+				.iterator();
+
+		while (iter.hasNext()) {
+
+			Map.Entry<String, Future<Chunk>> entry = iter.next();
+
+			int[] pos = parseKey(entry.getKey());
+
+			if (pos[0] != dimension || pos[1] < minX || pos[1] > maxX
+					|| pos[2] < minY || pos[2] > maxY) {
+
+				entry.getValue().cancel(false);
+				iter.remove();
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Drop every request.
+	 */
+	public void clear() {
+
+		for (Future<Chunk> future : requests.values())
+			future.cancel(false);
+
+		requests.clear();
+
+	}
+
+	/**
+	 * Stop the worker threads and wait until the Chunks being read are done, so
+	 * the region files are not used anymore.
+	 */
+	public void shutdown() {
+
+		clear();
+		pool.shutdown();
+
+		try {
+
+			if (!pool.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS))
+				Logger.getLogger(ChunkLoader.class.getName()).log(Level.WARNING,
+						"The worker threads did not stop in time");
+
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	private static String getKey(int xPos, int yPos, int dimension) {
+
+		return dimension + ":" + Chunk.posToChunkIndex(xPos, yPos);
+
+	}
+
+	/**
+	 * @param key
+	 * @return {dimension, x, y}
+	 */
+	private static int[] parseKey(String key) {
+
+		String[] dim = key.split(":");
+		String[] xy = dim[1].split(Chunk.CHUNK_NAME_DIVIDER);
+
+		return new int[] { Integer.parseInt(dim[0]), Integer.parseInt(xy[0]),
+				Integer.parseInt(xy[1]) };
+
+	}
+
+}
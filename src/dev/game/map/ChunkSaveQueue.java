@@ -0,0 +1,511 @@
+package dev.game.map;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChunkSaveQueue.java - Writes the save files in a background thread, so the
+ * game thread does not have to wait for the disk.
+ * <p>
+ * Saves of the same file that are waiting in the queue are merged, only the
+ * latest data gets written. Use {@linkplain #flush()} before the files have to
+ * be complete on the disk (quit, dimension travel), and
+ * {@linkplain #waitFor(String)} before reading a file that might be in the
+ * queue.
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkSaveQueue {
+
+	/**
+	 * Writes waiting to be done, by the file path (or the Chunk path, see
+	 * {@linkplain Chunk#getPath(String, int, int, int)})
+	 */
+	private static final LinkedHashMap<String, Write> pending = new LinkedHashMap<>();
+
+	private static final Object lock = new Object();
+
+	/**
+	 * The path of the file being written right now, null if nothing is being
+	 * written
+	 */
+	private static String writing;
+
+	private static Thread worker;
+
+	/**
+	 * The waiting threads check this often if the writing thread is still alive
+	 */
+	private static final long WAIT_MILLIS = 100;
+
+	/**
+	 * A write that fails is tried again this many times in total, then dropped
+	 */
+	private static final int MAX_ATTEMPTS = 3;
+
+	// stats
+	private static final long startTime = System.nanoTime();
+	private static long submitCount, coalesceCount, writeCount, byteCount;
+	private static long stallNanos;
+
+	/**
+	 * A write waiting in the queue.
+	 */
+	private static abstract class Write {
+
+		/**
+		 * Times the write failed so far
+		 */
+		private int failures;
+
+		/**
+		 * @return number of bytes written
+		 * @throws IOException
+		 */
+		abstract int write() throws IOException;
+
+		/**
+		 * Called in the writing thread after the data is written.
+		 */
+		void done() {
+
+		}
+
+		/**
+		 * Called in the writing thread when the write is given up.
+		 */
+		void dropped() {
+
+		}
+
+	}
+
+	/**
+	 * Queue the data to be written in the file. If the file is already in the
+	 * queue, the old data is replaced.
+	 *
+	 * @param path file path
+	 * @param data the whole content of the file
+	 */
+	public static void submit(final String path, final String data) {
+
+		submit(path, new Write() {
+
+			@Override
+			int write() throws IOException {
+
+				writeText(path, data);
+
+				return data.length();
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Queue the Chunk data to be written in its {@linkplain RegionFile}. If the
+	 * Chunk is already in the queue, the old data is replaced.
+	 * <p>
+	 * The Chunk is told when the data is on the disk, see
+	 * {@linkplain Chunk#saved(int)}, or when the write is given up, see
+	 * {@linkplain Chunk#saveFailed(int)}.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @param data      from {@linkplain ChunkFormat}
+	 * @param chunk     the Chunk saved
+	 * @param modCount  the mod count of the Chunk when the data was made
+	 */
+	static void submitChunk(final String worldName, final int dimension,
+			final int xPos, final int yPos, final byte[] data, final Chunk chunk,
+			final int modCount) {
+
+		submit(Chunk.getPath(worldName, dimension, xPos, yPos), new Write() {
+
+			@Override
+			int write() throws IOException {
+
+				RegionFile.writeChunk(worldName, dimension, xPos, yPos, data);
+
+				return data.length;
+
+			}
+
+			@Override
+			void done() {
+
+				chunk.saved(modCount);
+
+			}
+
+			@Override
+			void dropped() {
+
+				chunk.saveFailed(modCount);
+
+			}
+
+		});
+
+	}
+
+	private static void submit(String path, Write write) {
+
+		long start = System.nanoTime();
+
+		synchronized (lock) {
+
+			startWorker();
+
+			if (pending.put(path, write) != null)
+				coalesceCount++;
+
+			submitCount++;
+
+			lock.notifyAll();
+
+			stallNanos += System.nanoTime() - start;
+
+		}
+
+	}
+
+	/**
+	 * Block until every queued file is written.
+	 */
+	public static void flush() {
+
+		long start = System.nanoTime();
+
+		synchronized (lock) {
+
+			while (!pending.isEmpty() || writing != null) {
+
+				// in case the writing thread died
+				if (!pending.isEmpty())
+					startWorker();
+
+				try {
+					lock.wait(WAIT_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+			}
+
+			stallNanos += System.nanoTime() - start;
+
+		}
+
+	}
+
+	/**
+	 * Block until the file is not in the queue anymore, so it could be read.
+	 *
+	 * @param path file path
+	 */
+	public static void waitFor(String path) {
+
+		long start = System.nanoTime();
+
+		synchronized (lock) {
+
+			while (pending.containsKey(path) || path.equals(writing)) {
+
+				// in case the writing thread died
+				if (pending.containsKey(path))
+					startWorker();
+
+				try {
+					lock.wait(WAIT_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+			}
+
+			stallNanos += System.nanoTime() - start;
+
+		}
+
+	}
+
+	/**
+	 * Start the writing thread if it's not running yet, or start a new one if it
+	 * died. Must hold the lock.
+	 */
+	private static void startWorker() {
+
+		if (worker != null && worker.isAlive())
+			return;
+
+		if (worker != null)
+			Logger.getLogger(ChunkSaveQueue.class.getName()).log(Level.WARNING,
+					"The writing thread died, starting a new one");
+
+		worker = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				writeLoop();
+
+			}
+
+		}, "ChunkSaveQueue");
+
+		// the flush on quit takes care of the data left in the queue
+		worker.setDaemon(true);
+		worker.start();
+
+	}
+
+	/**
+	 * Take the oldest file from the queue and write it, forever. A write that
+	 * fails is logged and put back at the end of the queue, see
+	 * {@linkplain #retry(String, Write)}, the rest of the queue still gets
+	 * written.
+	 */
+	private static void writeLoop() {
+
+		while (true) {
+
+			String path;
+			Write write;
+
+			synchronized (lock) {
+
+				while (pending.isEmpty()) {
+
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+				}
+
+				Iterator<Map.Entry<String, Write>> iter = pending.entrySet()
+						.iterator();
+				Map.Entry<String, Write> entry = iter.next();
+				iter.remove();
+
+				path = entry.getKey();
+				write = entry.getValue();
+				writing = path;
+
+			}
+
+			try {
+
+				int bytes = write.write();
+
+				synchronized (lock) {
+					writeCount++;
+					byteCount += bytes;
+				}
+
+				write.done();
+
+			} catch (IOException ex) {
+				Logger.getLogger(ChunkSaveQueue.class.getName()).log(Level.SEVERE, null,
+						ex);
+				retry(path, write);
+			} catch (RuntimeException ex) {
+				Logger.getLogger(ChunkSaveQueue.class.getName()).log(Level.SEVERE, null,
+						ex);
+				retry(path, write);
+			} finally {
+
+				// the waiting threads can go on, even if the thread dies
+				synchronized (lock) {
+					writing = null;
+					lock.notifyAll();
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Put the failed write back in the queue. It's dropped instead if it failed
+	 * {@linkplain #MAX_ATTEMPTS} times, or if newer data of the file is already
+	 * waiting.
+	 *
+	 * @param path  file path
+	 * @param write the failed write
+	 */
+	private static void retry(String path, Write write) {
+
+		boolean drop;
+
+		synchronized (lock) {
+
+			write.failures++;
+
+			drop = write.failures >= MAX_ATTEMPTS || pending.containsKey(path);
+
+			if (!drop)
+				pending.put(path, write);
+
+		}
+
+		if (drop) {
+
+			if (write.failures >= MAX_ATTEMPTS)
+				Logger.getLogger(ChunkSaveQueue.class.getName()).log(Level.SEVERE,
+						"Gave up writing " + path);
+
+			write.dropped();
+
+		}
+
+	}
+
+	/**
+	 * Write the data in the file, replacing the old content.
+	 *
+	 * @param path
+	 * @param data
+	 * @throws IOException
+	 */
+	private static void writeText(String path, String data) throws IOException {
+
+		BufferedWriter bw = null;
+
+		try {
+
+			File file = new File(path);
+
+			if (!file.exists()) {
+
+				file.getParentFile().mkdirs();
+
+				file.createNewFile();
+
+			}
+
+			FileOutputStream fos = new FileOutputStream(file);
+
+			bw = new BufferedWriter(new OutputStreamWriter(fos));
+
+			bw.write(data);
+
+		} finally {
+
+			if (bw != null) {
+				try {
+					bw.close();
+				} catch (IOException ex) {
+					Logger.getLogger(ChunkSaveQueue.class.getName())
+							.log(Level.SEVERE, null, ex);
+				}
+			}
+
+		}
+
+	}
+
+	//////// stats
+	/**
+	 * @return number of saves requested
+	 */
+	public static long getSubmitCount() {
+
+		synchronized (lock) {
+			return submitCount;
+		}
+	}
+
+	/**
+	 * @return number of saves merged into a save that was already in the queue
+	 */
+	public static long getCoalesceCount() {
+
+		synchronized (lock) {
+			return coalesceCount;
+		}
+	}
+
+	/**
+	 * @return number of files actually written
+	 */
+	public static long getWriteCount() {
+
+		synchronized (lock) {
+			return writeCount;
+		}
+	}
+
+	/**
+	 * @return number of bytes written (characters for the text files)
+	 */
+	public static long getByteCount() {
+
+		synchronized (lock) {
+			return byteCount;
+		}
+	}
+
+	/**
+	 * Time the calling threads spent in this class, waiting for the lock or for
+	 * the files to be written. That's the game thread, but also the
+	 * {@linkplain ChunkLoader} workers waiting in {@linkplain #waitFor(String)}
+	 * before reading a Chunk.
+	 *
+	 * @return in nanoseconds
+	 */
+	public static long getStallNanos() {
+
+		synchronized (lock) {
+			return stallNanos;
+		}
+	}
+
+	/**
+	 * @return files written per minute since the game started
+	 */
+	public static double getWritesPerMinute() {
+
+		double minutes = (System.nanoTime() - startTime) / 60e9;
+
+		return getWriteCount() / Math.max(minutes, 1e-9);
+
+	}
+
+	/**
+	 * One line summary of the stats, for the console.
+	 *
+	 * @return
+	 */
+	public static String getStats() {
+
+		synchronized (lock) {
+
+			return "[ChunkSaveQueue] submits: " + submitCount + ", coalesced: "
+					+ coalesceCount + ", writes: " + writeCount + " ("
+					+ String.format("%.1f", getWritesPerMinute())
+					+ "/min), bytes: " + byteCount + ", stall: "
+					+ String.format("%.3f", stallNanos / 1e6) + "ms";
+
+		}
+
+	}
+
+}
@@ -0,0 +1,326 @@
+package dev.game.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ChunkWindow.java - The loaded Chunks, a square of (radius * 2 + 1) Chunks on
+ * each side around the center Chunk.
+ * <p>
+ * The Chunks are kept in a ring buffer addressed by the chunk position modulo
+ * the window size, so a Chunk stays in the same slot as long as it's loaded.
+ * Moving the center only empties the row or column that left the window,
+ * nothing is shuffled. The Chunks that left are kept in {@linkplain ChunkCache}
+ * for a while.
+ *
+ * @author Juhyung Kim
+ */
+public class ChunkWindow {
+
+	/**
+	 * Chunks on each side of the center Chunk. 1 is 3 * 3 Chunks.
+	 */
+	public final int radius;
+
+	/**
+	 * Chunks on each side of the window, radius * 2 + 1.
+	 */
+	public final int size;
+
+	/**
+	 * [floorMod(y, size) * size + floorMod(x, size)]
+	 */
+	private final Chunk[] slots;
+
+	/**
+	 * In chunkpos
+	 */
+	private int centerX, centerY;
+
+	/**
+	 * Loaded Chunks from the north-west to the south-east, made again after the
+	 * window changes. See {@linkplain #getChunks()}.
+	 */
+	private final ArrayList<Chunk> chunks;
+	private final List<Chunk> chunksView;
+	private boolean chunksChanged;
+
+	/**
+	 * The entities of the loaded Chunks by where they are
+	 */
+	private final EntityGrid entityGrid = new EntityGrid();
+
+	/**
+	 * For {@linkplain ChunkCache}
+	 */
+	private final String WORLD_NAME;
+
+	/**
+	 * @param radius    Chunks on each side of the center Chunk, 1 or more
+	 * @param worldName name of the world the Chunks are from
+	 */
+	public ChunkWindow(int radius, String worldName) {
+
+		if (radius < 1)
+			throw new IllegalArgumentException("radius must be 1 or more: " + radius);
+
+		this.WORLD_NAME = worldName;
+		this.radius = radius;
+		this.size = radius * 2 + 1;
+		this.slots = new Chunk[size * size];
+		this.chunks = new ArrayList<>(size * size);
+		this.chunksView = Collections.unmodifiableList(chunks);
+
+	}
+
+	/**
+	 * Get the loaded Chunk at the chunk position.
+	 *
+	 * @param chunkX in chunkpos
+	 * @param chunkY in chunkpos
+	 * @return the Chunk, or null if it's not loaded
+	 */
+	public Chunk get(int chunkX, int chunkY) {
+
+		if (!contains(chunkX, chunkY))
+			return null;
+
+		return slots[getSlot(chunkX, chunkY)];
+
+	}
+
+	/**
+	 * Put the Chunk in its slot. Nothing is done if the Chunk is out of the
+	 * window.
+	 *
+	 * @param chunk
+	 * @return true if the Chunk is put in
+	 */
+	public boolean put(Chunk chunk) {
+
+		if (chunk == null || !contains(chunk.x, chunk.y))
+			return false;
+
+		int slot = getSlot(chunk.x, chunk.y);
+
+		if (slots[slot] != null && slots[slot] != chunk)
+			slots[slot].unloaded();
+
+		slots[slot] = chunk;
+		chunksChanged = true;
+
+		chunk.loaded(this);
+
+		return true;
+
+	}
+
+	/**
+	 * Move the center of the window. The Chunks that end up outside of the window
+	 * are taken out, into {@linkplain ChunkCache}.
+	 *
+	 * @param chunkX new center in chunkpos
+	 * @param chunkY new center in chunkpos
+	 */
+	public void recenter(int chunkX, int chunkY) {
+
+		int dx = chunkX - centerX;
+		int dy = chunkY - centerY;
+
+		// nothing is kept, no need to go row by row
+		if (Math.abs(dx) >= size || Math.abs(dy) >= size) {
+
+			for (int i = 0; i < slots.length; i++)
+				evict(i);
+
+			centerX = chunkX;
+			centerY = chunkY;
+
+			return;
+
+		}
+
+		// one column at a time, the trailing column of the old window is the
+		// leading column of the new one
+		while (centerX != chunkX) {
+
+			int step = (chunkX > centerX) ? 1 : -1;
+
+			evictColumn(centerX - step * radius);
+			centerX += step;
+
+		}
+
+		while (centerY != chunkY) {
+
+			int step = (chunkY > centerY) ? 1 : -1;
+
+			evictRow(centerY - step * radius);
+			centerY += step;
+
+		}
+
+	}
+
+	/**
+	 * Take out every Chunk in the column.
+	 *
+	 * @param chunkX in chunkpos
+	 */
+	private void evictColumn(int chunkX) {
+
+		int column = Math.floorMod(chunkX, size);
+
+		for (int row = 0; row < size; row++)
+			evict(row * size + column);
+
+	}
+
+	/**
+	 * Take out every Chunk in the row.
+	 *
+	 * @param chunkY in chunkpos
+	 */
+	private void evictRow(int chunkY) {
+
+		int row = Math.floorMod(chunkY, size);
+
+		for (int column = 0; column < size; column++)
+			evict(row * size + column);
+
+	}
+
+	/**
+	 * Move the Chunk in the slot to the cache.
+	 *
+	 * @param slot
+	 */
+	private void evict(int slot) {
+
+		Chunk chunk = slots[slot];
+
+		if (chunk == null)
+			return;
+
+		chunk.unloaded();
+
+		// saved when it leaves the cache
+		ChunkCache.put(WORLD_NAME, chunk);
+
+		slots[slot] = null;
+		chunksChanged = true;
+
+	}
+
+	/**
+	 * Take out every Chunk, without saving them.
+	 */
+	public void clear() {
+
+		for (int i = 0; i < slots.length; i++) {
+
+			if (slots[i] != null)
+				slots[i].unloaded();
+
+			slots[i] = null;
+
+		}
+
+		chunksChanged = true;
+
+	}
+
+	/**
+	 * Save every Chunk that changed.
+	 */
+	public void saveAll() {
+
+		for (Chunk chunk : getChunks())
+			chunk.saveInFile();
+
+	}
+
+	/**
+	 * @param chunkX in chunkpos
+	 * @param chunkY in chunkpos
+	 * @return true if the position is in the window, loaded or not
+	 */
+	public boolean contains(int chunkX, int chunkY) {
+
+		return Math.abs(chunkX - centerX) <= radius
+				&& Math.abs(chunkY - centerY) <= radius;
+
+	}
+
+	private int getSlot(int chunkX, int chunkY) {
+
+		return Math.floorMod(chunkY, size) * size + Math.floorMod(chunkX, size);
+
+	}
+
+	/**
+	 * The loaded Chunks, from the north-west to the south-east. Do not keep the
+	 * list, it is changed when the window changes.
+	 *
+	 * @return read-only list of the loaded Chunks
+	 */
+	public List<Chunk> getChunks() {
+
+		if (chunksChanged) {
+
+			chunks.clear();
+
+			for (int y = centerY - radius; y <= centerY + radius; y++) {
+				for (int x = centerX - radius; x <= centerX + radius; x++) {
+
+					Chunk chunk = slots[getSlot(x, y)];
+
+					if (chunk != null)
+						chunks.add(chunk);
+
+				}
+			}
+
+			chunksChanged = false;
+
+		}
+
+		return chunksView;
+
+	}
+
+	/**
+	 * @return the center Chunk, or null if it's not loaded
+	 */
+	public Chunk getCenter() {
+
+		return slots[getSlot(centerX, centerY)];
+
+	}
+
+	/**
+	 * @return the entities of the loaded Chunks by where they are
+	 */
+	public EntityGrid getEntityGrid() {
+
+		return entityGrid;
+	}
+
+	/**
+	 * @return center in chunkpos
+	 */
+	public int getCenterX() {
+
+		return centerX;
+	}
+
+	/**
+	 * @return center in chunkpos
+	 */
+	public int getCenterY() {
+
+		return centerY;
+	}
+
+}
@@ -0,0 +1,136 @@
+package dev.game.map;
+
+import java.io.File;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * CoarseGenerationCheck.java - Counts the tiles that get a different biome
+ * when the low frequency octaves are sampled coarsely (see
+ * {@linkplain MapGenerator#NEW_WORLD_LOW_FREQUENCY_ERROR}), and times the
+ * tile generation both ways.
+ * <p>
+ * Two scratch worlds with the same seeds are made, one sampling every tile and
+ * one with the error bound. The tiles of the same Chunks are compared. The
+ * exit code is 1 if more than the allowed share of the tiles changed. The
+ * scratch worlds (only the seeds files) are deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * CoarseGenerationCheck [error] [allowed %] [chunks per side]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class CoarseGenerationCheck {
+
+	private static final String EXACT_NAME = "_coarse_generation_check_exact",
+			COARSE_NAME = "_coarse_generation_check_coarse";
+
+	private static final int ROUNDS = 5;
+
+	/**
+	 * @param args [error] [allowed %] [chunks per side]
+	 */
+	public static void main(String[] args) {
+
+		double error = (args.length > 0) ? Double.parseDouble(args[0])
+				: MapGenerator.NEW_WORLD_LOW_FREQUENCY_ERROR;
+		double allowedPercent = (args.length > 1) ? Double.parseDouble(args[1])
+				: 0.5;
+		int side = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+
+		File exactDir = new File(State.SAVEFILE_DIR + "/" + EXACT_NAME);
+		File coarseDir = new File(State.SAVEFILE_DIR + "/" + COARSE_NAME);
+
+		deleteDir(exactDir);
+		deleteDir(coarseDir);
+
+		Handler handler = new Handler(new Game());
+
+		MapGenerator exact = new MapGenerator(handler, EXACT_NAME, 1, 2, 0);
+		MapGenerator coarse = new MapGenerator(handler, COARSE_NAME, 1, 2, error);
+
+		long changed = 0, total = 0;
+
+		for (int y = 0; y < side; y++) {
+			for (int x = 0; x < side; x++) {
+
+				ChunkGenResult exactResult = exact.generate(x - side / 2, y - side / 2,
+						World.DIMENSION_WORLD, false);
+				ChunkGenResult coarseResult = coarse.generate(x - side / 2,
+						y - side / 2, World.DIMENSION_WORLD, false);
+
+				for (int yy = 0; yy < Chunk.SIZE; yy++) {
+					for (int xx = 0; xx < Chunk.SIZE; xx++) {
+
+						total++;
+
+						if (exactResult.getTileId(xx, yy) != coarseResult.getTileId(xx, yy))
+							changed++;
+
+					}
+				}
+			}
+		}
+
+		// the best round of each, on Chunks not generated yet
+		long exactNanos = Long.MAX_VALUE, coarseNanos = Long.MAX_VALUE;
+		int chunks = side * side;
+
+		for (int round = 1; round <= ROUNDS; round++) {
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < chunks; i++)
+				exact.generate(i % side, i / side + round * side,
+						World.DIMENSION_WORLD, false);
+
+			exactNanos = Math.min(exactNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+
+			for (int i = 0; i < chunks; i++)
+				coarse.generate(i % side, i / side + round * side,
+						World.DIMENSION_WORLD, false);
+
+			coarseNanos = Math.min(coarseNanos, System.nanoTime() - start);
+
+		}
+
+		double percent = 100.0 * changed / total;
+
+		System.out.println("[CoarseGenerationCheck] error " + error + ", "
+				+ changed + " of " + total + " tiles changed biome ("
+				+ String.format("%.3f", percent) + "%, allowed " + allowedPercent
+				+ "%)");
+		System.out.println(String.format(
+				"[CoarseGenerationCheck] every tile %.1f us/Chunk, coarse %.1f us/Chunk, %.1fx",
+				exactNanos / 1e3 / chunks, coarseNanos / 1e3 / chunks,
+				exactNanos / (double) Math.max(coarseNanos, 1)));
+
+		deleteDir(exactDir);
+		deleteDir(coarseDir);
+
+		if (percent > allowedPercent)
+			System.exit(1);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
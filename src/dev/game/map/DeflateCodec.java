@@ -0,0 +1,151 @@
+package dev.game.map;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DeflateCodec.java - Compresses the bytes of another codec with
+ * {@linkplain Deflater}.
+ * <p>
+ * Format: the length of the uncompressed bytes (4 bytes), then the compressed
+ * bytes.
+ *
+ * @author Juhyung Kim
+ */
+public class DeflateCodec implements ChunkCodec {
+
+	private final ChunkCodec codec;
+
+	private final int id;
+	private final String name;
+
+	private final int level;
+
+	/**
+	 * Each thread keeps its own, they are slow to make
+	 */
+	private final ThreadLocal<Deflater> deflaters;
+	private final ThreadLocal<Inflater> inflaters;
+
+	/**
+	 * @param codec the codec whose bytes are compressed
+	 * @param id    see {@linkplain ChunkCodec#getId()}
+	 * @param name  see {@linkplain ChunkCodec#getName()}
+	 * @param level {@linkplain Deflater} compression level
+	 */
+	public DeflateCodec(ChunkCodec codec, int id, String name, int level) {
+
+		this.codec = codec;
+		this.id = id;
+		this.name = name;
+		this.level = level;
+
+		this.deflaters = new ThreadLocal<Deflater>() {
+
+			@Override
+			protected Deflater initialValue() {
+
+				return new Deflater(DeflateCodec.this.level, true);
+
+			}
+
+		};
+
+		this.inflaters = new ThreadLocal<Inflater>() {
+
+			@Override
+			protected Inflater initialValue() {
+
+				return new Inflater(true);
+
+			}
+
+		};
+
+	}
+
+	@Override
+	public int getId() {
+
+		return id;
+	}
+
+	@Override
+	public String getName() {
+
+		return name;
+	}
+
+	@Override
+	public byte[] encode(List<int[]> entities, List<int[]> items, int chunkX,
+			int chunkY) {
+
+		byte[] data = codec.encode(entities, items, chunkX, chunkY);
+
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+
+		// incompressible data grows a little
+		byte[] out = new byte[4 + data.length + data.length / 16 + 64];
+
+		ByteBuffer.wrap(out).putInt(data.length);
+
+		int length = 4;
+
+		while (!deflater.finished()) {
+
+			if (length == out.length)
+				out = Arrays.copyOf(out, out.length * 2);
+
+			length += deflater.deflate(out, length, out.length - length);
+
+		}
+
+		return Arrays.copyOf(out, length);
+
+	}
+
+	@Override
+	public void decode(ByteBuffer buffer, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY) {
+
+		byte[] data = new byte[buffer.getInt()];
+
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+
+		byte[] input = new byte[buffer.remaining()];
+		buffer.get(input);
+
+		inflater.setInput(input);
+
+		try {
+
+			int length = 0;
+
+			while (length < data.length) {
+
+				int read = inflater.inflate(data, length, data.length - length);
+
+				if (read == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new DataFormatException("Chunk data is cut short");
+
+				length += read;
+
+			}
+
+		} catch (DataFormatException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		codec.decode(ByteBuffer.wrap(data), entities, items, chunkX, chunkY);
+
+	}
+
+}
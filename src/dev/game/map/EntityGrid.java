@@ -0,0 +1,451 @@
+package dev.game.map;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+import dev.game.entities.Entity;
+import dev.game.tiles.Tile;
+
+/**
+ * EntityGrid.java - The entities of the loaded Chunks by where they are, so
+ * the entities near a tile are found without going through every entity (see
+ * {@linkplain Entity#isCollidedWithEntity(float, float)}).
+ * <p>
+ * The entities are kept in cells of {@linkplain #CELL_SIZE} blocks by their
+ * center tile ({@linkplain Entity#getCenterX()}). The cells wrap around every
+ * {@linkplain #CELLS} cells, which is more than the loaded Chunks usually
+ * cover, so a cell is found with a mask instead of a hash table. The Chunks
+ * keep it up to date as the entities are added, removed and moved (see
+ * {@linkplain Chunk#entityMoved(Entity)}).
+ * <p>
+ * Each cell also keeps the entities by their id, so looking for one kind of
+ * entity only goes through that kind. The queries by area
+ * ({@linkplain #visitInArea(Rectangle, int, Visitor)}), by distance
+ * ({@linkplain #visitNear(int, int, int, int, Visitor)}) and for the nearest
+ * one ({@linkplain #getNearest(int, int, int, int, Entity)}) only go through
+ * the cells they cover, and make nothing new.
+ *
+ * @author Juhyung Kim
+ */
+public class EntityGrid {
+
+	/**
+	 * Gets the entities found by a query, one at a time.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Do not add, remove or move the entities in here.
+		 *
+		 * @param entity
+		 * @return false to stop the query, true to carry on
+		 */
+		boolean visit(Entity entity);
+
+	}
+
+	/**
+	 * Size of a cell, in block
+	 */
+	public static final int CELL_SIZE = 4;
+
+	/**
+	 * Cells on each side before they wrap around
+	 */
+	private static final int CELLS = 64;
+
+	private static final int MASK = CELLS - 1;
+
+	/**
+	 * [(cellY & MASK) * CELLS + (cellX & MASK)]
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final ArrayList<Entity>[] cells = new ArrayList[CELLS * CELLS];
+
+	/**
+	 * The entities of each id, [cell][entityId]. The array of a cell is made
+	 * when the first entity gets in the cell, and the list of an id when the
+	 * first entity of the id does
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final ArrayList<Entity>[][] typeCells = new ArrayList[CELLS * CELLS][];
+
+	private int count;
+
+	/**
+	 * The bounds of an entity reach this far from its center tile, in block.
+	 * Only grows
+	 */
+	private int reach = 1;
+
+	EntityGrid() {
+
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = new ArrayList<>();
+
+	}
+
+	/**
+	 * Add the entity, or move it to the right cell if it's added already.
+	 *
+	 * @param entity
+	 */
+	void add(Entity entity) {
+
+		if (entity.getGridCell() != -1) {
+
+			move(entity);
+			return;
+
+		}
+
+		int cell = getCell(entity);
+
+		cells[cell].add(entity);
+		getTypeCell(entity.getEntityID(), cell).add(entity);
+		entity.setGridCell(cell);
+		count++;
+
+		updateReach(entity);
+
+	}
+
+	/**
+	 * @param entity nothing is done if it's not in the grid
+	 */
+	void remove(Entity entity) {
+
+		if (entity.getGridCell() == -1)
+			return;
+
+		cells[entity.getGridCell()].remove(entity);
+		getCell(entity.getGridCell(), entity.getEntityID()).remove(entity);
+		entity.setGridCell(-1);
+		count--;
+
+	}
+
+	/**
+	 * Move the entity to the cell of its center tile now.
+	 *
+	 * @param entity nothing is done if it's not in the grid
+	 */
+	void move(Entity entity) {
+
+		int old = entity.getGridCell();
+
+		if (old == -1)
+			return;
+
+		// the bounds may have changed too
+		updateReach(entity);
+
+		int cell = getCell(entity);
+
+		if (cell == old)
+			return;
+
+		cells[old].remove(entity);
+		cells[cell].add(entity);
+		getCell(old, entity.getEntityID()).remove(entity);
+		getTypeCell(entity.getEntityID(), cell).add(entity);
+		entity.setGridCell(cell);
+
+	}
+
+	/**
+	 * Visit the entities with the bounds intersecting the area (see
+	 * {@linkplain Entity#intersects(Rectangle)}).
+	 *
+	 * @param area     in pixel, a few Chunks at most
+	 * @param entityId only the entities of the id, or
+	 *                 {@linkplain Entity#CHECK_ALL_ENTITIES}
+	 * @param visitor
+	 * @return true if the visitor stopped the query
+	 */
+	public boolean visitInArea(Rectangle area, int entityId, Visitor visitor) {
+
+		if (area.width <= 0 || area.height <= 0)
+			return false;
+
+		int left = Math.floorDiv(area.x, Tile.TILE_SIZE) - reach;
+		int top = Math.floorDiv(area.y, Tile.TILE_SIZE) - reach;
+		int right = Math.floorDiv(area.x + area.width - 1, Tile.TILE_SIZE) + reach;
+		int bottom = Math.floorDiv(area.y + area.height - 1, Tile.TILE_SIZE)
+				+ reach;
+
+		for (int cy = Math.floorDiv(top, CELL_SIZE); cy <= Math.floorDiv(bottom,
+				CELL_SIZE); cy++) {
+
+			for (int cx = Math.floorDiv(left, CELL_SIZE); cx <= Math.floorDiv(right,
+					CELL_SIZE); cx++) {
+
+				ArrayList<Entity> cell = getCell(cx, cy, entityId);
+
+				if (cell == null)
+					continue;
+
+				for (int i = 0; i < cell.size(); i++) {
+
+					Entity ent = cell.get(i);
+
+					// the cells that wrapped around have the far ones too
+					if (ent.getCenterX() < left || ent.getCenterX() > right
+							|| ent.getCenterY() < top || ent.getCenterY() > bottom)
+						continue;
+
+					if (!ent.intersects(area))
+						continue;
+
+					if (!visitor.visit(ent))
+						return true;
+
+				}
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Visit the entities with the center tile within the distance (the longer
+	 * way, see {@linkplain dev.game.utils.Utils#getDistance(int, int, int, int)}).
+	 *
+	 * @param x        in block
+	 * @param y        in block
+	 * @param distance in block, less than CELL_SIZE * CELLS / 2
+	 * @param entityId only the entities of the id, or
+	 *                 {@linkplain Entity#CHECK_ALL_ENTITIES}
+	 * @param visitor
+	 * @return true if the visitor stopped the query
+	 */
+	public boolean visitNear(int x, int y, int distance, int entityId,
+			Visitor visitor) {
+
+		for (int cy = Math.floorDiv(y - distance, CELL_SIZE); cy <= Math
+				.floorDiv(y + distance, CELL_SIZE); cy++) {
+
+			for (int cx = Math.floorDiv(x - distance, CELL_SIZE); cx <= Math
+					.floorDiv(x + distance, CELL_SIZE); cx++) {
+
+				ArrayList<Entity> cell = getCell(cx, cy, entityId);
+
+				if (cell == null)
+					continue;
+
+				for (int i = 0; i < cell.size(); i++) {
+
+					Entity ent = cell.get(i);
+
+					if (Math.abs(ent.getCenterX() - x) > distance
+							|| Math.abs(ent.getCenterY() - y) > distance)
+						continue;
+
+					if (!visitor.visit(ent))
+						return true;
+
+				}
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Find the nearest living entity of the id. The cells are checked from the
+	 * center out, and the search stops once the cells left are all farther than
+	 * the one found.
+	 *
+	 * @param x        in block
+	 * @param y        in block
+	 * @param distance in block, the longer way, less than CELL_SIZE * CELLS / 2
+	 * @param entityId only the entities of the id, or
+	 *                 {@linkplain Entity#CHECK_ALL_ENTITIES}
+	 * @param except   left out, null for none
+	 * @return the nearest one (the first of the loaded Chunks if more than one,
+	 *         see {@linkplain #isBefore(Entity, Entity)}), or null if none
+	 */
+	public Entity getNearest(int x, int y, int distance, int entityId,
+			Entity except) {
+
+		int centerX = Math.floorDiv(x, CELL_SIZE);
+		int centerY = Math.floorDiv(y, CELL_SIZE);
+
+		int rings = distance / CELL_SIZE + 1;
+
+		Entity nearest = null;
+		int best = distance;
+
+		for (int ring = 0; ring <= rings; ring++) {
+
+			// the tiles of this ring are this far at least
+			if (ring > 0 && (ring - 1) * CELL_SIZE + 1 > best)
+				break;
+
+			for (int cy = centerY - ring; cy <= centerY + ring; cy++) {
+
+				// only the edge of the ring, the inside is checked already
+				int step = (cy == centerY - ring || cy == centerY + ring) ? 1
+						: Math.max(ring * 2, 1);
+
+				for (int cx = centerX - ring; cx <= centerX + ring; cx += step) {
+
+					ArrayList<Entity> cell = getCell(cx, cy, entityId);
+
+					if (cell == null)
+						continue;
+
+					for (int i = 0; i < cell.size(); i++) {
+
+						Entity ent = cell.get(i);
+
+						if (ent == except || !ent.isAlive())
+							continue;
+
+						int dis = Math.max(Math.abs(ent.getCenterX() - x),
+								Math.abs(ent.getCenterY() - y));
+
+						if (dis > best)
+							continue;
+
+						if (nearest == null || dis < best || isBefore(ent, nearest)) {
+
+							nearest = ent;
+							best = dis;
+
+						}
+					}
+				}
+			}
+		}
+
+		return nearest;
+
+	}
+
+	/**
+	 * The order the entities are checked in when going through the loaded
+	 * Chunks ({@linkplain ChunkWindow#getChunks()}) and their entities. The
+	 * entities of a Chunk are in the order they were added, see
+	 * {@linkplain Entity#getChunkOrder()}.
+	 *
+	 * @param a in the grid
+	 * @param b in the grid
+	 * @return true if a comes before b
+	 */
+	public static boolean isBefore(Entity a, Entity b) {
+
+		Chunk chunkA = a.getChunk();
+		Chunk chunkB = b.getChunk();
+
+		// from the north-west to the south-east
+		if (chunkA != chunkB)
+			return (chunkA.y != chunkB.y) ? chunkA.y < chunkB.y : chunkA.x < chunkB.x;
+
+		return a.getChunkOrder() < b.getChunkOrder();
+
+	}
+
+	/**
+	 * @param entity
+	 * @return the cell of the center tile of the entity
+	 */
+	private static int getCell(Entity entity) {
+
+		int cellX = Math.floorDiv(entity.getCenterX(), CELL_SIZE);
+		int cellY = Math.floorDiv(entity.getCenterY(), CELL_SIZE);
+
+		return (cellY & MASK) * CELLS + (cellX & MASK);
+
+	}
+
+	/**
+	 * @param cellX
+	 * @param cellY
+	 * @param entityId or {@linkplain Entity#CHECK_ALL_ENTITIES}
+	 * @return the entities of the cell, null if none of the id was ever added
+	 */
+	private ArrayList<Entity> getCell(int cellX, int cellY, int entityId) {
+
+		return getCell((cellY & MASK) * CELLS + (cellX & MASK), entityId);
+
+	}
+
+	/**
+	 * @param cell
+	 * @param entityId or {@linkplain Entity#CHECK_ALL_ENTITIES}
+	 * @return the entities of the cell, null if none of the id was ever added
+	 *         to it
+	 */
+	private ArrayList<Entity> getCell(int cell, int entityId) {
+
+		if (entityId == Entity.CHECK_ALL_ENTITIES)
+			return cells[cell];
+
+		ArrayList<Entity>[] types = typeCells[cell];
+
+		if (types == null || entityId < 0 || entityId >= types.length)
+			return null;
+
+		return types[entityId];
+
+	}
+
+	/**
+	 * @param entityId
+	 * @param cell
+	 * @return the entities of the id in the cell, made if there's none yet
+	 */
+	private ArrayList<Entity> getTypeCell(int entityId, int cell) {
+
+		ArrayList<Entity>[] types = typeCells[cell];
+
+		if (types == null || entityId >= types.length) {
+
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			ArrayList<Entity>[] grown = new ArrayList[entityId + 1];
+
+			if (types != null)
+				System.arraycopy(types, 0, grown, 0, types.length);
+
+			types = grown;
+			typeCells[cell] = types;
+
+		}
+
+		if (types[entityId] == null)
+			types[entityId] = new ArrayList<>();
+
+		return types[entityId];
+
+	}
+
+	/**
+	 * Make sure the area queries reach the bounds of the entity.
+	 *
+	 * @param entity
+	 */
+	private void updateReach(Entity entity) {
+
+		Rectangle bounds = entity.getBounds(0, 0);
+
+		int entityReach = Math.max(bounds.width, bounds.height) / 2 / Tile.TILE_SIZE
+				+ 1;
+
+		if (entityReach > reach)
+			reach = entityReach;
+
+	}
+
+	/**
+	 * @return number of entities in the grid
+	 */
+	public int size() {
+
+		return count;
+
+	}
+
+}
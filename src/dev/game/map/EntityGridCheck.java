@@ -0,0 +1,280 @@
+package dev.game.map;
+
+import java.io.File;
+import java.util.Random;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.entities.creatures.Player;
+import dev.game.states.GameState;
+import dev.game.states.State;
+import dev.game.tiles.Tile;
+import dev.game.utils.Utils;
+import dev.game.worlds.World;
+
+/**
+ * EntityGridCheck.java - Checks that {@linkplain EntityGrid} finds the same
+ * collisions as going through every entity of the loaded Chunks, and times
+ * the game tick with many creatures.
+ * <p>
+ * For each number of creatures, a new scratch world is made with 5x5 Chunks
+ * loaded, and wolves and treants are put on the walkable tiles around the
+ * player. The world is ticked, and every few ticks
+ * {@linkplain Entity#isCollidedWithEntity(float, float)} of every entity is
+ * compared with the loop the game used before the grid, at a few offsets.
+ * Every entity has to be found in its cell, by itself and by its id, and the
+ * grid has to hold as many entities as the Chunks. The exit code is 1 if
+ * anything does not match. The scratch worlds are deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * EntityGridCheck [ticks] [creatures...]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class EntityGridCheck {
+
+	private static final String WORLD_NAME = "_entity_grid_check";
+
+	private static final int WARMUP_TICKS = 20;
+
+	/**
+	 * The collisions are compared every this many ticks
+	 */
+	private static final int CHECK_EVERY = 10;
+
+	// in pixel
+	private static final float[][] OFFSETS = { { 0, 0 }, { 4, 0 }, { -4, 0 },
+			{ 0, 4 }, { 0, -4 }, { 24, 0 }, { 0, -24 }, { -40, 40 } };
+
+	private static int mismatches = 0;
+
+	/**
+	 * @param args [ticks] [creatures...]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int ticks = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+
+		int[] counts = { 500, 1000, 2000 };
+
+		if (args.length > 1) {
+
+			counts = new int[args.length - 1];
+
+			for (int i = 1; i < args.length; i++)
+				counts[i - 1] = Integer.parseInt(args[i]);
+
+		}
+
+		Handler handler = new Game().initHeadless();
+
+		World.setViewDistance(2);
+
+		for (int count : counts) {
+
+			String worldName = WORLD_NAME + count;
+
+			File scratchDir = new File(State.SAVEFILE_DIR + "/" + worldName);
+			deleteDir(scratchDir);
+
+			World world = new World(handler,
+					new MapGenerator(handler, worldName, 1, 2));
+			handler.setWorld(world);
+			handler.getGame().gameState = new GameState(handler, world);
+
+			Player player = world.getEntityManager().getPlayer();
+			player.setMaxHealth(Integer.MAX_VALUE / 2);
+
+			for (int i = 0; i < 100; i++)
+				world.tick();
+
+			Random random = new Random(7);
+
+			int playerX = player.getCenterX(), playerY = player.getCenterY();
+			int added = 0;
+
+			for (int tries = 0; added < count && tries < count * 100; tries++) {
+
+				int x = playerX - 22 + random.nextInt(45);
+				int y = playerY - 18 + random.nextInt(37);
+
+				if (!World.isWalkable(x, y))
+					continue;
+
+				int id = (random.nextInt(3) == 0) ? EntityId.TREANT : EntityId.WOLF;
+
+				EntityManager.addEntity(EntityManager.getEntityById(id,
+						x * Tile.TILE_SIZE + random.nextInt(32),
+						y * Tile.TILE_SIZE + random.nextInt(32)));
+				added++;
+
+			}
+
+			long tickNanos = 0, worst = 0, calls = 0, hits = 0;
+
+			for (int tick = -WARMUP_TICKS; tick < ticks; tick++) {
+
+				player.setHealth(player.getMaxHealth());
+
+				long start = System.nanoTime();
+
+				world.tick();
+
+				long time = System.nanoTime() - start;
+
+				if (tick < 0)
+					continue;
+
+				tickNanos += time;
+				worst = Math.max(worst, time);
+
+				if (tick % CHECK_EVERY != 0)
+					continue;
+
+				int entities = 0;
+
+				for (Chunk chunk : World.getChunks()) {
+
+					for (Entity entity : chunk.entities) {
+
+						entities++;
+
+						checkCell(entity);
+
+						for (float[] offset : OFFSETS) {
+
+							Entity expected = getCollided(entity, offset[0], offset[1]);
+							Entity found = entity.isCollidedWithEntity(offset[0], offset[1]);
+
+							calls++;
+
+							if (expected != null)
+								hits++;
+
+							if (found != expected)
+								fail("tick " + tick + ": " + entity + " at " + offset[0] + ","
+										+ offset[1] + " collided with " + found + " instead of "
+										+ expected);
+
+						}
+					}
+				}
+
+				if (World.getEntityGrid().size() != entities)
+					fail("tick " + tick + ": the grid has "
+							+ World.getEntityGrid().size() + " entities, the Chunks "
+							+ entities);
+
+			}
+
+			System.out.println(String.format(
+					"[EntityGridCheck] %d creatures: tick mean %.2f ms, worst %.1f ms, %d calls compared, %d collided",
+					added, tickNanos / 1e6 / ticks, worst / 1e6, calls, hits));
+
+			world.getChunkLoader().shutdown();
+			ChunkCache.clear();
+			ChunkSaveQueue.flush();
+			RegionFile.closeAll();
+			deleteDir(scratchDir);
+
+		}
+
+		System.out.println("[EntityGridCheck] " + mismatches + " mismatches");
+
+		System.exit((mismatches > 0) ? 1 : 0);
+
+	}
+
+	/**
+	 * The loop {@linkplain Entity#isCollidedWithEntity(float, float)} used
+	 * before the grid.
+	 *
+	 * @param self
+	 * @param xOffset in pixel
+	 * @param yOffset in pixel
+	 * @return the first entity collided with, or null
+	 */
+	private static Entity getCollided(Entity self, float xOffset,
+			float yOffset) {
+
+		for (Chunk chunk : World.getChunks()) {
+
+			for (Entity ent : chunk.entities) {
+
+				if (ent.equals(self) || ent.getNoCollision())
+					continue;
+
+				if (Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
+						self.getCenterX(), self.getCenterY()) > 3)
+					continue;
+
+				if (ent.getBounds(0f, 0f).intersects(self.getBounds(xOffset, yOffset)))
+					return ent;
+
+			}
+		}
+
+		return null;
+
+	}
+
+	/**
+	 * The entity has to be in the cell of its center tile, with all the
+	 * entities and with the ones of its id.
+	 *
+	 * @param entity
+	 */
+	private static void checkCell(final Entity entity) {
+
+		EntityGrid.Visitor finder = new EntityGrid.Visitor() {
+
+			@Override
+			public boolean visit(Entity ent) {
+
+				return ent != entity;
+
+			}
+
+		};
+
+		EntityGrid grid = World.getEntityGrid();
+
+		if (!grid.visitNear(entity.getCenterX(), entity.getCenterY(), 0,
+				Entity.CHECK_ALL_ENTITIES, finder))
+			fail(entity + " is not in its cell");
+
+		if (!grid.visitNear(entity.getCenterX(), entity.getCenterY(), 0,
+				entity.getEntityID(), finder))
+			fail(entity + " is not in the cell of its id");
+
+	}
+
+	private static void fail(String message) {
+
+		System.out.println("[EntityGridCheck] " + message);
+
+		mismatches++;
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,491 @@
+package dev.game.map;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.Entity;
+import dev.game.entities.EntityId;
+import dev.game.entities.EntityManager;
+import dev.game.entities.creatures.Player;
+import dev.game.states.GameState;
+import dev.game.states.State;
+import dev.game.tiles.Tile;
+import dev.game.utils.Utils;
+import dev.game.worlds.World;
+
+/**
+ * EntityQueryCheck.java - Checks the queries of {@linkplain EntityGrid}
+ * against going through every entity of the loaded Chunks, and times both.
+ * <p>
+ * A scratch world is made with 5x5 Chunks loaded, and creatures of a few kinds
+ * are put around the player. Random queries by area, by distance and for the
+ * nearest one, for all the entities and for one id, have to find the same
+ * entities as the loop. An area query has to stop when the visitor says so,
+ * {@linkplain Entity#isOverlappedWithEntity(int)} has to match the loop it
+ * replaced, and {@linkplain Entity#isCollidedWithEntity(float, float)} called
+ * from inside a query must not change what the query visits. The exit code is
+ * 1 if anything does not match. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * EntityQueryCheck [creatures] [queries]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class EntityQueryCheck {
+
+	private static final String WORLD_NAME = "_entity_query_check";
+
+	// the creatures and the queries are this close to the player, in block
+	private static final int RANGE = 40;
+
+	private static final int[] CREATURE_IDS = { EntityId.WOLF, EntityId.TREANT,
+			EntityId.GOLEM, EntityId.PERSON };
+
+	private static final int[] QUERY_IDS = { Entity.CHECK_ALL_ENTITIES,
+			EntityId.WOLF, EntityId.TREANT, EntityId.GOLEM, EntityId.PERSON,
+			EntityId.PLAYER, EntityId.TREE, EntityId.STONE, EntityId.FIRE };
+
+	private static int mismatches = 0;
+
+	/**
+	 * A random query.
+	 */
+	private static class Query {
+
+		int entityId;
+		Rectangle area; // in pixel
+		int x, y, distance; // in block
+		Entity except, self;
+
+	}
+
+	/**
+	 * @param args [creatures] [queries]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		int queryCount = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+		deleteDir(scratchDir);
+
+		Handler handler = new Game().initHeadless();
+
+		World.setViewDistance(2);
+
+		World world = new World(handler,
+				new MapGenerator(handler, WORLD_NAME, 1, 2));
+		handler.setWorld(world);
+		handler.getGame().gameState = new GameState(handler, world);
+
+		Player player = world.getEntityManager().getPlayer();
+		player.setMaxHealth(Integer.MAX_VALUE / 2);
+
+		for (int i = 0; i < 100; i++)
+			world.tick();
+
+		Random random = new Random(7);
+
+		int playerX = player.getCenterX(), playerY = player.getCenterY();
+
+		for (int i = 0; i < count; i++) {
+
+			int x = playerX - RANGE + random.nextInt(RANGE * 2 + 1);
+			int y = playerY - RANGE + random.nextInt(RANGE * 2 + 1);
+
+			if (World.isWalkable(x, y))
+				EntityManager.addEntity(EntityManager.getEntityById(
+						CREATURE_IDS[random.nextInt(CREATURE_IDS.length)],
+						x * Tile.TILE_SIZE + random.nextInt(32),
+						y * Tile.TILE_SIZE + random.nextInt(32)));
+
+		}
+
+		for (int i = 0; i < 30; i++) {
+			player.setHealth(player.getMaxHealth());
+			world.tick();
+		}
+
+		EntityGrid grid = World.getEntityGrid();
+
+		List<Entity> all = new ArrayList<>();
+
+		for (Chunk chunk : World.getChunks())
+			all.addAll(chunk.entities);
+
+		if (grid.size() != all.size())
+			fail("the grid has " + grid.size() + " entities, the Chunks "
+					+ all.size());
+
+		Query[] queries = new Query[queryCount];
+
+		for (int i = 0; i < queryCount; i++) {
+
+			Query query = new Query();
+
+			query.entityId = QUERY_IDS[random.nextInt(QUERY_IDS.length)];
+			query.area = new Rectangle(
+					(playerX - RANGE + random.nextInt(RANGE * 2 + 1)) * Tile.TILE_SIZE
+							+ random.nextInt(Tile.TILE_SIZE) - Tile.TILE_SIZE / 2,
+					(playerY - RANGE + random.nextInt(RANGE * 2 + 1)) * Tile.TILE_SIZE
+							+ random.nextInt(Tile.TILE_SIZE) - Tile.TILE_SIZE / 2,
+					1 + random.nextInt(200), 1 + random.nextInt(200));
+			query.x = playerX - RANGE + random.nextInt(RANGE * 2 + 1);
+			query.y = playerY - RANGE + random.nextInt(RANGE * 2 + 1);
+			query.distance = random.nextInt(12);
+			query.except = all.get(random.nextInt(all.size()));
+			query.self = all.get(random.nextInt(all.size()));
+
+			queries[i] = query;
+
+		}
+
+		long areaHits = 0, nearHits = 0, nearestFound = 0;
+
+		for (Query query : queries) {
+
+			// by area
+			Set<Entity> expected = new HashSet<>();
+
+			for (Entity ent : all)
+				if (isOfId(ent, query.entityId)
+						&& query.area.intersects(ent.getBounds(0, 0)))
+					expected.add(ent);
+
+			List<Entity> found = collect(grid, query, true);
+
+			areaHits += expected.size();
+
+			if (found.size() != expected.size()
+					|| !expected.equals(new HashSet<>(found)))
+				fail("the area " + query.area + " found " + found.size()
+						+ " entities instead of " + expected.size());
+
+			if (expected.size() >= 2) {
+
+				final int[] visited = { 0 };
+
+				boolean stopped = grid.visitInArea(query.area, query.entityId,
+						new EntityGrid.Visitor() {
+
+							@Override
+							public boolean visit(Entity ent) {
+
+								return ++visited[0] < 2;
+
+							}
+
+						});
+
+				if (!stopped || visited[0] != 2)
+					fail("the area " + query.area + " did not stop at the second one");
+
+			}
+
+			// by distance
+			expected.clear();
+
+			for (Entity ent : all)
+				if (isOfId(ent, query.entityId)
+						&& Math.abs(ent.getCenterX() - query.x) <= query.distance
+						&& Math.abs(ent.getCenterY() - query.y) <= query.distance)
+					expected.add(ent);
+
+			found = collect(grid, query, false);
+
+			nearHits += expected.size();
+
+			if (found.size() != expected.size()
+					|| !expected.equals(new HashSet<>(found)))
+				fail("near " + query.x + "," + query.y + " found " + found.size()
+						+ " entities instead of " + expected.size());
+
+			// the nearest
+			Entity nearest = getNearest(all, query);
+
+			if (nearest != null)
+				nearestFound++;
+
+			if (grid.getNearest(query.x, query.y, query.distance, query.entityId,
+					query.except) != nearest)
+				fail("the nearest to " + query.x + "," + query.y + " is not "
+						+ nearest);
+
+			// overlapped
+			if (query.self.isOverlappedWithEntity(query.entityId) != isOverlapped(
+					all, query.self, query.entityId))
+				fail(query.self + " overlapped with " + query.entityId
+						+ " the other way");
+
+		}
+
+		checkNested(grid, all);
+
+		// the last round counts, the JIT is warm then
+		long gridNanos = 0, loopNanos = 0;
+		int sink = 0;
+
+		for (int round = 0; round < 3; round++) {
+
+			long start = System.nanoTime();
+
+			for (Query query : queries) {
+
+				sink += collect(grid, query, true).size();
+				sink += collect(grid, query, false).size();
+
+				if (grid.getNearest(query.x, query.y, query.distance, query.entityId,
+						query.except) != null)
+					sink++;
+
+			}
+
+			gridNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			for (Query query : queries) {
+
+				for (Entity ent : all) {
+
+					if (!isOfId(ent, query.entityId))
+						continue;
+
+					if (query.area.intersects(ent.getBounds(0, 0)))
+						sink++;
+
+					if (Math.abs(ent.getCenterX() - query.x) <= query.distance
+							&& Math.abs(ent.getCenterY() - query.y) <= query.distance)
+						sink++;
+
+				}
+
+				if (getNearest(all, query) != null)
+					sink++;
+
+			}
+
+			loopNanos = System.nanoTime() - start;
+
+		}
+
+		System.out.println(String.format(
+				"[EntityQueryCheck] %d entities, %d queries of each kind: %d in areas, %d near, %d nearest found",
+				all.size(), queryCount, areaHits, nearHits, nearestFound));
+		System.out.println(String.format(
+				"[EntityQueryCheck] area + near + nearest: grid %.2f us, every entity %.2f us (%d)",
+				gridNanos / 1e3 / queryCount, loopNanos / 1e3 / queryCount,
+				sink & 1));
+		System.out.println("[EntityQueryCheck] " + mismatches + " mismatches");
+
+		world.getChunkLoader().shutdown();
+		ChunkCache.clear();
+		ChunkSaveQueue.flush();
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		System.exit((mismatches > 0) ? 1 : 0);
+
+	}
+
+	/**
+	 * @param grid
+	 * @param query
+	 * @param area  true for the area, false for the distance
+	 * @return the entities visited
+	 */
+	private static List<Entity> collect(EntityGrid grid, Query query,
+			boolean area) {
+
+		final List<Entity> found = new ArrayList<>();
+
+		EntityGrid.Visitor visitor = new EntityGrid.Visitor() {
+
+			@Override
+			public boolean visit(Entity ent) {
+
+				found.add(ent);
+
+				return true;
+
+			}
+
+		};
+
+		if (area)
+			grid.visitInArea(query.area, query.entityId, visitor);
+		else
+			grid.visitNear(query.x, query.y, query.distance, query.entityId,
+					visitor);
+
+		return found;
+
+	}
+
+	/**
+	 * The queries inside a query must not change what it visits.
+	 *
+	 * @param grid
+	 * @param all
+	 */
+	private static void checkNested(EntityGrid grid, final List<Entity> all) {
+
+		for (int i = 0; i < all.size(); i += 50) {
+
+			final Entity center = all.get(i);
+
+			final List<Entity> visited = new ArrayList<>();
+
+			grid.visitNear(center.getCenterX(), center.getCenterY(), 3,
+					Entity.CHECK_ALL_ENTITIES, new EntityGrid.Visitor() {
+
+						@Override
+						public boolean visit(Entity ent) {
+
+							visited.add(ent);
+
+							if (ent.isCollidedWithEntity(0, 0) != getCollided(all, ent))
+								fail(ent + " collided with something else inside a query");
+
+							return true;
+
+						}
+
+					});
+
+			int expected = 0;
+
+			for (Entity ent : all)
+				if (Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
+						center.getCenterX(), center.getCenterY()) <= 3)
+					expected++;
+
+			if (visited.size() != expected)
+				fail("the query around " + center + " visited " + visited.size()
+						+ " entities instead of " + expected
+						+ " with the collisions checked inside");
+
+		}
+
+	}
+
+	private static boolean isOfId(Entity ent, int entityId) {
+
+		return entityId == Entity.CHECK_ALL_ENTITIES
+				|| ent.getEntityID() == entityId;
+
+	}
+
+	/**
+	 * @param all   in the order of the loaded Chunks
+	 * @param query
+	 * @return the first of the nearest living ones, or null
+	 */
+	private static Entity getNearest(List<Entity> all, Query query) {
+
+		Entity nearest = null;
+		int best = query.distance + 1;
+
+		for (Entity ent : all) {
+
+			if (ent == query.except || !ent.isAlive()
+					|| !isOfId(ent, query.entityId))
+				continue;
+
+			int distance = Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
+					query.x, query.y);
+
+			if (distance < best) {
+				best = distance;
+				nearest = ent;
+			}
+
+		}
+
+		return nearest;
+
+	}
+
+	/**
+	 * The loop {@linkplain Entity#isOverlappedWithEntity(int)} used before the
+	 * grid.
+	 */
+	private static boolean isOverlapped(List<Entity> all, Entity self,
+			int entityId) {
+
+		for (Entity ent : all) {
+
+			if (ent.equals(self) || !isOfId(ent, entityId))
+				continue;
+
+			if (Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
+					self.getCenterX(), self.getCenterY()) > 5)
+				continue;
+
+			if (ent.getBounds(0f, 0f).intersects(self.getBounds(0, 0)))
+				return true;
+
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * The loop {@linkplain Entity#isCollidedWithEntity(float, float)} used
+	 * before the grid, with no offset.
+	 */
+	private static Entity getCollided(List<Entity> all, Entity self) {
+
+		for (Entity ent : all) {
+
+			if (ent.equals(self) || ent.getNoCollision())
+				continue;
+
+			if (Utils.getDistance(ent.getCenterX(), ent.getCenterY(),
+					self.getCenterX(), self.getCenterY()) > 3)
+				continue;
+
+			if (ent.getBounds(0f, 0f).intersects(self.getBounds(0, 0)))
+				return ent;
+
+		}
+
+		return null;
+
+	}
+
+	private static void fail(String message) {
+
+		System.out.println("[EntityQueryCheck] " + message);
+
+		mismatches++;
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,148 @@
+package dev.game.map;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * GenerationDeterminismCheck.java - Checks that
+ * {@linkplain MapGenerator#generate(int, int, int)} gives the same Chunks no
+ * matter how many threads share the generator.
+ * <p>
+ * The Chunks around (0, 0) of both dimensions are generated one by one in this
+ * thread, then again by a pool of threads in the opposite order. Every
+ * {@linkplain ChunkGenResult} has to be equal, the exit code is 1 if one is
+ * not. The scratch world (only the seeds file) is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * GenerationDeterminismCheck [radius] [threads]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class GenerationDeterminismCheck {
+
+	private static final String WORLD_NAME = "_generation_determinism_check";
+
+	private static final int[] DIMENSIONS = { World.DIMENSION_WORLD,
+			World.DIMENSION_CAVE };
+
+	/**
+	 * @param args [radius] [threads]
+	 */
+	public static void main(String[] args)
+			throws InterruptedException, ExecutionException {
+
+		int radius = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+
+		Handler handler = new Handler(new Game());
+
+		final MapGenerator generator = new MapGenerator(handler, WORLD_NAME, 1, 2);
+
+		// {x, y, dimension}
+		List<int[]> chunks = new ArrayList<>();
+
+		for (int dimension : DIMENSIONS)
+			for (int y = -radius; y <= radius; y++)
+				for (int x = -radius; x <= radius; x++)
+					chunks.add(new int[] { x, y, dimension });
+
+		long start = System.nanoTime();
+
+		List<ChunkGenResult> expected = new ArrayList<>(chunks.size());
+
+		for (int[] chunk : chunks)
+			expected.add(generator.generate(chunk[0], chunk[1], chunk[2]));
+
+		long singleNanos = System.nanoTime() - start;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		List<Future<ChunkGenResult>> futures = new ArrayList<>(chunks.size());
+
+		for (int i = 0; i < chunks.size(); i++)
+			futures.add(null);
+
+		start = System.nanoTime();
+
+		// the opposite order, so the threads don't follow the first run
+		for (int i = chunks.size() - 1; i >= 0; i--) {
+
+			final int[] chunk = chunks.get(i);
+
+			futures.set(i, pool.submit(new Callable<ChunkGenResult>() {
+
+				@Override
+				public ChunkGenResult call() {
+
+					return generator.generate(chunk[0], chunk[1], chunk[2]);
+
+				}
+
+			}));
+
+		}
+
+		int different = 0;
+
+		for (int i = 0; i < chunks.size(); i++) {
+
+			if (!expected.get(i).equals(futures.get(i).get())) {
+
+				int[] chunk = chunks.get(i);
+
+				System.out.println("[GenerationDeterminismCheck] different: " + chunk[0]
+						+ "," + chunk[1] + " dimension " + chunk[2]);
+
+				different++;
+
+			}
+
+		}
+
+		long poolNanos = System.nanoTime() - start;
+
+		pool.shutdown();
+
+		System.out.println("[GenerationDeterminismCheck] " + chunks.size()
+				+ " Chunks, 1 thread " + String.format("%.1f", singleNanos / 1e6)
+				+ " ms, " + threads + " threads "
+				+ String.format("%.1f", poolNanos / 1e6) + " ms, " + different
+				+ " different");
+
+		deleteDir(scratchDir);
+
+		if (different > 0)
+			System.exit(1);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
@@ -19,6 +19,16 @@ public class MapGenManager {
 
 	private World world = null;
 
+	/**
+	 * The player position in the last tick, in pixel. For the prefetch
+	 * direction.
+	 */
+	private float lastPlayerX, lastPlayerY;
+
+	// border crossing stats, in nanoseconds
+	private long crossingCount, lastCrossingTime, worstCrossingTime,
+			totalCrossingTime;
+
 	public MapGenManager(Handler handler, String worldName) {
 
 		this.handler = handler;
@@ -34,36 +44,113 @@ public class MapGenManager {
 
 			player = world.getEntityManager().getPlayer();
 
+			lastPlayerX = player.getX();
+			lastPlayerY = player.getY();
+
 		}
 
-		updateChunks();
+		long start = System.nanoTime();
+
+		boolean crossed = updateChunks();
 		generateChunks();
+		prefetchChunks();
+
+		if (crossed) {
+
+			long time = System.nanoTime() - start;
+
+			crossingCount++;
+			lastCrossingTime = time;
+			totalCrossingTime += time;
+			worstCrossingTime = Math.max(worstCrossingTime, time);
+
+		}
+
+	}
+
+	/**
+	 * Start loading the Chunks just outside of World.map, on the side the player
+	 * is moving to. They are usually ready by the time the player crosses the
+	 * border.
+	 */
+	private void prefetchChunks() {
+
+		ChunkWindow window = World.map;
+
+		int centerX = window.getCenterX();
+		int centerY = window.getCenterY();
+		int radius = window.radius;
+
+		ChunkLoader loader = world.getChunkLoader();
+		int dimension = world.getDimension();
+
+		// -1, 0 or 1
+		int dx = (int) Math.signum(player.getX() - lastPlayerX);
+		int dy = (int) Math.signum(player.getY() - lastPlayerY);
+
+		lastPlayerX = player.getX();
+		lastPlayerY = player.getY();
+
+		// one Chunk past the window
+		int ahead = radius + 1;
+
+		// forget the Chunks that the player have moved away from. One more
+		// Chunk is kept, so the prefetched Chunks are not thrown away and loaded
+		// again when the player goes back and forth over a border
+		int keep = ahead + 1;
+
+		loader.retain(centerX - keep, centerY - keep, centerX + keep,
+				centerY + keep, dimension);
+
+		if (dx != 0) {
+
+			int newX = centerX + dx * ahead;
+
+			for (int y = -radius; y <= radius; y++)
+				loader.request(newX, centerY + y, dimension);
+
+		}
+
+		if (dy != 0) {
+
+			int newY = centerY + dy * ahead;
+
+			for (int x = -radius; x <= radius; x++)
+				loader.request(centerX + x, newY, dimension);
+
+		}
+
+		// moving diagonally
+		if (dx != 0 && dy != 0)
+			loader.request(centerX + dx * ahead, centerY + dy * ahead, dimension);
 
 	}
 
 	/**
-	 * Fill in the empty spot in World.map made by {@linkplain #updateChunk()}
+	 * Fill in the empty spots in World.map made by {@linkplain #updateChunks()}
 	 * method.
+	 * <p>
+	 * The Chunks are loaded by {@linkplain ChunkLoader}, the spot stays empty
+	 * until the Chunk is ready.
 	 */
 	private void generateChunks() {
 
-		Chunk centerChunk = World.map[1][1];
-
-		// if there are any empty spot in the 3*3 map, fill it in
-		for (int y = 0; y < World.map.length; y++) {
+		ChunkWindow window = World.map;
 
-			for (int x = 0; x < World.map[0].length; x++) {
+		int centerX = window.getCenterX();
+		int centerY = window.getCenterY();
+		int radius = window.radius;
 
-				if (World.map[y][x] == null) {
+		// if there are any empty spot in the map, fill it in
+		for (int y = centerY - radius; y <= centerY + radius; y++) {
 
-					int newChunkX = centerChunk.x + (x - 1);
-					int newChunkY = centerChunk.y + (y - 1);
+			for (int x = centerX - radius; x <= centerX + radius; x++) {
 
-					// check from file or create one
-					Chunk newChunk = Chunk.getNewChunk(newChunkX, newChunkY,
-							WORLD_NAME, world.getDimension());
+				if (window.get(x, y) == null) {
 
-					World.map[y][x] = newChunk;
+					// check from file or create one, in background
+					window.put(world.getChunkLoader().poll(x, y,
+							world.getDimension()));
 
 				}
 			}
@@ -73,190 +160,42 @@ public class MapGenManager {
 	/**
 	 * Check the player's position and update the World.map (by removing the Chunks
 	 * that are not near player anymore)
+	 *
+	 * @return true if the player crossed the border of the center Chunk
 	 */
-	private void updateChunks() {
+	private boolean updateChunks() {
 
-		Chunk centerChunk = World.map[1][1];
+		Chunk centerChunk = World.map.getCenter();
 
 		// this should not happen
 		if (centerChunk == null)
-			return;
-
-		boolean north = centerChunk.isAwayNorth(player);
-		boolean south = centerChunk.isAwaySouth(player);
-		boolean east = centerChunk.isAwayEast(player);
-		boolean west = centerChunk.isAwayWest(player);
-
-		// check the player's position to update the surrounding Chunks
-		// checking clockwise
-		if (north) {
-
-			// save the Chunks that are not going to be part
-			// of the map anymore (south row)
-			if (World.map[2][2] != null)
-				World.map[2][2].saveInFile();
-			if (World.map[2][1] != null)
-				World.map[2][1].saveInFile();
-			if (World.map[2][0] != null)
-				World.map[2][0].saveInFile();
-
-			// east to south-east
-			if (World.map[1][2] != null) {
-				World.map[2][2] = World.map[1][2];
-			}
-			// center to south
-			if (World.map[1][1] != null) {
-				World.map[2][1] = World.map[1][1];
-			}
-			// west to south-west
-			if (World.map[1][0] != null) {
-				World.map[2][0] = World.map[1][0];
-			}
-			// north-east to east
-			if (World.map[0][2] != null) {
-				World.map[1][2] = World.map[0][2];
-			}
-			// north to center
-			if (World.map[0][1] != null) {
-				World.map[1][1] = World.map[0][1];
-			}
-			// north-west to east
-			if (World.map[0][0] != null) {
-				World.map[1][0] = World.map[0][0];
-			}
+			return false;
 
-			// removing the north row for the new row to generate
-			World.map[0][0] = null;
-			World.map[0][1] = null;
-			World.map[0][2] = null;
+		if (!centerChunk.isEntityOutOfChunk(player))
+			return false;
 
-		}
-		if (east) {
-
-			// save the Chunks that are not going to be part
-			// of the map anymore (west column)
-			if (World.map[0][0] != null)
-				World.map[0][0].saveInFile();
-			if (World.map[1][0] != null)
-				World.map[1][0].saveInFile();
-			if (World.map[2][0] != null)
-				World.map[2][0].saveInFile();
-
-			// north to north-west
-			if (World.map[0][1] != null) {
-				World.map[0][0] = World.map[0][1];
-			}
-			// north-east to north
-			if (World.map[0][2] != null) {
-				World.map[0][1] = World.map[0][2];
-			}
-			// center to west
-			if (World.map[1][1] != null) {
-				World.map[1][0] = World.map[1][1];
-			}
-			// east to center
-			if (World.map[1][2] != null) {
-				World.map[1][1] = World.map[1][2];
-			}
-			// south to south-west
-			if (World.map[2][1] != null) {
-				World.map[2][0] = World.map[2][1];
-			}
-			// south-east to south
-			if (World.map[2][2] != null) {
-				World.map[2][1] = World.map[2][2];
-			}
+		// the Chunks left behind are saved by the window
+		World.map.recenter(Chunk.blockToChunk(player.getCenterX()),
+				Chunk.blockToChunk(player.getCenterY()));
 
-			// removing the east column for the new column to generate
-			World.map[0][2] = null;
-			World.map[1][2] = null;
-			World.map[2][2] = null;
-
-		}
-		if (south) {
-
-			// save the Chunks that are not going to be part
-			// of the map anymore (north row)
-			if (World.map[0][0] != null)
-				World.map[0][0].saveInFile();
-			if (World.map[0][1] != null)
-				World.map[0][1].saveInFile();
-			if (World.map[0][2] != null)
-				World.map[0][2].saveInFile();
-
-			// east to north-east
-			if (World.map[1][2] != null) {
-				World.map[0][2] = World.map[1][2];
-			}
-			// center to north
-			if (World.map[1][1] != null) {
-				World.map[0][1] = World.map[1][1];
-			}
-			// west to north-west
-			if (World.map[1][0] != null) {
-				World.map[0][0] = World.map[1][0];
-			}
-			// south-east to east
-			if (World.map[2][2] != null) {
-				World.map[1][2] = World.map[2][2];
-			}
-			// south to center
-			if (World.map[2][1] != null) {
-				World.map[1][1] = World.map[2][1];
-			}
-			// south-west to east
-			if (World.map[2][0] != null) {
-				World.map[1][0] = World.map[2][0];
-			}
+		return true;
 
-			// removing the south row for the new row to generate
-			World.map[2][0] = null;
-			World.map[2][1] = null;
-			World.map[2][2] = null;
+	}
 
-		}
-		if (west) {
-
-			// save the Chunks that are not going to be part of
-			// the map anymore (east column)
-			if (World.map[0][2] != null)
-				World.map[0][2].saveInFile();
-			if (World.map[1][2] != null)
-				World.map[1][2].saveInFile();
-			if (World.map[2][2] != null)
-				World.map[2][2].saveInFile();
-
-			// north to north-east
-			if (World.map[0][1] != null) {
-				World.map[0][2] = World.map[0][1];
-			}
-			// north-east to north
-			if (World.map[0][0] != null) {
-				World.map[0][1] = World.map[0][0];
-			}
-			// center to east
-			if (World.map[1][1] != null) {
-				World.map[1][2] = World.map[1][1];
-			}
-			// west to center
-			if (World.map[1][0] != null) {
-				World.map[1][1] = World.map[1][0];
-			}
-			// south to south-east
-			if (World.map[2][1] != null) {
-				World.map[2][2] = World.map[2][1];
-			}
-			// south-west to south
-			if (World.map[2][0] != null) {
-				World.map[2][1] = World.map[2][0];
-			}
+	/**
+	 * One line summary of the time spent in {@linkplain #tick()} when the player
+	 * crossed a Chunk border, for the console.
+	 *
+	 * @return
+	 */
+	public String getCrossingStats() {
 
-			// removing the west column for the new column to generate
-			World.map[0][0] = null;
-			World.map[1][0] = null;
-			World.map[2][0] = null;
+		long average = (crossingCount == 0) ? 0 : totalCrossingTime / crossingCount;
 
-		}
+		return "[MapGenManager] crossings: " + crossingCount + ", last: "
+				+ String.format("%.3f", lastCrossingTime / 1e6) + "ms, average: "
+				+ String.format("%.3f", average / 1e6) + "ms, worst: "
+				+ String.format("%.3f", worstCrossingTime / 1e6) + "ms";
 
 	}
 
@@ -10,6 +10,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +22,7 @@ import dev.game.entities.EntityId;
 import dev.game.states.State;
 import dev.game.tiles.Tile;
 import dev.game.tiles.TileId;
+import dev.game.worlds.World;
 
 /**
  * MapGenerator.java - Generate a random map with size and seeds.
@@ -31,13 +33,81 @@ public class MapGenerator {
 
 	public static final int RANDOM_SEED = -1;
 
-	private Tile[][] map;
-	private boolean[][] worldEntityMap, caveEntityMap;
-	private int[][] worldEntityIdMap, caveEntityIdMap;
+	// octaves (frequency, weight) of the noises, in the order they are added
+	static final double[] ELEVATION_FREQUENCIES = { 1, 0.5, 0.1, 0.05, 0.01,
+			0.005, 0.001 };
+	static final double[] ELEVATION_WEIGHTS = { 0.05, 0.05, 0.2, 2, 7, 14, 18 };
+	static final double[] MOISTURE_FREQUENCIES = ELEVATION_FREQUENCIES;
+	static final double[] MOISTURE_WEIGHTS = { 0.1, 0.2, 1, 2, 7, 12, 16 };
+	private static final double[] CAVE_ELEVATION_FREQUENCIES = { 0.1, 0.05 };
+	private static final double[] CAVE_ELEVATION_WEIGHTS = { 2, 0.8 };
+	private static final double[] SPAWN_FREQUENCIES = { 1, 0.5 };
+	private static final double[] SPAWN_WEIGHTS = { 0.1, 0.1 };
+	private static final double[] GRASS_FREQUENCIES = { 1, 0.5, 0.01 };
+	private static final double[] GRASS_WEIGHTS = { 0.1, 0.1, 0.05 };
+
+	private static final int AREA = Chunk.SIZE * Chunk.SIZE;
+
+	// how much elevation and moisture get divided by, to be about -1 ~ 1
+	private static final double ELEVATION_SCALE = 32, MOISTURE_SCALE = 27.5;
+
+	/**
+	 * The error bound of the elevation and the moisture (-1 ~ 1) for the new
+	 * worlds. The octaves that barely change across a Chunk are sampled coarsely
+	 * and interpolated as long as they stay in the bound. 0 to sample every tile.
+	 * <p>
+	 * Each world keeps the value it's created with, in the seeds file.
+	 */
+	public static final double NEW_WORLD_LOW_FREQUENCY_ERROR = 0.01;
+
+	/**
+	 * How the new worlds save their Chunks. The worlds from before it was saved
+	 * take it too, the Chunks tell which codec they are written with.
+	 * <p>
+	 * Each world keeps the codec it's created with, in the seeds file.
+	 */
+	public static final ChunkCodec NEW_WORLD_CHUNK_CODEC = ChunkFormat.VARINT_DEFLATE;
+
+	/**
+	 * True to save the tiles with the Chunks, so a saved Chunk is not generated
+	 * again. Takes about 0.5 KB more per Chunk.
+	 * <p>
+	 * Each world keeps the value it's created with, in the seeds file.
+	 */
+	public static final boolean NEW_WORLD_SAVE_TILE_LAYERS = true;
+
+	/**
+	 * Increase this whenever the generated tiles change, so the saved tile layers
+	 * of the old generator are not used.
+	 */
+	public static final int GENERATOR_VERSION = 1;
+
 	private int elevationSeed, moistureSeed;
+
+	/**
+	 * See {@linkplain #NEW_WORLD_LOW_FREQUENCY_ERROR}
+	 */
+	private final double lowFrequencyError;
+
+	/**
+	 * See {@linkplain #NEW_WORLD_CHUNK_CODEC}
+	 */
+	private final ChunkCodec chunkCodec;
+
+	/**
+	 * See {@linkplain #NEW_WORLD_SAVE_TILE_LAYERS}
+	 */
+	private final boolean saveTileLayers;
+
+	/**
+	 * Sampling step of each octave, 1 for every tile
+	 */
+	private final int[] elevationSteps, moistureSteps;
 	private final String WORLD_NAME;
-	private SimplexNoise elevationNoise, moistureNoise, treeNoise, grassNoise,
-			caveNoise, stoneNoise;
+
+	// only read after the constructor, so the generator can be shared by threads
+	private final SimplexNoise elevationNoise, moistureNoise, treeNoise,
+			grassNoise, caveNoise, stoneNoise;
 	private Handler handler;
 
 	/**
@@ -50,11 +120,59 @@ public class MapGenerator {
 	 */
 	public MapGenerator(Handler handler, String worldName) {
 
+		this(handler, worldName, RANDOM_SEED, RANDOM_SEED);
+
+	}
+
+	/**
+	 * Generate a random map with specific size and specific seeds.
+	 * <p>
+	 * The seeds are only used for a new world, a world that exists keeps the
+	 * seeds in its seeds file. RANDOM_SEED for random.
+	 *
+	 * @param handler
+	 * @param worldName        name
+	 * @param newElevationSeed
+	 * @param newMoistureSeed
+	 */
+	public MapGenerator(Handler handler, String worldName, int newElevationSeed,
+			int newMoistureSeed) {
+
+		this(handler, worldName, newElevationSeed, newMoistureSeed,
+				NEW_WORLD_LOW_FREQUENCY_ERROR);
+
+	}
+
+	/**
+	 * Same as {@linkplain #MapGenerator(Handler, String, int, int)}, with the low
+	 * frequency error of a new world. For the tools that compare the errors.
+	 *
+	 * @param handler
+	 * @param worldName            name
+	 * @param newElevationSeed
+	 * @param newMoistureSeed
+	 * @param newLowFrequencyError see
+	 *                             {@linkplain #NEW_WORLD_LOW_FREQUENCY_ERROR}
+	 */
+	MapGenerator(Handler handler, String worldName, int newElevationSeed,
+			int newMoistureSeed, double newLowFrequencyError) {
+
 		this.WORLD_NAME = worldName;
 
 		int[] loadSeed = loadSeedsFromFile();
-		elevationSeed = loadSeed[0];
-		moistureSeed = loadSeed[1];
+		elevationSeed = (loadSeed[0] == RANDOM_SEED) ? newElevationSeed
+				: loadSeed[0];
+		moistureSeed = (loadSeed[1] == RANDOM_SEED) ? newMoistureSeed
+				: loadSeed[1];
+
+		lowFrequencyError = loadLowFrequencyErrorFromFile(newLowFrequencyError);
+		chunkCodec = loadChunkCodecFromFile();
+		saveTileLayers = loadSaveTileLayersFromFile();
+
+		elevationSteps = getCoarseSteps(ELEVATION_FREQUENCIES, ELEVATION_WEIGHTS,
+				ELEVATION_SCALE);
+		moistureSteps = getCoarseSteps(MOISTURE_FREQUENCIES, MOISTURE_WEIGHTS,
+				MOISTURE_SCALE);
 
 		this.handler = handler;
 
@@ -66,7 +184,6 @@ public class MapGenerator {
 				? new Random().nextInt(Integer.MAX_VALUE)
 				: moistureSeed;
 
-		map = new Tile[Chunk.SIZE][Chunk.SIZE];
 		elevationNoise = new SimplexNoise(this.elevationSeed);
 		moistureNoise = new SimplexNoise(this.moistureSeed);
 		treeNoise = new SimplexNoise((this.elevationSeed + this.moistureSeed) / 2);
@@ -82,105 +199,154 @@ public class MapGenerator {
 	}
 
 	/**
-	 * Map generation for Cave world
+	 * Generate the tiles and the entities of the Chunk.
+	 * <p>
+	 * Nothing is shared between the calls, so any number of threads can generate
+	 * at the same time.
 	 *
-	 * @param xPos
-	 * @param yPos
+	 * @param xPos      in chunk pos
+	 * @param yPos      in chunk pos
+	 * @param dimension World.DIMENSION_WORLD or World.DIMENSION_CAVE
 	 * @return
 	 */
-	public Tile[][] generateCaveMap(int xPos, int yPos) {
+	public ChunkGenResult generate(int xPos, int yPos, int dimension) {
 
-		xPos *= Chunk.SIZE;
-		yPos *= Chunk.SIZE;
+		return generate(xPos, yPos, dimension, true);
 
-		// reset
-		map = new Tile[Chunk.SIZE][Chunk.SIZE];
+	}
 
-		int yMax = yPos + Chunk.SIZE;
-		int xMax = xPos + Chunk.SIZE;
+	/**
+	 * Generate the tiles of the Chunk, and the entities if asked.
+	 * <p>
+	 * Nothing is shared between the calls, so any number of threads can generate
+	 * at the same time.
+	 *
+	 * @param xPos           in chunk pos
+	 * @param yPos           in chunk pos
+	 * @param dimension      World.DIMENSION_WORLD or World.DIMENSION_CAVE
+	 * @param spawnEntities  false to skip the entities (the Chunk file has them)
+	 * @return
+	 */
+	public ChunkGenResult generate(int xPos, int yPos, int dimension,
+			boolean spawnEntities) {
 
-		for (int y = yPos; y < yMax; y++) {
+		int[] tileIds = new int[Chunk.SIZE * Chunk.SIZE];
+		int[] spawnIds = null;
 
-			for (int x = xPos; x < xMax; x++) {
+		if (dimension == World.DIMENSION_WORLD) {
 
-				int arrayIndexX = (x - xPos);
-				int arrayIndexY = (y - yPos);
-
-				// various octaves
-				double elevation = 2 * elevationNoise.noise(0.1 * x, 0.1 * y)
-						+ 0.8 * elevationNoise.noise(0.05 * x, 0.05 * y);
+			generateWorldTiles(xPos, yPos, tileIds);
 
-				elevation = ((elevation < 0.3) ? TileId.GRAVEL : TileId.STONE);
+			if (spawnEntities) {
+				spawnIds = new int[Chunk.SIZE * Chunk.SIZE];
+				generateWorldEntities(xPos, yPos, tileIds, spawnIds);
+			}
 
-				map[arrayIndexY][arrayIndexX] = Tile.createNew((int) elevation, x,
-						y);
+		} else if (dimension == World.DIMENSION_CAVE) {
 
-				map[arrayIndexY][arrayIndexX].setHandler(handler);
+			generateCaveTiles(xPos, yPos, tileIds);
 
+			if (spawnEntities) {
+				spawnIds = new int[Chunk.SIZE * Chunk.SIZE];
+				generateCaveEntities(xPos, yPos, tileIds, spawnIds);
 			}
+
+		} else {
+
+			throw new Error("Dimension Id " + dimension + " does not exist!");
+
 		}
-		return map;
+
+		return new ChunkGenResult(xPos, yPos, dimension, tileIds, spawnIds);
 
 	}
 
 	/**
-	 * Generate the map using elevation noise and moisture noise. Also, generate the
-	 * tree map too (call generateTreeMap(int, int) for access).
+	 * Fill in the tile ids for the Cave world.
 	 *
-	 * @param xPos in block, left top corner of the chunk
-	 * @param yPos in block, left top corner of the chunk
-	 * @return map tile array
+	 * @param xPos    in chunk pos
+	 * @param yPos    in chunk pos
+	 * @param tileIds [localY * Chunk.SIZE + localX]
 	 */
-	public Tile[][] generateMap(int xPos, int yPos) {
+	private void generateCaveTiles(int xPos, int yPos, int[] tileIds) {
 
-		xPos *= Chunk.SIZE;
-		yPos *= Chunk.SIZE;
+		double[] elevation = new double[AREA];
 
-		// reset
-		map = new Tile[Chunk.SIZE][Chunk.SIZE];
+		// various octaves
+		elevationNoise.octaveGrid(elevation, Chunk.SIZE, Chunk.SIZE,
+				xPos * Chunk.SIZE, yPos * Chunk.SIZE, CAVE_ELEVATION_FREQUENCIES,
+				CAVE_ELEVATION_WEIGHTS);
 
-		int yMax = yPos + Chunk.SIZE;
-		int xMax = xPos + Chunk.SIZE;
+		for (int i = 0; i < AREA; i++)
+			tileIds[i] = ((elevation[i] < 0.3) ? TileId.GRAVEL : TileId.STONE);
 
-		for (int y = yPos; y < yMax; y++) {
+	}
 
-			for (int x = xPos; x < xMax; x++) {
+	/**
+	 * Fill in the tile ids using elevation noise and moisture noise.
+	 *
+	 * @param xPos    in chunk pos
+	 * @param yPos    in chunk pos
+	 * @param tileIds [localY * Chunk.SIZE + localX]
+	 */
+	private void generateWorldTiles(int xPos, int yPos, int[] tileIds) {
 
-				int arrayIndexX = (x - xPos);
-				int arrayIndexY = (y - yPos);
+		double[] elevation = new double[AREA];
+		double[] moisture = new double[AREA];
+
+		// various octaves, the whole Chunk at once
+		elevationNoise.octaveGrid(elevation, Chunk.SIZE, Chunk.SIZE,
+				xPos * Chunk.SIZE, yPos * Chunk.SIZE, ELEVATION_FREQUENCIES,
+				ELEVATION_WEIGHTS, elevationSteps);
+		moistureNoise.octaveGrid(moisture, Chunk.SIZE, Chunk.SIZE,
+				xPos * Chunk.SIZE, yPos * Chunk.SIZE, MOISTURE_FREQUENCIES,
+				MOISTURE_WEIGHTS, moistureSteps);
+
+		for (int i = 0; i < AREA; i++) {
+
+			tileIds[i] = getTileIdByBiome(elevation[i] / ELEVATION_SCALE,
+					moisture[i] / MOISTURE_SCALE);
 
-				// various octaves
-				double elevation = (0.05 * elevationNoise.noise(x, y)
-						+ 0.05 * elevationNoise.noise(0.5 * x, 0.5 * y)
-						+ 0.2 * elevationNoise.noise(0.1 * x, 0.1 * y)
-						+ 2 * elevationNoise.noise(0.05 * x, 0.05 * y)
-						+ 7 * elevationNoise.noise(0.01 * x, 0.01 * y)
-						+ 14 * elevationNoise.noise(0.005 * x, 0.005 * y)
-						+ 18 * elevationNoise.noise(0.001 * x, 0.001 * y));
-
-				// magic number
-				elevation /= 32;
-
-				// various octaves
-				double moisture = (0.1 * moistureNoise.noise(x, y)
-						+ 0.2 * moistureNoise.noise(0.5 * x, 0.5 * y)
-						+ 1 * moistureNoise.noise(0.1 * x, 0.1 * y)
-						+ 2 * moistureNoise.noise(0.05 * x, 0.05 * y)
-						+ 7 * moistureNoise.noise(0.01 * x, 0.01 * y)
-						+ 12 * moistureNoise.noise(0.005 * x, 0.005 * y)
-						+ 16 * moistureNoise.noise(0.001 * x, 0.001 * y));
-
-				// another magic number
-				moisture /= 27.5;
-
-				map[arrayIndexY][arrayIndexX] = Tile
-						.createNew(getTileIdByBiome(elevation, moisture), x, y);
-
-				map[arrayIndexY][arrayIndexX].setHandler(handler);
-			}
 		}
 
-		return map;
+	}
+
+	/**
+	 * Get the tile id of the world at the position, one tile at a time. Same
+	 * result as {@linkplain #generateWorldTiles(int, int, int[])} if every tile
+	 * is sampled (no low frequency error).
+	 *
+	 * @param x in block
+	 * @param y in block
+	 * @return
+	 */
+	private int getWorldTileId(int x, int y) {
+
+		// various octaves
+		double elevation = (0.05 * elevationNoise.noise(x, y)
+				+ 0.05 * elevationNoise.noise(0.5 * x, 0.5 * y)
+				+ 0.2 * elevationNoise.noise(0.1 * x, 0.1 * y)
+				+ 2 * elevationNoise.noise(0.05 * x, 0.05 * y)
+				+ 7 * elevationNoise.noise(0.01 * x, 0.01 * y)
+				+ 14 * elevationNoise.noise(0.005 * x, 0.005 * y)
+				+ 18 * elevationNoise.noise(0.001 * x, 0.001 * y));
+
+		// magic number
+		elevation /= 32;
+
+		// various octaves
+		double moisture = (0.1 * moistureNoise.noise(x, y)
+				+ 0.2 * moistureNoise.noise(0.5 * x, 0.5 * y)
+				+ 1 * moistureNoise.noise(0.1 * x, 0.1 * y)
+				+ 2 * moistureNoise.noise(0.05 * x, 0.05 * y)
+				+ 7 * moistureNoise.noise(0.01 * x, 0.01 * y)
+				+ 12 * moistureNoise.noise(0.005 * x, 0.005 * y)
+				+ 16 * moistureNoise.noise(0.001 * x, 0.001 * y));
+
+		// another magic number
+		moisture /= 27.5;
+
+		return getTileIdByBiome(elevation, moisture);
 
 	}
 
@@ -209,34 +375,7 @@ public class MapGenerator {
 				int arrayIndexX = (x - xPos);
 				int arrayIndexY = (y - yPos);
 
-				// various octaves
-				double elevation = (0.05 * elevationNoise.noise(x, y)
-						+ 0.05 * elevationNoise.noise(0.5 * x, 0.5 * y)
-						+ 0.2 * elevationNoise.noise(0.1 * x, 0.1 * y)
-						+ 2 * elevationNoise.noise(0.05 * x, 0.05 * y)
-						+ 7 * elevationNoise.noise(0.01 * x, 0.01 * y)
-						+ 14 * elevationNoise.noise(0.005 * x, 0.005 * y)
-						+ 18 * elevationNoise.noise(0.001 * x, 0.001 * y));
-
-				// magic number
-				elevation /= 32;
-
-				// various octaves
-				double moisture = (0.1 * moistureNoise.noise(x, y)
-						+ 0.2 * moistureNoise.noise(0.5 * x, 0.5 * y)
-						+ 1 * moistureNoise.noise(0.1 * x, 0.1 * y)
-						+ 2 * moistureNoise.noise(0.05 * x, 0.05 * y)
-						+ 7 * moistureNoise.noise(0.01 * x, 0.01 * y)
-						+ 12 * moistureNoise.noise(0.005 * x, 0.005 * y)
-						+ 16 * moistureNoise.noise(0.001 * x, 0.001 * y));
-
-				// another magic number
-				moisture /= 27.5;
-
-				theMap[arrayIndexY][arrayIndexX] = Tile
-						.createNew(getTileIdByBiome(elevation, moisture), x, y);
-
-				theMap[arrayIndexY][arrayIndexX].setHandler(handler);
+				theMap[arrayIndexY][arrayIndexX] = Tile.get(getWorldTileId(x, y));
 			}
 		}
 
@@ -245,82 +384,64 @@ public class MapGenerator {
 	}
 
 	/**
-	 * Generate map for the entities that should spawn in the world.
-	 * <p>
-	 * <b>Run this method AFTER the gererateMap(float, float)</b>
-	 * <p>
-	 * This should be called for getWorldEntityMap() and getWorldEntityIdMap()
+	 * Fill in the ids of the entities that should spawn in the world.
 	 *
-	 * @param xPos in chunk pos
-	 * @param yPos in chunk pos
+	 * @param xPos     in chunk pos
+	 * @param yPos     in chunk pos
+	 * @param tileIds  from {@linkplain #generateWorldTiles(int, int, int[])}
+	 * @param spawnIds [localY * Chunk.SIZE + localX], 0 for no spawn
 	 */
-	public void generateWorldEntitiesMap(int xPos, int yPos) {
+	private void generateWorldEntities(int xPos, int yPos, int[] tileIds,
+			int[] spawnIds) {
 
 		xPos *= Chunk.SIZE;
 		yPos *= Chunk.SIZE;
 
-		// reset
-		worldEntityMap = new boolean[Chunk.SIZE][Chunk.SIZE];
-		worldEntityIdMap = new int[Chunk.SIZE][Chunk.SIZE];
+		double[] cave = new double[AREA];
+		double[] tree = new double[AREA];
+		double[] grass = new double[AREA];
 
-		int yMax = yPos + Chunk.SIZE;
-		int xMax = xPos + Chunk.SIZE;
+		caveNoise.octaveGrid(cave, Chunk.SIZE, Chunk.SIZE, xPos, yPos,
+				SPAWN_FREQUENCIES, SPAWN_WEIGHTS);
+		treeNoise.octaveGrid(tree, Chunk.SIZE, Chunk.SIZE, xPos, yPos,
+				SPAWN_FREQUENCIES, SPAWN_WEIGHTS);
+		grassNoise.octaveGrid(grass, Chunk.SIZE, Chunk.SIZE, xPos, yPos,
+				GRASS_FREQUENCIES, GRASS_WEIGHTS);
 
 		// priority: cave, tree, grass
-		for (int y = yPos; y < yMax; y++) {
-
-			for (int x = xPos; x < xMax; x++) {
-
-				int arrayIndexX = x - xPos;
-				int arrayIndexY = y - yPos;
+		for (int arrayIndexY = 0; arrayIndexY < Chunk.SIZE; arrayIndexY++) {
 
-				double cave = (0.1 * caveNoise.noise(x, y)
-						+ 0.1 * caveNoise.noise(0.5 * x, 0.5 * y));
+			for (int arrayIndexX = 0; arrayIndexX < Chunk.SIZE; arrayIndexX++) {
 
-				cave /= (0.2);
+				int index = arrayIndexY * Chunk.SIZE + arrayIndexX;
+				int tileId = tileIds[index];
 
-				double caveR = getRByTile(EntityId.CAVE,
-						map[arrayIndexY][arrayIndexX].getId());
+				double caveR = getRByTile(EntityId.CAVE, tileId);
 
-				if (caveR > cave) {
-					worldEntityMap[arrayIndexY][arrayIndexX] = true;
-					worldEntityIdMap[arrayIndexY][arrayIndexX] = EntityId.CAVE;
+				if (caveR > cave[index] / 0.2) {
+					spawnIds[index] = EntityId.CAVE;
 					continue;
 				}
 
 				/////////////////////////
-				double tree = (0.1 * treeNoise.noise(x, y)
-						+ 0.1 * treeNoise.noise(0.5 * x, 0.5 * y));
-				tree /= (0.2);
+				double treeR = getRByTile(EntityId.TREE, tileId);
 
-				double treeR = getRByTile(EntityId.TREE,
-						map[arrayIndexY][arrayIndexX].getId());
-
-				if (treeR > tree) {
-					worldEntityMap[arrayIndexY][arrayIndexX] = true;
-					worldEntityIdMap[arrayIndexY][arrayIndexX] = EntityId.TREE;
+				if (treeR > tree[index] / 0.2) {
+					spawnIds[index] = EntityId.TREE;
 					continue;
 				}
 
 				//////////////////////////
-				double grass = (0.1 * grassNoise.noise(x, y)
-						+ 0.1 * grassNoise.noise(0.5 * x, 0.5 * y)
-						+ 0.05 * grassNoise.noise(0.01 * x, 0.01 * y));
-
-				grass /= (0.2);
+				double grassR = getRByTile(EntityId.TALL_GRASS, tileId);
 
-				double grassR = getRByTile(EntityId.TALL_GRASS,
-						map[arrayIndexY][arrayIndexX].getId());
-
-				if (grassR > grass) {
+				if (grassR > grass[index] / 0.2) {
 
 					int newIndex = arrayIndexY - 1;
 
 					// if 1 tile up is tree, don't place grass so it won't overlap
-					if (newIndex > 0
-							&& worldEntityIdMap[newIndex][arrayIndexX] != EntityId.TREE) {
-						worldEntityMap[arrayIndexY][arrayIndexX] = true;
-						worldEntityIdMap[arrayIndexY][arrayIndexX] = EntityId.TALL_GRASS;
+					if (newIndex > 0 && spawnIds[newIndex * Chunk.SIZE
+							+ arrayIndexX] != EntityId.TREE) {
+						spawnIds[index] = EntityId.TALL_GRASS;
 					}
 				}
 			}
@@ -329,8 +450,6 @@ public class MapGenerator {
 
 	/**
 	 * For testing purpose, draw the noise map out.
-	 * <p>
-	 * This should be called for getCaveEntityMap() and getCaveEntityIdMap()
 	 *
 	 * @param noise
 	 * @param fileName
@@ -367,42 +486,27 @@ public class MapGenerator {
 	}
 
 	/**
-	 * Generate the entity map for the cave map.
+	 * Fill in the ids of the entities that should spawn in the cave.
 	 *
-	 * @param xPos
-	 * @param yPos
+	 * @param xPos     in chunk pos
+	 * @param yPos     in chunk pos
+	 * @param tileIds  from {@linkplain #generateCaveTiles(int, int, int[])}
+	 * @param spawnIds [localY * Chunk.SIZE + localX], 0 for no spawn
 	 */
-	public void generateCaveEntitiesMap(int xPos, int yPos) {
+	private void generateCaveEntities(int xPos, int yPos, int[] tileIds,
+			int[] spawnIds) {
 
-		xPos *= Chunk.SIZE;
-		yPos *= Chunk.SIZE;
+		double[] stone = new double[AREA];
 
-		// reset
-		caveEntityMap = new boolean[Chunk.SIZE][Chunk.SIZE];
-		caveEntityIdMap = new int[Chunk.SIZE][Chunk.SIZE];
+		stoneNoise.octaveGrid(stone, Chunk.SIZE, Chunk.SIZE, xPos * Chunk.SIZE,
+				yPos * Chunk.SIZE, SPAWN_FREQUENCIES, SPAWN_WEIGHTS);
 
-		int yMax = yPos + Chunk.SIZE;
-		int xMax = xPos + Chunk.SIZE;
+		for (int index = 0; index < AREA; index++) {
 
-		for (int y = yPos; y < yMax; y++) {
-
-			for (int x = xPos; x < xMax; x++) {
-
-				int arrayIndexX = (x - xPos);
-				int arrayIndexY = (y - yPos);
+			double r = getRByTile(EntityId.STONE, tileIds[index]);
 
-				double stone = (0.1 * stoneNoise.noise(x, y)
-						+ 0.1 * stoneNoise.noise(0.5 * x, 0.5 * y));
-
-				stone /= (0.1 + 0.1);
-
-				double r = getRByTile(EntityId.STONE,
-						map[arrayIndexY][arrayIndexX].getId());
-
-				if (r > stone) {
-					caveEntityMap[arrayIndexY][arrayIndexX] = true;
-					caveEntityIdMap[arrayIndexY][arrayIndexX] = EntityId.STONE;
-				}
+			if (r > stone[index] / (0.1 + 0.1)) {
+				spawnIds[index] = EntityId.STONE;
 			}
 		}
 	}
@@ -648,10 +752,58 @@ public class MapGenerator {
 
 	}
 
+	/**
+	 * Get the sampling step for each octave, so the octaves together stay in
+	 * {@linkplain #lowFrequencyError}.
+	 * <p>
+	 * Start with every octave sampled once per Chunk corner, and keep halving
+	 * the step of the octave that is off the most until the total fits.
+	 *
+	 * @param frequencies
+	 * @param weights
+	 * @param scale       what the sum gets divided by
+	 * @return
+	 */
+	private int[] getCoarseSteps(double[] frequencies, double[] weights,
+			double scale) {
+
+		int[] steps = new int[frequencies.length];
+
+		Arrays.fill(steps, (lowFrequencyError > 0) ? Chunk.SIZE : 1);
+
+		while (true) {
+
+			double total = 0;
+			double worst = 0;
+			int worstIndex = -1;
+
+			for (int i = 0; i < steps.length; i++) {
+
+				double error = SimplexNoise.getInterpolationError(frequencies[i],
+						weights[i] / scale, steps[i]);
+
+				total += error;
+
+				if (error > worst) {
+					worst = error;
+					worstIndex = i;
+				}
+
+			}
+
+			if (total <= lowFrequencyError || worstIndex == -1)
+				return steps;
+
+			steps[worstIndex] /= 2;
+
+		}
+
+	}
+
 	/**
 	 * Save the seeds data.
 	 * <p>
-	 * Format: seed1 seed2
+	 * Format: seed1 seed2 lowFrequencyError chunkCodec saveTileLayers
 	 */
 	private void saveSeedsInFile() {
 
@@ -675,7 +827,8 @@ public class MapGenerator {
 
 			bw = new BufferedWriter(new OutputStreamWriter(fos));
 
-			bw.write(elevationSeed + " " + moistureSeed);
+			bw.write(elevationSeed + " " + moistureSeed + " " + lowFrequencyError
+					+ " " + chunkCodec.getName() + " " + saveTileLayers);
 
 		} catch (IOException ex) {
 
@@ -702,13 +855,89 @@ public class MapGenerator {
 	 */
 	public int[] loadSeedsFromFile() {
 
+		String[] seedData = readSeedsFile();
+
+		if (seedData == null)
+			return new int[] { RANDOM_SEED, RANDOM_SEED };
+
+		int seed1 = Integer.parseInt(seedData[0]);
+		int seed2 = Integer.parseInt(seedData[1]);
+
+		return new int[] { seed1, seed2 };
+
+	}
+
+	/**
+	 * Load the low frequency error of this world. The worlds made before it was
+	 * saved are sampled at every tile.
+	 *
+	 * @param newLowFrequencyError
+	 * @return newLowFrequencyError for a new world
+	 */
+	private double loadLowFrequencyErrorFromFile(double newLowFrequencyError) {
+
+		String[] seedData = readSeedsFile();
+
+		if (seedData == null)
+			return newLowFrequencyError;
+
+		if (seedData.length < 3)
+			return 0;
+
+		return Double.parseDouble(seedData[2]);
+
+	}
+
+	/**
+	 * Load the Chunk codec of this world.
+	 *
+	 * @return {@linkplain #NEW_WORLD_CHUNK_CODEC} for a new world, or a world
+	 *         from before it was saved
+	 */
+	private ChunkCodec loadChunkCodecFromFile() {
+
+		String[] seedData = readSeedsFile();
+
+		if (seedData == null || seedData.length < 4)
+			return NEW_WORLD_CHUNK_CODEC;
+
+		ChunkCodec codec = ChunkFormat.getCodec(seedData[3]);
+
+		return (codec != null) ? codec : NEW_WORLD_CHUNK_CODEC;
+
+	}
+
+	/**
+	 * Load whether this world saves the tile layers.
+	 *
+	 * @return {@linkplain #NEW_WORLD_SAVE_TILE_LAYERS} for a new world, or a
+	 *         world from before it was saved
+	 */
+	private boolean loadSaveTileLayersFromFile() {
+
+		String[] seedData = readSeedsFile();
+
+		if (seedData == null || seedData.length < 5)
+			return NEW_WORLD_SAVE_TILE_LAYERS;
+
+		return Boolean.parseBoolean(seedData[4]);
+
+	}
+
+	/**
+	 * Read the seeds file.
+	 *
+	 * @return the values in the file, or null if it doesn't exist
+	 */
+	private String[] readSeedsFile() {
+
 		String path = State.SAVEFILE_DIR + "/" + WORLD_NAME + "/" + State.SEEDS_NAME
 				+ State.EXTENSION;
 
 		File file = new File(path);
 
 		if (!file.exists())
-			return new int[] { RANDOM_SEED, RANDOM_SEED };
+			return null;
 
 		String line = "";
 		BufferedReader br = null;
@@ -736,12 +965,7 @@ public class MapGenerator {
 			}
 		}
 
-		String[] seedData = line.split(" ");
-
-		int seed1 = Integer.parseInt(seedData[0]);
-		int seed2 = Integer.parseInt(seedData[1]);
-
-		return new int[] { seed1, seed2 };
+		return line.split(" ");
 
 	}
 
@@ -756,6 +980,11 @@ public class MapGenerator {
 		return this.WORLD_NAME;
 	}
 
+	public Handler getHandler() {
+
+		return this.handler;
+	}
+
 	public int getSeed1() {
 
 		return this.elevationSeed;
@@ -767,43 +996,49 @@ public class MapGenerator {
 	}
 
 	/**
-	 * call generateWorldEntitiesMap(int xPos, int yPos) first
+	 * See {@linkplain #NEW_WORLD_LOW_FREQUENCY_ERROR}
 	 *
-	 * @return the worldEntityMap
+	 * @return
 	 */
-	public boolean[][] getWorldEntityMap() {
+	public double getLowFrequencyError() {
 
-		return worldEntityMap;
+		return this.lowFrequencyError;
 	}
 
 	/**
-	 * call generateWorldEntitiesMap(int xPos, int yPos) first
+	 * See {@linkplain #NEW_WORLD_CHUNK_CODEC}
 	 *
-	 * @return the caveEntityMap
+	 * @return
 	 */
-	public boolean[][] getCaveEntityMap() {
+	public ChunkCodec getChunkCodec() {
 
-		return caveEntityMap;
+		return this.chunkCodec;
 	}
 
 	/**
-	 * call generateCaveEntitiesMap(int xPos, int yPos) first
+	 * See {@linkplain #NEW_WORLD_SAVE_TILE_LAYERS}
 	 *
-	 * @return the worldEntityIdMap
+	 * @return
 	 */
-	public int[][] getWorldEntityIdMap() {
+	public boolean isSaveTileLayers() {
 
-		return worldEntityIdMap;
+		return this.saveTileLayers;
 	}
 
 	/**
-	 * call generateCaveEntitiesMap(int xPos, int yPos) first
+	 * What the tiles depend on: {@linkplain #GENERATOR_VERSION}, the seeds and
+	 * the low frequency error. A saved tile layer is used only if its key is the
+	 * same.
 	 *
-	 * @return the caveEntityIdMap
+	 * @return
 	 */
-	public int[][] getCaveEntityIdMap() {
+	public int[] getTileLayerKey() {
+
+		long error = Double.doubleToLongBits(lowFrequencyError);
+
+		return new int[] { GENERATOR_VERSION, elevationSeed, moistureSeed,
+				(int) (error >>> 32), (int) error };
 
-		return caveEntityIdMap;
 	}
 
 }
@@ -0,0 +1,149 @@
+package dev.game.map;
+
+/**
+ * NoiseBenchmark.java - Times the elevation and moisture noise of a Chunk,
+ * made with {@linkplain SimplexNoise#octaveGrid(double[], int, int, int, int,
+ * double[], double[])} against one {@linkplain SimplexNoise#noise(double,
+ * double)} call per octave per tile.
+ * <p>
+ * Both ways use the octaves of {@linkplain MapGenerator}, 14 per tile. The
+ * values have to be exactly the same, the exit code is 1 if they are not.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * NoiseBenchmark [chunks] [rounds]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class NoiseBenchmark {
+
+	private static final int AREA = Chunk.SIZE * Chunk.SIZE;
+
+	/**
+	 * The octaves of the Chunk, one noise call at a time.
+	 *
+	 * @param noise
+	 * @param out         [localY * Chunk.SIZE + localX]
+	 * @param xPos        in chunk pos
+	 * @param yPos        in chunk pos
+	 * @param frequencies
+	 * @param weights
+	 */
+	private static void sampleChunk(SimplexNoise noise, double[] out, int xPos,
+			int yPos, double[] frequencies, double[] weights) {
+
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			for (int x = 0; x < Chunk.SIZE; x++) {
+
+				int blockX = xPos * Chunk.SIZE + x;
+				int blockY = yPos * Chunk.SIZE + y;
+
+				double value = 0.0;
+
+				for (int k = 0; k < frequencies.length; k++)
+					value += weights[k]
+							* noise.noise(frequencies[k] * blockX, frequencies[k] * blockY);
+
+				out[y * Chunk.SIZE + x] = value;
+
+			}
+		}
+
+	}
+
+	/**
+	 * @param args [chunks] [rounds]
+	 */
+	public static void main(String[] args) {
+
+		int chunks = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+		SimplexNoise elevationNoise = new SimplexNoise(1);
+		SimplexNoise moistureNoise = new SimplexNoise(2);
+
+		double[] elevation = new double[AREA], moisture = new double[AREA];
+		double[] gridElevation = new double[AREA], gridMoisture = new double[AREA];
+
+		int different = 0;
+
+		for (int i = 0; i < chunks; i++) {
+
+			// a row of Chunks, with some below 0
+			int xPos = i - chunks / 2, yPos = i % 7 - 3;
+
+			sampleChunk(elevationNoise, elevation, xPos, yPos,
+					MapGenerator.ELEVATION_FREQUENCIES, MapGenerator.ELEVATION_WEIGHTS);
+			sampleChunk(moistureNoise, moisture, xPos, yPos,
+					MapGenerator.MOISTURE_FREQUENCIES, MapGenerator.MOISTURE_WEIGHTS);
+
+			elevationNoise.octaveGrid(gridElevation, Chunk.SIZE, Chunk.SIZE,
+					xPos * Chunk.SIZE, yPos * Chunk.SIZE,
+					MapGenerator.ELEVATION_FREQUENCIES, MapGenerator.ELEVATION_WEIGHTS);
+			moistureNoise.octaveGrid(gridMoisture, Chunk.SIZE, Chunk.SIZE,
+					xPos * Chunk.SIZE, yPos * Chunk.SIZE,
+					MapGenerator.MOISTURE_FREQUENCIES, MapGenerator.MOISTURE_WEIGHTS);
+
+			for (int j = 0; j < AREA; j++)
+				if (elevation[j] != gridElevation[j] || moisture[j] != gridMoisture[j])
+					different++;
+
+		}
+
+		// the last round counts, the JIT is warm then
+		long sampleNanos = 0, gridNanos = 0;
+		double sink = 0;
+
+		for (int round = 0; round < rounds; round++) {
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < chunks; i++) {
+
+				sampleChunk(elevationNoise, elevation, i, round,
+						MapGenerator.ELEVATION_FREQUENCIES, MapGenerator.ELEVATION_WEIGHTS);
+				sampleChunk(moistureNoise, moisture, i, round,
+						MapGenerator.MOISTURE_FREQUENCIES, MapGenerator.MOISTURE_WEIGHTS);
+
+				sink += elevation[i % AREA] + moisture[i % AREA];
+
+			}
+
+			sampleNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			for (int i = 0; i < chunks; i++) {
+
+				elevationNoise.octaveGrid(gridElevation, Chunk.SIZE, Chunk.SIZE,
+						i * Chunk.SIZE, round * Chunk.SIZE,
+						MapGenerator.ELEVATION_FREQUENCIES, MapGenerator.ELEVATION_WEIGHTS);
+				moistureNoise.octaveGrid(gridMoisture, Chunk.SIZE, Chunk.SIZE,
+						i * Chunk.SIZE, round * Chunk.SIZE,
+						MapGenerator.MOISTURE_FREQUENCIES, MapGenerator.MOISTURE_WEIGHTS);
+
+				sink += gridElevation[i % AREA] + gridMoisture[i % AREA];
+
+			}
+
+			gridNanos = System.nanoTime() - start;
+
+		}
+
+		System.out.println("[NoiseBenchmark] " + chunks + " Chunks, "
+				+ (MapGenerator.ELEVATION_FREQUENCIES.length
+						+ MapGenerator.MOISTURE_FREQUENCIES.length)
+				+ " octaves per tile, " + different + " different values");
+		System.out.println(String.format(
+				"[NoiseBenchmark] noise() %.1f us/Chunk, octaveGrid %.1f us/Chunk, %.1fx (%d)",
+				sampleNanos / 1e3 / chunks, gridNanos / 1e3 / chunks,
+				sampleNanos / (double) Math.max(gridNanos, 1), (int) sink & 1));
+
+		if (different > 0)
+			System.exit(1);
+
+	}
+
+}
@@ -0,0 +1,175 @@
+package dev.game.map;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * RegionConverter.java - Moves the old text Chunk files (one file per Chunk)
+ * of a world into the {@linkplain RegionFile}s.
+ * <p>
+ * The files are converted one at a time and deleted once they are written, so
+ * a world of any size can be converted, and a stopped conversion just carries
+ * on the next time.
+ *
+ * @author Juhyung Kim
+ */
+public class RegionConverter {
+
+	/**
+	 * Convert the text Chunk files of the world, if there are any. Nothing else
+	 * should be reading or writing the Chunks of the world meanwhile.
+	 *
+	 * @param worldName
+	 * @param codec     to write the Chunks with
+	 * @return number of Chunks converted
+	 */
+	public static int convertWorld(String worldName, ChunkCodec codec) {
+
+		int count = 0;
+
+		int[] dimensions = { World.DIMENSION_WORLD, World.DIMENSION_CAVE };
+
+		for (int dimension : dimensions)
+			count += convertDimension(worldName, dimension, codec);
+
+		if (count > 0) {
+
+			File chunksDir = new File(
+					State.SAVEFILE_DIR + "/" + worldName + "/" + State.CHUNKS_DIR);
+
+			// only goes if empty
+			for (int dimension : dimensions)
+				new File(chunksDir, World.dimensionToName(dimension)).delete();
+
+			chunksDir.delete();
+
+			Logger.getLogger(RegionConverter.class.getName()).log(Level.FINE,
+					worldName + ": " + count + " Chunks converted");
+
+		}
+
+		return count;
+
+	}
+
+	private static int convertDimension(String worldName, int dimension,
+			ChunkCodec codec) {
+
+		File dir = new File(State.SAVEFILE_DIR + "/" + worldName + "/"
+				+ State.CHUNKS_DIR + "/" + World.dimensionToName(dimension));
+
+		File[] files = dir.listFiles();
+
+		if (files == null)
+			return 0;
+
+		int count = 0;
+
+		for (File file : files) {
+
+			String name = file.getName();
+
+			if (!name.endsWith(State.EXTENSION))
+				continue;
+
+			// "x,y.pgsf"
+			String[] xy = name.substring(0, name.length() - State.EXTENSION.length())
+					.split(Chunk.CHUNK_NAME_DIVIDER);
+
+			if (xy.length != 2)
+				continue;
+
+			int xPos, yPos;
+
+			try {
+				xPos = Integer.parseInt(xy[0]);
+				yPos = Integer.parseInt(xy[1]);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+
+			if (convertFile(file, worldName, dimension, xPos, yPos, codec)) {
+				file.delete();
+				count++;
+			}
+
+		}
+
+		RegionFile.closeAll();
+
+		return count;
+
+	}
+
+	/**
+	 * @param file
+	 * @param worldName
+	 * @param dimension
+	 * @param xPos      in chunkpos
+	 * @param yPos      in chunkpos
+	 * @param codec
+	 * @return true if the Chunk is written in the region file
+	 */
+	private static boolean convertFile(File file, String worldName,
+			int dimension, int xPos, int yPos, ChunkCodec codec) {
+
+		List<int[]> entities = new ArrayList<>();
+		List<int[]> items = new ArrayList<>();
+
+		BufferedReader br = null;
+
+		try {
+
+			br = new BufferedReader(new FileReader(file));
+
+			ChunkFormat.parseText(br, entities, items);
+
+			RegionFile.writeChunk(worldName, dimension, xPos, yPos,
+					ChunkFormat.encode(codec, entities, items, xPos, yPos));
+
+			return true;
+
+		} catch (IOException e) {
+
+			Logger.getLogger(RegionConverter.class.getName()).log(Level.SEVERE,
+					null, e);
+
+		} finally {
+
+			if (br != null) {
+				try {
+					br.close();
+				} catch (IOException ex) {
+					Logger.getLogger(RegionConverter.class.getName())
+							.log(Level.SEVERE, null, ex);
+				}
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Convert the worlds from the command line, with
+	 * {@linkplain MapGenerator#NEW_WORLD_CHUNK_CODEC}.
+	 *
+	 * @param args names of the worlds
+	 */
+	public static void main(String[] args) {
+
+		for (String worldName : args)
+			convertWorld(worldName, MapGenerator.NEW_WORLD_CHUNK_CODEC);
+
+	}
+
+}
@@ -0,0 +1,566 @@
+package dev.game.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * RegionFile.java - One file holding a SIZE * SIZE block of Chunks.
+ * <p>
+ * The file starts with a header: a magic number, the version, and a table
+ * with the offset, length and reserved space of every Chunk in the region. The
+ * Chunk data (see {@linkplain ChunkFormat}) follows.
+ * <p>
+ * A Chunk is never written over its old data. Each write goes to the first
+ * free space big enough, then the table is pointed at it, and only then the old
+ * space is freed for the next writes. Both are forced to the disk in between,
+ * so after a crash the table points at either the old or the new data, never
+ * at a half written Chunk.
+ * <p>
+ * The files are kept open until {@linkplain #closeAll()}. The methods are
+ * thread-safe, the save queue writes while the chunk loaders read.
+ * <p>
+ * Whether a Chunk is saved is answered by the {@linkplain RegionIndex} of the
+ * world, which is updated after every write.
+ *
+ * @author Juhyung Kim
+ */
+public class RegionFile {
+
+	/**
+	 * Chunks on each side of a region
+	 */
+	public static final int SIZE = 16;
+
+	/**
+	 * Panda Game Save-file Region
+	 */
+	public static final String EXTENSION = ".pgsr";
+
+	private static final int MAGIC = 0x50475352; // "PGSR"
+	private static final int VERSION = 1;
+
+	/**
+	 * Bytes of a table entry: offset, length, reserved space
+	 */
+	private static final int ENTRY_SIZE = 12;
+
+	private static final int HEADER_SIZE = 8 + SIZE * SIZE * ENTRY_SIZE;
+
+	/**
+	 * The reserved space is rounded up to this. The data part of the file is
+	 * split in sectors of this size.
+	 */
+	private static final int SPACE_STEP = 64;
+
+	/**
+	 * The open files by the path
+	 */
+	private static final HashMap<String, RegionFile> openFiles = new HashMap<>();
+
+	private final FileChannel channel;
+
+	/**
+	 * Dimension of the Chunks
+	 */
+	final int dimension;
+
+	/**
+	 * In region position (chunkpos / SIZE)
+	 */
+	private final int regionX, regionY;
+
+	/**
+	 * [localY * SIZE + localX], 0 length if the Chunk is not in the file
+	 */
+	private final int[] offsets, lengths, spaces;
+
+	/**
+	 * For the header entries
+	 */
+	private final ByteBuffer entryBuffer;
+
+	/**
+	 * For the Chunk data, grown when needed
+	 */
+	private ByteBuffer dataBuffer;
+
+	/**
+	 * The sectors reserved by a Chunk, sector n starts at HEADER_SIZE + n *
+	 * SPACE_STEP
+	 */
+	private final BitSet usedSectors;
+
+	private RegionFile(File file, int dimension, int regionX, int regionY)
+			throws IOException {
+
+		this.dimension = dimension;
+		this.regionX = regionX;
+		this.regionY = regionY;
+
+		file.getParentFile().mkdirs();
+
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		this.offsets = new int[SIZE * SIZE];
+		this.lengths = new int[SIZE * SIZE];
+		this.spaces = new int[SIZE * SIZE];
+		this.usedSectors = new BitSet();
+
+		this.entryBuffer = ByteBuffer.allocateDirect(ENTRY_SIZE);
+		this.dataBuffer = ByteBuffer.allocateDirect(4096);
+
+		ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+
+		if (channel.size() < HEADER_SIZE) {
+
+			// new file
+			header.putInt(MAGIC).putInt(VERSION);
+			header.position(HEADER_SIZE);
+			header.flip();
+
+			writeFully(header, 0);
+
+			return;
+
+		}
+
+		readFully(header, 0);
+		header.flip();
+
+		if (header.getInt() != MAGIC || header.getInt() != VERSION)
+			throw new IOException("Not a region file: " + file);
+
+		for (int i = 0; i < offsets.length; i++) {
+
+			offsets[i] = header.getInt();
+			lengths[i] = header.getInt();
+			spaces[i] = header.getInt();
+
+			if (lengths[i] != 0)
+				markSectors(offsets[i], spaces[i]);
+
+		}
+
+	}
+
+	/**
+	 * Get the region file that holds the Chunk, opening it if needed.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return
+	 * @throws IOException
+	 */
+	private static RegionFile get(String worldName, int dimension, int chunkX,
+			int chunkY) throws IOException {
+
+		return get(new File(getPath(worldName, dimension, chunkX, chunkY)),
+				dimension, Math.floorDiv(chunkX, SIZE), Math.floorDiv(chunkY, SIZE));
+
+	}
+
+	/**
+	 * Get the region file, opening it if needed.
+	 *
+	 * @param file      named "regionX,regionY" + {@linkplain #EXTENSION}
+	 * @param dimension
+	 * @return the region file, or null if the name is not of a region file
+	 * @throws IOException
+	 */
+	static RegionFile get(File file, int dimension) throws IOException {
+
+		String name = file.getName();
+
+		if (!name.endsWith(EXTENSION))
+			return null;
+
+		String[] xy = name.substring(0, name.length() - EXTENSION.length())
+				.split(Chunk.CHUNK_NAME_DIVIDER);
+
+		if (xy.length != 2)
+			return null;
+
+		try {
+
+			return get(file, dimension, Integer.parseInt(xy[0]),
+					Integer.parseInt(xy[1]));
+
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+
+	}
+
+	private static RegionFile get(File file, int dimension, int regionX,
+			int regionY) throws IOException {
+
+		synchronized (openFiles) {
+
+			RegionFile region = openFiles.get(file.getPath());
+
+			if (region == null) {
+				region = new RegionFile(file, dimension, regionX, regionY);
+				openFiles.put(file.getPath(), region);
+			}
+
+			return region;
+
+		}
+
+	}
+
+	/**
+	 * Read the data of the Chunk.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return the data, or null if the Chunk is not saved
+	 */
+	public static ByteBuffer readChunk(String worldName, int dimension,
+			int chunkX, int chunkY) {
+
+		try {
+
+			// not saved, no need to touch the file
+			if (RegionIndex.get(worldName).getLocation(dimension, chunkX,
+					chunkY) == null)
+				return null;
+
+			return get(worldName, dimension, chunkX, chunkY)
+					.read(getIndex(chunkX, chunkY));
+
+		} catch (IOException ex) {
+			Logger.getLogger(RegionFile.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		return null;
+
+	}
+
+	/**
+	 * Write the data of the Chunk, replacing the old data, and update the
+	 * {@linkplain RegionIndex}.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @param data      from {@linkplain ChunkFormat}
+	 * @throws IOException
+	 */
+	public static void writeChunk(String worldName, int dimension, int chunkX,
+			int chunkY, byte[] data) throws IOException {
+
+		int index = getIndex(chunkX, chunkY);
+
+		RegionFile region = get(worldName, dimension, chunkX, chunkY);
+
+		int offset = region.write(index, data);
+
+		RegionIndex.get(worldName).put(dimension, chunkX, chunkY, offset,
+				data.length);
+
+	}
+
+	/**
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return true if the Chunk is saved
+	 */
+	public static boolean hasChunk(String worldName, int dimension, int chunkX,
+			int chunkY) {
+
+		return RegionIndex.contains(worldName, dimension, chunkX, chunkY);
+
+	}
+
+	/**
+	 * Close every open region file and {@linkplain RegionIndex}. Done when
+	 * leaving the world, after the save queue is flushed.
+	 */
+	public static void closeAll() {
+
+		synchronized (openFiles) {
+
+			for (RegionFile region : openFiles.values()) {
+
+				try {
+					region.channel.close();
+				} catch (IOException ex) {
+					Logger.getLogger(RegionFile.class.getName()).log(Level.SEVERE,
+							null, ex);
+				}
+
+			}
+
+			openFiles.clear();
+
+		}
+
+		RegionIndex.closeAll();
+
+	}
+
+	/**
+	 * @param index in the table
+	 * @return copy of the data, or null if the Chunk is not in the file
+	 * @throws IOException
+	 */
+	synchronized ByteBuffer read(int index) throws IOException {
+
+		int length = lengths[index];
+
+		if (length == 0)
+			return null;
+
+		ByteBuffer buffer = getDataBuffer(length);
+
+		readFully(buffer, offsets[index]);
+		buffer.flip();
+
+		ByteBuffer copy = ByteBuffer.allocate(length);
+		copy.put(buffer);
+		copy.flip();
+
+		return copy;
+
+	}
+
+	/**
+	 * @param index in the table
+	 * @param data
+	 * @return offset of the data in the file
+	 * @throws IOException
+	 */
+	private synchronized int write(int index, byte[] data) throws IOException {
+
+		// always new space, the old data stays as it is until the table points at
+		// the new data
+		int space = (data.length + SPACE_STEP) / SPACE_STEP * SPACE_STEP;
+		int offset = allocate(space);
+
+		boolean pointed = false;
+
+		try {
+
+			ByteBuffer buffer = getDataBuffer(data.length);
+			buffer.put(data);
+			buffer.flip();
+
+			writeFully(buffer, offset);
+
+			// the data is on the disk before the table points at it
+			channel.force(false);
+
+			entryBuffer.clear();
+			entryBuffer.putInt(offset).putInt(data.length).putInt(space);
+			entryBuffer.flip();
+
+			writeFully(entryBuffer, 8 + index * ENTRY_SIZE);
+			pointed = true;
+
+			// the table is on the disk before the old space is written over
+			channel.force(false);
+
+		} catch (IOException ex) {
+
+			// once the table points at the new data, the file might have both
+			if (!pointed)
+				freeSectors(offset, space);
+
+			throw ex;
+
+		}
+
+		if (lengths[index] != 0)
+			freeSectors(offsets[index], spaces[index]);
+
+		offsets[index] = offset;
+		lengths[index] = data.length;
+		spaces[index] = space;
+
+		return offset;
+
+	}
+
+	/**
+	 * Reserve the first free space big enough.
+	 *
+	 * @param space multiple of SPACE_STEP
+	 * @return offset of the space in the file
+	 */
+	private int allocate(int space) {
+
+		int count = space / SPACE_STEP;
+		int start = usedSectors.nextClearBit(0);
+
+		while (true) {
+
+			int next = usedSectors.nextSetBit(start);
+
+			if (next < 0 || next - start >= count)
+				break;
+
+			start = usedSectors.nextClearBit(next);
+
+		}
+
+		usedSectors.set(start, start + count);
+
+		return HEADER_SIZE + start * SPACE_STEP;
+
+	}
+
+	/**
+	 * Mark every sector the space touches as used.
+	 *
+	 * @param offset in the file
+	 * @param space  reserved bytes
+	 */
+	private void markSectors(int offset, int space) {
+
+		int from = Math.max(0, (offset - HEADER_SIZE) / SPACE_STEP);
+		int to = (offset - HEADER_SIZE + space + SPACE_STEP - 1) / SPACE_STEP;
+
+		if (to > from)
+			usedSectors.set(from, to);
+
+	}
+
+	/**
+	 * Mark the sectors fully inside the space as free. The files written before
+	 * the sectors may not line up, a sector shared with another Chunk stays
+	 * used.
+	 *
+	 * @param offset in the file
+	 * @param space  reserved bytes
+	 */
+	private void freeSectors(int offset, int space) {
+
+		int from = Math.max(0,
+				(offset - HEADER_SIZE + SPACE_STEP - 1) / SPACE_STEP);
+		int to = (offset - HEADER_SIZE + space) / SPACE_STEP;
+
+		if (to > from)
+			usedSectors.clear(from, to);
+
+	}
+
+	/**
+	 * @param index in the table
+	 * @return offset of the Chunk in the file
+	 */
+	synchronized int getOffset(int index) {
+
+		return offsets[index];
+	}
+
+	/**
+	 * @param index in the table
+	 * @return length of the Chunk data, 0 if the Chunk is not in the file
+	 */
+	synchronized int getLength(int index) {
+
+		return lengths[index];
+	}
+
+	/**
+	 * @param index in the table
+	 * @return x of the Chunk in chunkpos
+	 */
+	int getChunkX(int index) {
+
+		return regionX * SIZE + index % SIZE;
+	}
+
+	/**
+	 * @param index in the table
+	 * @return y of the Chunk in chunkpos
+	 */
+	int getChunkY(int index) {
+
+		return regionY * SIZE + index / SIZE;
+	}
+
+	/**
+	 * @param size needed
+	 * @return the cleared data buffer, with the limit at the size
+	 */
+	private ByteBuffer getDataBuffer(int size) {
+
+		if (dataBuffer.capacity() < size)
+			dataBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) * 2);
+
+		dataBuffer.clear();
+		dataBuffer.limit(size);
+
+		return dataBuffer;
+
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+
+		while (buffer.hasRemaining()) {
+
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Unexpected end of region file");
+
+		}
+
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+
+	}
+
+	/**
+	 * @param chunkX in chunkpos
+	 * @param chunkY in chunkpos
+	 * @return index of the Chunk in the table of its region
+	 */
+	private static int getIndex(int chunkX, int chunkY) {
+
+		return Math.floorMod(chunkY, SIZE) * SIZE + Math.floorMod(chunkX, SIZE);
+
+	}
+
+	/**
+	 * Get the path of the region file that holds the Chunk.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return
+	 */
+	public static String getPath(String worldName, int dimension, int chunkX,
+			int chunkY) {
+
+		return State.SAVEFILE_DIR + "/" + worldName + "/" + State.REGIONS_DIR
+				+ "/" + World.dimensionToName(dimension) + "/"
+				+ Math.floorDiv(chunkX, SIZE) + Chunk.CHUNK_NAME_DIVIDER
+				+ Math.floorDiv(chunkY, SIZE) + EXTENSION;
+
+	}
+
+}
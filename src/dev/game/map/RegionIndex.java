@@ -0,0 +1,533 @@
+package dev.game.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * RegionIndex.java - Every saved Chunk of a world, in one memory-mapped file:
+ * whether it's saved, where it is in its {@linkplain RegionFile}, and how long
+ * it is.
+ * <p>
+ * Looking up a Chunk only reads the mapped memory, no file is touched. The
+ * index is a hash table (open addressing, linear probing) keyed by the
+ * dimension and the chunk position, and it grows when it's half full.
+ * <p>
+ * {@linkplain RegionFile} keeps the index up to date when it writes a Chunk.
+ * {@linkplain #verify(String)} checks it against the region files when the
+ * world is opened, and builds it again if they do not match.
+ *
+ * @author Juhyung Kim
+ */
+public class RegionIndex {
+
+	public static final String FILE_NAME = "index.pgsi";
+
+	private static final int MAGIC = 0x50475349; // "PGSI"
+	private static final int VERSION = 2;
+
+	/**
+	 * magic, version, capacity, count
+	 */
+	private static final int HEADER_SIZE = 16;
+
+	/**
+	 * x (int), y (int), dimension + 1 (short, 0 for an empty slot), offset
+	 * (int), length (int)
+	 */
+	private static final int ENTRY_SIZE = 18;
+
+	private static final int MIN_CAPACITY = 1024;
+
+	/**
+	 * The open indexes by the world name
+	 */
+	private static final HashMap<String, RegionIndex> openIndexes = new HashMap<>();
+
+	private final File file;
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Number of slots, power of 2
+	 */
+	private int capacity;
+
+	/**
+	 * Number of Chunks
+	 */
+	private int count;
+
+	private RegionIndex(File file) throws IOException {
+
+		this.file = file;
+
+		file.getParentFile().mkdirs();
+
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		if (channel.size() >= HEADER_SIZE) {
+
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+			capacity = buffer.getInt(8);
+			count = buffer.getInt(12);
+
+			if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+					&& Integer.bitCount(capacity) == 1
+					&& channel.size() >= HEADER_SIZE + (long) capacity * ENTRY_SIZE)
+				return;
+
+		}
+
+		// new or broken, start over
+		reset(MIN_CAPACITY);
+
+	}
+
+	/**
+	 * Get the index of the world, opening it if needed.
+	 *
+	 * @param worldName
+	 * @return
+	 * @throws IOException
+	 */
+	static RegionIndex get(String worldName) throws IOException {
+
+		synchronized (openIndexes) {
+
+			RegionIndex index = openIndexes.get(worldName);
+
+			if (index == null) {
+				index = new RegionIndex(new File(getPath(worldName)));
+				openIndexes.put(worldName, index);
+			}
+
+			return index;
+
+		}
+
+	}
+
+	/**
+	 * Check the index of the world against its region files, and build it again
+	 * if they do not match (the index is missing, or the game stopped between
+	 * writing a Chunk and the index). Done when the world is opened.
+	 *
+	 * @param worldName
+	 * @return true if the index had to be built again
+	 */
+	public static boolean verify(String worldName) {
+
+		try {
+
+			RegionIndex index = get(worldName);
+
+			synchronized (index) {
+
+				if (index.matchesRegions(worldName))
+					return false;
+
+				index.rebuild(worldName);
+
+				return true;
+
+			}
+
+		} catch (IOException ex) {
+			Logger.getLogger(RegionIndex.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * @param worldName
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return true if the Chunk is saved
+	 */
+	public static boolean contains(String worldName, int dimension, int chunkX,
+			int chunkY) {
+
+		try {
+
+			RegionIndex index = get(worldName);
+
+			synchronized (index) {
+				return index.find(dimension, chunkX, chunkY) >= 0;
+			}
+
+		} catch (IOException ex) {
+			Logger.getLogger(RegionIndex.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Where the saved Chunk is in its region file.
+	 *
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @return {offset, length}, or null if the Chunk is not saved
+	 */
+	synchronized int[] getLocation(int dimension, int chunkX, int chunkY) {
+
+		int slot = find(dimension, chunkX, chunkY);
+
+		if (slot < 0)
+			return null;
+
+		int pos = getPosition(slot);
+
+		return new int[] { buffer.getInt(pos + 10), buffer.getInt(pos + 14) };
+
+	}
+
+	/**
+	 * Add or update the Chunk. Called by {@linkplain RegionFile} after the Chunk
+	 * is written.
+	 *
+	 * @param dimension
+	 * @param chunkX    in chunkpos
+	 * @param chunkY    in chunkpos
+	 * @param offset    in the region file
+	 * @param length    of the data
+	 * @throws IOException
+	 */
+	synchronized void put(int dimension, int chunkX, int chunkY, int offset,
+			int length) throws IOException {
+
+		int slot = find(dimension, chunkX, chunkY);
+
+		if (slot < 0) {
+
+			if ((count + 1) * 2 > capacity) {
+				grow();
+				slot = find(dimension, chunkX, chunkY);
+			}
+
+			slot = -slot - 1;
+
+			count++;
+			buffer.putInt(12, count);
+
+		}
+
+		int pos = getPosition(slot);
+
+		buffer.putInt(pos, chunkX);
+		buffer.putInt(pos + 4, chunkY);
+		buffer.putShort(pos + 8, (short) (dimension + 1));
+		buffer.putInt(pos + 10, offset);
+		buffer.putInt(pos + 14, length);
+
+	}
+
+	/**
+	 * @param dimension
+	 * @param chunkX
+	 * @param chunkY
+	 * @return the slot of the Chunk, or -(the empty slot it would go) - 1
+	 */
+	private int find(int dimension, int chunkX, int chunkY) {
+
+		int mask = capacity - 1;
+		int slot = hash(dimension, chunkX, chunkY) & mask;
+
+		while (true) {
+
+			int pos = getPosition(slot);
+
+			int dim = buffer.getShort(pos + 8) - 1;
+
+			if (dim < 0)
+				return -slot - 1;
+
+			if (dim == dimension && buffer.getInt(pos) == chunkX
+					&& buffer.getInt(pos + 4) == chunkY)
+				return slot;
+
+			slot = (slot + 1) & mask;
+
+		}
+
+	}
+
+	/**
+	 * Double the table, keeping the Chunks.
+	 *
+	 * @throws IOException
+	 */
+	private void grow() throws IOException {
+
+		ByteBuffer old = ByteBuffer.allocate(capacity * ENTRY_SIZE);
+
+		buffer.position(HEADER_SIZE);
+		buffer.limit(HEADER_SIZE + capacity * ENTRY_SIZE);
+		old.put(buffer);
+		old.flip();
+		buffer.clear();
+
+		int oldCapacity = capacity;
+
+		reset(capacity * 2);
+
+		for (int slot = 0; slot < oldCapacity; slot++) {
+
+			int pos = slot * ENTRY_SIZE;
+
+			int dim = old.getShort(pos + 8) - 1;
+
+			if (dim < 0)
+				continue;
+
+			int newSlot = -find(dim, old.getInt(pos), old.getInt(pos + 4)) - 1;
+
+			int newPos = getPosition(newSlot);
+
+			for (int i = 0; i < ENTRY_SIZE; i++)
+				buffer.put(newPos + i, old.get(pos + i));
+
+			count++;
+
+		}
+
+		buffer.putInt(12, count);
+
+	}
+
+	/**
+	 * Empty the index, with the capacity. The file is never truncated, the old
+	 * mapping may still be open until it's garbage collected. A file longer than
+	 * the table is fine.
+	 *
+	 * @param newCapacity power of 2
+	 * @throws IOException
+	 */
+	private void reset(int newCapacity) throws IOException {
+
+		long size = HEADER_SIZE + (long) newCapacity * ENTRY_SIZE;
+
+		// nothing points at the old mapping anymore
+		buffer = null;
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+		// every slot empty
+		byte[] zeros = new byte[ENTRY_SIZE * 256];
+
+		buffer.position(HEADER_SIZE);
+
+		while (buffer.hasRemaining())
+			buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+
+		buffer.clear();
+
+		capacity = newCapacity;
+		count = 0;
+
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, capacity);
+		buffer.putInt(12, count);
+
+	}
+
+	/**
+	 * @param worldName
+	 * @return true if every Chunk in the region files is in the index at the
+	 *         same place, and nothing else is
+	 * @throws IOException
+	 */
+	private boolean matchesRegions(String worldName) throws IOException {
+
+		int total = 0;
+
+		for (RegionFile region : getRegionFiles(worldName)) {
+
+			for (int i = 0; i < RegionFile.SIZE * RegionFile.SIZE; i++) {
+
+				int length = region.getLength(i);
+
+				if (length == 0)
+					continue;
+
+				total++;
+
+				int slot = find(region.dimension, region.getChunkX(i),
+						region.getChunkY(i));
+
+				if (slot < 0)
+					return false;
+
+				int pos = getPosition(slot);
+
+				if (buffer.getInt(pos + 10) != region.getOffset(i)
+						|| buffer.getInt(pos + 14) != length)
+					return false;
+
+			}
+
+		}
+
+		return total == count;
+
+	}
+
+	/**
+	 * Build the index from the tables of the region files.
+	 *
+	 * @param worldName
+	 * @throws IOException
+	 */
+	private void rebuild(String worldName) throws IOException {
+
+		List<RegionFile> regions = getRegionFiles(worldName);
+
+		int chunks = 0;
+
+		for (RegionFile region : regions)
+			for (int i = 0; i < RegionFile.SIZE * RegionFile.SIZE; i++)
+				if (region.getLength(i) > 0)
+					chunks++;
+
+		reset(Math.max(MIN_CAPACITY, Integer.highestOneBit(chunks * 2) * 2));
+
+		for (RegionFile region : regions) {
+
+			for (int i = 0; i < RegionFile.SIZE * RegionFile.SIZE; i++) {
+
+				int length = region.getLength(i);
+
+				if (length == 0)
+					continue;
+
+				put(region.dimension, region.getChunkX(i), region.getChunkY(i),
+						region.getOffset(i), length);
+
+			}
+
+		}
+
+		Logger.getLogger(RegionIndex.class.getName()).log(Level.FINE,
+				worldName + ": rebuilt, " + count + " Chunks");
+
+	}
+
+	/**
+	 * @param worldName
+	 * @return every region file of the world
+	 * @throws IOException
+	 */
+	private static List<RegionFile> getRegionFiles(String worldName)
+			throws IOException {
+
+		List<RegionFile> regions = new ArrayList<>();
+
+		int[] dimensions = { World.DIMENSION_WORLD, World.DIMENSION_CAVE };
+
+		for (int dimension : dimensions) {
+
+			File dir = new File(State.SAVEFILE_DIR + "/" + worldName + "/"
+					+ State.REGIONS_DIR + "/" + World.dimensionToName(dimension));
+
+			File[] files = dir.listFiles();
+
+			if (files == null)
+				continue;
+
+			for (File file : files) {
+
+				RegionFile region = RegionFile.get(file, dimension);
+
+				if (region != null)
+					regions.add(region);
+
+			}
+
+		}
+
+		return regions;
+
+	}
+
+	/**
+	 * Write the index to the disk and close it. Done by
+	 * {@linkplain RegionFile#closeAll()}.
+	 */
+	static void closeAll() {
+
+		synchronized (openIndexes) {
+
+			for (RegionIndex index : openIndexes.values()) {
+
+				synchronized (index) {
+
+					try {
+
+						index.buffer.force();
+						index.channel.close();
+
+					} catch (IOException ex) {
+						Logger.getLogger(RegionIndex.class.getName())
+								.log(Level.SEVERE, null, ex);
+					}
+
+				}
+
+			}
+
+			openIndexes.clear();
+
+		}
+
+	}
+
+	private static int getPosition(int slot) {
+
+		return HEADER_SIZE + slot * ENTRY_SIZE;
+
+	}
+
+	private static int hash(int dimension, int chunkX, int chunkY) {
+
+		int h = chunkX * 0x9E3779B1 + chunkY * 0x85EBCA77 + dimension;
+
+		h ^= h >>> 16;
+		h *= 0x7FEB352D;
+		h ^= h >>> 15;
+
+		return h;
+
+	}
+
+	/**
+	 * @param worldName
+	 * @return path of the index file of the world
+	 */
+	public static String getPath(String worldName) {
+
+		return State.SAVEFILE_DIR + "/" + worldName + "/" + State.REGIONS_DIR
+				+ "/" + FILE_NAME;
+
+	}
+
+}
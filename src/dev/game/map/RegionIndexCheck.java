@@ -0,0 +1,201 @@
+package dev.game.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * RegionIndexCheck.java - Checks {@linkplain RegionIndex} on a world with many
+ * saved Chunks, and times the lookups.
+ * <p>
+ * A square of Chunks is written in the region files of a scratch world. Each
+ * record holds its own position and a random number of bytes. Then:
+ * <ul>
+ * <li>every saved Chunk has to be in the index and read back, and the Chunks
+ * around the square must not be in it,</li>
+ * <li>the index file is deleted, {@linkplain RegionIndex#verify(String)} has to
+ * build it again, and everything is checked again,</li>
+ * <li>a second verify has to find it matching the region files.</li>
+ * </ul>
+ * The exit code is 1 if anything does not match. The lookups are timed
+ * against a File.exists() of the old Chunk file path, which is what the game
+ * did before the index. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * RegionIndexCheck [chunks per side]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class RegionIndexCheck {
+
+	private static final String WORLD_NAME = "_region_index_check";
+
+	/**
+	 * Times each way of looking up goes through the Chunks, per round
+	 */
+	private static final int PASSES = 10;
+
+	private static int mismatches = 0;
+
+	/**
+	 * @param args [chunks per side]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+		deleteDir(scratchDir);
+
+		// the square around (0, 0), in chunkpos
+		int min = -side / 2, max = min + side - 1;
+
+		Random random = new Random(1);
+
+		long start = System.nanoTime();
+
+		for (int y = min; y <= max; y++) {
+			for (int x = min; x <= max; x++) {
+
+				ByteBuffer data = ByteBuffer.allocate(8 + random.nextInt(600));
+				data.putInt(x).putInt(y);
+
+				RegionFile.writeChunk(WORLD_NAME, World.DIMENSION_WORLD, x, y,
+						data.array());
+
+			}
+		}
+
+		long writeNanos = System.nanoTime() - start;
+
+		check("written", min, max);
+
+		RegionFile.closeAll();
+
+		if (!new File(RegionIndex.getPath(WORLD_NAME)).delete())
+			fail("the index file was not there");
+
+		start = System.nanoTime();
+
+		if (!RegionIndex.verify(WORLD_NAME))
+			fail("verify did not build the missing index");
+
+		long rebuildNanos = System.nanoTime() - start;
+
+		check("rebuilt", min, max);
+
+		if (RegionIndex.verify(WORLD_NAME))
+			fail("verify built the index again, it did not match");
+
+		// the last round counts, the JIT is warm then
+		int lookups = (side + 2) * (side + 2) * PASSES;
+		long indexNanos = 0, fileNanos = 0;
+		int sink = 0;
+
+		for (int round = 0; round < 5; round++) {
+
+			start = System.nanoTime();
+
+			for (int pass = 0; pass < PASSES; pass++)
+				for (int y = min - 1; y <= max + 1; y++)
+					for (int x = min - 1; x <= max + 1; x++)
+						if (RegionIndex.contains(WORLD_NAME, World.DIMENSION_WORLD, x, y))
+							sink++;
+
+			indexNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			for (int pass = 0; pass < PASSES; pass++)
+				for (int y = min - 1; y <= max + 1; y++)
+					for (int x = min - 1; x <= max + 1; x++)
+						if (new File(
+								Chunk.getPath(WORLD_NAME, World.DIMENSION_WORLD, x, y)).exists())
+							sink++;
+
+			fileNanos = System.nanoTime() - start;
+
+		}
+
+		System.out.println("[RegionIndexCheck] " + side * side + " Chunks, "
+				+ mismatches + " mismatches");
+		System.out.println(String.format(
+				"[RegionIndexCheck] written in %.1f ms, index rebuilt in %.1f ms",
+				writeNanos / 1e6, rebuildNanos / 1e6));
+		System.out.println(String.format(
+				"[RegionIndexCheck] contains %.1f ns/lookup, File.exists %.1f ns/lookup (%d)",
+				indexNanos / (double) lookups, fileNanos / (double) lookups,
+				sink & 1));
+
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		if (mismatches > 0)
+			System.exit(1);
+
+	}
+
+	/**
+	 * Check every Chunk of the square and the ring of Chunks around it.
+	 *
+	 * @param when for the messages
+	 * @param min  in chunkpos
+	 * @param max  in chunkpos, included
+	 */
+	private static void check(String when, int min, int max) {
+
+		for (int y = min - 1; y <= max + 1; y++) {
+			for (int x = min - 1; x <= max + 1; x++) {
+
+				boolean saved = x >= min && x <= max && y >= min && y <= max;
+
+				if (RegionIndex.contains(WORLD_NAME, World.DIMENSION_WORLD, x,
+						y) != saved) {
+					fail(when + ": " + x + "," + y + " saved " + saved
+							+ ", but the index says the opposite");
+					continue;
+				}
+
+				if (!saved)
+					continue;
+
+				ByteBuffer data = RegionFile.readChunk(WORLD_NAME,
+						World.DIMENSION_WORLD, x, y);
+
+				if (data == null || data.remaining() < 8 || data.getInt() != x
+						|| data.getInt() != y)
+					fail(when + ": " + x + "," + y + " did not read back");
+
+			}
+		}
+
+	}
+
+	private static void fail(String message) {
+
+		System.out.println("[RegionIndexCheck] " + message);
+
+		mismatches++;
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
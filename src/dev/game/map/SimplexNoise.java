@@ -1,6 +1,7 @@
 
 package dev.game.map;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -183,6 +184,316 @@ public class SimplexNoise { // Simplex noise in 2D, 3D and 4D
 		return 70.0 * (n0 + n1 + n2);
 	}
 
+	// gradients of grad3 as plain arrays, for the grid methods
+	private static final double[] GRAD_X = new double[grad3.length];
+	private static final double[] GRAD_Y = new double[grad3.length];
+
+	static {
+		for (int i = 0; i < grad3.length; i++) {
+			GRAD_X[i] = grad3[i].x;
+			GRAD_Y[i] = grad3[i].y;
+		}
+	}
+
+	/**
+	 * Fill the buffer with 2D noise of an axis-aligned grid. The sample of the
+	 * cell (i, j) is exactly <code>noise(frequency * (startX + i), frequency *
+	 * (startY + j))</code>.
+	 * <p>
+	 * Faster than calling {@linkplain #noise(double, double)} for each cell. The
+	 * scaled coordinates are computed once per column and row, and the hashed
+	 * gradients are reused while the samples stay in the same simplex (which
+	 * is most of the time for the low frequencies).
+	 *
+	 * @param out       [j * width + i], must fit width * height
+	 * @param width
+	 * @param height
+	 * @param startX    x of the first column
+	 * @param startY    y of the first row
+	 * @param frequency
+	 */
+	public void noiseGrid(double[] out, int width, int height, int startX,
+			int startY, double frequency) {
+
+		Arrays.fill(out, 0, width * height, 0.0);
+
+		addNoiseGrid(out, width, height, startX, startY, frequency, 1.0, null);
+
+	}
+
+	/**
+	 * Fill the buffer with the weighted sum of the octaves, for an axis-aligned
+	 * grid. The sample of the cell (i, j) is exactly
+	 * <p>
+	 * <code>weights[0] * noise(frequencies[0] * x, frequencies[0] * y) +
+	 * weights[1] * noise(frequencies[1] * x, ...) + ...</code>
+	 * <p>
+	 * where x = startX + i and y = startY + j, added in the same order.
+	 *
+	 * @param out         [j * width + i], must fit width * height
+	 * @param width
+	 * @param height
+	 * @param startX      x of the first column
+	 * @param startY      y of the first row
+	 * @param frequencies
+	 * @param weights     same length as frequencies
+	 */
+	public void octaveGrid(double[] out, int width, int height, int startX,
+			int startY, double[] frequencies, double[] weights) {
+
+		Arrays.fill(out, 0, width * height, 0.0);
+
+		double[] scaledX = new double[width];
+
+		for (int k = 0; k < frequencies.length; k++)
+			addNoiseGrid(out, width, height, startX, startY, frequencies[k],
+					weights[k], scaledX);
+
+	}
+
+	/**
+	 * Same as {@linkplain #octaveGrid(double[], int, int, int, int, double[],
+	 * double[])}, but the octaves with step bigger than 1 are sampled only every
+	 * <code>step</code> cells, and bilinearly interpolated in between.
+	 * <p>
+	 * Meant for the low frequencies, which barely change across the grid. See
+	 * {@linkplain #getInterpolationError(double, double, int)} to pick the
+	 * step.
+	 *
+	 * @param out         [j * width + i], must fit width * height
+	 * @param width       must be divisible by the steps
+	 * @param height      must be divisible by the steps
+	 * @param startX      x of the first column
+	 * @param startY      y of the first row
+	 * @param frequencies
+	 * @param weights     same length as frequencies
+	 * @param steps       same length as frequencies, 1 for every cell
+	 */
+	public void octaveGrid(double[] out, int width, int height, int startX,
+			int startY, double[] frequencies, double[] weights, int[] steps) {
+
+		Arrays.fill(out, 0, width * height, 0.0);
+
+		double[] scaledX = new double[width];
+
+		for (int k = 0; k < frequencies.length; k++) {
+
+			if (steps[k] <= 1) {
+
+				addNoiseGrid(out, width, height, startX, startY, frequencies[k],
+						weights[k], scaledX);
+
+			} else if (indexOf(steps, steps[k]) == k) {
+
+				// the octaves with the same step share one lattice
+				addCoarseNoiseGrid(out, width, height, startX, startY, frequencies,
+						weights, steps, steps[k]);
+
+			}
+
+		}
+
+	}
+
+	private static int indexOf(int[] array, int value) {
+
+		for (int i = 0; i < array.length; i++)
+			if (array[i] == value)
+				return i;
+
+		return -1;
+
+	}
+
+	/**
+	 * Bilinear interpolation of simplex noise is off by at most about
+	 * <code>INTERPOLATION_ERROR * spacing^2</code>, where the spacing is the
+	 * distance between the samples in noise space. Measured, with some margin.
+	 */
+	private static final double INTERPOLATION_ERROR = 10;
+
+	/**
+	 * How much the weighted octave could be off when it is sampled every
+	 * <code>step</code> cells in {@linkplain #octaveGrid(double[], int, int, int,
+	 * int, double[], double[], int[])}.
+	 *
+	 * @param frequency of the octave
+	 * @param weight    of the octave
+	 * @param step      1 for every cell
+	 * @return the error bound, 0 if every cell is sampled
+	 */
+	public static double getInterpolationError(double frequency, double weight,
+			int step) {
+
+		if (step <= 1)
+			return 0;
+
+		double spacing = frequency * step;
+
+		return Math.abs(weight) * INTERPOLATION_ERROR * spacing * spacing;
+
+	}
+
+	/**
+	 * Add the weighted octaves that have the given step to each cell, sampled
+	 * every step cells and bilinearly interpolated.
+	 */
+	private void addCoarseNoiseGrid(double[] out, int width, int height,
+			int startX, int startY, double[] frequencies, double[] weights,
+			int[] steps, int step) {
+
+		int latticeWidth = width / step + 1;
+		int latticeHeight = height / step + 1;
+
+		double[] lattice = new double[latticeWidth * latticeHeight];
+
+		for (int k = 0; k < frequencies.length; k++) {
+
+			if (steps[k] != step)
+				continue;
+
+			double frequency = frequencies[k];
+
+			for (int j = 0; j < latticeHeight; j++)
+				for (int i = 0; i < latticeWidth; i++)
+					lattice[j * latticeWidth + i] += weights[k] * noise(
+							frequency * (startX + i * step),
+							frequency * (startY + j * step));
+
+		}
+
+		// fill in the cells between the lattice points, one block at a time
+		for (int j = 0; j < latticeHeight - 1; j++) {
+
+			for (int i = 0; i < latticeWidth - 1; i++) {
+
+				int corner = j * latticeWidth + i;
+
+				double topLeft = lattice[corner];
+				double topRight = lattice[corner + 1];
+				double leftStep = (lattice[corner + latticeWidth] - topLeft) / step;
+				double rightStep = (lattice[corner + latticeWidth + 1] - topRight)
+						/ step;
+
+				int index = (j * step) * width + i * step;
+
+				for (int row = 0; row < step; row++, index += width) {
+
+					double left = topLeft + leftStep * row;
+					double right = topRight + rightStep * row;
+					double colStep = (right - left) / step;
+
+					for (int col = 0; col < step; col++)
+						out[index + col] += left + colStep * col;
+
+				}
+
+			}
+		}
+
+	}
+
+	/**
+	 * Add <code>weight * noise(frequency * x, frequency * y)</code> to each cell.
+	 *
+	 * @param scaledX buffer for the scaled x of the columns, null to allocate
+	 */
+	private void addNoiseGrid(double[] out, int width, int height, int startX,
+			int startY, double frequency, double weight, double[] scaledX) {
+
+		if (scaledX == null)
+			scaledX = new double[width];
+
+		for (int i = 0; i < width; i++)
+			scaledX[i] = frequency * (startX + i);
+
+		// the simplex of the last sample
+		int lastI = Integer.MIN_VALUE, lastJ = Integer.MIN_VALUE;
+		int gi0 = 0, gi1Lower = 0, gi1Upper = 0, gi2 = 0;
+
+		for (int row = 0; row < height; row++) {
+
+			double yin = frequency * (startY + row);
+			int index = row * width;
+
+			for (int col = 0; col < width; col++, index++) {
+
+				double xin = scaledX[col];
+
+				// same math as noise(double, double)
+				double s = (xin + yin) * F2;
+				int i = fastfloor(xin + s);
+				int j = fastfloor(yin + s);
+				double t = (i + j) * G2;
+				double x0 = xin - (i - t);
+				double y0 = yin - (j - t);
+
+				// new simplex, look up the gradients of both triangles
+				if (i != lastI || j != lastJ) {
+
+					int ii = i & 255;
+					int jj = j & 255;
+
+					gi0 = permMod12[ii + perm[jj]];
+					gi1Lower = permMod12[ii + 1 + perm[jj]];
+					gi1Upper = permMod12[ii + perm[jj + 1]];
+					gi2 = permMod12[ii + 1 + perm[jj + 1]];
+
+					lastI = i;
+					lastJ = j;
+
+				}
+
+				int i1, j1, gi1;
+
+				if (x0 > y0) {
+					i1 = 1;
+					j1 = 0;
+					gi1 = gi1Lower;
+				} else {
+					i1 = 0;
+					j1 = 1;
+					gi1 = gi1Upper;
+				}
+
+				double x1 = x0 - i1 + G2;
+				double y1 = y0 - j1 + G2;
+				double x2 = x0 - 1.0 + 2.0 * G2;
+				double y2 = y0 - 1.0 + 2.0 * G2;
+
+				double n0, n1, n2;
+
+				double t0 = 0.5 - x0 * x0 - y0 * y0;
+				if (t0 < 0)
+					n0 = 0.0;
+				else {
+					t0 *= t0;
+					n0 = t0 * t0 * (GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0);
+				}
+
+				double t1 = 0.5 - x1 * x1 - y1 * y1;
+				if (t1 < 0)
+					n1 = 0.0;
+				else {
+					t1 *= t1;
+					n1 = t1 * t1 * (GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1);
+				}
+
+				double t2 = 0.5 - x2 * x2 - y2 * y2;
+				if (t2 < 0)
+					n2 = 0.0;
+				else {
+					t2 *= t2;
+					n2 = t2 * t2 * (GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2);
+				}
+
+				out[index] += weight * (70.0 * (n0 + n1 + n2));
+
+			}
+		}
+
+	}
+
 	// Inner class to speed upp gradient computations
 	// (array access is a lot slower than member access)
 	private static class Grad {
@@ -0,0 +1,165 @@
+package dev.game.map;
+
+import java.io.File;
+import java.util.Random;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.EntityManager;
+import dev.game.gfx.Assets;
+import dev.game.states.State;
+import dev.game.tiles.Tile;
+import dev.game.tiles.TileManager;
+import dev.game.worlds.World;
+
+/**
+ * TileLookupBenchmark.java - Times {@linkplain TileManager#getTile(int, int)}
+ * against the old way of finding a tile, which went through every tile of
+ * every loaded Chunk until the coordinate matched.
+ * <p>
+ * The Chunks around (0, 0) of a scratch world are generated and put in
+ * {@linkplain World#map}, then the same random coordinates (some of them out of
+ * the loaded Chunks) are looked up both ways. The tiles found have to be the
+ * same, the exit code is 1 if they are not. The scratch world is deleted
+ * after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * TileLookupBenchmark [radius] [lookups]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class TileLookupBenchmark {
+
+	private static final String WORLD_NAME = "_tile_lookup_benchmark";
+
+	/**
+	 * The old lookup, every tile of every loaded Chunk is checked until the
+	 * coordinate matches.
+	 *
+	 * @param x pos in block
+	 * @param y pos in block
+	 * @return Tile in the spot, the AirTile if it's not loaded
+	 */
+	private static Tile scanTile(int x, int y) {
+
+		for (Chunk chunk : World.getChunks()) {
+
+			for (int yy = 0; yy < Chunk.SIZE; yy++) {
+				for (int xx = 0; xx < Chunk.SIZE; xx++) {
+
+					if (chunk.x * Chunk.SIZE + xx == x && chunk.y * Chunk.SIZE + yy == y)
+						return chunk.getTile(xx, yy);
+
+				}
+			}
+		}
+
+		return TileManager.getAirTile();
+
+	}
+
+	/**
+	 * @param args [radius] [lookups]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int radius = (args.length > 0) ? Integer.parseInt(args[0]) : 1;
+		int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+
+		// the tiles need their images
+		Assets.init();
+
+		// the entities need a handler, nothing is shown
+		Handler handler = new Handler(new Game());
+		EntityManager.setHandler(handler);
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+
+		Chunk.setGenerator(new MapGenerator(handler, WORLD_NAME, 1, 2));
+
+		World.map = new ChunkWindow(radius, WORLD_NAME);
+
+		for (int y = -radius; y <= radius; y++)
+			for (int x = -radius; x <= radius; x++)
+				World.map.put(Chunk.prepareChunk(x, y, WORLD_NAME,
+						World.DIMENSION_WORLD));
+
+		TileManager tileManager = new TileManager(handler);
+
+		// a Chunk past the loaded ones on each side
+		int span = (radius + 2) * Chunk.SIZE;
+
+		Random random = new Random(1);
+
+		int[] xs = new int[lookups];
+		int[] ys = new int[lookups];
+
+		for (int i = 0; i < lookups; i++) {
+
+			xs[i] = random.nextInt(span * 2) - span;
+			ys[i] = random.nextInt(span * 2) - span;
+
+		}
+
+		int different = 0;
+
+		for (int i = 0; i < lookups; i++)
+			if (scanTile(xs[i], ys[i]) != tileManager.getTile(xs[i], ys[i]))
+				different++;
+
+		// a few rounds so the JIT is warm, the last one counts
+		long scanNanos = 0, lookupNanos = 0;
+		int sink = 0;
+
+		for (int round = 0; round < 3; round++) {
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < lookups; i++)
+				sink += scanTile(xs[i], ys[i]).getId();
+
+			scanNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			for (int i = 0; i < lookups; i++)
+				sink += tileManager.getTile(xs[i], ys[i]).getId();
+
+			lookupNanos = System.nanoTime() - start;
+
+		}
+
+		System.out.println("[TileLookupBenchmark] " + World.getChunks().size()
+				+ " Chunks, " + lookups + " lookups, " + different + " different");
+		System.out.println(String.format(
+				"[TileLookupBenchmark] scan %.1f ns/lookup, getTile %.1f ns/lookup, %.0fx (%d)",
+				scanNanos / (double) lookups, lookupNanos / (double) lookups,
+				scanNanos / (double) Math.max(lookupNanos, 1), sink & 1));
+
+		World.map.clear();
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		if (different > 0)
+			System.exit(1);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,252 @@
+package dev.game.map;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import dev.game.tiles.Tile;
+
+/**
+ * VarintCodec.java - Stores the records with variable length numbers (7 bits
+ * per byte), so small numbers take one byte.
+ * <p>
+ * The position of a record is stored as the distance from the position of the
+ * record before it, the first from the top-left of the Chunk. Entities are
+ * placed on the tile grid and saved in the order they were placed, so the
+ * distance is a few tiles, and it's stored in tiles when it's on the grid.
+ * The other values are stored as they are (zig-zag, so small negative numbers
+ * are small too).
+ * <p>
+ * Format: the number of entities, then each entity as the number of values,
+ * the id, x, y and the rest of the values. The items follow in the same way.
+ *
+ * @author Juhyung Kim
+ */
+public class VarintCodec implements ChunkCodec {
+
+	public static final int ID = 1;
+
+	public static final String NAME = "varint";
+
+	@Override
+	public int getId() {
+
+		return ID;
+	}
+
+	@Override
+	public String getName() {
+
+		return NAME;
+	}
+
+	@Override
+	public byte[] encode(List<int[]> entities, List<int[]> items, int chunkX,
+			int chunkY) {
+
+		Output out = new Output(16 + (entities.size() + items.size()) * 6);
+
+		putRecords(out, entities, chunkX, chunkY);
+		putRecords(out, items, chunkX, chunkY);
+
+		return out.toByteArray();
+
+	}
+
+	@Override
+	public void decode(ByteBuffer buffer, List<int[]> entities,
+			List<int[]> items, int chunkX, int chunkY) {
+
+		getRecords(buffer, entities, chunkX, chunkY);
+		getRecords(buffer, items, chunkX, chunkY);
+
+	}
+
+	private static void putRecords(Output out, List<int[]> records, int chunkX,
+			int chunkY) {
+
+		out.putVarint(records.size());
+
+		long lastX = getOrigin(chunkX);
+		long lastY = getOrigin(chunkY);
+
+		for (int[] record : records) {
+
+			out.putVarint(record.length);
+
+			// not a positioned record, in case of error...
+			if (record.length < 3) {
+
+				for (int value : record)
+					out.putVarint(zigZag(value));
+
+				continue;
+
+			}
+
+			out.putVarint(zigZag(record[0]));
+
+			putDistance(out, record[1] - lastX);
+			putDistance(out, record[2] - lastY);
+
+			lastX = record[1];
+			lastY = record[2];
+
+			for (int i = 3; i < record.length; i++)
+				out.putVarint(zigZag(record[i]));
+
+		}
+
+	}
+
+	private static void getRecords(ByteBuffer buffer, List<int[]> records,
+			int chunkX, int chunkY) {
+
+		int count = (int) getVarint(buffer);
+
+		long lastX = getOrigin(chunkX);
+		long lastY = getOrigin(chunkY);
+
+		for (int i = 0; i < count; i++) {
+
+			int[] record = new int[(int) getVarint(buffer)];
+
+			if (record.length < 3) {
+
+				for (int j = 0; j < record.length; j++)
+					record[j] = (int) unZigZag(getVarint(buffer));
+
+				records.add(record);
+
+				continue;
+
+			}
+
+			record[0] = (int) unZigZag(getVarint(buffer));
+
+			lastX += getDistance(buffer);
+			lastY += getDistance(buffer);
+
+			record[1] = (int) lastX;
+			record[2] = (int) lastY;
+
+			for (int j = 3; j < record.length; j++)
+				record[j] = (int) unZigZag(getVarint(buffer));
+
+			records.add(record);
+
+		}
+
+	}
+
+	/**
+	 * The lowest bit tells if the distance is in tiles (0) or in pixels (1).
+	 *
+	 * @param out
+	 * @param distance in pixels
+	 */
+	private static void putDistance(Output out, long distance) {
+
+		if (distance % Tile.TILE_SIZE == 0)
+			out.putVarint(zigZag(distance / Tile.TILE_SIZE) << 1);
+		else
+			out.putVarint(zigZag(distance) << 1 | 1);
+
+	}
+
+	/**
+	 * @param buffer
+	 * @return distance in pixels
+	 */
+	private static long getDistance(ByteBuffer buffer) {
+
+		long value = getVarint(buffer);
+
+		if ((value & 1) == 0)
+			return unZigZag(value >>> 1) * Tile.TILE_SIZE;
+
+		return unZigZag(value >>> 1);
+
+	}
+
+	/**
+	 * @param chunkPos x or y in chunkpos
+	 * @return top or left of the Chunk in pixels
+	 */
+	private static long getOrigin(int chunkPos) {
+
+		return (long) chunkPos * Chunk.SIZE * Tile.TILE_SIZE;
+
+	}
+
+	private static long zigZag(long value) {
+
+		return (value << 1) ^ (value >> 63);
+
+	}
+
+	private static long unZigZag(long value) {
+
+		return (value >>> 1) ^ -(value & 1);
+
+	}
+
+	private static long getVarint(ByteBuffer buffer) {
+
+		long value = 0;
+		int shift = 0;
+
+		while (true) {
+
+			byte b = buffer.get();
+
+			value |= (long) (b & 0x7F) << shift;
+
+			if (b >= 0)
+				return value;
+
+			shift += 7;
+
+		}
+
+	}
+
+	/**
+	 * Growing byte array to write the varints in.
+	 */
+	private static class Output {
+
+		private byte[] data;
+		private int length;
+
+		Output(int capacity) {
+
+			data = new byte[Math.max(16, capacity)];
+
+		}
+
+		void putVarint(long value) {
+
+			if (data.length - length < 10)
+				data = Arrays.copyOf(data, data.length * 2);
+
+			while ((value & ~0x7FL) != 0) {
+
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+
+			}
+
+			data[length++] = (byte) value;
+
+		}
+
+		byte[] toByteArray() {
+
+			return Arrays.copyOf(data, length);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,128 @@
+package dev.game.map;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.states.GameState;
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * ViewDistanceBenchmark.java - Times a game tick and a frame for each view
+ * distance (see {@linkplain World#setViewDistance(int)}).
+ * <p>
+ * A new scratch world is made for each radius, the player stands still while
+ * the Chunks around are loaded and the JIT warms up, then the ticks and the
+ * frames (drawn in an image) are timed. The scratch worlds are deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * ViewDistanceBenchmark [radius...]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class ViewDistanceBenchmark {
+
+	private static final String WORLD_NAME = "_view_distance_benchmark";
+
+	private static final int WARMUP_TICKS = 400, TICKS = 2000, FRAMES = 200;
+
+	/**
+	 * @param args [radius...]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int[] radii = { 1, 2, 3 };
+
+		if (args.length > 0) {
+
+			radii = new int[args.length];
+
+			for (int i = 0; i < args.length; i++)
+				radii[i] = Integer.parseInt(args[i]);
+
+		}
+
+		Handler handler = new Game().initHeadless();
+
+		BufferedImage image = new BufferedImage(Game.SCREEN_WIDTH,
+				Game.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics gfx = image.getGraphics();
+
+		for (int radius : radii) {
+
+			String worldName = WORLD_NAME + radius;
+
+			File scratchDir = new File(State.SAVEFILE_DIR + "/" + worldName);
+			deleteDir(scratchDir);
+
+			World.setViewDistance(radius);
+
+			World world = new World(handler,
+					new MapGenerator(handler, worldName, 1, 2));
+			handler.setWorld(world);
+			handler.getGame().gameState = new GameState(handler, world);
+
+			for (int i = 0; i < WARMUP_TICKS; i++) {
+				world.tick();
+				world.render(gfx);
+			}
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < TICKS; i++)
+				world.tick();
+
+			long tickNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+
+			for (int i = 0; i < FRAMES; i++)
+				world.render(gfx);
+
+			long renderNanos = System.nanoTime() - start;
+
+			int entities = 0;
+
+			for (Chunk chunk : World.getChunks())
+				entities += chunk.entities.size();
+
+			System.out.println(String.format(
+					"[ViewDistanceBenchmark] radius %d: %d Chunks, %d entities, tick %.3f ms, render %.3f ms",
+					radius, World.getChunks().size(), entities,
+					tickNanos / 1e6 / TICKS, renderNanos / 1e6 / FRAMES));
+
+			world.getChunkLoader().shutdown();
+			ChunkCache.clear();
+			ChunkSaveQueue.flush();
+			RegionFile.closeAll();
+			deleteDir(scratchDir);
+
+		}
+
+		gfx.dispose();
+
+		System.exit(0);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
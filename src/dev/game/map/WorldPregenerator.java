@@ -0,0 +1,415 @@
+package dev.game.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.entities.EntityManager;
+import dev.game.states.State;
+import dev.game.worlds.World;
+
+/**
+ * WorldPregenerator.java - Generates and saves a block of Chunks ahead of time,
+ * without the game. The Chunks are generated in parallel on a
+ * {@linkplain ForkJoinPool}.
+ * <p>
+ * The Chunks are made by the same code as in the game (generated, entities
+ * spawned, saved), so they are the same bytes as the Chunks generated while
+ * walking around. The Chunks that are saved already are left as they are.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * WorldPregenerator &lt;world&gt; &lt;World|Cave&gt; &lt;radius&gt; [options]
+ * WorldPregenerator &lt;world&gt; &lt;World|Cave&gt; &lt;x0&gt; &lt;y0&gt; &lt;x1&gt; &lt;y1&gt; [options]
+ *
+ * options:
+ *   -seeds &lt;elevation&gt; &lt;moisture&gt;  seeds of a new world, random if left out
+ *   -threads &lt;n&gt;                    number of threads, every core if left out
+ *   -scaling                        time 1, 2, 4... threads on a scratch world first
+ * </pre>
+ *
+ * The radius is in Chunks around (0, 0), the rectangle is in chunkpos with both
+ * corners included. Nothing else may use the world meanwhile.
+ *
+ * @author Juhyung Kim
+ */
+public class WorldPregenerator {
+
+	/**
+	 * Chunks a task generates without splitting further
+	 */
+	private static final int LEAF_CHUNKS = 16;
+
+	/**
+	 * What one run did.
+	 */
+	public static class Stats {
+
+		public final int generated, skipped, threads;
+		public final long nanos;
+
+		Stats(int generated, int skipped, int threads, long nanos) {
+
+			this.generated = generated;
+			this.skipped = skipped;
+			this.threads = threads;
+			this.nanos = nanos;
+
+		}
+
+		/**
+		 * @return Chunks generated per second
+		 */
+		public double getChunksPerSecond() {
+
+			return (nanos == 0) ? 0 : generated * 1e9 / nanos;
+
+		}
+
+		@Override
+		public String toString() {
+
+			return "[WorldPregenerator] " + generated + " Chunks generated, " + skipped
+					+ " already saved, " + threads + " threads, "
+					+ String.format("%.1f", nanos / 1e6) + " ms, "
+					+ String.format("%.1f", getChunksPerSecond()) + " Chunks/s";
+
+		}
+
+	}
+
+	/**
+	 * Generate and save every Chunk in the rectangle that is not saved yet.
+	 * {@linkplain Chunk#setGenerator(MapGenerator)} must be set to the generator
+	 * of the world.
+	 *
+	 * @param worldName
+	 * @param dimension
+	 * @param x0        in chunkpos
+	 * @param y0        in chunkpos
+	 * @param x1        in chunkpos, included
+	 * @param y1        in chunkpos, included
+	 * @param threads   number of threads
+	 * @return
+	 */
+	public static Stats pregenerate(String worldName, int dimension, int x0,
+			int y0, int x1, int y1, int threads) {
+
+		AtomicInteger generated = new AtomicInteger();
+		AtomicInteger skipped = new AtomicInteger();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+
+		try {
+
+			pool.invoke(new Task(worldName, dimension, Math.min(x0, x1),
+					Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1), generated,
+					skipped));
+
+		} finally {
+			pool.shutdown();
+		}
+
+		long nanos = System.nanoTime() - start;
+
+		return new Stats(generated.get(), skipped.get(), threads, nanos);
+
+	}
+
+	/**
+	 * Generates a rectangle of Chunks, split in halves until it's small enough.
+	 */
+	private static class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String worldName;
+		private final int dimension;
+
+		/**
+		 * In chunkpos, both corners included
+		 */
+		private final int x0, y0, x1, y1;
+
+		private final AtomicInteger generated, skipped;
+
+		Task(String worldName, int dimension, int x0, int y0, int x1, int y1,
+				AtomicInteger generated, AtomicInteger skipped) {
+
+			this.worldName = worldName;
+			this.dimension = dimension;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+			this.generated = generated;
+			this.skipped = skipped;
+
+		}
+
+		@Override
+		protected void compute() {
+
+			int width = x1 - x0 + 1;
+			int height = y1 - y0 + 1;
+
+			if ((long) width * height <= LEAF_CHUNKS) {
+
+				for (int y = y0; y <= y1; y++)
+					for (int x = x0; x <= x1; x++)
+						generate(x, y);
+
+				return;
+
+			}
+
+			// split the longer side
+			if (width >= height) {
+
+				int mid = x0 + width / 2 - 1;
+
+				invokeAll(
+						new Task(worldName, dimension, x0, y0, mid, y1, generated, skipped),
+						new Task(worldName, dimension, mid + 1, y0, x1, y1, generated,
+								skipped));
+
+			} else {
+
+				int mid = y0 + height / 2 - 1;
+
+				invokeAll(
+						new Task(worldName, dimension, x0, y0, x1, mid, generated, skipped),
+						new Task(worldName, dimension, x0, mid + 1, x1, y1, generated,
+								skipped));
+
+			}
+
+		}
+
+		/**
+		 * Generate and save the Chunk, the same way as the game does.
+		 *
+		 * @param x in chunkpos
+		 * @param y in chunkpos
+		 */
+		private void generate(int x, int y) {
+
+			if (RegionIndex.contains(worldName, dimension, x, y)) {
+				skipped.incrementAndGet();
+				return;
+			}
+
+			Chunk chunk = Chunk.prepareChunk(x, y, worldName, dimension);
+
+			chunk.spawnEntities();
+
+			try {
+
+				chunk.writeInFile();
+
+			} catch (IOException ex) {
+				throw new RuntimeException(ex);
+			}
+
+			generated.incrementAndGet();
+
+		}
+
+	}
+
+	/**
+	 * Time the same rectangle with 1, 2, 4... threads, each on a new scratch
+	 * world with the seeds of the world, and print the table.
+	 *
+	 * @param handler
+	 * @param generator  of the world
+	 * @param dimension
+	 * @param x0         in chunkpos
+	 * @param y0         in chunkpos
+	 * @param x1         in chunkpos, included
+	 * @param y1         in chunkpos, included
+	 * @param maxThreads
+	 */
+	private static void printScaling(Handler handler, MapGenerator generator,
+			int dimension, int x0, int y0, int x1, int y1, int maxThreads) {
+
+		String scratchName = generator.getWorldName() + "_scaling";
+
+		double single = 0;
+
+		int threads = 1;
+
+		while (true) {
+
+			File scratchDir = new File(State.SAVEFILE_DIR + "/" + scratchName);
+
+			deleteDir(scratchDir);
+
+			Chunk.setGenerator(new MapGenerator(handler, scratchName,
+					generator.getSeed1(), generator.getSeed2()));
+
+			Stats stats = pregenerate(scratchName, dimension, x0, y0, x1, y1,
+					threads);
+
+			RegionFile.closeAll();
+			deleteDir(scratchDir);
+
+			if (threads == 1)
+				single = stats.getChunksPerSecond();
+
+			System.out.println(String.format(
+					"[WorldPregenerator] scaling: %2d threads, %8.1f Chunks/s, %.2fx",
+					threads, stats.getChunksPerSecond(),
+					stats.getChunksPerSecond() / single));
+
+			if (threads == maxThreads)
+				break;
+
+			// the last one is every thread
+			threads = Math.min(threads * 2, maxThreads);
+
+		}
+
+		Chunk.setGenerator(generator);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+	/**
+	 * @param name "World" or "Cave", any case
+	 * @return the dimension
+	 */
+	private static int parseDimension(String name) {
+
+		int[] dimensions = { World.DIMENSION_WORLD, World.DIMENSION_CAVE };
+
+		for (int dimension : dimensions)
+			if (World.dimensionToName(dimension).equalsIgnoreCase(name))
+				return dimension;
+
+		throw new IllegalArgumentException("Unknown dimension: " + name);
+
+	}
+
+	/**
+	 * See the usage in {@linkplain WorldPregenerator}.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 3) {
+
+			System.out.println("Usage: WorldPregenerator <world> <World|Cave> "
+					+ "(<radius> | <x0> <y0> <x1> <y1>) [-seeds <elevation> <moisture>] "
+					+ "[-threads <n>] [-scaling]");
+			return;
+
+		}
+
+		String worldName = args[0];
+		int dimension = parseDimension(args[1]);
+
+		int elevationSeed = MapGenerator.RANDOM_SEED;
+		int moistureSeed = MapGenerator.RANDOM_SEED;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean scaling = false;
+
+		int x0, y0, x1, y1;
+		int i;
+
+		if (args.length >= 6 && !args[3].startsWith("-")) {
+
+			x0 = Integer.parseInt(args[2]);
+			y0 = Integer.parseInt(args[3]);
+			x1 = Integer.parseInt(args[4]);
+			y1 = Integer.parseInt(args[5]);
+			i = 6;
+
+		} else {
+
+			int radius = Integer.parseInt(args[2]);
+
+			x0 = -radius;
+			y0 = -radius;
+			x1 = radius;
+			y1 = radius;
+			i = 3;
+
+		}
+
+		for (; i < args.length; i++) {
+
+			if (args[i].equals("-seeds")) {
+
+				elevationSeed = Integer.parseInt(args[++i]);
+				moistureSeed = Integer.parseInt(args[++i]);
+
+			} else if (args[i].equals("-threads")) {
+
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+
+			} else if (args[i].equals("-scaling")) {
+
+				scaling = true;
+
+			} else {
+
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+			}
+
+		}
+
+		// the entities need a handler, nothing is shown
+		Handler handler = new Handler(new Game());
+		EntityManager.setHandler(handler);
+
+		MapGenerator generator = new MapGenerator(handler, worldName,
+				elevationSeed, moistureSeed);
+
+		if (elevationSeed != MapGenerator.RANDOM_SEED
+				&& (generator.getSeed1() != elevationSeed
+						|| generator.getSeed2() != moistureSeed))
+			System.out.println("[WorldPregenerator] " + worldName
+					+ " exists, keeping its seeds " + generator.getSeed1() + " "
+					+ generator.getSeed2());
+
+		Chunk.setGenerator(generator);
+
+		// same as opening the world in the game
+		RegionConverter.convertWorld(worldName, generator.getChunkCodec());
+		RegionIndex.verify(worldName);
+
+		if (scaling)
+			printScaling(handler, generator, dimension, x0, y0, x1, y1, threads);
+
+		Stats stats = pregenerate(worldName, dimension, x0, y0, x1, y1, threads);
+
+		RegionFile.closeAll();
+
+		System.out.println(stats);
+
+	}
+
+}
@@ -11,6 +11,8 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import dev.game.Game;
 import dev.game.Handler;
@@ -26,6 +28,9 @@ import dev.game.inventory.Inventory;
 import dev.game.items.Item;
 import dev.game.items.useable.UseableItem;
 import dev.game.items.useable.placeable.PlaceableItem;
+import dev.game.map.ChunkCache;
+import dev.game.map.ChunkSaveQueue;
+import dev.game.map.RegionFile;
 import dev.game.sounds.Sound;
 import dev.game.ui.ClickListener;
 import dev.game.ui.UIImageButton;
@@ -623,11 +628,22 @@ public class GameState extends State {
 			createSavePath();
 			saveInventoryFile();
 
-			for (int y = 0; y < World.map.length; y++) {
-				for (int x = 0; x < World.map[0].length; x++) {
-					World.map[y][x].saveInFile();
-				}
-			}
+			world.savePlayerData();
+
+			// the cached Chunks belong to this world
+			ChunkCache.clear();
+
+			// nothing reads the files anymore, then they have to be complete
+			// before leaving the world
+			world.getChunkLoader().shutdown();
+			ChunkSaveQueue.flush();
+			RegionFile.closeAll();
+
+			Logger logger = Logger.getLogger(GameState.class.getName());
+			logger.log(Level.FINE, ChunkSaveQueue.getStats());
+			logger.log(Level.FINE, ChunkCache.getStats());
+			logger.log(Level.FINE, world.getMapGenManager().getCrossingStats());
+
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
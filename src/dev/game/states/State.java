@@ -20,6 +20,7 @@ public abstract class State {
 	public static final String SAVEFILE_DIR = "SaveFile";
 	public static final String PLAYER_FILE_NAME = "Player";
 	public static final String CHUNKS_DIR = "Chunks";
+	public static final String REGIONS_DIR = "Regions";
 	public static final String SEEDS_NAME = "Seeds";
 	public static final String INV_FILE_NAME = "inventory";
 
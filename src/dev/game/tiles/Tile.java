@@ -4,7 +4,6 @@ package dev.game.tiles;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 
-import dev.game.Handler;
 import dev.game.gfx.GameCamera;
 import dev.game.tiles.tiles.AirTile;
 import dev.game.tiles.tiles.DirtTile;
@@ -23,6 +22,10 @@ import dev.game.tiles.tiles.WaterTile;
 
 /**
  * Tile.java - tile
+ * <p>
+ * There is only one Tile object for each TileId (see
+ * {@linkplain #get(int)}), the Chunks only keep the ids. So the Tile does not
+ * know where it is, the position is given when it's rendered.
  *
  * @author j.kim3
  */
@@ -33,24 +36,19 @@ public class Tile {
 	public static final int DEFAULT_BRIGHTNESS = 254;
 	public static final int LOWEST_BRIGHTNESS = 32;
 
+	/**
+	 * Per-tile state of the tiles that are not looked at yet. See
+	 * {@linkplain #getState(TileManager, int, int)}.
+	 */
+	public static final int STATE_UNKNOWN = -1;
+
 	// class stuff
 	private boolean isSolid;
 
-	private int brightness;
-
 	protected BufferedImage texture;
 	private final int id;
 	private String name;
 
-	/**
-	 * in block
-	 */
-	private int x, y;
-
-	private Handler handler;
-
-	protected GameCamera camera;
-
 	public Tile(BufferedImage texture, int id, String name, boolean isSolid) {
 
 		this.texture = texture;
@@ -58,18 +56,43 @@ public class Tile {
 		this.isSolid = isSolid;
 		this.name = name;
 
-		this.brightness = DEFAULT_BRIGHTNESS;
-
 	}
 
 	/**
-	 * Nothing really
+	 * Called once per tick for all the tiles of this kind, not for each tile.
 	 */
 	public void tick() {
 
 	}
 
-	public void render(Graphics gfx) {
+	/**
+	 * Work out the state of the tile at the position from its surroundings. It is
+	 * kept by the Chunk and given back to
+	 * {@linkplain #render(Graphics, GameCamera, int, int, int)}.
+	 *
+	 * @param man tile manager of the world
+	 * @param x   in block
+	 * @param y   in block
+	 * @return 0 ~ 127
+	 */
+	public int getState(TileManager man, int x, int y) {
+
+		return 0;
+
+	}
+
+	/**
+	 * Render the tile at the position.
+	 *
+	 * @param gfx
+	 * @param camera
+	 * @param x      in block
+	 * @param y      in block
+	 * @param state  from {@linkplain #getState(TileManager, int, int)}, or
+	 *               {@linkplain #STATE_UNKNOWN}
+	 */
+	public void render(Graphics gfx, GameCamera camera, int x, int y,
+			int state) {
 
 		gfx.drawImage(texture, (int) (x * Tile.TILE_SIZE - camera.getXOffset()),
 				(int) (y * Tile.TILE_SIZE - camera.getYOffset()), TILE_SIZE,
@@ -77,14 +100,44 @@ public class Tile {
 	}
 
 	/**
-	 * Create new tile object by referencing the instances of tiles already made
+	 * Get the Tile of the id. The same object is returned for the same id.
+	 *
+	 * @param id tile id
+	 * @return Tile, or the AirTile if the id is unknown
+	 */
+	public static Tile get(int id) {
+
+		if (id < 0 || id >= Flyweights.TILES.length)
+			return Flyweights.TILES[TileId.AIR];
+
+		return Flyweights.TILES[id];
+
+	}
+
+	/**
+	 * Holds the Tiles, made on the first use since the textures have to be
+	 * loaded first.
+	 */
+	private static class Flyweights {
+
+		private static final Tile[] TILES = new Tile[TileId.SNOW + 1];
+
+		static {
+
+			for (int id = 0; id < TILES.length; id++)
+				TILES[id] = create(id);
+
+		}
+
+	}
+
+	/**
+	 * Create new tile object.
 	 *
-	 * @param ID tile id
-	 * @param x  position x
-	 * @param y  position y
+	 * @param id tile id
 	 * @return Tile
 	 */
-	public static Tile createNew(int id, int x, int y) {
+	private static Tile create(int id) {
 
 		Tile tile = null;
 
@@ -150,9 +203,6 @@ public class Tile {
 
 		}
 
-		tile.setX(x);
-		tile.setY(y);
-
 		return tile;
 
 	}
@@ -173,63 +223,4 @@ public class Tile {
 		return name;
 	}
 
-	public Handler getHandler() {
-
-		return handler;
-	}
-
-	public void setHandler(Handler hand) {
-
-		this.handler = hand;
-		this.camera = hand.getGameCamera();
-	}
-
-	/**
-	 * @return the x in block
-	 */
-	public int getX() {
-
-		return x;
-	}
-
-	/**
-	 * @param x the x to set in block
-	 */
-	public void setX(int x) {
-
-		this.x = x;
-	}
-
-	/**
-	 * @return the y in block
-	 */
-	public int getY() {
-
-		return y;
-	}
-
-	/**
-	 * @param y the y to set in block
-	 */
-	public void setY(int y) {
-
-		this.y = y;
-	}
-
-	/**
-	 * @return the brightness
-	 */
-	public int getBrightness() {
-
-		return brightness;
-	}
-
-	/**
-	 * @param brightness the brightness to set
-	 */
-	public void setBrightness(int brightness) {
-
-		this.brightness = brightness;
-	}
-
 }
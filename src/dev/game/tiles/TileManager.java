@@ -10,7 +10,6 @@ import dev.game.gfx.Assets;
 import dev.game.gfx.GameCamera;
 import dev.game.gfx.Text;
 import dev.game.map.Chunk;
-import dev.game.tiles.tiles.AirTile;
 import dev.game.worlds.World;
 
 /**
@@ -63,29 +62,32 @@ public class TileManager {
 		yStart -= chunkHalf;
 		yEnd += chunkHalf;
 
-		int bri = world.getWorldBrightness();
+		// the animations are shared by all the tiles of a kind
+		for (int id = 0; id <= TileId.SNOW; id++)
+			Tile.get(id).tick();
 
-		for (int y = 0; y < World.map.length; y++) {
+		for (Chunk currentChunk : World.getChunks()) {
 
-			for (int x = 0; x < World.map[0].length; x++) {
+			int chunkX = currentChunk.x * Chunk.SIZE;
+			int chunkY = currentChunk.y * Chunk.SIZE;
 
-				Chunk currentChunk = World.map[y][x];
+			int minX = Math.max(xStart - chunkX, 0);
+			int minY = Math.max(yStart - chunkY, 0);
+			int maxX = Math.min(xEnd - chunkX, Chunk.SIZE - 1);
+			int maxY = Math.min(yEnd - chunkY, Chunk.SIZE - 1);
 
-				if (currentChunk == null)
-					continue;
+			for (int yy = minY; yy <= maxY; yy++) {
+				for (int xx = minX; xx <= maxX; xx++) {
 
-				Tile[][] tiles = currentChunk.tiles;
+					// to check the surroundings only once
+					if (currentChunk.getTileState(xx, yy) != Tile.STATE_UNKNOWN)
+						continue;
 
-				for (int yy = 0; yy < tiles.length; yy++) {
-					for (int xx = 0; xx < tiles[0].length; xx++) {
+					Tile tile = currentChunk.getTile(xx, yy);
 
-						Tile tile = tiles[yy][xx];
+					currentChunk.setTileState(xx, yy,
+							tile.getState(this, chunkX + xx, chunkY + yy));
 
-						if (!isTileOutOfRange(tile, xStart, yStart, xEnd, yEnd)) {
-							tile.tick();
-							tile.setBrightness(bri);
-						}
-					}
 				}
 			}
 		}
@@ -106,27 +108,22 @@ public class TileManager {
 		int yStart = (int) (yOffset / Tile.TILE_SIZE) - 1;
 		int yEnd = (int) ((yOffset + Game.SCREEN_HEIGHT) / Tile.TILE_SIZE) + 1;
 
-		for (int y = 0; y < World.map.length; y++) {
-			for (int x = 0; x < World.map[0].length; x++) {
+		for (Chunk currentChunk : World.getChunks()) {
 
-				Chunk currentChunk = World.map[y][x];
+			int chunkX = currentChunk.x * Chunk.SIZE;
+			int chunkY = currentChunk.y * Chunk.SIZE;
 
-				if (currentChunk == null)
-					continue;
+			int minX = Math.max(xStart - chunkX, 0);
+			int minY = Math.max(yStart - chunkY, 0);
+			int maxX = Math.min(xEnd - chunkX, Chunk.SIZE - 1);
+			int maxY = Math.min(yEnd - chunkY, Chunk.SIZE - 1);
 
-				Tile[][] tiles = currentChunk.tiles;
+			for (int yy = minY; yy <= maxY; yy++) {
+				for (int xx = minX; xx <= maxX; xx++) {
 
-				for (int yy = 0; yy < tiles.length; yy++) {
-					for (int xx = 0; xx < tiles[0].length; xx++) {
+					currentChunk.getTile(xx, yy).render(gfx, camera, chunkX + xx,
+							chunkY + yy, currentChunk.getTileState(xx, yy));
 
-						Tile tile = tiles[yy][xx];
-
-						if (!isTileOutOfRange(tile, xStart, yStart, xEnd, yEnd)) {
-
-							tile.render(gfx);
-
-						}
-					}
 				}
 			}
 		}
@@ -135,7 +132,14 @@ public class TileManager {
 	/**
 	 * Get tile at the coordinate.
 	 * <p>
-	 * If the position is out of 3 * 3 surrounding Chunks, it return an AirTile
+	 * The owning Chunk and the slot in its tile array are computed directly from
+	 * the coordinate, so this costs the same no matter where the tile is.
+	 * <p>
+	 * The Tile is shared by all the tiles with the same id (see
+	 * {@linkplain Tile#get(int)}), so it does not know the position.
+	 * <p>
+	 * If the position is out of 3 * 3 surrounding Chunks, it return the AirTile
+	 * (see {@linkplain #getAirTile()})
 	 *
 	 * @param x pos in block
 	 * @param y pos in block
@@ -143,63 +147,46 @@ public class TileManager {
 	 */
 	public Tile getTile(int x, int y) {
 
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
+		Chunk chunk = World.getChunk(Chunk.blockToChunk(x), Chunk.blockToChunk(y));
 
-				Chunk currentChunk = World.map[yy][xx];
-
-				if (currentChunk == null)
-					continue;
+		// in case it was not in any chunk
+		// (probably coordinate too far from the player)
+		if (chunk == null)
+			return getAirTile();
 
-				Tile[][] tiles = currentChunk.tiles;
+		return chunk.getTile(Chunk.blockToLocal(x), Chunk.blockToLocal(y));
 
-				Tile leftTop = tiles[0][0];
-				Tile rightBottom = tiles[Chunk.SIZE - 1][Chunk.SIZE - 1];
-				int xStart = leftTop.getX();
-				int xEnd = rightBottom.getX();
-				int yStart = leftTop.getY();
-				int yEnd = rightBottom.getY();
+	}
 
-				// if it's found in this chunk, return it
-				if (x >= xStart || y >= yStart || x <= xEnd || y <= yEnd) {
+	/**
+	 * Get the brightness of the tile at the coordinate, the world brightness
+	 * combined with the light from the lights.
+	 *
+	 * @param x pos in block
+	 * @param y pos in block
+	 * @return Tile.LOWEST_BRIGHTNESS ~ Tile.DEFAULT_BRIGHTNESS (lower in cave)
+	 */
+	public int getBrightness(int x, int y) {
 
-					for (int i = 0; i < tiles.length; i++) {
-						for (int j = 0; j < tiles[0].length; j++) {
+		int bri = handler.getWorld().getWorldBrightness();
 
-							Tile tile = tiles[i][j];
+		Chunk chunk = World.getChunk(Chunk.blockToChunk(x), Chunk.blockToChunk(y));
 
-							if (tile.getX() == x && tile.getY() == y) {
-								return tile;
-							}
-						}
-					}
-				}
-			}
-		}
+		if (chunk != null)
+			bri += chunk.getLight(Chunk.blockToLocal(x), Chunk.blockToLocal(y));
 
-		// in case it was not in any chunk
-		// (probably coordinate too far from the player)
-		return new AirTile();
+		return Math.min(bri, Tile.DEFAULT_BRIGHTNESS);
 
 	}
 
 	/**
-	 * Check if the tile is out of the range.
+	 * The AirTile returned for every coordinate outside of the loaded Chunks.
 	 *
-	 * @param tile to check
-	 * @param minX in block
-	 * @param minY in block
-	 * @param maxX in block
-	 * @param maxY in block
-	 * @return
+	 * @return the AirTile
 	 */
-	public boolean isTileOutOfRange(Tile tile, int minX, int minY, int maxX,
-			int maxY) {
-
-		int tileX = tile.getX();
-		int tileY = tile.getY();
+	public static Tile getAirTile() {
 
-		return (tileX < minX || tileY < minY || tileX > maxX || tileY > maxY);
+		return Tile.get(TileId.AIR);
 
 	}
 
@@ -207,15 +194,16 @@ public class TileManager {
 	 * For developing purpose, show the tile coordinate on tile
 	 *
 	 * @param gfx
-	 * @param tile
+	 * @param x      in block
+	 * @param y      in block
 	 * @param camera
 	 */
-	public void showTileCoordinate(Graphics gfx, Tile tile, GameCamera camera) {
+	public void showTileCoordinate(Graphics gfx, int x, int y, GameCamera camera) {
 
-		Text.drawString(gfx, tile.getX() + "," + tile.getY(),
-				(int) (tile.getX() * Tile.TILE_SIZE - camera.getXOffset())
+		Text.drawString(gfx, x + "," + y,
+				(int) (x * Tile.TILE_SIZE - camera.getXOffset())
 						+ Tile.TILE_SIZE / 2,
-				(int) (tile.getY() * Tile.TILE_SIZE - camera.getYOffset())
+				(int) (y * Tile.TILE_SIZE - camera.getYOffset())
 						+ Tile.TILE_SIZE / 2,
 				Color.WHITE, Assets.cordFont, true);
 
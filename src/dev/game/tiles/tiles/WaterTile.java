@@ -6,24 +6,31 @@ import java.awt.image.BufferedImage;
 
 import dev.game.gfx.Animation;
 import dev.game.gfx.Assets;
+import dev.game.gfx.GameCamera;
 import dev.game.tiles.Tile;
 import dev.game.tiles.TileId;
 import dev.game.tiles.TileManager;
 
 /**
  * WaterTile.java - water tile
+ * <p>
+ * The state of a water tile tells which sides of it are water (see
+ * {@linkplain #getState(TileManager, int, int)}).
  *
  * @author j.kim3
  */
 public class WaterTile extends Tile {
 
-	private Animation anim_water;
+	// bits of the state, set if the side of block is water
+	public static final int UP = 1, DOWN = 2, LEFT = 4, RIGHT = 8;
 
-	// true if the side of block is water
-	private boolean up, down, left, right;
+	private Animation anim_water;
 
-	// to check the sides only once
-	private boolean checked = false;
+	/**
+	 * Various looks of water tile, by the state. Null for the water all around,
+	 * which is animated.
+	 */
+	private BufferedImage[] images;
 
 	public WaterTile() {
 
@@ -31,78 +38,79 @@ public class WaterTile extends Tile {
 
 		anim_water = new Animation(3000, Assets.water);
 
+		images = new BufferedImage[16];
+
+		images[0] = Assets.water_cccc;
+		images[RIGHT] = Assets.water_ccco;
+		images[LEFT | RIGHT] = Assets.water_ccoo;
+		images[LEFT] = Assets.water_ccoc;
+		images[DOWN] = Assets.water_cocc;
+		images[UP | DOWN] = Assets.water_oocc;
+		images[UP] = Assets.water_occc;
+		images[DOWN | RIGHT] = Assets.water_coco;
+		images[DOWN | LEFT | RIGHT] = Assets.water_cooo;
+		images[DOWN | LEFT] = Assets.water_cooc;
+		images[UP | DOWN | RIGHT] = Assets.water_ooco;
+		images[UP | DOWN | LEFT] = Assets.water_oooc;
+		images[UP | RIGHT] = Assets.water_occo;
+		images[UP | LEFT | RIGHT] = Assets.water_ocoo;
+		images[UP | LEFT] = Assets.water_ococ;
+
 	}
 
 	@Override
 	public void tick() {
 
-		if (!checked) {
+		anim_water.tick();
 
-			int x = getX(), y = getY();
+	}
 
-			TileManager man = getHandler().getWorld().getTileManager();
+	@Override
+	public int getState(TileManager man, int x, int y) {
 
-			int idUp = man.getTile(x, y - 1).getId();
-			int idDown = man.getTile(x, y + 1).getId();
-			int idLeft = man.getTile(x - 1, y).getId();
-			int idRight = man.getTile(x + 1, y).getId();
+		int state = 0;
 
-			up = (idUp == TileId.WATER || idUp == TileId.AIR);
-			down = (idDown == TileId.WATER || idDown == TileId.AIR);
-			left = (idLeft == TileId.WATER || idLeft == TileId.AIR);
-			right = (idRight == TileId.WATER || idRight == TileId.AIR);
+		if (isOpen(man.getTile(x, y - 1)))
+			state |= UP;
+		if (isOpen(man.getTile(x, y + 1)))
+			state |= DOWN;
+		if (isOpen(man.getTile(x - 1, y)))
+			state |= LEFT;
+		if (isOpen(man.getTile(x + 1, y)))
+			state |= RIGHT;
 
-			checked = true;
-		}
+		return state;
 
-		anim_water.tick();
+	}
+
+	/**
+	 * @param tile next to the water
+	 * @return true if the water continues to the tile
+	 */
+	private boolean isOpen(Tile tile) {
+
+		int id = tile.getId();
+
+		return (id == TileId.WATER || id == TileId.AIR);
 
 	}
 
 	@Override
-	public void render(Graphics gfx) {
+	public void render(Graphics gfx, GameCamera camera, int x, int y,
+			int state) {
 
 		BufferedImage image;
 
-		// various looks of water tile
-		if (up && down && left && right) {
+		if (state == (UP | DOWN | LEFT | RIGHT)) {
 			image = anim_water.getCurrentFrame();
-		} else if (!up && !down && !left && !right) {
+		} else if (state == STATE_UNKNOWN) {
 			image = Assets.water_cccc;
-		} else if (!up && !down && !left && right) {
-			image = Assets.water_ccco;
-		} else if (!up && !down && left && right) {
-			image = Assets.water_ccoo;
-		} else if (!up && !down && left && !right) {
-			image = Assets.water_ccoc;
-		} else if (!up && down && !left && !right) {
-			image = Assets.water_cocc;
-		} else if (up && down && !left && !right) {
-			image = Assets.water_oocc;
-		} else if (up && !down && !left && !right) {
-			image = Assets.water_occc;
-		} else if (!up && down && !left && right) {
-			image = Assets.water_coco;
-		} else if (!up && down && left && right) {
-			image = Assets.water_cooo;
-		} else if (!up && down && left && !right) {
-			image = Assets.water_cooc;
-		} else if (up && down && !left && right) {
-			image = Assets.water_ooco;
-		} else if (up && down && left && !right) {
-			image = Assets.water_oooc;
-		} else if (up && !down && !left && right) {
-			image = Assets.water_occo;
-		} else if (up && !down && left && right) {
-			image = Assets.water_ocoo;
-		} else if (up && !down && left && !right) {
-			image = Assets.water_ococ;
 		} else {
-			image = Assets.water_cccc;
+			image = images[state];
 		}
 
-		gfx.drawImage(image, (int) (getX() * Tile.TILE_SIZE - camera.getXOffset()),
-				(int) (getY() * Tile.TILE_SIZE - camera.getYOffset()), TILE_SIZE,
+		gfx.drawImage(image, (int) (x * Tile.TILE_SIZE - camera.getXOffset()),
+				(int) (y * Tile.TILE_SIZE - camera.getYOffset()), TILE_SIZE,
 				TILE_SIZE, null);
 
 	}
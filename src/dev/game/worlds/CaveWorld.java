@@ -1,16 +1,13 @@
 
 package dev.game.worlds;
 
-import java.util.List;
-
+import dev.game.entities.Entity;
 import dev.game.entities.EntityId;
 import dev.game.entities.creatures.Player;
 import dev.game.entities.statics.EntityCave;
 import dev.game.map.Chunk;
 import dev.game.sounds.Sound;
-import dev.game.states.State;
 import dev.game.tiles.Tile;
-import dev.game.utils.Utils;
 
 /**
  * The underground world in the cave.
@@ -21,6 +18,11 @@ import dev.game.utils.Utils;
  */
 public class CaveWorld {
 
+	/**
+	 * The brightness in the cave, there is no day or night
+	 */
+	public static final int BRIGHTNESS = Tile.LOWEST_BRIGHTNESS - 12;
+
 	/**
 	 * Load the cave world
 	 *
@@ -33,7 +35,6 @@ public class CaveWorld {
 		Sound.stopAll();
 		Sound.CAVE_BGM.loop();
 
-		saveWorld(world); // Superman, help!!!!
 		loadChunks(world);
 		spawnPlayer(world);
 		spawnCaveEntity(world);
@@ -41,40 +42,20 @@ public class CaveWorld {
 	}
 
 	/**
-	 * Save the world's data before going to cave world.
-	 *
-	 * @param world
-	 */
-	private static void saveWorld(World world) {
-
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
-				if (World.map[xx][yy] != null)
-					World.map[yy][xx].saveInFile();
-			}
-		}
-
-		world.savePlayerData();
-
-	}
-
-	/**
-	 * Load the chunks for the cave world. And set the brightness to lowest.
+	 * Switch to the chunks of the cave world. And set the brightness to lowest.
 	 *
 	 * @param world
 	 */
 	private static void loadChunks(World world) {
 
-		// now change to cave world
-		world.getLightManager().clear();
-		world.setDimension(World.DIMENSION_CAVE);
-		world.loadChunks();
-		world.setWorldBrightness(Tile.LOWEST_BRIGHTNESS - 12);
+		// the world's chunks stay loaded for the way back
+		world.switchDimension(World.DIMENSION_CAVE);
+		world.setWorldBrightness(BRIGHTNESS);
 
 	}
 
 	/**
-	 * Spawn the player to the center chunk.
+	 * Move the player out of the wall, the player is in the center chunk.
 	 *
 	 * @param world
 	 */
@@ -82,8 +63,6 @@ public class CaveWorld {
 
 		Player player = world.getEntityManager().getPlayer();
 
-		World.map[1][1].addEntityDirectly(player);
-
 		int py = player.getCenterY();
 
 		// adjust y pos so player do not get stuck in wall
@@ -106,49 +85,25 @@ public class CaveWorld {
 
 		Player player = world.getEntityManager().getPlayer();
 
-		int[] newPos = Chunk.posToChunckPos(player.getCenterX(),
-				player.getCenterY());
-
-		String path = State.SAVEFILE_DIR + "/" + world.getWorldName() + "/"
-				+ State.CHUNKS_DIR + "/"
-				+ World.dimensionToName(World.DIMENSION_CAVE) + "/" + newPos[0]
-				+ Chunk.CHUNK_NAME_DIVIDER + newPos[1] + State.EXTENSION;
-
-		// the reason why it's checking the file directly is because
-		// the EntityManager.addEntity(Entity) needs one more tick to
-		// spawn the CaveEntity, but this method is called immediately after
-		// the load of chunks, so the EntityManager could not have added
-		// the CaveEntity yet even though it might exist.
-		List<String> data = Utils.loadFileAsArrays(path);
-
 		int cx = player.getCenterX() * Tile.TILE_SIZE;
 		int cy = player.getCenterY() * Tile.TILE_SIZE;
 
-		if (data != null) {
-
-			for (String line : data) {
-
-				String[] entityData = line.split(" ");
-
-				int entId = Utils.parseInt(entityData[0]);
-
-				// if there is cave, don't spawn it
-				if (entId == EntityId.CAVE) {
+		// the Chunk is loaded with its entities spawned, saved or not
+		Chunk chunk = World.map.get(Chunk.blockToChunk(player.getCenterX()),
+				Chunk.blockToChunk(player.getCenterY()));
 
-					int entX = Utils.parseInt(entityData[1]);
-					int entY = Utils.parseInt(entityData[2]);
+		for (Entity entity : chunk.entities) {
 
-					// cave is already spawned
-					if (entX == cx && entY == cy)
-						return;
+			// cave is already spawned
+			if (entity.getEntityID() == EntityId.CAVE && (int) entity.getX() == cx
+					&& (int) entity.getY() == cy)
+				return;
 
-				}
-			}
 		}
 
 		// if it doesn't exist, spawn one
 		EntityCave cave = new EntityCave(world.getHandler(), cx, cy);
-		World.map[1][1].addEntityDirectly(cave);
+		chunk.addEntityDirectly(cave);
 
 	}
 
@@ -0,0 +1,147 @@
+package dev.game.worlds;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+
+import dev.game.Game;
+import dev.game.Handler;
+import dev.game.map.ChunkCache;
+import dev.game.map.ChunkSaveQueue;
+import dev.game.map.MapGenerator;
+import dev.game.map.RegionFile;
+import dev.game.states.GameState;
+import dev.game.states.State;
+
+/**
+ * DimensionSwitchBenchmark.java - Times going in and out of the cave, see
+ * {@linkplain CaveWorld#loadCaveWorld(World)} and
+ * {@linkplain World#loadWorld(World)}.
+ * <p>
+ * A scratch world is made, then the dimension is toggled over and over with a
+ * few ticks in between. The switch alone and the switch with the first tick
+ * and frame after it are timed. The first switches, which load the cave for
+ * the first time, are reported apart. The scratch world is deleted after.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * DimensionSwitchBenchmark [switches] [radius]
+ * </pre>
+ *
+ * @author Juhyung Kim
+ */
+public class DimensionSwitchBenchmark {
+
+	private static final String WORLD_NAME = "_dimension_switch_benchmark";
+
+	/**
+	 * Switches not counted in the median, both dimensions get loaded meanwhile
+	 */
+	private static final int WARMUP_SWITCHES = 10;
+
+	private static final int TICKS_BETWEEN = 10;
+
+	/**
+	 * @param args [switches] [radius]
+	 */
+	public static void main(String[] args) {
+
+		System.setProperty("java.awt.headless", "true");
+
+		int switches = (args.length > 0) ? Integer.parseInt(args[0]) : 60;
+		int radius = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+		File scratchDir = new File(State.SAVEFILE_DIR + "/" + WORLD_NAME);
+		deleteDir(scratchDir);
+
+		Handler handler = new Game().initHeadless();
+
+		World.setViewDistance(radius);
+
+		World world = new World(handler,
+				new MapGenerator(handler, WORLD_NAME, 1, 2));
+		handler.setWorld(world);
+		handler.getGame().gameState = new GameState(handler, world);
+
+		BufferedImage image = new BufferedImage(Game.SCREEN_WIDTH,
+				Game.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics gfx = image.getGraphics();
+
+		for (int i = 0; i < 100; i++) {
+			world.tick();
+			world.render(gfx);
+		}
+
+		long[] switchTimes = new long[switches];
+		long[] frameTimes = new long[switches];
+
+		for (int i = 0; i < switches; i++) {
+
+			long start = System.nanoTime();
+
+			if (world.getDimension() == World.DIMENSION_WORLD)
+				CaveWorld.loadCaveWorld(world);
+			else
+				World.loadWorld(world);
+
+			switchTimes[i] = System.nanoTime() - start;
+
+			world.tick();
+			world.render(gfx);
+
+			frameTimes[i] = System.nanoTime() - start;
+
+			for (int k = 0; k < TICKS_BETWEEN; k++) {
+				world.tick();
+				world.render(gfx);
+			}
+
+		}
+
+		long[] sortedSwitches = Arrays.copyOfRange(switchTimes, WARMUP_SWITCHES,
+				switches);
+		long[] sortedFrames = Arrays.copyOfRange(frameTimes, WARMUP_SWITCHES,
+				switches);
+		Arrays.sort(sortedSwitches);
+		Arrays.sort(sortedFrames);
+
+		int count = sortedSwitches.length;
+
+		System.out.println(String.format(
+				"[DimensionSwitchBenchmark] first switch to the cave %.2f ms, back %.2f ms",
+				switchTimes[0] / 1e6, switchTimes[1] / 1e6));
+		System.out.println(String.format(
+				"[DimensionSwitchBenchmark] %d switches, switch median %.3f ms, 95th %.3f ms",
+				count, sortedSwitches[count / 2] / 1e6,
+				sortedSwitches[count * 95 / 100] / 1e6));
+		System.out.println(String.format(
+				"[DimensionSwitchBenchmark] switch and first frame median %.3f ms, 95th %.3f ms",
+				sortedFrames[count / 2] / 1e6, sortedFrames[count * 95 / 100] / 1e6));
+
+		gfx.dispose();
+
+		world.getChunkLoader().shutdown();
+		ChunkCache.clear();
+		ChunkSaveQueue.flush();
+		RegionFile.closeAll();
+		deleteDir(scratchDir);
+
+		System.exit(0);
+
+	}
+
+	private static void deleteDir(File dir) {
+
+		File[] files = dir.listFiles();
+
+		if (files != null)
+			for (File file : files)
+				deleteDir(file);
+
+		dir.delete();
+
+	}
+
+}
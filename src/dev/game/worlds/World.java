@@ -2,23 +2,26 @@
 package dev.game.worlds;
 
 import java.awt.Graphics;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.List;
 
 import dev.game.Game;
 import dev.game.Handler;
+import dev.game.ai.pathfinding.PathFindingManager;
 import dev.game.entities.EntityManager;
 import dev.game.entities.creatures.Player;
 import dev.game.items.ItemManager;
 import dev.game.lights.LightManager;
 import dev.game.map.Chunk;
+import dev.game.map.ChunkCache;
+import dev.game.map.ChunkLoader;
+import dev.game.map.ChunkSaveQueue;
+import dev.game.map.ChunkWindow;
+import dev.game.map.EntityGrid;
 import dev.game.map.MapGenManager;
 import dev.game.map.MapGenerator;
+import dev.game.map.RegionConverter;
+import dev.game.map.RegionIndex;
 import dev.game.particle.ParticleManager;
 import dev.game.sounds.Sound;
 import dev.game.states.State;
@@ -52,12 +55,25 @@ public class World {
 
 	private static int dimension;
 
+	/**
+	 * The dimension to travel to after the tick, see
+	 * {@linkplain #travelTo(int)}
+	 */
+	private int nextDimension;
+
 	// managers
 	protected EntityManager entityManager;
 	protected ItemManager itemManager;
 	protected static TileManager tileManager;
 	protected LightManager lightManager;
 	protected ParticleManager particleManager;
+	protected PathFindingManager pathFindingManager;
+
+	/**
+	 * The lights of each dimension, [dimension]. lightManager is the one of the
+	 * current dimension.
+	 */
+	private final LightManager[] lightManagers = new LightManager[2];
 
 	// 5 minutes for each phase
 	protected static final int TIME_PERIOD = Game.FPS * 300;
@@ -66,6 +82,9 @@ public class World {
 	public static final int DAWN = 0, DAY = TIME_PERIOD, EVENING = DAY + TIME_PERIOD,
 			NIGHT = EVENING + TIME_PERIOD, MIDNIGHT = NIGHT + TIME_PERIOD;
 
+	// the brightness changes once a minute
+	private static final int MINUTE = Game.FPS * 60;
+
 	// how much brightness is (+/-)'ed per each minute
 	public final static int BRIGHTNESS_FACTOR = (Tile.DEFAULT_BRIGHTNESS
 			- Tile.LOWEST_BRIGHTNESS) / 5;
@@ -89,14 +108,36 @@ public class World {
 	private final int SAVE_INTERVAL = Game.FPS / 2;
 
 	/**
-	 * The 3 * 3 Chunks around the player
+	 * Chunks loaded on each side of the player's Chunk by default, 1 is 3 * 3
+	 * Chunks
+	 */
+	public static final int DEFAULT_VIEW_DISTANCE = 1;
+
+	/**
+	 * Chunks loaded on each side of the player's Chunk
+	 */
+	private static int viewDistance = DEFAULT_VIEW_DISTANCE;
+
+	/**
+	 * The Chunks around the player, in the current dimension
+	 */
+	public static ChunkWindow map;
+
+	/**
+	 * The Chunks of each dimension, [dimension]. The dimension player is not in
+	 * stays loaded as it is, so travelling back is instant.
 	 */
-	public static Chunk[][] map = new Chunk[3][3];
+	private final ChunkWindow[] maps = new ChunkWindow[2];
 
 	private Player player;
 
 	private MapGenManager mapGenManager;
 
+	/**
+	 * Loads the Chunks in background for the mapGenManager
+	 */
+	private ChunkLoader chunkLoader;
+
 	public World(Handler handler, MapGenerator generator) {
 
 		this.handler = handler;
@@ -104,15 +145,17 @@ public class World {
 		// just like setting handler for the world, set the map gen for Chunks
 		Chunk.setGenerator(generator);
 
-		map[0] = new Chunk[3];
-		map[1] = new Chunk[3];
-		map[2] = new Chunk[3];
-
 		itemManager = new ItemManager(handler);
 
 		WORLD_NAME = generator.getWorldName();
 		WORLD_PATH = State.SAVEFILE_DIR + "/" + WORLD_NAME + "/";
 
+		// the worlds from before the region files
+		RegionConverter.convertWorld(WORLD_NAME, generator.getChunkCodec());
+		RegionIndex.verify(WORLD_NAME);
+
+		chunkLoader = new ChunkLoader(WORLD_NAME);
+
 		int[] playerData = getPlayerData();
 
 		// default
@@ -129,6 +172,19 @@ public class World {
 			tempPlayer.setHealth(playerData[2]);
 		}
 
+		nextDimension = dimension;
+
+		map = getWindow(dimension);
+
+		worldBrightness = (dimension == World.DIMENSION_WORLD)
+				? getBrightnessAt(worldTime)
+				: CaveWorld.BRIGHTNESS;
+
+		if (tileManager == null)
+			tileManager = new TileManager(handler);
+
+		lightManager = getLightManager(dimension);
+
 		if (this.dimension == World.DIMENSION_WORLD) {
 			Sound.stopAll();
 			if ((worldTime >= DAY && worldTime < EVENING)) {
@@ -150,6 +206,8 @@ public class World {
 
 		particleManager = new ParticleManager(handler);
 
+		pathFindingManager = new PathFindingManager(handler);
+
 		// important this is under the player assignment
 		mapGenManager = new MapGenManager(handler, WORLD_NAME);
 
@@ -163,7 +221,18 @@ public class World {
 		lightManager.tick();
 		itemManager.tick();
 		entityManager.tick();
+		pathFindingManager.tick();
 		particleManager.tick();
+
+		// after the entities are done, they might be in the middle of it
+		if (nextDimension != dimension) {
+
+			if (nextDimension == World.DIMENSION_CAVE)
+				CaveWorld.loadCaveWorld(this);
+			else
+				World.loadWorld(this);
+
+		}
 	}
 
 	public void render(Graphics gfx) {
@@ -188,7 +257,7 @@ public class World {
 	 * world get gradually darker
 	 * <p>
 	 * Each period is 5 minutes long, and the light level change happen every 1
-	 * minute.
+	 * minute. See {@linkplain #getBrightnessAt(int)}.
 	 * <p>
 	 */
 	private static void timeCycle() {
@@ -199,38 +268,46 @@ public class World {
 
 		worldTime++;
 
-		// do brightness update each minute
-		if (worldTime % (Game.FPS * 60) != 0) {
-			return;
-		}
-
-		// sun is rising!
-		if (worldTime <= DAY) {
+		// back to 0
+		if (worldTime >= MIDNIGHT) {
 
-			worldBrightness += BRIGHTNESS_FACTOR;
+			worldTime = DAWN;
 
-		} // bright at day
-		else if ((worldTime >= DAY && worldTime < EVENING)) {
+		}
 
-			worldBrightness = Tile.DEFAULT_BRIGHTNESS;
+		worldBrightness = getBrightnessAt(worldTime);
 
-		} // dark at night
-		else if (worldTime > NIGHT) {
+	}
 
-			worldBrightness = Tile.LOWEST_BRIGHTNESS;
+	/**
+	 * Get the brightness of the World dimension at the time of the day. It
+	 * changes at the start of each minute:
+	 * <p>
+	 * DAWN ~ DAY: the sun is rising, from the lowest brightness up by
+	 * BRIGHTNESS_FACTOR each minute. DAY ~ EVENING: bright. EVENING ~ NIGHT: the
+	 * sun is falling, down by BRIGHTNESS_FACTOR each minute. NIGHT ~ MIDNIGHT:
+	 * dark.
+	 *
+	 * @param time worldTime, DAWN ~ MIDNIGHT
+	 * @return the brightness
+	 */
+	public static int getBrightnessAt(int time) {
 
-		} // sun is falling during evening
-		else if (worldTime > EVENING) {
+		// the start of the minute, when the brightness last changed
+		int minutes = time / MINUTE;
+		int changed = minutes * MINUTE;
 
-			worldBrightness -= BRIGHTNESS_FACTOR;
+		if (changed <= DAY)
+			return Tile.LOWEST_BRIGHTNESS + minutes * BRIGHTNESS_FACTOR;
 
-		}
-		// back to 0
-		if (worldTime >= MIDNIGHT) {
+		if (changed <= EVENING)
+			return Tile.DEFAULT_BRIGHTNESS;
 
-			worldTime = DAWN;
+		if (changed <= NIGHT)
+			return Tile.DEFAULT_BRIGHTNESS
+					- (changed - EVENING) / MINUTE * BRIGHTNESS_FACTOR;
 
-		}
+		return Tile.LOWEST_BRIGHTNESS;
 
 	}
 
@@ -248,8 +325,65 @@ public class World {
 	}
 
 	/**
-	 * Called when the World is just created (loaded). This method loads the
-	 * surrounding 9 chunks around the player.
+	 * True if the tile (in blocks) is not solid and no obstacle is on it, see
+	 * {@linkplain Chunk#isWalkable(int, int)}. The tiles out of the loaded
+	 * Chunks are not walkable.
+	 *
+	 * @param x posX in block
+	 * @param y posY in block
+	 * @return
+	 */
+	public static boolean isWalkable(int x, int y) {
+
+		Chunk chunk = map.get(Chunk.blockToChunk(x), Chunk.blockToChunk(y));
+
+		return chunk != null
+				&& chunk.isWalkable(Chunk.blockToLocal(x), Chunk.blockToLocal(y));
+
+	}
+
+	/**
+	 * Get the loaded Chunk at the chunk position. See
+	 * {@linkplain ChunkWindow#get(int, int)}.
+	 *
+	 * @param chunkX in chunkpos
+	 * @param chunkY in chunkpos
+	 * @return the Chunk, or null if it is not loaded
+	 */
+	public static Chunk getChunk(int chunkX, int chunkY) {
+
+		return map.get(chunkX, chunkY);
+
+	}
+
+	/**
+	 * The loaded Chunks, see {@linkplain ChunkWindow#getChunks()}.
+	 *
+	 * @return read-only list of the loaded Chunks
+	 */
+	public static List<Chunk> getChunks() {
+
+		return map.getChunks();
+
+	}
+
+	/**
+	 * The entities of the loaded Chunks by where they are, see
+	 * {@linkplain ChunkWindow#getEntityGrid()}.
+	 *
+	 * @return
+	 */
+	public static EntityGrid getEntityGrid() {
+
+		return map.getEntityGrid();
+
+	}
+
+	/**
+	 * Called when the World is just created (loaded), or the player travelled to
+	 * the other dimension. This method loads the surrounding chunks around the
+	 * player (9 of them with the default view distance), the Chunks that are
+	 * loaded already are kept.
 	 */
 	public void loadChunks() {
 
@@ -259,24 +393,104 @@ public class World {
 		int centerChunkX = chunkPos[0];
 		int centerChunkY = chunkPos[1];
 
-		if (tileManager == null)
-			tileManager = new TileManager(handler);
+		map.recenter(centerChunkX, centerChunkY);
 
-		if (lightManager == null && tileManager != null)
-			lightManager = new LightManager(handler, tileManager);
+		int radius = map.radius;
 
-		for (int y = -1; y < 2; y++) {
-			for (int x = -1; x < 2; x++) {
+		// load all at once in background
+		for (int y = -radius; y <= radius; y++)
+			for (int x = -radius; x <= radius; x++)
+				if (map.get(centerChunkX + x, centerChunkY + y) == null)
+					chunkLoader.request(centerChunkX + x, centerChunkY + y, dimension);
+
+		for (int y = -radius; y <= radius; y++) {
+			for (int x = -radius; x <= radius; x++) {
 
 				int cx = centerChunkX + x;
 				int cy = centerChunkY + y;
+
+				if (map.get(cx, cy) != null)
+					continue;
+
 				// check from file or create one
-				map[y + 1][x + 1] = Chunk.getNewChunk(cx, cy, WORLD_NAME, dimension);
+				map.put(chunkLoader.take(cx, cy, dimension));
 
 			}
 		}
 	}
 
+	/**
+	 * Travel to the dimension after this tick, when the entities are done
+	 * ticking. See {@linkplain CaveWorld#loadCaveWorld(World)} and
+	 * {@linkplain #loadWorld(World)}.
+	 *
+	 * @param dimension
+	 */
+	public void travelTo(int dimension) {
+
+		nextDimension = dimension;
+
+	}
+
+	/**
+	 * Move the player to the other dimension. The Chunks, lights and entities of
+	 * each dimension stay loaded, so this only switches to the other set (and
+	 * loads the Chunks the player is not near yet).
+	 *
+	 * @param newDimension
+	 */
+	void switchDimension(int newDimension) {
+
+		// what's still waiting belongs to the dimension left behind
+		entityManager.addEntitiesToChunk();
+		lightManager.addQueuedLights();
+		pathFindingManager.clear();
+
+		Chunk playerChunk = player.getChunk();
+
+		if (playerChunk != null && playerChunk.entities.remove(player))
+			playerChunk.entityRemoved(player);
+
+		setDimension(newDimension);
+		nextDimension = newDimension;
+
+		map = getWindow(newDimension);
+		lightManager = getLightManager(newDimension);
+
+		loadChunks();
+
+		map.getCenter().addEntityDirectly(player);
+
+		handler.getGameCamera().centerOnEntity(player);
+
+	}
+
+	/**
+	 * @param dimension
+	 * @return the Chunks of the dimension, made if needed
+	 */
+	private ChunkWindow getWindow(int dimension) {
+
+		if (maps[dimension] == null)
+			maps[dimension] = new ChunkWindow(viewDistance, WORLD_NAME);
+
+		return maps[dimension];
+
+	}
+
+	/**
+	 * @param dimension
+	 * @return the lights of the dimension, made if needed
+	 */
+	private LightManager getLightManager(int dimension) {
+
+		if (lightManagers[dimension] == null)
+			lightManagers[dimension] = new LightManager(handler, tileManager);
+
+		return lightManagers[dimension];
+
+	}
+
 	/**
 	 * Get the player for world loading. Player data also includes the current
 	 * dimension data. New world's spawn position is 0,0.
@@ -306,56 +520,25 @@ public class World {
 	}
 
 	/**
-	 * Save the player's data and world data
+	 * Save the player's data and world data. Only the Chunks that changed are
+	 * saved.
 	 */
 	public void savePlayerData() {
 
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
-				if (World.map[xx][yy] != null)
-					World.map[yy][xx].saveInFile();
-			}
-		}
-
-		String path = getPlayerDataPath();
-		BufferedWriter bw = null;
-
-		try {
-
-			File file = new File(path);
-
-			if (!file.exists()) {
-
-				file.getParentFile().mkdirs();
-				file.createNewFile();
-
-			}
-
-			FileOutputStream fos = new FileOutputStream(file);
-
-			bw = new BufferedWriter(new OutputStreamWriter(fos));
-
-			int entX = (int) player.getX();
-			int entY = (int) player.getY();
-			int entHealth = player.getHealth();
-
-			bw.write(entX + " " + entY + " " + entHealth + " " + dimension + " "
-					+ worldTime);
+		for (ChunkWindow window : maps)
+			if (window != null)
+				window.saveAll();
 
-		} catch (IOException ex) {
+		ChunkCache.saveAll();
 
-		} finally {
+		int entX = (int) player.getX();
+		int entY = (int) player.getY();
+		int entHealth = player.getHealth();
 
-			if (bw != null) {
-				try {
-					bw.close();
-				} catch (IOException ex) {
-					Logger.getLogger(World.class.getName()).log(Level.SEVERE, null,
-							ex);
-				}
-			}
+		// written in background, just like the Chunks
+		ChunkSaveQueue.submit(getPlayerDataPath(), entX + " " + entY + " "
+				+ entHealth + " " + dimension + " " + worldTime);
 
-		}
 	}
 
 	/**
@@ -391,42 +574,16 @@ public class World {
 			Sound.NIGHT_BGM.loop();
 		}
 
-		// save chunks
-		for (int yy = 0; yy < World.map.length; yy++) {
-			for (int xx = 0; xx < World.map[0].length; xx++) {
-				if (World.map[xx][yy] != null)
-					World.map[yy][xx].saveInFile();
-			}
-		}
-
-		world.savePlayerData();
-
-		// now change to cave world
-		world.getLightManager().clear();
-		world.setDimension(World.DIMENSION_WORLD);
-		world.loadChunks();
-
-		world.setWorldBrightness(Tile.DEFAULT_BRIGHTNESS);
-
-		int time = worldTime;
-		worldTime = 0;
-
-		for (int i = 0; i < time; i++) {
-			timeCycle();
-		}
-
-		Player player = world.getEntityManager().getPlayer();
+		world.switchDimension(World.DIMENSION_WORLD);
 
-		World.map[1][1].addEntityDirectly(player);
-
-		world.getHandler().getGameCamera().centerOnEntity(player);
+		world.setWorldBrightness(getBrightnessAt(worldTime));
 
 	}
 
 	// getters
 	public Chunk getCenterChunk() {
 
-		return map[1][1];
+		return map.getCenter();
 
 	}
 
@@ -435,6 +592,25 @@ public class World {
 		return this.handler;
 	}
 
+	/**
+	 * @return Chunks loaded on each side of the player's Chunk
+	 */
+	public static int getViewDistance() {
+
+		return viewDistance;
+	}
+
+	/**
+	 * Takes effect on the next World made.
+	 *
+	 * @param distance Chunks loaded on each side of the player's Chunk, 1 or
+	 *                 more
+	 */
+	public static void setViewDistance(int distance) {
+
+		viewDistance = Math.max(1, distance);
+	}
+
 	public ItemManager getItemManager() {
 
 		return itemManager;
@@ -455,6 +631,21 @@ public class World {
 		return lightManager;
 	}
 
+	public PathFindingManager getPathFindingManager() {
+
+		return pathFindingManager;
+	}
+
+	public ChunkLoader getChunkLoader() {
+
+		return chunkLoader;
+	}
+
+	public MapGenManager getMapGenManager() {
+
+		return mapGenManager;
+	}
+
 	/**
 	 * @return the worldTime
 	 */
@@ -469,6 +660,9 @@ public class World {
 	public void setWorldTime(int worldTime) {
 
 		this.worldTime = worldTime;
+
+		if (dimension == World.DIMENSION_WORLD)
+			worldBrightness = getBrightnessAt(worldTime);
 	}
 
 	/**